@@ -54,7 +54,16 @@ private class Visitor extends ClassLoaderVisitor {
         @Override
         public void visit(ClassLoader classLoader) {
             if (addToHash(classLoader)) {
-                super.visit(classLoader);
+                ClassLoader bottomLayer = classLoader;
+                for (ClassLoader layer = classLoaderFactory.getLayer(bottomLayer); layer != null; layer = classLoaderFactory.getLayer(bottomLayer)) {
+                    bottomLayer = layer;
+                }
+                if (bottomLayer == classLoader) {
+                    super.visit(classLoader);
+                } else if (bottomLayer.getParent() != null) {
+                    // The hash of a layered classloader already covers the classpath of its layers
+                    visitParent(bottomLayer.getParent());
+                }
             }
         }
 
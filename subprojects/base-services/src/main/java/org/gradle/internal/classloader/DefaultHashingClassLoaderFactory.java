@@ -29,6 +29,7 @@
 public class DefaultHashingClassLoaderFactory extends DefaultClassLoaderFactory implements HashingClassLoaderFactory {
     private final ClasspathHasher classpathHasher;
     private final Map<ClassLoader, HashCode> hashCodes = Collections.synchronizedMap(new WeakHashMap<ClassLoader, HashCode>());
+    private final Map<ClassLoader, ClassLoader> layers = Collections.synchronizedMap(new WeakHashMap<ClassLoader, ClassLoader>());
 
     public DefaultHashingClassLoaderFactory(ClasspathHasher classpathHasher) {
         this.classpathHasher = classpathHasher;
@@ -58,6 +59,18 @@ public ClassLoader createChildClassLoader(String name, ClassLoader parent, Class
         return classLoader;
     }
 
+    @Override
+    public ClassLoader createLayeredClassLoader(String name, ClassLoader layer, ClassPath classPath, HashCode implementationHash) {
+        ClassLoader classLoader = createChildClassLoader(name, layer, classPath, implementationHash);
+        layers.put(classLoader, layer);
+        return classLoader;
+    }
+
+    @Override
+    public ClassLoader getLayer(ClassLoader classLoader) {
+        return layers.get(classLoader);
+    }
+
     @Override
     public HashCode getClassLoaderClasspathHash(ClassLoader classLoader) {
         if (classLoader instanceof ImplementationHashAware) {
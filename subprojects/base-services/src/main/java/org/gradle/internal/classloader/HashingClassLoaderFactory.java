@@ -30,6 +30,19 @@ public interface HashingClassLoaderFactory extends ClassLoaderFactory {
      */
     ClassLoader createChildClassLoader(String name, ClassLoader parent, ClassPath classPath, @Nullable HashCode implementationHash);
 
+    /**
+     * Creates a {@link ClassLoader} with the given classpath on top of a layer, a classloader which holds the start of the complete classpath
+     * and is shared with other classloaders. The given hash code must represent the complete classpath, so that the created classloader
+     * hashes the same as a classloader created for the complete classpath with the parent of the layer.
+     */
+    ClassLoader createLayeredClassLoader(String name, ClassLoader layer, ClassPath classPath, HashCode implementationHash);
+
+    /**
+     * Returns the layer of a classloader created by {@link #createLayeredClassLoader(String, ClassLoader, ClassPath, HashCode)}, or {@code null} for any other classloader.
+     */
+    @Nullable
+    ClassLoader getLayer(ClassLoader classLoader);
+
     /**
      * Returns the hash associated with the classloader's classpath, or {@link null} if the classloader is unknown to Gradle.
      * The hash only represents the classloader's classpath only, regardless of whether or not there are any parent classloaders.
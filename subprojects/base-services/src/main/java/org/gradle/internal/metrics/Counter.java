@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A monotonically increasing count, which can be incremented by many threads at once without contending on a single memory location.
+ *
+ * <p>Increments are spread over a fixed number of padded cells chosen by thread, and the cells are summed up when the value is read.</p>
+ */
+public class Counter extends Metric {
+    private static final int PADDING = 8;
+    private static final int CELLS = cellCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(CELLS * PADDING);
+
+    Counter(String name, String help) {
+        super(name, help);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(cellIndex(), delta);
+    }
+
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < CELLS; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    @Override
+    void reset() {
+        for (int i = 0; i < CELLS; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    @Override
+    void writeTo(Appendable output) throws IOException {
+        writeHeader(output, "counter");
+        output.append(getName()).append(' ').append(String.valueOf(get())).append('\n');
+    }
+
+    static int cellIndex() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id ^ (id >>> 16)) & (CELLS - 1)) * PADDING;
+    }
+
+    private static int cellCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1;
+    }
+}
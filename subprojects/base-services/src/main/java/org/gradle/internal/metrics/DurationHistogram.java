@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in exponentially growing buckets, from 1 microsecond up to about 18 minutes, and tracks their sum.
+ * Recording a duration is lock-free and does not allocate. Durations are exported in seconds.
+ */
+public class DurationHistogram extends Metric {
+    // Bucket i holds durations up to 1 microsecond * 4^i
+    private static final int BUCKETS = 16;
+    private static final long FIRST_BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS + 1);
+    private final Counter count;
+    private final Counter sumNanos;
+
+    DurationHistogram(String name, String help) {
+        super(name, help);
+        this.count = new Counter(name + "_count", help);
+        this.sumNanos = new Counter(name + "_sum", help);
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()} value.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucketFor(nanos));
+        count.increment();
+        sumNanos.add(Math.max(0, nanos));
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum(TimeUnit unit) {
+        return unit.convert(sumNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    static int bucketFor(long nanos) {
+        long units = (Math.max(0, nanos) + FIRST_BUCKET_NANOS - 1) / FIRST_BUCKET_NANOS;
+        if (units <= 1) {
+            return 0;
+        }
+        // Index of the smallest power of 4 not less than units
+        int bucket = (64 - Long.numberOfLeadingZeros(units - 1) + 1) / 2;
+        return Math.min(bucket, BUCKETS);
+    }
+
+    @Override
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sumNanos.reset();
+    }
+
+    @Override
+    void writeTo(Appendable output) throws IOException {
+        writeHeader(output, "histogram");
+        long cumulative = 0;
+        long upperBoundNanos = FIRST_BUCKET_NANOS;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += buckets.get(i);
+            output.append(getName()).append("_bucket{le=\"").append(seconds(upperBoundNanos)).append("\"} ").append(String.valueOf(cumulative)).append('\n');
+            upperBoundNanos *= 4;
+        }
+        cumulative += buckets.get(BUCKETS);
+        output.append(getName()).append("_bucket{le=\"+Inf\"} ").append(String.valueOf(cumulative)).append('\n');
+        output.append(getName()).append("_sum ").append(seconds(sumNanos.get())).append('\n');
+        output.append(getName()).append("_count ").append(String.valueOf(count.get())).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1e9);
+    }
+}
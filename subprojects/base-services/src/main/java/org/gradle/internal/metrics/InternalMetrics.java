@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A process wide registry of counters and duration histograms for the hot paths of Gradle's internals.
+ *
+ * <p>Metrics are always collected. They are meant to be held in static fields of the instrumented classes, so that updating one costs
+ * no more than an atomic increment. Metrics are reset at the start of each build and can be exported at the end of the build in the
+ * Prometheus text exposition format, by setting the {@value #EXPORT_PROPERTY} system property to the path of the file to write.</p>
+ */
+public class InternalMetrics {
+    public static final String EXPORT_PROPERTY = "org.gradle.internal.metrics.file";
+
+    private static final ConcurrentMap<String, Metric> METRICS = new ConcurrentHashMap<String, Metric>();
+
+    private InternalMetrics() {
+    }
+
+    /**
+     * Returns the counter with the given name, creating it when required. Names follow the Prometheus conventions, e.g. {@code gradle_things_done_total}.
+     */
+    public static Counter counter(String name, String help) {
+        return register(new Counter(name, help));
+    }
+
+    /**
+     * Returns the duration histogram with the given name, creating it when required. Names follow the Prometheus conventions, e.g. {@code gradle_thing_duration_seconds}.
+     */
+    public static DurationHistogram durationHistogram(String name, String help) {
+        return register(new DurationHistogram(name, help));
+    }
+
+    private static <T extends Metric> T register(T metric) {
+        Metric existing = METRICS.putIfAbsent(metric.getName(), metric);
+        if (existing == null) {
+            return metric;
+        }
+        if (existing.getClass() != metric.getClass()) {
+            throw new IllegalArgumentException("Metric " + metric.getName() + " is already registered as a " + existing.getClass().getSimpleName() + ".");
+        }
+        @SuppressWarnings("unchecked") T result = (T) existing;
+        return result;
+    }
+
+    /**
+     * Resets all metrics, to start collecting for a new build.
+     */
+    public static void reset() {
+        for (Metric metric : METRICS.values()) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * Writes all metrics, sorted by name, in the Prometheus text exposition format.
+     */
+    public static void writeTo(Appendable output) throws IOException {
+        List<Metric> metrics = new ArrayList<Metric>(METRICS.values());
+        Collections.sort(metrics, new Comparator<Metric>() {
+            @Override
+            public int compare(Metric left, Metric right) {
+                return left.getName().compareTo(right.getName());
+            }
+        });
+        for (Metric metric : metrics) {
+            metric.writeTo(output);
+        }
+    }
+}
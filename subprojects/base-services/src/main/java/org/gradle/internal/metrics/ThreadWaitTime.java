@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.metrics;
+
+/**
+ * The total time the current thread has spent blocked waiting for worker leases and for other resource locks.
+ *
+ * <p>The totals only ever grow, so the time a thread spent waiting during some piece of work is the difference between the totals
+ * before and after that work. The time the thread waited for the worker lease it got to start its current piece of work is available
+ * separately, as that wait happens before the work starts.</p>
+ */
+public class ThreadWaitTime {
+    private static final ThreadLocal<ThreadWaitTime> CURRENT = new ThreadLocal<ThreadWaitTime>() {
+        @Override
+        protected ThreadWaitTime initialValue() {
+            return new ThreadWaitTime();
+        }
+    };
+
+    private int acquiringWorkerLease;
+    private boolean waitingForWorkerLease;
+    private long workerLeaseWaitNanos;
+    private long resourceLockWaitNanos;
+    private long currentWorkerLeaseWaitNanos;
+    private long lastWorkerLeaseWaitNanos;
+
+    private ThreadWaitTime() {
+    }
+
+    public static ThreadWaitTime current() {
+        return CURRENT.get();
+    }
+
+    public long getWorkerLeaseWaitNanos() {
+        return workerLeaseWaitNanos;
+    }
+
+    public long getResourceLockWaitNanos() {
+        return resourceLockWaitNanos;
+    }
+
+    /**
+     * Gets the time the current thread waited for the worker lease it got with the last {@link #stopWaitingForWorkerLease()}.
+     */
+    public long getLastWorkerLeaseWaitNanos() {
+        return lastWorkerLeaseWaitNanos;
+    }
+
+    /**
+     * Marks that the current thread could not get a worker lease to start some work, so that its waits count as worker lease wait time
+     * until {@link #stopWaitingForWorkerLease()}.
+     */
+    public void startWaitingForWorkerLease() {
+        waitingForWorkerLease = true;
+    }
+
+    /**
+     * Marks that the current thread got a worker lease to start some work, or no longer needs one.
+     */
+    public void stopWaitingForWorkerLease() {
+        lastWorkerLeaseWaitNanos = currentWorkerLeaseWaitNanos;
+        currentWorkerLeaseWaitNanos = 0;
+        waitingForWorkerLease = false;
+    }
+
+    /**
+     * Marks the start of a worker lease acquisition, so that the waits until {@link #finishAcquiringWorkerLease()} count as worker lease wait time.
+     */
+    public void startAcquiringWorkerLease() {
+        acquiringWorkerLease++;
+    }
+
+    public void finishAcquiringWorkerLease() {
+        acquiringWorkerLease--;
+    }
+
+    /**
+     * Records that the current thread was blocked for the given time.
+     */
+    public void waited(long nanos) {
+        if (waitingForWorkerLease) {
+            workerLeaseWaitNanos += nanos;
+            currentWorkerLeaseWaitNanos += nanos;
+        } else if (acquiringWorkerLease > 0) {
+            workerLeaseWaitNanos += nanos;
+        } else {
+            resourceLockWaitNanos += nanos;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations;
+
+/**
+ * A listener that does not depend on the thread emitting the notifications, such as the current build operation or other thread local state,
+ * and does not need to fail the build operation when it fails.
+ *
+ * Such a listener may be notified from another thread than the one running the build operation, see {@link DefaultBuildOperationListenerManager}.
+ * A failure of such a listener is logged and the listener is no longer notified.
+ */
+public interface ContextFreeBuildOperationListener extends BuildOperationListener {
+}
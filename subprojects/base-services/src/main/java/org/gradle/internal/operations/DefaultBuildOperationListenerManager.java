@@ -17,59 +17,118 @@
 package org.gradle.internal.operations;
 
 import com.google.common.collect.Sets;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.ThreadFactoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-public class DefaultBuildOperationListenerManager implements BuildOperationListenerManager {
+/**
+ * The default listener manager, which notifies the listeners on the thread running the build operation.
+ *
+ * <p>When the {@value #ASYNC_PROPERTY} system property is set, the listeners which declare themselves as {@link ContextFreeBuildOperationListener}
+ * are instead notified by a single dispatch thread. Their notifications are queued in a bounded queue and delivered in the order they were emitted,
+ * after the other listeners have been notified. The listeners registered when a notification is emitted are the ones which receive it.
+ * Threads emitting notifications block while the queue is full. Removing a listener waits until the notifications emitted before the removal
+ * have been delivered, so a listener sees all the notifications it would have received synchronously. Notifications emitted by a listener
+ * while it is being notified are delivered right away. A listener which fails on the dispatch thread is reported and no longer notified.
+ * The time notifications spend in the queue is tracked as the listener lag.</p>
+ */
+public class DefaultBuildOperationListenerManager implements BuildOperationListenerManager, Stoppable {
+    public static final String ASYNC_PROPERTY = "org.gradle.internal.operations.async-listeners";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultBuildOperationListenerManager.class);
+    private static final int QUEUE_CAPACITY = 16384;
 
     // This cannot be CopyOnWriteArrayList because we need to iterate it in reverse,
     // which requires atomically getting an iterator and the size.
     // Moreover, we iterate this list far more often that we mutate,
     // making a (albeit home grown) copy-on-write strategy more appealing.
     private List<ProgressShieldingBuildOperationListener> listeners = Collections.emptyList();
+    // The listeners notified by the dispatch thread, using the same copy-on-write strategy
+    private List<ProgressShieldingBuildOperationListener> asyncListeners = Collections.emptyList();
     private final Lock listenersLock = new ReentrantLock();
 
     private final BuildOperationListener broadcaster = new BuildOperationListener() {
         @Override
         public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
-            List<? extends BuildOperationListener> listeners = DefaultBuildOperationListenerManager.this.listeners;
-            //noinspection ForLoopReplaceableByForEach
-            for (int i = 0; i < listeners.size(); ++i) {
-                listeners.get(i).started(buildOperation, startEvent);
+            notifyStarted(listeners, buildOperation, startEvent);
+            if (dispatcher != null) {
+                dispatcher.started(buildOperation, startEvent);
             }
         }
 
         @Override
         public void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
-            List<? extends BuildOperationListener> listeners = DefaultBuildOperationListenerManager.this.listeners;
-            //noinspection ForLoopReplaceableByForEach
-            for (int i = 0; i < listeners.size(); ++i) {
-                listeners.get(i).progress(operationIdentifier, progressEvent);
+            notifyProgress(listeners, operationIdentifier, progressEvent);
+            if (dispatcher != null) {
+                dispatcher.progress(operationIdentifier, progressEvent);
             }
         }
 
         @Override
         public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
-            List<? extends BuildOperationListener> listeners = DefaultBuildOperationListenerManager.this.listeners;
-            for (int i = listeners.size() - 1; i >= 0; --i) {
-                listeners.get(i).finished(buildOperation, finishEvent);
+            notifyFinished(listeners, buildOperation, finishEvent);
+            if (dispatcher != null) {
+                dispatcher.finished(buildOperation, finishEvent);
             }
         }
     };
+    private final AsyncDispatcher dispatcher;
+
+    public DefaultBuildOperationListenerManager() {
+        this(Boolean.getBoolean(ASYNC_PROPERTY));
+    }
+
+    public DefaultBuildOperationListenerManager(boolean async) {
+        dispatcher = async ? new AsyncDispatcher() : null;
+    }
+
+    private static void notifyStarted(List<? extends BuildOperationListener> listeners, BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+        //noinspection ForLoopReplaceableByForEach
+        for (int i = 0; i < listeners.size(); ++i) {
+            listeners.get(i).started(buildOperation, startEvent);
+        }
+    }
+
+    private static void notifyProgress(List<? extends BuildOperationListener> listeners, OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+        //noinspection ForLoopReplaceableByForEach
+        for (int i = 0; i < listeners.size(); ++i) {
+            listeners.get(i).progress(operationIdentifier, progressEvent);
+        }
+    }
+
+    private static void notifyFinished(List<? extends BuildOperationListener> listeners, BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        for (int i = listeners.size() - 1; i >= 0; --i) {
+            listeners.get(i).finished(buildOperation, finishEvent);
+        }
+    }
 
     @Override
     public void addListener(BuildOperationListener listener) {
         listenersLock.lock();
         try {
-            List<ProgressShieldingBuildOperationListener> listeners = new ArrayList<ProgressShieldingBuildOperationListener>(this.listeners);
-            listeners.add(new ProgressShieldingBuildOperationListener(listener));
-            this.listeners = listeners;
+            ProgressShieldingBuildOperationListener shieldingListener = new ProgressShieldingBuildOperationListener(listener);
+            if (dispatcher != null && listener instanceof ContextFreeBuildOperationListener) {
+                asyncListeners = with(asyncListeners, shieldingListener);
+            } else {
+                listeners = with(listeners, shieldingListener);
+            }
         } finally {
             listenersLock.unlock();
         }
@@ -77,19 +136,47 @@ public void addListener(BuildOperationListener listener) {
 
     @Override
     public void removeListener(BuildOperationListener listener) {
+        boolean removedAsyncListener;
         listenersLock.lock();
         try {
-            List<ProgressShieldingBuildOperationListener> listeners = new ArrayList<ProgressShieldingBuildOperationListener>(this.listeners);
-            ListIterator<ProgressShieldingBuildOperationListener> listIterator = listeners.listIterator();
-            while (listIterator.hasNext()) {
-                if (listIterator.next().delegate.equals(listener)) {
-                    listIterator.remove();
-                }
-            }
-            this.listeners = listeners;
+            listeners = without(listeners, listener);
+            List<ProgressShieldingBuildOperationListener> asyncListeners = without(this.asyncListeners, listener);
+            removedAsyncListener = asyncListeners.size() != this.asyncListeners.size();
+            this.asyncListeners = asyncListeners;
         } finally {
             listenersLock.unlock();
         }
+        if (removedAsyncListener) {
+            dispatcher.awaitDelivered();
+        }
+    }
+
+    private void removeFailedListener(ProgressShieldingBuildOperationListener listener) {
+        listenersLock.lock();
+        try {
+            List<ProgressShieldingBuildOperationListener> asyncListeners = new ArrayList<ProgressShieldingBuildOperationListener>(this.asyncListeners);
+            asyncListeners.remove(listener);
+            this.asyncListeners = asyncListeners;
+        } finally {
+            listenersLock.unlock();
+        }
+    }
+
+    private static List<ProgressShieldingBuildOperationListener> with(List<ProgressShieldingBuildOperationListener> listeners, ProgressShieldingBuildOperationListener listener) {
+        List<ProgressShieldingBuildOperationListener> copy = new ArrayList<ProgressShieldingBuildOperationListener>(listeners);
+        copy.add(listener);
+        return copy;
+    }
+
+    private static List<ProgressShieldingBuildOperationListener> without(List<ProgressShieldingBuildOperationListener> listeners, BuildOperationListener listener) {
+        List<ProgressShieldingBuildOperationListener> copy = new ArrayList<ProgressShieldingBuildOperationListener>(listeners);
+        ListIterator<ProgressShieldingBuildOperationListener> listIterator = copy.listIterator();
+        while (listIterator.hasNext()) {
+            if (listIterator.next().delegate.equals(listener)) {
+                listIterator.remove();
+            }
+        }
+        return copy;
     }
 
     @Override
@@ -97,6 +184,223 @@ public BuildOperationListener getBroadcaster() {
         return broadcaster;
     }
 
+    /**
+     * Returns the longest time a notification has been queued before being delivered to the listeners, or 0 when notifications are delivered synchronously.
+     */
+    public long getMaxListenerLag(TimeUnit unit) {
+        return dispatcher == null ? 0 : unit.convert(dispatcher.maxLagNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the average time notifications have been queued before being delivered to the listeners, or 0 when notifications are delivered synchronously.
+     */
+    public long getAverageListenerLag(TimeUnit unit) {
+        if (dispatcher == null) {
+            return 0;
+        }
+        long delivered = dispatcher.delivered.get();
+        return delivered == 0 ? 0 : unit.convert(dispatcher.totalLagNanos.get() / delivered, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    private abstract static class Notification {
+        final List<ProgressShieldingBuildOperationListener> listeners;
+        final long emittedAt = System.nanoTime();
+
+        Notification(List<ProgressShieldingBuildOperationListener> listeners) {
+            this.listeners = listeners;
+        }
+
+        abstract void deliverTo(BuildOperationListener listener);
+
+        boolean isReverseOrder() {
+            return false;
+        }
+    }
+
+    private class AsyncDispatcher implements BuildOperationListener, Runnable {
+        private final BlockingQueue<Notification> queue = new ArrayBlockingQueue<Notification>(QUEUE_CAPACITY);
+        private final AtomicLong emitted = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong totalLagNanos = new AtomicLong();
+        private final AtomicLong maxLagNanos = new AtomicLong();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final Object deliveryLock = new Object();
+        // Held to read by the threads queueing notifications, and to write while stopping
+        private final ReadWriteLock emitLock = new ReentrantReadWriteLock();
+        private final Thread thread;
+        private boolean stopped;
+
+        AsyncDispatcher() {
+            thread = new ThreadFactoryImpl("Build operation listener dispatcher").newThread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void started(final BuildOperationDescriptor buildOperation, final OperationStartEvent startEvent) {
+            List<ProgressShieldingBuildOperationListener> listeners = asyncListeners;
+            if (!listeners.isEmpty()) {
+                emit(new Notification(listeners) {
+                    @Override
+                    void deliverTo(BuildOperationListener listener) {
+                        listener.started(buildOperation, startEvent);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void progress(final OperationIdentifier operationIdentifier, final OperationProgressEvent progressEvent) {
+            List<ProgressShieldingBuildOperationListener> listeners = asyncListeners;
+            if (!listeners.isEmpty()) {
+                emit(new Notification(listeners) {
+                    @Override
+                    void deliverTo(BuildOperationListener listener) {
+                        listener.progress(operationIdentifier, progressEvent);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void finished(final BuildOperationDescriptor buildOperation, final OperationFinishEvent finishEvent) {
+            List<ProgressShieldingBuildOperationListener> listeners = asyncListeners;
+            if (!listeners.isEmpty()) {
+                emit(new Notification(listeners) {
+                    @Override
+                    void deliverTo(BuildOperationListener listener) {
+                        listener.finished(buildOperation, finishEvent);
+                    }
+
+                    @Override
+                    boolean isReverseOrder() {
+                        return true;
+                    }
+                });
+            }
+        }
+
+        private void emit(Notification notification) {
+            if (Thread.currentThread() == thread) {
+                // Emitted by a listener
+                deliver(notification);
+                return;
+            }
+            boolean queued;
+            emitLock.readLock().lock();
+            try {
+                queued = !stopped;
+                if (queued) {
+                    emitted.incrementAndGet();
+                    queue.put(notification);
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                emitLock.readLock().unlock();
+            }
+            if (!queued) {
+                // Emitted after the dispatch thread has gone
+                deliver(notification);
+            }
+        }
+
+        private void deliver(Notification notification) {
+            List<ProgressShieldingBuildOperationListener> listeners = notification.listeners;
+            if (notification.isReverseOrder()) {
+                for (int i = listeners.size() - 1; i >= 0; --i) {
+                    deliver(notification, listeners.get(i));
+                }
+            } else {
+                //noinspection ForLoopReplaceableByForEach
+                for (int i = 0; i < listeners.size(); ++i) {
+                    deliver(notification, listeners.get(i));
+                }
+            }
+        }
+
+        private void deliver(Notification notification, ProgressShieldingBuildOperationListener listener) {
+            if (listener.failed) {
+                return;
+            }
+            try {
+                notification.deliverTo(listener);
+            } catch (Throwable t) {
+                // Nothing is waiting for this listener, so report the failure here rather than on some unrelated thread
+                listener.failed = true;
+                removeFailedListener(listener);
+                LOGGER.error("Build operation listener " + listener.delegate + " failed and will no longer be notified.", t);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Notification notification = queue.take();
+                    deliver(notification);
+                    long lag = System.nanoTime() - notification.emittedAt;
+                    totalLagNanos.addAndGet(lag);
+                    long max = maxLagNanos.get();
+                    while (lag > max && !maxLagNanos.compareAndSet(max, lag)) {
+                        max = maxLagNanos.get();
+                    }
+                    delivered.incrementAndGet();
+                    if (waiters.get() > 0) {
+                        synchronized (deliveryLock) {
+                            deliveryLock.notifyAll();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        }
+
+        /**
+         * Waits until the notifications emitted so far have been delivered.
+         */
+        void awaitDelivered() {
+            if (Thread.currentThread() == thread) {
+                return;
+            }
+            long target = emitted.get();
+            waiters.incrementAndGet();
+            try {
+                synchronized (deliveryLock) {
+                    while (delivered.get() < target && thread.isAlive()) {
+                        deliveryLock.wait(100);
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+
+        void stop() {
+            // Stop queueing before draining the queue, so that no notification is queued once the dispatch thread has gone
+            emitLock.writeLock().lock();
+            try {
+                stopped = true;
+                awaitDelivered();
+                thread.interrupt();
+            } finally {
+                emitLock.writeLock().unlock();
+            }
+            LOGGER.debug("Delivered {} build operation notifications asynchronously, average lag {}ms, max lag {}ms.",
+                delivered.get(), getAverageListenerLag(TimeUnit.MILLISECONDS), getMaxListenerLag(TimeUnit.MILLISECONDS));
+        }
+    }
+
     /**
      * Prevents sending progress notifications to a given listener outside of start/finished for that operation.
      */
@@ -104,6 +408,8 @@ private static class ProgressShieldingBuildOperationListener implements BuildOpe
 
         private final Set<OperationIdentifier> active = Sets.newConcurrentHashSet();
         private final BuildOperationListener delegate;
+        // Only used for the listeners notified by the dispatch thread
+        private volatile boolean failed;
 
         private ProgressShieldingBuildOperationListener(BuildOperationListener delegate) {
             this.delegate = delegate;
@@ -20,12 +20,17 @@
 import com.google.common.collect.Sets;
 import org.gradle.api.Transformer;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.metrics.DurationHistogram;
+import org.gradle.internal.metrics.InternalMetrics;
+import org.gradle.internal.metrics.ThreadWaitTime;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
 public class DefaultResourceLockCoordinationService implements ResourceLockCoordinationService {
+    private static final DurationHistogram WAIT_TIME = InternalMetrics.durationHistogram("gradle_resource_lock_wait_duration_seconds", "Time threads spent waiting for resource locks held by other threads.");
+
     private final Object lock = new Object();
     private final ThreadLocal<List<ResourceLockState>> currentState = new ThreadLocal<List<ResourceLockState>>() {
         @Override
@@ -47,11 +52,15 @@ public boolean withStateLock(Transformer<ResourceLockState.Disposition, Resource
                     switch (disposition) {
                         case RETRY:
                             resourceLockState.releaseLocks();
+                            long start = System.nanoTime();
                             try {
                                 lock.wait();
                             } catch (InterruptedException e) {
                                 throw UncheckedException.throwAsUncheckedException(e);
                             }
+                            long waited = System.nanoTime() - start;
+                            WAIT_TIME.record(waited);
+                            ThreadWaitTime.current().waited(waited);
                             break;
                         case FINISHED:
                             maybeNotifyStateChange(resourceLockState);
@@ -29,6 +29,9 @@
 import org.gradle.internal.MutableBoolean;
 import org.gradle.internal.concurrent.ParallelismConfigurationListener;
 import org.gradle.internal.concurrent.ParallelismConfigurationManager;
+import org.gradle.internal.metrics.DurationHistogram;
+import org.gradle.internal.metrics.InternalMetrics;
+import org.gradle.internal.metrics.ThreadWaitTime;
 import org.gradle.internal.resources.AbstractResourceLockRegistry;
 import org.gradle.internal.resources.AbstractTrackedResourceLock;
 import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
@@ -58,6 +61,7 @@
 public class DefaultWorkerLeaseService implements WorkerLeaseService, ParallelismConfigurationListener {
     public static final String PROJECT_LOCK_STATS_PROPERTY = "org.gradle.internal.project.lock.stats";
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultWorkerLeaseService.class);
+    private static final DurationHistogram LEASE_WAIT_TIME = InternalMetrics.durationHistogram("gradle_worker_lease_wait_duration_seconds", "Time spent waiting for a worker lease to start work.");
 
     private volatile int maxWorkerCount;
     private int counter = 1;
@@ -435,7 +439,15 @@ public void releaseLease() {
         }
 
         WorkerLeaseCompletion start() {
-            coordinationService.withStateLock(lock(this));
+            long start = System.nanoTime();
+            ThreadWaitTime waitTime = ThreadWaitTime.current();
+            waitTime.startAcquiringWorkerLease();
+            try {
+                coordinationService.withStateLock(lock(this));
+            } finally {
+                waitTime.finishAcquiringWorkerLease();
+            }
+            LEASE_WAIT_TIME.recordSince(start);
             return this;
         }
 
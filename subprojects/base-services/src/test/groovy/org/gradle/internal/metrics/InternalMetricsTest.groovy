@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.metrics
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.TimeUnit
+
+class InternalMetricsTest extends Specification {
+
+    def "returns the same counter for the same name"() {
+        def counter = InternalMetrics.counter("test_same_total", "help")
+
+        expect:
+        InternalMetrics.counter("test_same_total", "help").is(counter)
+
+        when:
+        InternalMetrics.durationHistogram("test_same_total", "help")
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "counts across threads and resets"() {
+        def counter = InternalMetrics.counter("test_threads_total", "help")
+
+        when:
+        def threads = (1..8).collect {
+            Thread.start {
+                1000.times { counter.increment() }
+            }
+        }
+        threads*.join()
+
+        then:
+        counter.get() == 8000
+
+        when:
+        InternalMetrics.reset()
+
+        then:
+        counter.get() == 0
+    }
+
+    @Unroll
+    def "records #nanos ns in bucket #bucket"() {
+        expect:
+        DurationHistogram.bucketFor(nanos) == bucket
+
+        where:
+        nanos          | bucket
+        0              | 0
+        1000           | 0
+        1001           | 1
+        4000           | 1
+        4001           | 2
+        16000          | 2
+        Long.MAX_VALUE | 16
+    }
+
+    def "writes metrics in Prometheus text format"() {
+        def counter = InternalMetrics.counter("test_export_total", "Things done.")
+        def histogram = InternalMetrics.durationHistogram("test_export_duration_seconds", "Time spent.")
+        InternalMetrics.reset()
+        counter.add(3)
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3))
+        histogram.record(TimeUnit.SECONDS.toNanos(2))
+
+        when:
+        def output = new StringBuilder()
+        InternalMetrics.writeTo(output)
+        def lines = output.readLines()
+
+        then:
+        histogram.getCount() == 2
+        histogram.getSum(TimeUnit.MICROSECONDS) == 2_000_003
+        lines.containsAll([
+            "# HELP test_export_total Things done.",
+            "# TYPE test_export_total counter",
+            "test_export_total 3",
+            "# TYPE test_export_duration_seconds histogram",
+            'test_export_duration_seconds_bucket{le="1.0E-6"} 0',
+            'test_export_duration_seconds_bucket{le="4.0E-6"} 1',
+            'test_export_duration_seconds_bucket{le="+Inf"} 2',
+            "test_export_duration_seconds_sum 2.000003",
+            "test_export_duration_seconds_count 2"
+        ])
+        lines.indexOf("# TYPE test_export_duration_seconds histogram") < lines.indexOf("# TYPE test_export_total counter")
+    }
+}
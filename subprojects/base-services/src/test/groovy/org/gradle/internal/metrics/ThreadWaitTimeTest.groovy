@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.metrics
+
+import spock.lang.Specification
+
+class ThreadWaitTimeTest extends Specification {
+    def waitTime = ThreadWaitTime.current()
+
+    def "counts waits for a worker lease to start work as worker lease wait time"() {
+        def leaseWaitBefore = waitTime.workerLeaseWaitNanos
+        def lockWaitBefore = waitTime.resourceLockWaitNanos
+
+        when:
+        waitTime.waited(1)
+        waitTime.startWaitingForWorkerLease()
+        waitTime.waited(10)
+        waitTime.waited(20)
+        waitTime.stopWaitingForWorkerLease()
+        waitTime.waited(100)
+
+        then:
+        waitTime.lastWorkerLeaseWaitNanos == 30
+        waitTime.workerLeaseWaitNanos - leaseWaitBefore == 30
+        waitTime.resourceLockWaitNanos - lockWaitBefore == 101
+
+        when:
+        waitTime.stopWaitingForWorkerLease()
+
+        then:
+        waitTime.lastWorkerLeaseWaitNanos == 0
+    }
+
+    def "counts waits while acquiring a worker lease during work as worker lease wait time"() {
+        def leaseWaitBefore = waitTime.workerLeaseWaitNanos
+        def lockWaitBefore = waitTime.resourceLockWaitNanos
+
+        when:
+        waitTime.startAcquiringWorkerLease()
+        waitTime.waited(10)
+        waitTime.finishAcquiringWorkerLease()
+        waitTime.waited(100)
+
+        then:
+        waitTime.workerLeaseWaitNanos - leaseWaitBefore == 10
+        waitTime.resourceLockWaitNanos - lockWaitBefore == 100
+    }
+}
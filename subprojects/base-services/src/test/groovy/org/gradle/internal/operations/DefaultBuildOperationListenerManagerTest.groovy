@@ -18,6 +18,9 @@ package org.gradle.internal.operations
 
 import spock.lang.Specification
 
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
 class DefaultBuildOperationListenerManagerTest extends Specification {
 
     def manager = new DefaultBuildOperationListenerManager()
@@ -122,6 +125,147 @@ class DefaultBuildOperationListenerManagerTest extends Specification {
         ]
     }
 
+    def "delivers notifications to context free listeners on dispatch thread in emission order when asynchronous"() {
+        given:
+        def asyncManager = new DefaultBuildOperationListenerManager(true)
+        def asyncBroadcaster = asyncManager.broadcaster
+        def threads = [] as Set
+        def listener1 = new ContextFreeRecordingListener("1")
+        def listener2 = new ContextFreeRecordingListener("2") {
+            @Override
+            void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+                threads << Thread.currentThread()
+                super.started(buildOperation, startEvent)
+                asyncBroadcaster.progress(buildOperation.id, progressEvent)
+            }
+        }
+        asyncManager.addListener(listener1)
+        asyncManager.addListener(listener2)
+
+        when:
+        asyncBroadcaster.started(op1, startEvent)
+        asyncBroadcaster.started(op2, startEvent)
+        asyncBroadcaster.finished(op1, finishEvent)
+        asyncBroadcaster.finished(op2, finishEvent)
+        asyncManager.removeListener(listener2)
+        asyncManager.removeListener(listener1)
+
+        then:
+        events == [
+            start("1", id1),
+            start("2", id1),
+            progress("1", id1),
+            progress("2", id1),
+            start("1", id2),
+            start("2", id2),
+            progress("1", id2),
+            progress("2", id2),
+            finished("2", id1),
+            finished("1", id1),
+            finished("2", id2),
+            finished("1", id2),
+        ]
+        threads.size() == 1
+        !threads.contains(Thread.currentThread())
+        asyncManager.getMaxListenerLag(TimeUnit.NANOSECONDS) > 0
+
+        cleanup:
+        asyncManager.stop()
+    }
+
+    def "notifies other listeners on emitting thread when asynchronous"() {
+        given:
+        def asyncManager = new DefaultBuildOperationListenerManager(true)
+        def threads = [] as Set
+        def listener = new RecordingListener("1") {
+            @Override
+            void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+                threads << Thread.currentThread()
+                super.started(buildOperation, startEvent)
+            }
+        }
+        asyncManager.addListener(listener)
+
+        when:
+        asyncManager.broadcaster.started(op1, startEvent)
+
+        then:
+        events == [start("1", id1)]
+        threads == [Thread.currentThread()] as Set
+
+        cleanup:
+        asyncManager.stop()
+    }
+
+    def "stops notifying a context free listener which fails without failing the emitting thread"() {
+        given:
+        def asyncManager = new DefaultBuildOperationListenerManager(true)
+        def failing = new ContextFreeRecordingListener("1") {
+            @Override
+            void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+                super.started(buildOperation, startEvent)
+                throw new RuntimeException("broken")
+            }
+        }
+        def other = new ContextFreeRecordingListener("2")
+        asyncManager.addListener(failing)
+        asyncManager.addListener(other)
+
+        when:
+        asyncManager.broadcaster.started(op1, startEvent)
+        asyncManager.broadcaster.finished(op1, finishEvent)
+        asyncManager.broadcaster.started(op2, startEvent)
+        asyncManager.removeListener(other)
+
+        then:
+        noExceptionThrown()
+        events == [
+            start("1", id1),
+            start("2", id1),
+            finished("2", id1),
+            start("2", id2),
+        ]
+
+        cleanup:
+        asyncManager.stop()
+    }
+
+    def "delivers every notification emitted while stopping"() {
+        given:
+        def asyncManager = new DefaultBuildOperationListenerManager(true)
+        def notified = new AtomicInteger()
+        def listener = new ContextFreeBuildOperationListener() {
+            @Override
+            void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+                notified.incrementAndGet()
+            }
+
+            @Override
+            void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+            }
+
+            @Override
+            void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+            }
+        }
+        asyncManager.addListener(listener)
+        def emitters = (1..4).collect {
+            Thread.start {
+                10000.times {
+                    asyncManager.broadcaster.started(op1, startEvent)
+                }
+            }
+        }
+
+        when:
+        Thread.sleep(10)
+        asyncManager.stop()
+        emitters*.join()
+
+        then:
+        notified.get() == 40000
+    }
+
     BuildOperationListener recordingListener(String label) {
         new RecordingListener(label)
     }
@@ -163,4 +307,9 @@ class DefaultBuildOperationListenerManagerTest extends Specification {
         }
     }
 
+    class ContextFreeRecordingListener extends RecordingListener implements ContextFreeBuildOperationListener {
+        ContextFreeRecordingListener(String label) {
+            super(label)
+        }
+    }
 }
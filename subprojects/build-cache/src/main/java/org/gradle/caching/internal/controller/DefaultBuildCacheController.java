@@ -40,6 +40,9 @@
 import org.gradle.caching.local.internal.DefaultBuildCacheTempFileStore;
 import org.gradle.caching.local.internal.LocalBuildCacheService;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.metrics.Counter;
+import org.gradle.internal.metrics.DurationHistogram;
+import org.gradle.internal.metrics.InternalMetrics;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -55,6 +58,13 @@
 import java.util.Optional;
 
 public class DefaultBuildCacheController implements BuildCacheController {
+    private static final Counter LOCAL_HITS = InternalMetrics.counter("gradle_build_cache_local_hits_total", "Entries loaded from the local build cache.");
+    private static final Counter LOCAL_MISSES = InternalMetrics.counter("gradle_build_cache_local_misses_total", "Entries not found in the local build cache.");
+    private static final Counter REMOTE_HITS = InternalMetrics.counter("gradle_build_cache_remote_hits_total", "Entries loaded from the remote build cache.");
+    private static final Counter REMOTE_MISSES = InternalMetrics.counter("gradle_build_cache_remote_misses_total", "Entries not found in the remote build cache.");
+    private static final DurationHistogram LOCAL_LOAD_TIME = InternalMetrics.durationHistogram("gradle_build_cache_local_load_duration_seconds", "Time spent loading entries from the local build cache, including unpacking.");
+    private static final DurationHistogram REMOTE_LOAD_TIME = InternalMetrics.durationHistogram("gradle_build_cache_remote_load_duration_seconds", "Time spent downloading entries from the remote build cache.");
+    private static final DurationHistogram REMOTE_STORE_TIME = InternalMetrics.durationHistogram("gradle_build_cache_remote_store_duration_seconds", "Time spent uploading entries to the remote build cache.");
 
     @VisibleForTesting
     final BuildCacheServiceHandle remote;
@@ -97,21 +107,28 @@ public <T> Optional<T> load(BuildCacheLoadCommand<T> command) {
         final Unpack<T> unpack = new Unpack<>(command);
 
         if (local.canLoad()) {
+            long start = System.nanoTime();
             try {
                 local.load(command.getKey(), unpack);
             } catch (Exception e) {
                 throw new GradleException("Build cache entry " + command.getKey().getHashCode() + " from local build cache is invalid", e);
             }
+            LOCAL_LOAD_TIME.recordSince(start);
 
             if (unpack.result != null) {
+                LOCAL_HITS.increment();
                 return Optional.of(unpack.result.getMetadata());
             }
+            LOCAL_MISSES.increment();
         }
 
         if (remote.canLoad()) {
             tmp.withTempFile(command.getKey(), file -> {
                 LoadTarget loadTarget = new LoadTarget(file);
+                long start = System.nanoTime();
                 remote.load(command.getKey(), loadTarget);
+                REMOTE_LOAD_TIME.recordSince(start);
+                (loadTarget.isLoaded() ? REMOTE_HITS : REMOTE_MISSES).increment();
 
                 if (loadTarget.isLoaded()) {
                     try {
@@ -179,7 +196,9 @@ public void store(BuildCacheStoreCommand command) {
             pack.execute(file);
 
             if (remote.canStore()) {
+                long start = System.nanoTime();
                 remote.store(key, new StoreTarget(file));
+                REMOTE_STORE_TIME.recordSince(start);
             }
 
             if (local.canStore()) {
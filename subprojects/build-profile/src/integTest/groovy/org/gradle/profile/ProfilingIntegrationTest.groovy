@@ -45,6 +45,7 @@ allprojects {
         !document.select("TD:contains(:c:jar)").isEmpty()
         document.text().contains("build fooTask")
         document.text().contains("-x barTask")
+        file('build/reports/profile').listFiles().find { it.name ==~ /profile-.+.timings/ }.length() > 0
         output.contains("See the profiling report at:")
         output.contains("A fine-grained performance profile is available: use the --${StartParameterBuildOptions.BuildScanOption.LONG_OPTION} option.")
     }
@@ -31,10 +31,11 @@
 import org.gradle.initialization.BuildCompletionListener;
 import org.gradle.internal.InternalBuildListener;
 import org.gradle.internal.buildevents.BuildStartedTime;
+import org.gradle.internal.metrics.ThreadWaitTime;
 import org.gradle.internal.time.Clock;
 
 /**
- * Adapts various events to build a {@link BuildProfile} model, and then notifies a {@link ReportGeneratingProfileListener} when the model is ready.
+ * Adapts various events to build a {@link BuildProfile} model, and notifies a {@link ReportGeneratingProfileListener} as each task finishes and when the model is ready.
  */
 public class ProfileEventAdapter implements InternalBuildListener, ProjectEvaluationListener, TaskListenerInternal, DependencyResolutionListener, BuildCompletionListener, ArtifactTransformListener {
     private final BuildStartedTime buildStartedTime;
@@ -110,7 +111,9 @@ public void afterEvaluate(Project project, ProjectState state) {
     public void beforeExecute(TaskIdentity<?> taskIdentity) {
         long now = clock.getCurrentTime();
         ProjectProfile projectProfile = buildProfile.getProjectProfile(taskIdentity.getProjectPath());
-        projectProfile.getTaskProfile(taskIdentity.getTaskPath()).setStart(now);
+        TaskExecution taskExecution = projectProfile.getTaskProfile(taskIdentity.getTaskPath());
+        taskExecution.setStart(now);
+        taskExecution.setWaitTimeAtStart(ThreadWaitTime.current());
     }
 
     @Override
@@ -119,7 +122,9 @@ public void afterExecute(TaskIdentity<?> taskIdentity, TaskState state) {
         ProjectProfile projectProfile = buildProfile.getProjectProfile(taskIdentity.getProjectPath());
         TaskExecution taskExecution = projectProfile.getTaskProfile(taskIdentity.getTaskPath());
         taskExecution.setFinish(now);
+        taskExecution.setWaitTimeAtFinish(ThreadWaitTime.current());
         taskExecution.completed(state);
+        listener.taskFinished(buildProfile, taskExecution);
     }
 
     // DependencyResolutionListener
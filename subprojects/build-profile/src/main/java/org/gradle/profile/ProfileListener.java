@@ -16,5 +16,10 @@
 package org.gradle.profile;
 
 public interface ProfileListener {
+    /**
+     * Called when a task has finished executing. May be called concurrently for tasks executing in parallel.
+     */
+    void taskFinished(BuildProfile profile, TaskExecution task);
+
     void buildFinished(BuildProfile result);
 }
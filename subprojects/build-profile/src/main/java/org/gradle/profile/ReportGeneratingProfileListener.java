@@ -19,11 +19,13 @@
 import org.gradle.api.logging.LogLevel;
 import org.gradle.initialization.StartParameterBuildOptions;
 import org.gradle.internal.InternalBuildAdapter;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.logging.ConsoleRenderer;
 import org.gradle.internal.logging.text.StyledTextOutput;
 import org.gradle.internal.logging.text.StyledTextOutputFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -33,6 +35,7 @@ public class ReportGeneratingProfileListener extends InternalBuildAdapter implem
     private static final SimpleDateFormat FILE_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
     private final StyledTextOutputFactory textOutputFactory;
     private File buildDir;
+    private TaskTimingLogWriter taskTimingLog;
 
     public ReportGeneratingProfileListener(StyledTextOutputFactory textOutputFactory) {
         this.textOutputFactory = textOutputFactory;
@@ -43,14 +46,43 @@ public void projectsEvaluated(Gradle gradle) {
         buildDir = gradle.getRootProject().getBuildDir();
     }
 
+    @Override
+    public void taskFinished(BuildProfile buildProfile, TaskExecution task) {
+        TaskTimingLogWriter taskTimingLog = getTaskTimingLog(buildProfile);
+        if (taskTimingLog != null) {
+            taskTimingLog.write(task);
+        }
+    }
+
+    private synchronized TaskTimingLogWriter getTaskTimingLog(BuildProfile buildProfile) {
+        if (taskTimingLog == null && buildDir != null) {
+            try {
+                taskTimingLog = new TaskTimingLogWriter(reportFile(buildProfile, TaskTimingReport.LOG_SUFFIX), buildProfile.getBuildStarted(), buildProfile.getBuildDescription());
+            } catch (IOException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        return taskTimingLog;
+    }
+
     @Override
     public void buildFinished(BuildProfile buildProfile) {
+        synchronized (this) {
+            if (taskTimingLog != null) {
+                taskTimingLog.close();
+                taskTimingLog = null;
+            }
+        }
         ProfileReportRenderer renderer = new ProfileReportRenderer();
-        File file = new File(buildDir, "reports/profile/profile-" + FILE_DATE_FORMAT.format(new Date(buildProfile.getBuildStarted())) + ".html");
+        File file = reportFile(buildProfile, ".html");
         renderer.writeTo(buildProfile, file);
         renderReportUrl(file);
     }
 
+    private File reportFile(BuildProfile buildProfile, String suffix) {
+        return new File(buildDir, "reports/profile/profile-" + FILE_DATE_FORMAT.format(new Date(buildProfile.getBuildStarted())) + suffix);
+    }
+
     private void renderReportUrl(File reportFile) {
         StyledTextOutput textOutput = textOutputFactory.create(ReportGeneratingProfileListener.class, LogLevel.LIFECYCLE);
         textOutput.println();
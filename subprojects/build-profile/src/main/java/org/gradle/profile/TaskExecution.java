@@ -16,10 +16,11 @@
 package org.gradle.profile;
 
 import org.gradle.api.tasks.TaskState;
+import org.gradle.internal.metrics.ThreadWaitTime;
 
 /**
  * Container for task profiling information.
- * This includes timestamps around task execution and the resulting task status.
+ * This includes timestamps around task execution, the time spent waiting for worker leases and locks during execution and the resulting task status.
  */
 public class TaskExecution extends ContinuousOperation {
 
@@ -27,6 +28,10 @@ public class TaskExecution extends ContinuousOperation {
 
     private final String path;
     private TaskState state;
+    private long workerLeaseWaitAtStart;
+    private long resourceLockWaitAtStart;
+    private long workerLeaseWait;
+    private long resourceLockWait;
 
     public TaskExecution(String taskPath) {
         super(taskPath);
@@ -48,6 +53,39 @@ public TaskState getState() {
         return state;
     }
 
+    /**
+     * Records the wait times of the thread executing the task when the task starts. The time the thread waited for the worker lease
+     * it got to start the task is counted as part of the worker lease wait time of the task.
+     */
+    public TaskExecution setWaitTimeAtStart(ThreadWaitTime waitTime) {
+        workerLeaseWaitAtStart = waitTime.getWorkerLeaseWaitNanos() - waitTime.getLastWorkerLeaseWaitNanos();
+        resourceLockWaitAtStart = waitTime.getResourceLockWaitNanos();
+        return this;
+    }
+
+    /**
+     * Records the wait times of the thread executing the task when the task finishes.
+     */
+    public TaskExecution setWaitTimeAtFinish(ThreadWaitTime waitTime) {
+        workerLeaseWait = waitTime.getWorkerLeaseWaitNanos() - workerLeaseWaitAtStart;
+        resourceLockWait = waitTime.getResourceLockWaitNanos() - resourceLockWaitAtStart;
+        return this;
+    }
+
+    /**
+     * Gets the time in nanoseconds the task spent waiting for a worker lease to start, and to get its worker lease back while it was executing.
+     */
+    public long getWorkerLeaseWaitTime() {
+        return workerLeaseWait;
+    }
+
+    /**
+     * Gets the time in nanoseconds the task spent waiting for project and other resource locks while it was executing.
+     */
+    public long getResourceLockWaitTime() {
+        return resourceLockWait;
+    }
+
     public TaskExecution completed(TaskState state) {
         this.state = state;
         return this;
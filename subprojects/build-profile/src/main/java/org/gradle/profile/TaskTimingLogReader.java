@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile;
+
+import org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedDecoder;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Reads the task timing log written by {@link TaskTimingLogWriter}, one record at a time.
+ *
+ * <p>A log which ends with an incomplete record, for example because the build process died, is read up to the last complete record.</p>
+ */
+class TaskTimingLogReader {
+
+    static void read(File log, Consumer<? super TaskTimingRecord> consumer) throws IOException {
+        try (BoundedStringDeduplicatingKryoBackedDecoder decoder = new BoundedStringDeduplicatingKryoBackedDecoder(new FileInputStream(log))) {
+            if (decoder.readInt() != TaskTimingLogWriter.MAGIC) {
+                throw new IOException(log + " is not a task timing log.");
+            }
+            int version = decoder.readSmallInt();
+            if (version != TaskTimingLogWriter.VERSION) {
+                throw new IOException("Unsupported task timing log version " + version + " in " + log + ".");
+            }
+            decoder.readLong();
+            decoder.readString();
+            while (true) {
+                TaskTimingRecord record;
+                try {
+                    record = new TaskTimingRecord(
+                        decoder.readString(),
+                        decoder.readSmallLong(),
+                        decoder.readSmallLong(),
+                        decoder.readSmallLong(),
+                        decoder.readSmallLong(),
+                        decoder.readString(),
+                        decoder.readBoolean()
+                    );
+                } catch (EOFException e) {
+                    return;
+                }
+                consumer.accept(record);
+            }
+        }
+    }
+}
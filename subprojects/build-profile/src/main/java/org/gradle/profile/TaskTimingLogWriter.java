@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedEncoder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a record for each executed task to a compact binary log while the build runs, so that the timings of many builds can be
+ * aggregated by {@link TaskTimingReport} afterwards.
+ *
+ * <p>The log starts with a header holding the build start time and description, followed by one record per task. Task paths and statuses
+ * are written once and referenced afterwards, and times are written as variable length integers. The log is flushed after each record.</p>
+ */
+class TaskTimingLogWriter {
+    static final int MAGIC = 0x47505446;
+    static final int VERSION = 1;
+
+    private final BoundedStringDeduplicatingKryoBackedEncoder encoder;
+    private final long buildStarted;
+
+    TaskTimingLogWriter(File logFile, long buildStarted, String buildDescription) throws IOException {
+        this.buildStarted = buildStarted;
+        logFile.getParentFile().mkdirs();
+        encoder = new BoundedStringDeduplicatingKryoBackedEncoder(new FileOutputStream(logFile));
+        encoder.writeInt(MAGIC);
+        encoder.writeSmallInt(VERSION);
+        encoder.writeLong(buildStarted);
+        encoder.writeString(buildDescription);
+    }
+
+    synchronized void write(TaskExecution task) {
+        try {
+            encoder.writeString(task.getPath());
+            encoder.writeSmallLong(Math.max(0, task.getStartTime() - buildStarted));
+            encoder.writeSmallLong(Math.max(0, task.getElapsedTime()));
+            encoder.writeSmallLong(TimeUnit.NANOSECONDS.toMicros(task.getWorkerLeaseWaitTime()));
+            encoder.writeSmallLong(TimeUnit.NANOSECONDS.toMicros(task.getResourceLockWaitTime()));
+            encoder.writeString(task.getStatus());
+            encoder.writeBoolean(task.getState().getFailure() != null);
+            // Keep the records of the finished tasks when the build process dies
+            encoder.flush();
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    synchronized void close() {
+        encoder.close();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile;
+
+/**
+ * The timings of one task execution, as streamed to the task timing log.
+ */
+class TaskTimingRecord {
+    final String taskPath;
+    final long startOffsetMillis;
+    final long durationMillis;
+    final long workerLeaseWaitMicros;
+    final long resourceLockWaitMicros;
+    final String status;
+    final boolean failed;
+
+    TaskTimingRecord(String taskPath, long startOffsetMillis, long durationMillis, long workerLeaseWaitMicros, long resourceLockWaitMicros, String status, boolean failed) {
+        this.taskPath = taskPath;
+        this.startOffsetMillis = startOffsetMillis;
+        this.durationMillis = durationMillis;
+        this.workerLeaseWaitMicros = workerLeaseWaitMicros;
+        this.resourceLockWaitMicros = resourceLockWaitMicros;
+        this.status = status;
+        this.failed = failed;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile;
+
+import org.gradle.internal.UncheckedException;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the task timing logs of many builds into percentiles per task, written as tab separated values:
+ *
+ * <pre>
+ * java -cp «gradle-home»/lib/*:«gradle-home»/lib/plugins/* org.gradle.profile.TaskTimingReport «report-file» «log-or-directory»...
+ * </pre>
+ *
+ * <p>Directories are searched for {@code profile-*.timings} files. For each task, the report holds the number of executions and failures,
+ * followed by the 50th, 90th and 99th percentile and the maximum of the execution time, the time spent waiting for a worker lease
+ * and the time spent waiting for locks during execution, all in milliseconds. Tasks are ordered by their total execution time,
+ * longest first.</p>
+ */
+public class TaskTimingReport {
+    static final String LOG_SUFFIX = ".timings";
+    private static final double[] PERCENTILES = {50, 90, 99, 100};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: TaskTimingReport <report-file> <log-or-directory>...");
+        }
+        List<File> logs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            collectLogs(new File(args[i]), logs);
+        }
+        generate(logs, new File(args[0]));
+    }
+
+    /**
+     * Writes the report for the given task timing logs to the given file.
+     */
+    public static void generate(Iterable<File> logs, File reportFile) throws IOException {
+        Map<String, TaskTimings> timings = new HashMap<>();
+        for (File log : logs) {
+            TaskTimingLogReader.read(log, record -> timings.computeIfAbsent(record.taskPath, TaskTimings::new).add(record));
+        }
+        List<TaskTimings> tasks = new ArrayList<>(timings.values());
+        tasks.sort(Comparator.comparingLong((TaskTimings task) -> task.totalDuration).reversed().thenComparing(task -> task.taskPath));
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+            writer.write("task\texecutions\tfailures");
+            writeHeader(writer, "duration");
+            writeHeader(writer, "lease_wait");
+            writeHeader(writer, "lock_wait");
+            writer.write('\n');
+            for (TaskTimings task : tasks) {
+                task.writeTo(writer);
+            }
+        }
+    }
+
+    private static void collectLogs(File file, List<File> logs) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    if (child.isDirectory() || (child.getName().startsWith("profile-") && child.getName().endsWith(LOG_SUFFIX))) {
+                        collectLogs(child, logs);
+                    }
+                }
+            }
+        } else {
+            logs.add(file);
+        }
+    }
+
+    private static void writeHeader(Writer writer, String name) throws IOException {
+        for (double percentile : PERCENTILES) {
+            writer.write('\t');
+            writer.write(name);
+            writer.write(percentile == 100 ? "_max" : "_p" + (int) percentile);
+        }
+    }
+
+    private static class TaskTimings {
+        final String taskPath;
+        final Samples duration = new Samples();
+        final Samples workerLeaseWait = new Samples();
+        final Samples resourceLockWait = new Samples();
+        long totalDuration;
+        int failures;
+
+        TaskTimings(String taskPath) {
+            this.taskPath = taskPath;
+        }
+
+        void add(TaskTimingRecord record) {
+            duration.add(record.durationMillis * 1000);
+            totalDuration += record.durationMillis;
+            workerLeaseWait.add(record.workerLeaseWaitMicros);
+            resourceLockWait.add(record.resourceLockWaitMicros);
+            if (record.failed) {
+                failures++;
+            }
+        }
+
+        void writeTo(Writer writer) {
+            try {
+                writer.write(taskPath);
+                writer.write('\t');
+                writer.write(String.valueOf(duration.size));
+                writer.write('\t');
+                writer.write(String.valueOf(failures));
+                duration.writePercentiles(writer);
+                workerLeaseWait.writePercentiles(writer);
+                resourceLockWait.writePercentiles(writer);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+
+    /**
+     * Durations in microseconds.
+     */
+    static class Samples {
+        private long[] values = new long[8];
+        private int size;
+        private boolean sorted = true;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            sorted = false;
+        }
+
+        /**
+         * Returns the given percentile using the nearest rank method.
+         */
+        long percentile(double percentile) {
+            if (!sorted) {
+                Arrays.sort(values, 0, size);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * size);
+            return values[Math.max(rank, 1) - 1];
+        }
+
+        void writePercentiles(Writer writer) throws IOException {
+            for (double percentile : PERCENTILES) {
+                writer.write('\t');
+                writer.write(String.valueOf(percentile(percentile) / 1000.0));
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile
+
+import org.gradle.api.tasks.TaskState
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TaskTimingReportTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider(getClass())
+
+    def "reads back the streamed task timings"() {
+        def log = temp.file("reports/profile-1.timings")
+
+        when:
+        def writer = new TaskTimingLogWriter(log, 1000, "build")
+        writer.write(task(":a", 1010, 1030))
+        writer.write(task(":b", 1020, 1025, true))
+        writer.close()
+        def records = []
+        TaskTimingLogReader.read(log) { records << it }
+
+        then:
+        records.size() == 2
+        with(records[0]) {
+            taskPath == ":a"
+            startOffsetMillis == 10
+            durationMillis == 20
+            status == ""
+            !failed
+        }
+        with(records[1]) {
+            taskPath == ":b"
+            durationMillis == 5
+            failed
+        }
+    }
+
+    def "records of finished tasks are in the log before it is closed"() {
+        def log = temp.file("profile-1.timings")
+        def writer = new TaskTimingLogWriter(log, 1000, "build")
+
+        when:
+        writer.write(task(":a", 1010, 1030))
+        def records = []
+        TaskTimingLogReader.read(log) { records << it }
+
+        then:
+        records*.taskPath == [":a"]
+
+        cleanup:
+        writer.close()
+    }
+
+    def "ignores an incomplete final record"() {
+        def log = temp.file("profile-1.timings")
+        def writer = new TaskTimingLogWriter(log, 1000, "build")
+        writer.write(task(":a", 1010, 1030))
+        writer.write(task(":b", 1010, 1030))
+        writer.close()
+        def bytes = log.bytes
+        log.bytes = Arrays.copyOf(bytes, bytes.length - 1)
+
+        when:
+        def records = []
+        TaskTimingLogReader.read(log) { records << it }
+
+        then:
+        records*.taskPath == [":a"]
+    }
+
+    def "aggregates percentiles across builds"() {
+        def logs = (1..10).collect { build ->
+            def log = temp.file("logs/profile-${build}.timings")
+            def writer = new TaskTimingLogWriter(log, 0, "build")
+            writer.write(task(":fast", 0, 1))
+            writer.write(task(":slow", 0, build * 100, build == 10))
+            writer.close()
+            log
+        }
+        def reportFile = temp.file("report.tsv")
+
+        when:
+        TaskTimingReport.generate(logs, reportFile)
+        def lines = reportFile.readLines()*.split("\t")
+
+        then:
+        lines[0][0..6] == ["task", "executions", "failures", "duration_p50", "duration_p90", "duration_p99", "duration_max"]
+        lines[1][0..6] == [":slow", "10", "1", "500.0", "900.0", "1000.0", "1000.0"]
+        lines[2][0..6] == [":fast", "10", "0", "1.0", "1.0", "1.0", "1.0"]
+    }
+
+    def "computes nearest rank percentiles"() {
+        def samples = new TaskTimingReport.Samples()
+        (100..1).each { samples.add(it) }
+
+        expect:
+        samples.percentile(50) == 50
+        samples.percentile(90) == 90
+        samples.percentile(99.5) == 100
+        samples.percentile(100) == 100
+        samples.percentile(0) == 1
+    }
+
+    private TaskExecution task(String path, long start, long finish, boolean failed = false) {
+        def state = Stub(TaskState) {
+            getSkipped() >> false
+            getDidWork() >> true
+            getFailure() >> (failed ? new RuntimeException() : null)
+        }
+        def execution = new TaskExecution(path)
+        execution.setStart(start)
+        execution.setFinish(finish)
+        execution.completed(state)
+        return execution
+    }
+}
@@ -23,6 +23,9 @@
 import org.gradle.internal.file.FileMetadataSnapshot;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.metrics.Counter;
+import org.gradle.internal.metrics.DurationHistogram;
+import org.gradle.internal.metrics.InternalMetrics;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
@@ -33,6 +36,10 @@
 import java.io.File;
 
 public class CachingFileHasher implements FileHasher {
+    private static final Counter CACHE_HITS = InternalMetrics.counter("gradle_file_hash_cache_hits_total", "File hashes served from the file hash cache.");
+    private static final Counter CACHE_MISSES = InternalMetrics.counter("gradle_file_hash_cache_misses_total", "File hashes computed because the file hash cache had no up-to-date entry.");
+    private static final DurationHistogram HASHING_TIME = InternalMetrics.durationHistogram("gradle_file_hash_duration_seconds", "Time spent hashing files missing from the file hash cache.");
+
     private final PersistentIndexedCache<String, FileInfo> cache;
     private final FileHasher delegate;
     private final FileSystem fileSystem;
@@ -80,11 +87,15 @@ private FileInfo snapshot(File file, long length, long timestamp) {
             FileInfo info = cache.get(absolutePath);
 
             if (info != null && length == info.length && timestamp == info.timestamp) {
+                CACHE_HITS.increment();
                 return info;
             }
         }
 
+        CACHE_MISSES.increment();
+        long start = System.nanoTime();
         HashCode hash = delegate.hash(file);
+        HASHING_TIME.recordSince(start);
         FileInfo info = new FileInfo(hash, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
         return info;
@@ -29,17 +29,32 @@
 import org.gradle.internal.classloader.FilteringClassLoader;
 import org.gradle.internal.classloader.HashingClassLoaderFactory;
 import org.gradle.internal.classpath.ClassPath;
+import org.gradle.internal.classpath.DefaultClassPath;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.hash.HashCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
+/**
+ * Caches classloaders by their parent, classpath and implementation hash, sharing a classloader between all the ids which use the same classpath.
+ *
+ * <p>When layering is enabled with the {@value #LAYERED_PROPERTY} system property, a classloader whose classpath starts with the complete classpath
+ * of another cached classloader with the same parent is created on top of that classloader. It only loads the remaining entries itself, so that
+ * the classes of the shared entries are loaded and compiled once, for example when a build script adds a jar to a classpath used elsewhere.
+ * Layers are reference counted and are released together with the last classloader using them.</p>
+ *
+ * <p>Classes loaded by a layer cannot see the classes in the remaining entries. This is why only the complete classpath of an existing
+ * classloader, which is known to work on its own, is used as a layer.</p>
+ */
 public class DefaultClassLoaderCache implements ClassLoaderCache, Stoppable, SessionLifecycleListener {
+    public static final String LAYERED_PROPERTY = "org.gradle.internal.classloader.layered-cache";
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultClassLoaderCache.class);
 
     private final Object lock = new Object();
@@ -48,10 +63,17 @@ public class DefaultClassLoaderCache implements ClassLoaderCache, Stoppable, Ses
     private final Set<ClassLoaderId> usedInThisBuild = Sets.newHashSet();
     private final ClasspathHasher classpathHasher;
     private final HashingClassLoaderFactory classLoaderFactory;
+    private final boolean layered;
 
     public DefaultClassLoaderCache(HashingClassLoaderFactory classLoaderFactory, ClasspathHasher classpathHasher) {
+        this(classLoaderFactory, classpathHasher, Boolean.getBoolean(LAYERED_PROPERTY));
+    }
+
+    @VisibleForTesting
+    DefaultClassLoaderCache(HashingClassLoaderFactory classLoaderFactory, ClasspathHasher classpathHasher, boolean layered) {
         this.classLoaderFactory = classLoaderFactory;
         this.classpathHasher = classpathHasher;
+        this.layered = layered;
     }
 
     @Override
@@ -61,15 +83,15 @@ public ClassLoader get(ClassLoaderId id, ClassPath classPath, @Nullable ClassLoa
 
     @Override
     public ClassLoader get(ClassLoaderId id, ClassPath classPath, @Nullable ClassLoader parent, @Nullable FilteringClassLoader.Spec filterSpec, @Nullable HashCode implementationHash) {
-        return doGet(id, classPath, parent, filterSpec, implementationHash, this::createClassLoader);
+        return doGet(id, classPath, parent, filterSpec, implementationHash, this::createClassLoader, layered);
     }
 
     @Override
     public ClassLoader createIfAbsent(ClassLoaderId id, ClassPath classPath, @Nullable ClassLoader parent, Function<ClassLoader, ClassLoader> factoryFunction, @Nullable HashCode implementationHash) {
-        return doGet(id, classPath, parent, null, implementationHash, spec -> factoryFunction.apply(spec.parent));
+        return doGet(id, classPath, parent, null, implementationHash, spec -> factoryFunction.apply(spec.parent), false);
     }
 
-    private ClassLoader doGet(ClassLoaderId id, ClassPath classPath, @Nullable ClassLoader parent, @Nullable FilteringClassLoader.Spec filterSpec, @Nullable HashCode implementationHash, Function<ManagedClassLoaderSpec, ClassLoader> factoryFunction) {
+    private ClassLoader doGet(ClassLoaderId id, ClassPath classPath, @Nullable ClassLoader parent, @Nullable FilteringClassLoader.Spec filterSpec, @Nullable HashCode implementationHash, Function<ManagedClassLoaderSpec, ClassLoader> factoryFunction, boolean layerable) {
         if (implementationHash == null) {
             implementationHash = classpathHasher.hash(classPath);
         }
@@ -79,7 +101,7 @@ private ClassLoader doGet(ClassLoaderId id, ClassPath classPath, @Nullable Class
             usedInThisBuild.add(id);
             CachedClassLoader cachedLoader = byId.get(id);
             if (cachedLoader == null || !cachedLoader.is(spec)) {
-                CachedClassLoader newLoader = getAndRetainLoader(spec, id, factoryFunction);
+                CachedClassLoader newLoader = getAndRetainLoader(spec, id, factoryFunction, layerable);
                 byId.put(id, newLoader);
 
                 if (cachedLoader != null) {
@@ -105,24 +127,59 @@ public void remove(ClassLoaderId id) {
         }
     }
 
-    private CachedClassLoader getAndRetainLoader(ManagedClassLoaderSpec spec, ClassLoaderId id, Function<ManagedClassLoaderSpec, ClassLoader> factoryFunction) {
+    private CachedClassLoader getAndRetainLoader(ManagedClassLoaderSpec spec, ClassLoaderId id, Function<ManagedClassLoaderSpec, ClassLoader> factoryFunction, boolean layerable) {
         CachedClassLoader cachedLoader = bySpec.get(spec);
         if (cachedLoader == null) {
             ClassLoader classLoader;
             CachedClassLoader parentCachedLoader = null;
             if (spec.isFiltered()) {
-                parentCachedLoader = getAndRetainLoader(spec.unfiltered(), id, factoryFunction);
+                parentCachedLoader = getAndRetainLoader(spec.unfiltered(), id, factoryFunction, layerable);
                 classLoader = classLoaderFactory.createFilteringClassLoader(parentCachedLoader.classLoader, spec.filterSpec);
             } else {
-                classLoader = factoryFunction.apply(spec);
+                CachedClassLoader layer = layerable ? findLayer(spec) : null;
+                if (layer != null) {
+                    List<File> files = spec.classPath.getAsFiles();
+                    ClassPath remainder = DefaultClassPath.of(files.subList(layer.getClassPathSize(), files.size()));
+                    LOGGER.debug("Creating classloader for {} on top of the classloader for the first {} of its {} classpath entries", id, layer.getClassPathSize(), files.size());
+                    parentCachedLoader = layer.retain(id);
+                    classLoader = classLoaderFactory.createLayeredClassLoader(spec.name, layer.classLoader, remainder, spec.implementationHash);
+                } else {
+                    classLoader = factoryFunction.apply(spec);
+                }
             }
-            cachedLoader = new CachedClassLoader(classLoader, spec, parentCachedLoader);
+            cachedLoader = new CachedClassLoader(classLoader, spec, parentCachedLoader, id, layerable);
             bySpec.put(spec, cachedLoader);
         }
 
         return cachedLoader.retain(id);
     }
 
+    /**
+     * Finds the cached classloader with the longest classpath which is a proper prefix of the classpath of the given spec, using the same parent.
+     */
+    @Nullable
+    private CachedClassLoader findLayer(ManagedClassLoaderSpec spec) {
+        List<File> files = spec.classPath.getAsFiles();
+        CachedClassLoader layer = null;
+        for (CachedClassLoader candidate : bySpec.values()) {
+            if (!candidate.layerable || !(candidate.spec instanceof ManagedClassLoaderSpec)) {
+                continue;
+            }
+            ManagedClassLoaderSpec candidateSpec = (ManagedClassLoaderSpec) candidate.spec;
+            if (candidateSpec.isFiltered() || !Objects.equal(candidateSpec.parent, spec.parent)) {
+                continue;
+            }
+            List<File> candidateFiles = candidateSpec.classPath.getAsFiles();
+            if (candidateFiles.isEmpty() || candidateFiles.size() >= files.size() || (layer != null && candidateFiles.size() <= layer.getClassPathSize())) {
+                continue;
+            }
+            if (files.subList(0, candidateFiles.size()).equals(candidateFiles)) {
+                layer = candidate;
+            }
+        }
+        return layer;
+    }
+
     private ClassLoader createClassLoader(ManagedClassLoaderSpec spec) {
         return classLoaderFactory.createChildClassLoader(spec.name, spec.parent, spec.classPath, spec.implementationHash);
     }
@@ -137,8 +194,16 @@ public int size() {
     @Override
     public void stop() {
         synchronized (lock) {
+            // Also close the classloaders only used as layers or parents of others
+            Set<ClassLoader> classLoaders = Sets.newIdentityHashSet();
             for (CachedClassLoader cachedClassLoader : byId.values()) {
-                ClassLoaderUtils.tryClose(cachedClassLoader.classLoader);
+                classLoaders.add(cachedClassLoader.classLoader);
+            }
+            for (CachedClassLoader cachedClassLoader : bySpec.values()) {
+                classLoaders.add(cachedClassLoader.classLoader);
+            }
+            for (ClassLoader classLoader : classLoaders) {
+                ClassLoaderUtils.tryClose(classLoader);
             }
             byId.clear();
             bySpec.clear();
@@ -219,12 +284,20 @@ private class CachedClassLoader {
         private final ClassLoader classLoader;
         private final ClassLoaderSpec spec;
         private final CachedClassLoader parent;
+        private final ClassLoaderId parentRetainedBy;
+        private final boolean layerable;
         private final Multiset<ClassLoaderId> usedBy = HashMultiset.create();
 
-        private CachedClassLoader(ClassLoader classLoader, ClassLoaderSpec spec, @Nullable CachedClassLoader parent) {
+        private CachedClassLoader(ClassLoader classLoader, ClassLoaderSpec spec, @Nullable CachedClassLoader parent, ClassLoaderId parentRetainedBy, boolean layerable) {
             this.classLoader = classLoader;
             this.spec = spec;
             this.parent = parent;
+            this.parentRetainedBy = parentRetainedBy;
+            this.layerable = layerable;
+        }
+
+        int getClassPathSize() {
+            return ((ManagedClassLoaderSpec) spec).classPath.getAsFiles().size();
         }
 
         public boolean is(ClassLoaderSpec spec) {
@@ -244,7 +317,8 @@ public void release(ClassLoaderId loaderId) {
             if (usedBy.remove(loaderId)) {
                 if (usedBy.isEmpty()) {
                     if (parent != null) {
-                        parent.release(loaderId);
+                        // The parent was retained by the id which created this classloader, which may have moved on since
+                        parent.release(parentRetainedBy);
                     }
                     bySpec.remove(spec);
                 }
@@ -16,21 +16,34 @@
 
 package org.gradle.cache.internal;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.gradle.api.Transformer;
 import org.gradle.initialization.SessionLifecycleListener;
 import org.gradle.internal.Factory;
 import org.gradle.internal.classloader.VisitableURLClassLoader;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.metrics.Counter;
+import org.gradle.internal.metrics.InternalMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
+import javax.management.NotificationEmitter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A factory for {@link CrossBuildInMemoryCache} instances.
@@ -39,19 +52,50 @@
  * Note that this implementation currently retains strong references to keys and values during the whole lifetime of a build session.
  *
  * Uses a simple algorithm to collect unused values, by retaining strong references to all keys and values used during the current build session, and the previous build session. All other values are referenced only by soft references.
+ *
+ * <p>With adaptive retention, enabled with the {@value #ADAPTIVE_RETENTION_PROPERTY} system property, the values used in any of the last {@value #MAX_UNUSED_SESSIONS} sessions
+ * are retained strongly until the heap is under pressure, instead of for one session only. When the heap usage after a garbage collection exceeds {@value #MEMORY_PRESSURE_THRESHOLD}
+ * of its maximum, the values retained by the caches which benefit least from them are released first, rather than letting the garbage collector discard values of all caches at once.
+ * The benefit of a cache is estimated from its recent hits and the average time to create a value, relative to the number of values it retains.
+ * The values of the caches whose keys are classes keep the ClassLoader of their key alive, so they are all released when the metaspace usage exceeds the same share of its maximum.
+ * The metaspace is usually unbounded, in which case only the number of sessions bounds these values.</p>
+ *
+ * <p>The statistics of each cache are available from {@link #getStatistics()}, and the totals over all caches are exported as {@link InternalMetrics}.</p>
  */
 @ThreadSafe
 public class DefaultCrossBuildInMemoryCacheFactory implements CrossBuildInMemoryCacheFactory {
+    public static final String ADAPTIVE_RETENTION_PROPERTY = "org.gradle.internal.cache.adaptive-retention";
+    public static final double MEMORY_PRESSURE_THRESHOLD = 0.75;
+    public static final int MAX_UNUSED_SESSIONS = 5;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCrossBuildInMemoryCacheFactory.class);
+    private static final Counter HITS = InternalMetrics.counter("gradle_in_memory_cache_hits_total", "Lookups which found a value in a cross build in-memory cache.");
+    private static final Counter MISSES = InternalMetrics.counter("gradle_in_memory_cache_misses_total", "Lookups which did not find a value in a cross build in-memory cache.");
+    private static final Counter DISCARDED_VALUES = InternalMetrics.counter("gradle_in_memory_cache_discarded_values_total", "Values of cross build in-memory caches discarded by the garbage collector before being used again.");
+    private static final Counter RELEASED_VALUES = InternalMetrics.counter("gradle_in_memory_cache_released_values_total", "Values retained from previous sessions by cross build in-memory caches and released because of memory pressure.");
+    private static final Counter EXPIRED_VALUES = InternalMetrics.counter("gradle_in_memory_cache_expired_values_total", "Values retained from previous sessions by cross build in-memory caches and released because they were not used recently.");
+
     private final ListenerManager listenerManager;
+    private final boolean adaptiveRetention;
+    private final List<AbstractCrossBuildInMemoryCache<?, ?>> caches = new CopyOnWriteArrayList<>();
 
     public DefaultCrossBuildInMemoryCacheFactory(ListenerManager listenerManager) {
+        this(listenerManager, Boolean.getBoolean(ADAPTIVE_RETENTION_PROPERTY));
+        if (adaptiveRetention) {
+            releaseRetainedValuesOnMemoryPressure();
+        }
+    }
+
+    @VisibleForTesting
+    DefaultCrossBuildInMemoryCacheFactory(ListenerManager listenerManager, boolean adaptiveRetention) {
         this.listenerManager = listenerManager;
+        this.adaptiveRetention = adaptiveRetention;
     }
 
     @Override
     public <K, V> CrossBuildInMemoryCache<K, V> newCache() {
-        DefaultCrossBuildInMemoryCache<K, V> cache = new DefaultCrossBuildInMemoryCache<>(new HashMap<>());
-        listenerManager.addListener(cache);
+        DefaultCrossBuildInMemoryCache<K, V> cache = new DefaultCrossBuildInMemoryCache<>(describeCaller(), new HashMap<>(), adaptiveRetention, false);
+        register(cache);
         return cache;
     }
 
@@ -59,21 +103,206 @@ public <K, V> CrossBuildInMemoryCache<K, V> newCache() {
     public <V> CrossBuildInMemoryCache<Class<?>, V> newClassCache() {
         // Should use some variation of DefaultClassMap below to associate values with classes, as currently we retain a strong reference to each value for one session after the ClassLoader
         // for the entry's key is discarded, which is unnecessary because we won't attempt to locate the entry again once the ClassLoader has been discarded
-        DefaultCrossBuildInMemoryCache<Class<?>, V> cache = new DefaultCrossBuildInMemoryCache<>(new WeakHashMap<>());
-        listenerManager.addListener(cache);
+        DefaultCrossBuildInMemoryCache<Class<?>, V> cache = new DefaultCrossBuildInMemoryCache<>(describeCaller(), new WeakHashMap<>(), adaptiveRetention, true);
+        register(cache);
         return cache;
     }
 
     @Override
     public <V> CrossBuildInMemoryCache<Class<?>, V> newClassMap() {
-        DefaultClassMap<V> map = new DefaultClassMap<>();
-        listenerManager.addListener(map);
+        DefaultClassMap<V> map = new DefaultClassMap<>(describeCaller());
+        register(map);
         return map;
     }
 
+    private void register(AbstractCrossBuildInMemoryCache<?, ?> cache) {
+        listenerManager.addListener(cache);
+        caches.add(cache);
+    }
+
+    /**
+     * Returns the statistics of the caches created by this factory, in the order they were created.
+     */
+    public List<CacheStatistics> getStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>(caches.size());
+        for (AbstractCrossBuildInMemoryCache<?, ?> cache : caches) {
+            statistics.add(cache.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Releases the values retained from previous sessions by the caches which benefit least from them, until at least half of these values have been released.
+     * The released values are still softly referenced, so they are only discarded when the garbage collector needs the memory.
+     */
+    public void releaseLowBenefitValues() {
+        List<CacheStatistics> candidates = new ArrayList<>();
+        long retainedValues = 0;
+        for (CacheStatistics statistics : getStatistics()) {
+            if (statistics.getStronglyRetainedValues() > 0) {
+                candidates.add(statistics);
+                retainedValues += statistics.getStronglyRetainedValues();
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(CacheStatistics::getBenefitPerRetainedValue));
+        long releasedValues = 0;
+        for (CacheStatistics candidate : candidates) {
+            if (releasedValues * 2 >= retainedValues) {
+                break;
+            }
+            int released = candidate.cache.releaseRetainedValues();
+            LOGGER.debug("Released {} values retained by in-memory cache {}.", released, candidate.getDisplayName());
+            releasedValues += released;
+        }
+    }
+
+    /**
+     * Releases the values retained from previous sessions by the caches whose keys are classes, which keep the ClassLoaders of these classes and so their metaspace alive.
+     */
+    public void releaseClassLoaderRetainingValues() {
+        for (AbstractCrossBuildInMemoryCache<?, ?> cache : caches) {
+            if (cache.isRetainingClassLoaders()) {
+                int released = cache.releaseRetainedValues();
+                LOGGER.debug("Released {} values retained by in-memory cache {}.", released, cache.displayName);
+            }
+        }
+    }
+
+    private void releaseRetainedValuesOnMemoryPressure() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long maxUsage = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && maxUsage > 0) {
+                pool.setCollectionUsageThreshold((long) (maxUsage * MEMORY_PRESSURE_THRESHOLD));
+            } else if (pool.getType() == MemoryType.NON_HEAP && pool.getName().equals("Metaspace") && pool.isUsageThresholdSupported() && maxUsage > 0) {
+                pool.setUsageThreshold((long) (maxUsage * MEMORY_PRESSURE_THRESHOLD));
+            }
+        }
+        NotificationEmitter memoryMXBean = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        memoryMXBean.addNotificationListener((notification, handback) -> {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                releaseLowBenefitValues();
+            } else if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                releaseClassLoaderRetainingValues();
+            }
+        }, null, null);
+    }
+
+    /**
+     * Describes a cache by the first method up the stack which isn't part of this factory, the JVM or the Groovy runtime.
+     */
+    private static String describeCaller() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!className.startsWith(DefaultCrossBuildInMemoryCacheFactory.class.getName())
+                && !className.startsWith("java.") && !className.startsWith("jdk.") && !className.startsWith("sun.")
+                && !className.startsWith("org.codehaus.groovy.")) {
+                return className + "." + element.getMethodName() + "()";
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * A snapshot of the statistics of a cache.
+     */
+    public static class CacheStatistics {
+        private final AbstractCrossBuildInMemoryCache<?, ?> cache;
+        private final long hits;
+        private final long misses;
+        private final long averageCreationTimeNanos;
+        private final int retainedValues;
+        private final int stronglyRetainedValues;
+        private final long discardedValues;
+        private final long releasedValues;
+
+        private CacheStatistics(AbstractCrossBuildInMemoryCache<?, ?> cache, long hits, long misses, long averageCreationTimeNanos, int retainedValues, int stronglyRetainedValues, long discardedValues, long releasedValues) {
+            this.cache = cache;
+            this.hits = hits;
+            this.misses = misses;
+            this.averageCreationTimeNanos = averageCreationTimeNanos;
+            this.retainedValues = retainedValues;
+            this.stronglyRetainedValues = stronglyRetainedValues;
+            this.discardedValues = discardedValues;
+            this.releasedValues = releasedValues;
+        }
+
+        public String getDisplayName() {
+            return cache.displayName;
+        }
+
+        /**
+         * The number of lookups which found a value, halved at the end of each session so that recent use weighs more.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * The number of lookups which did not find a value, halved at the end of each session so that recent use weighs more.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getAverageCreationTimeNanos() {
+            return averageCreationTimeNanos;
+        }
+
+        /**
+         * The number of values retained, strongly or softly, by the cache. This is used as an approximation of the memory retained by the cache.
+         */
+        public int getRetainedValues() {
+            return retainedValues;
+        }
+
+        /**
+         * The number of values retained from previous sessions which cannot be discarded by the garbage collector.
+         */
+        public int getStronglyRetainedValues() {
+            return stronglyRetainedValues;
+        }
+
+        /**
+         * The number of values which were discarded by the garbage collector and had to be created again.
+         */
+        public long getDiscardedValues() {
+            return discardedValues;
+        }
+
+        /**
+         * The number of values released because of memory pressure.
+         */
+        public long getReleasedValues() {
+            return releasedValues;
+        }
+
+        /**
+         * The time that the values retained strongly by the cache are estimated to save, per value.
+         */
+        public double getBenefitPerRetainedValue() {
+            return (double) hits * averageCreationTimeNanos / Math.max(1, stronglyRetainedValues);
+        }
+
+        @Override
+        public String toString() {
+            return getDisplayName() + " (hits: " + hits + ", misses: " + misses + ", retained: " + retainedValues + ", strongly retained: " + stronglyRetainedValues
+                + ", discarded: " + discardedValues + ", released: " + releasedValues + ")";
+        }
+    }
+
     private abstract static class AbstractCrossBuildInMemoryCache<K, V> implements CrossBuildInMemoryCache<K, V>, SessionLifecycleListener {
+        private final String displayName;
         private final Object lock = new Object();
         private final Map<K, V> valuesForThisSession = new HashMap<K, V>();
+        private long hits;
+        private long misses;
+        private long creations;
+        private long creationTimeNanos;
+        private long releasedValues;
+
+        AbstractCrossBuildInMemoryCache(String displayName) {
+            this.displayName = displayName;
+        }
 
         @Override
         public void afterStart() {
@@ -84,9 +313,40 @@ public void beforeComplete() {
             synchronized (lock) {
                 retainValuesFromCurrentSession(valuesForThisSession.values());
                 valuesForThisSession.clear();
+                hits /= 2;
+                misses /= 2;
+            }
+        }
+
+        CacheStatistics getStatistics() {
+            synchronized (lock) {
+                long averageCreationTimeNanos = creations == 0 ? 0 : creationTimeNanos / creations;
+                return new CacheStatistics(this, hits, misses, averageCreationTimeNanos, getRetainedValueCount(), getStronglyRetainedValueCount(), getDiscardedValueCount(), releasedValues);
+            }
+        }
+
+        int releaseRetainedValues() {
+            synchronized (lock) {
+                int released = releaseStronglyRetainedValues();
+                releasedValues += released;
+                RELEASED_VALUES.add(released);
+                return released;
             }
         }
 
+        protected abstract boolean isRetainingClassLoaders();
+
+        protected abstract int getRetainedValueCount();
+
+        protected abstract int getStronglyRetainedValueCount();
+
+        protected abstract long getDiscardedValueCount();
+
+        /**
+         * Stops retaining strong references to values from previous sessions, returning the number of values released.
+         */
+        protected abstract int releaseStronglyRetainedValues();
+
         @Override
         public void clear() {
             synchronized (lock) {
@@ -108,7 +368,12 @@ public void clear() {
         @Override
         public V get(K key) {
             synchronized (lock) {
-                return getIfPresent(key);
+                V v = getIfPresent(key);
+                if (v == null) {
+                    misses++;
+                    MISSES.increment();
+                }
+                return v;
             }
         }
 
@@ -119,9 +384,14 @@ public V get(K key, Transformer<V, K> factory) {
                 if (v != null) {
                     return v;
                 }
+                misses++;
+                MISSES.increment();
 
                 // TODO - do not hold lock while computing value
+                long start = System.nanoTime();
                 v = factory.transform(key);
+                creationTimeNanos += System.nanoTime() - start;
+                creations++;
 
                 retainValue(key, v);
 
@@ -144,6 +414,8 @@ public void put(K key, V value) {
         private V getIfPresent(K key) {
             V v = valuesForThisSession.get(key);
             if (v != null) {
+                hits++;
+                HITS.increment();
                 return v;
             }
 
@@ -151,6 +423,8 @@ private V getIfPresent(K key) {
             if (v != null) {
                 // Retain strong reference
                 valuesForThisSession.put(key, v);
+                hits++;
+                HITS.increment();
                 return v;
             }
 
@@ -159,19 +433,69 @@ private V getIfPresent(K key) {
     }
 
     private static class DefaultCrossBuildInMemoryCache<K, V> extends AbstractCrossBuildInMemoryCache<K, V> {
-        // This is used only to retain strong references to the values
-        private final Set<V> valuesForPreviousSession = new HashSet<V>();
+        // This is used only to retain strong references to the values, along with the last session which used each of them
+        private final Map<V, Long> valuesForPreviousSession = new HashMap<V, Long>();
         private final Map<K, SoftReference<V>> allValues;
+        private final boolean adaptiveRetention;
+        private final boolean classKeys;
+        private long session;
+        private long discardedValues;
 
-        public DefaultCrossBuildInMemoryCache(Map<K, SoftReference<V>> allValues) {
+        public DefaultCrossBuildInMemoryCache(String displayName, Map<K, SoftReference<V>> allValues, boolean adaptiveRetention, boolean classKeys) {
+            super(displayName);
             this.allValues = allValues;
+            this.adaptiveRetention = adaptiveRetention;
+            this.classKeys = classKeys;
         }
 
         @Override
         protected void retainValuesFromCurrentSession(Collection<V> values) {
             // Retain strong references to the values created for this session
+            session++;
+            if (!adaptiveRetention) {
+                valuesForPreviousSession.clear();
+            }
+            for (V value : values) {
+                valuesForPreviousSession.put(value, session);
+            }
+            if (adaptiveRetention) {
+                // Stop retaining the values not used recently, so that the retained values do not grow for the whole lifetime of the daemon
+                int expired = 0;
+                for (Iterator<Long> iterator = valuesForPreviousSession.values().iterator(); iterator.hasNext();) {
+                    if (iterator.next() <= session - MAX_UNUSED_SESSIONS) {
+                        iterator.remove();
+                        expired++;
+                    }
+                }
+                EXPIRED_VALUES.add(expired);
+            }
+        }
+
+        @Override
+        protected boolean isRetainingClassLoaders() {
+            return classKeys;
+        }
+
+        @Override
+        protected int releaseStronglyRetainedValues() {
+            int released = valuesForPreviousSession.size();
             valuesForPreviousSession.clear();
-            valuesForPreviousSession.addAll(values);
+            return released;
+        }
+
+        @Override
+        protected int getRetainedValueCount() {
+            return allValues.size();
+        }
+
+        @Override
+        protected int getStronglyRetainedValueCount() {
+            return valuesForPreviousSession.size();
+        }
+
+        @Override
+        protected long getDiscardedValueCount() {
+            return discardedValues;
         }
 
         @Override
@@ -190,7 +514,13 @@ protected void retainValue(K key, V v) {
         protected V maybeGetRetainedValue(K key) {
             SoftReference<V> reference = allValues.get(key);
             if (reference != null) {
-                return reference.get();
+                V v = reference.get();
+                if (v == null) {
+                    discardedValues++;
+                    DISCARDED_VALUES.increment();
+                    allValues.remove(key);
+                }
+                return v;
             }
             return null;
         }
@@ -204,11 +534,43 @@ protected V maybeGetRetainedValue(K key) {
         // This is fine for JVM types, but a problem when a custom ClassLoader is used (which should probably be deprecated instead of supported)
         private final Map<Class<?>, V> leakyValues = new HashMap<>();
 
+        DefaultClassMap(String displayName) {
+            super(displayName);
+        }
+
         @Override
         protected void retainValuesFromCurrentSession(Collection<V> values) {
             // Ignore
         }
 
+        @Override
+        protected int releaseStronglyRetainedValues() {
+            // Values are retained as long as the ClassLoader of their key
+            return 0;
+        }
+
+        @Override
+        protected boolean isRetainingClassLoaders() {
+            // Values are referenced from the ClassLoader of their key, so do not keep it alive
+            return false;
+        }
+
+        @Override
+        protected int getRetainedValueCount() {
+            // Only the values retained for types not loaded by a VisitableURLClassLoader are known here
+            return leakyValues.size();
+        }
+
+        @Override
+        protected int getStronglyRetainedValueCount() {
+            return 0;
+        }
+
+        @Override
+        protected long getDiscardedValueCount() {
+            return 0;
+        }
+
         @Override
         protected void discardRetainedValues() {
             throw new UnsupportedOperationException();
@@ -16,6 +16,7 @@
 
 package org.gradle.configuration;
 
+import org.gradle.api.Project;
 import org.gradle.api.initialization.dsl.ScriptHandler;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.SettingsInternal;
@@ -30,6 +31,7 @@
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.groovy.scripts.internal.BuildScriptData;
 import org.gradle.groovy.scripts.internal.CompileOperation;
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler;
 import org.gradle.internal.Actions;
 import org.gradle.internal.Factory;
 import org.gradle.internal.logging.LoggingManagerInternal;
@@ -41,7 +43,10 @@
 import org.gradle.plugin.use.internal.PluginRequestApplicator;
 import org.gradle.plugin.use.internal.PluginsAwareScript;
 
+import java.util.regex.Pattern;
+
 public class DefaultScriptPluginFactory implements ScriptPluginFactory {
+    private static final Pattern CLASSPATH_BLOCK = Pattern.compile("\\b(buildscript|plugins)\\s*\\{");
 
     private final ServiceRegistry scriptServices;
     private final ScriptCompilerFactory scriptCompilerFactory;
@@ -116,6 +121,10 @@ public void apply(final Object target) {
             PluginManagerInternal pluginManager = topLevelScript ? initialPassScriptTarget.getPluginManager() : null;
             pluginRequestApplicator.applyPlugins(mergedPluginRequests, scriptHandler, pluginManager, targetScope);
 
+            if (topLevelScript && target instanceof ProjectInternal && FileCacheBackedScriptClassCompiler.isParallelCompilationEnabled()) {
+                compileChildProjectScriptsInBackground((ProjectInternal) target);
+            }
+
             // Pass 2, compile everything except buildscript {}, pluginManagement{}, and plugin requests, then run
             final ScriptTarget scriptTarget = secondPassTarget(target);
             scriptType = scriptTarget.getScriptClass();
@@ -136,6 +145,38 @@ public void apply(final Object target) {
             scriptTarget.addConfiguration(buildScriptRunner, !hasImperativeStatements);
         }
 
+        /**
+         * Starts compiling the build scripts of the child projects, whose classpath is now known.
+         *
+         * <p>Pass 2 can only be compiled ahead when the child project doesn't add to its classpath, so it is skipped for scripts which
+         * may declare a {@code buildscript} or {@code plugins} block.</p>
+         */
+        private void compileChildProjectScriptsInBackground(ProjectInternal project) {
+            for (Project childProject : project.getChildProjects().values()) {
+                ProjectInternal child = (ProjectInternal) childProject;
+                ScriptSource childScriptSource = child.getBuildScriptSource();
+                ClassLoaderScope childBaseScope = child.getBaseClassLoaderScope();
+                if (!child.getState().isUnconfigured() || !childBaseScope.isLocked()
+                    || !childScriptSource.getFileName().endsWith(".gradle") || !childScriptSource.getResource().getExists()) {
+                    continue;
+                }
+                ScriptCompiler compiler = scriptCompilerFactory.createCompiler(childScriptSource);
+                ScriptTarget childTarget = new ProjectScriptTarget(child);
+                compiler.compileInBackground(childTarget.getScriptClass(), compileOperationFactory.getPluginsBlockCompileOperation(childTarget), childBaseScope, Actions.doNothing());
+                if (!mayAddToClasspath(childScriptSource)) {
+                    compiler.compileInBackground(childTarget.getScriptClass(), compileOperationFactory.getScriptCompileOperation(childScriptSource, childTarget), childBaseScope, ClosureCreationInterceptingVerifier.INSTANCE);
+                }
+            }
+        }
+
+        /**
+         * Looks for the blocks which can change the classpath of the script body. This can report blocks which are only mentioned, in a comment for example,
+         * in which case the body simply isn't compiled ahead.
+         */
+        private boolean mayAddToClasspath(ScriptSource scriptSource) {
+            return CLASSPATH_BLOCK.matcher(scriptSource.getResource().getText()).find();
+        }
+
         private ScriptTarget initialPassTarget(Object target) {
             return wrap(target, true /* isInitialPass */);
         }
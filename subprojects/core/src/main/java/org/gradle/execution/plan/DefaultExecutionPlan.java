@@ -38,6 +38,7 @@
 import org.gradle.internal.graph.CachingDirectedGraphWalker;
 import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.logging.text.StyledTextOutput;
+import org.gradle.internal.metrics.ThreadWaitTime;
 import org.gradle.internal.resources.ResourceLock;
 import org.gradle.internal.resources.ResourceLockState;
 import org.gradle.internal.work.WorkerLeaseRegistry;
@@ -537,6 +538,7 @@ public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLock
                     continue;
                 }
 
+                ThreadWaitTime.current().stopWaitingForWorkerLease();
                 if (node.allDependenciesSuccessful()) {
                     node.startExecution(this::recordNodeExecutionStarted);
                 } else {
@@ -560,6 +562,7 @@ private boolean tryAcquireLocksForNode(Node node, WorkerLeaseRegistry.WorkerLeas
             return false;
         } else if (!workerLease.tryLock()) {
             LOGGER.debug("Cannot acquire worker lease lock for node {}", node);
+            ThreadWaitTime.current().startWaitingForWorkerLease();
             return false;
         // TODO: convert output file checks to a resource lock
         } else if (!canRunWithCurrentlyExecutedNodes(node, mutations)) {
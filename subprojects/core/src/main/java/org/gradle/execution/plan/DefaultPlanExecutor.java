@@ -24,6 +24,7 @@
 import org.gradle.internal.MutableReference;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.metrics.ThreadWaitTime;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.TimeFormatting;
@@ -135,6 +136,7 @@ public void run() {
                     break;
                 }
             }
+            ThreadWaitTime.current().stopWaitingForWorkerLease();
 
             long total = totalTimer.getElapsedMillis();
 
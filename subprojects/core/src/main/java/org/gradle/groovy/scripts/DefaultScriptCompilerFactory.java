@@ -49,5 +49,10 @@ public <T extends Script, M> ScriptRunner<T, M> compile(Class<T> scriptType, Com
             CompiledScript<T, M> compiledScript = scriptClassCompiler.compile(source, targetScope, extractingTransformer, scriptType, verifier);
             return scriptRunnerFactory.create(compiledScript, source, targetScope.getExportClassLoader());
         }
+
+        @Override
+        public void compileInBackground(Class<? extends Script> scriptType, CompileOperation<?> extractingTransformer, ClassLoaderScope targetScope, Action<? super ClassNode> verifier) {
+            scriptClassCompiler.compileInBackground(source, targetScope, extractingTransformer, scriptType, verifier);
+        }
     }
 }
@@ -32,4 +32,10 @@ public interface ScriptCompiler {
      * @throws ScriptCompilationException On compilation failure.
      */
     <T extends Script, M> ScriptRunner<T, M> compile(Class<T> scriptType, CompileOperation<M> extractingTransformer, ClassLoaderScope targetScope, Action<? super ClassNode> verifier);
+
+    /**
+     * Starts compiling the script in the background, when supported, so that a later call to {@link #compile} with the same arguments finds it compiled.
+     */
+    default void compileInBackground(Class<? extends Script> scriptType, CompileOperation<?> extractingTransformer, ClassLoaderScope targetScope, Action<? super ClassNode> verifier) {
+    }
 }
@@ -53,4 +53,12 @@ public <T extends Script, M> CompiledScript<T, M> compile(ScriptSource source, C
         return compiledScript;
     }
 
+    @Override
+    public void compileInBackground(ScriptSource source, ClassLoaderScope targetScope, CompileOperation<?> operation, Class<? extends Script> scriptBaseClass, Action<? super ClassNode> verifier) {
+        ScriptCacheKey key = new ScriptCacheKey(source.getClassName(), targetScope.getExportClassLoader(), operation.getId());
+        if (!cachedCompiledScripts.containsKey(key)) {
+            scriptClassCompiler.compileInBackground(source, targetScope, operation, scriptBaseClass, verifier);
+        }
+    }
+
 }
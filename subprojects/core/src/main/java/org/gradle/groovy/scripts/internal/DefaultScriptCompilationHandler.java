@@ -24,6 +24,7 @@
 import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.ast.stmt.Statement;
 import org.codehaus.groovy.classgen.Verifier;
+import org.codehaus.groovy.control.ClassNodeResolver;
 import org.codehaus.groovy.control.CompilationFailedException;
 import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilerConfiguration;
@@ -45,6 +46,7 @@
 import org.gradle.internal.classloader.VisitableURLClassLoader;
 import org.gradle.internal.classpath.ClassPath;
 import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.serialize.Serializer;
@@ -66,8 +68,10 @@
 import java.security.CodeSource;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-public class DefaultScriptCompilationHandler implements ScriptCompilationHandler {
+public class DefaultScriptCompilationHandler implements ScriptCompilationHandler, Stoppable {
     private final Logger logger = LoggerFactory.getLogger(DefaultScriptCompilationHandler.class);
     private static final NoOpGroovyResourceLoader NO_OP_GROOVY_RESOURCE_LOADER = new NoOpGroovyResourceLoader();
     private static final String METADATA_FILE_NAME = "metadata.bin";
@@ -76,12 +80,22 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
 
     private final Deleter deleter;
     private final Map<String, List<String>> simpleNameToFQN;
+    /**
+     * The class lookups made while resolving scripts, shared by all compilations against the same classloader when compiling in parallel.
+     * The resolved classes reference their classloader, so the lookups are discarded at the end of the build rather than when the classloader is no longer used.
+     */
+    private final ConcurrentMap<ClassLoader, ClassNodeResolver> sharedClassNodeResolvers = new ConcurrentHashMap<>();
 
     public DefaultScriptCompilationHandler(Deleter deleter, ImportsReader importsReader) {
         this.deleter = deleter;
         this.simpleNameToFQN = importsReader.getSimpleNameToFullClassNamesMapping();
     }
 
+    @Override
+    public void stop() {
+        sharedClassNodeResolvers.clear();
+    }
+
     @Override
     public void compileToDir(ScriptSource source, ClassLoader classLoader, File classesDir, File metadataDir, CompileOperation<?> extractingTransformer,
                              Class<? extends Script> scriptBaseClass, Action<? super ClassNode> verifier) {
@@ -120,7 +134,7 @@ private void compileScript(ScriptSource source, ClassLoader classLoader, Compile
             protected CompilationUnit createCompilationUnit(CompilerConfiguration compilerConfiguration,
                                                             CodeSource codeSource) {
 
-                CompilationUnit compilationUnit = new CustomCompilationUnit(compilerConfiguration, codeSource, customVerifier, this);
+                CompilationUnit compilationUnit = new CustomCompilationUnit(compilerConfiguration, codeSource, customVerifier, this, classLoader);
 
                 if (transformer != null) {
                     transformer.register(compilationUnit);
@@ -271,7 +285,7 @@ public URL loadGroovySource(String filename) {
     }
 
     private class CustomCompilationUnit extends CompilationUnit {
-        public CustomCompilationUnit(CompilerConfiguration compilerConfiguration, CodeSource codeSource, final Action<? super ClassNode> customVerifier, GroovyClassLoader groovyClassLoader) {
+        public CustomCompilationUnit(CompilerConfiguration compilerConfiguration, CodeSource codeSource, final Action<? super ClassNode> customVerifier, GroovyClassLoader groovyClassLoader, ClassLoader classLoader) {
             super(compilerConfiguration, codeSource, groovyClassLoader);
             this.verifier = new Verifier() {
                 @Override
@@ -280,7 +294,29 @@ public void visitClass(ClassNode node) {
                     super.visitClass(node);
                 }
             };
-            this.resolveVisitor = new GradleResolveVisitor(this, simpleNameToFQN);
+            GradleResolveVisitor gradleResolveVisitor = new GradleResolveVisitor(this, simpleNameToFQN);
+            if (FileCacheBackedScriptClassCompiler.isParallelCompilationEnabled()) {
+                // Lookups only depend on the classloader, as the script compilation classloader does not look for scripts
+                gradleResolveVisitor.setClassNodeResolver(sharedClassNodeResolvers.computeIfAbsent(classLoader, key -> new ConcurrentClassNodeResolver()));
+            }
+            this.resolveVisitor = gradleResolveVisitor;
+        }
+    }
+
+    /**
+     * A {@link ClassNodeResolver} which can be used by concurrent compilations.
+     */
+    private static class ConcurrentClassNodeResolver extends ClassNodeResolver {
+        private final ConcurrentMap<String, ClassNode> cachedClasses = new ConcurrentHashMap<>();
+
+        @Override
+        public void cacheClass(String name, ClassNode res) {
+            cachedClasses.put(name, res);
+        }
+
+        @Override
+        public ClassNode getFromClassCache(String name) {
+            return cachedClasses.get(name);
         }
     }
 
@@ -22,6 +22,8 @@
 import org.gradle.api.internal.initialization.ClassLoaderScope;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.CacheScopeMapping;
+import org.gradle.cache.internal.VersionStrategy;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.internal.Pair;
 import org.gradle.internal.classanalysis.AsmConstants;
@@ -36,6 +38,7 @@
 import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+import org.gradle.internal.scripts.ParallelScriptCompiler;
 import org.gradle.model.dsl.internal.transform.RuleVisitor;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
@@ -54,23 +57,37 @@
 
 /**
  * A {@link ScriptClassCompiler} which compiles scripts to a cache directory, and loads them from there.
+ *
+ * <p>Scripts can be compiled ahead of their evaluation with {@link #compileInBackground}. This is an opt-in feature, enabled with the
+ * {@value #PARALLEL_COMPILATION_PROPERTY} system property.</p>
  */
 public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler, Closeable {
+    public static final String PARALLEL_COMPILATION_PROPERTY = "org.gradle.groovy.scripts.compilation.parallel";
+
     private static final Object[] EMPTY_OBJECT_ARRAY = new Object[0];
     private final ScriptCompilationHandler scriptCompilationHandler;
     private final ProgressLoggerFactory progressLoggerFactory;
     private final CacheRepository cacheRepository;
     private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
     private final CachedClasspathTransformer classpathTransformer;
+    private final CacheScopeMapping cacheScopeMapping;
+    private final ParallelScriptCompiler parallelScriptCompiler;
 
     public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, ScriptCompilationHandler scriptCompilationHandler,
                                               ProgressLoggerFactory progressLoggerFactory, ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
-                                              CachedClasspathTransformer classpathTransformer) {
+                                              CachedClasspathTransformer classpathTransformer, CacheScopeMapping cacheScopeMapping,
+                                              ParallelScriptCompiler parallelScriptCompiler) {
         this.cacheRepository = cacheRepository;
         this.scriptCompilationHandler = scriptCompilationHandler;
         this.progressLoggerFactory = progressLoggerFactory;
         this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
         this.classpathTransformer = classpathTransformer;
+        this.cacheScopeMapping = cacheScopeMapping;
+        this.parallelScriptCompiler = parallelScriptCompiler;
+    }
+
+    public static boolean isParallelCompilationEnabled() {
+        return Boolean.getBoolean(PARALLEL_COMPILATION_PROPERTY);
     }
 
     @Override
@@ -86,13 +103,8 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
 
         ClassLoader classLoader = targetScope.getExportClassLoader();
         HashCode sourceHashCode = source.getResource().getContentHash();
-        final String sourceHash = HashUtil.compactStringFor(sourceHashCode.toByteArray());
         final String dslId = operation.getId();
-        HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(classLoader);
-        if (classLoaderHash == null) {
-            throw new IllegalArgumentException("Unknown classloader: " + classLoader);
-        }
-        final String classpathHash = dslId + classLoaderHash;
+        final String cacheKey = cacheKeyFor(source, classLoader, operation);
         final RemappingScriptSource remapped = new RemappingScriptSource(source);
 
         // Caching involves 2 distinct caches, so that 2 scripts with the same (hash, classpath) do not get compiled twice
@@ -101,11 +113,11 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
         // Both caches can be closed directly after use because:
         // For 1, if the script changes or its compile classpath changes, a different directory will be used
         // For 2, if the script changes, a different cache is used. If the classpath changes, the cache is invalidated, but classes are remapped to 1. anyway so never directly used
-        final PersistentCache cache = cacheRepository.cache("scripts/" + sourceHash + "/" + classpathHash)
+        final PersistentCache cache = cacheRepository.cache(cacheKey)
             .withDisplayName(dslId + " generic class cache for " + source.getDisplayName())
             .withInitializer(new ProgressReportingInitializer(
                 progressLoggerFactory,
-                new CompileToCrossBuildCacheAction(remapped, classLoader, operation, verifier, scriptBaseClass),
+                new CompileToCrossBuildCacheAction(cacheKey, remapped, classLoader, operation, verifier, scriptBaseClass),
                 "Compiling script into cache",
                 "Compiling " + source.getDisplayName()))
             .open();
@@ -119,6 +131,39 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
         }
     }
 
+    /**
+     * Compiles the given script into a temporary directory on the {@link ParallelScriptCompiler}, when the script isn't cached already.
+     * The cache entry for the script is then initialized from that directory, when {@link #compile} is called with the same arguments.
+     */
+    @Override
+    public void compileInBackground(ScriptSource source, ClassLoaderScope targetScope, CompileOperation<?> operation, Class<? extends Script> scriptBaseClass, Action<? super ClassNode> verifier) {
+        if (source.getResource().getHasEmptyContent()) {
+            return;
+        }
+        ClassLoader classLoader = targetScope.getExportClassLoader();
+        String cacheKey = cacheKeyFor(source, classLoader, operation);
+        File cacheDir = cacheScopeMapping.getBaseDirectory(null, cacheKey, VersionStrategy.CachePerVersion);
+        if (new File(cacheDir, "cache.properties").isFile()) {
+            return;
+        }
+        // Read the script on this thread, as the source is not safe to use concurrently until its content is cached
+        source.getResource().getText();
+        RemappingScriptSource remapped = new RemappingScriptSource(source);
+        parallelScriptCompiler.submit(cacheKey, outputDir ->
+            scriptCompilationHandler.compileToDir(remapped, classLoader, classesDir(outputDir, operation), metadataDir(outputDir), operation, scriptBaseClass, verifier)
+        );
+    }
+
+    private String cacheKeyFor(ScriptSource source, ClassLoader classLoader, CompileOperation<?> operation) {
+        String sourceHash = HashUtil.compactStringFor(source.getResource().getContentHash().toByteArray());
+        HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(classLoader);
+        if (classLoaderHash == null) {
+            throw new IllegalArgumentException("Unknown classloader: " + classLoader);
+        }
+        String classpathHash = operation.getId() + classLoaderHash;
+        return "scripts/" + sourceHash + "/" + classpathHash;
+    }
+
     private <T extends Script, M> CompiledScript<T, M> emptyCompiledScript(CompileOperation<M> operation) {
         return new EmptyCompiledScript<>(operation);
     }
@@ -157,25 +202,36 @@ public Pair<RelativePath, ClassVisitor> apply(ClasspathEntryVisitor.Entry entry,
 
     @Override
     public void close() {
+        parallelScriptCompiler.close();
     }
 
     private File classesDir(PersistentCache cache, CompileOperation<?> operation) {
-        return new File(cache.getBaseDir(), operation.getId());
+        return classesDir(cache.getBaseDir(), operation);
+    }
+
+    private File classesDir(File baseDir, CompileOperation<?> operation) {
+        return new File(baseDir, operation.getId());
     }
 
     private File metadataDir(PersistentCache cache) {
-        return new File(cache.getBaseDir(), "metadata");
+        return metadataDir(cache.getBaseDir());
+    }
+
+    private File metadataDir(File baseDir) {
+        return new File(baseDir, "metadata");
     }
 
     private class CompileToCrossBuildCacheAction implements Action<PersistentCache> {
+        private final String cacheKey;
         private final Action<? super ClassNode> verifier;
         private final Class<? extends Script> scriptBaseClass;
         private final ClassLoader classLoader;
         private final CompileOperation<?> operation;
         private final ScriptSource source;
 
-        public <T extends Script> CompileToCrossBuildCacheAction(ScriptSource source, ClassLoader classLoader, CompileOperation<?> operation,
+        public <T extends Script> CompileToCrossBuildCacheAction(String cacheKey, ScriptSource source, ClassLoader classLoader, CompileOperation<?> operation,
                                                                  Action<? super ClassNode> verifier, Class<T> scriptBaseClass) {
+            this.cacheKey = cacheKey;
             this.source = source;
             this.classLoader = classLoader;
             this.operation = operation;
@@ -185,6 +241,9 @@ public <T extends Script> CompileToCrossBuildCacheAction(ScriptSource source, Cl
 
         @Override
         public void execute(PersistentCache cache) {
+            if (parallelScriptCompiler.takeOutputOf(cacheKey, cache.getBaseDir())) {
+                return;
+            }
             File classesDir = classesDir(cache, operation);
             File metadataDir = metadataDir(cache);
             scriptCompilationHandler.compileToDir(source, classLoader, classesDir, metadataDir, operation, scriptBaseClass, verifier);
@@ -25,4 +25,10 @@
 @ServiceScope(ServiceScope.Value.Build)
 public interface ScriptClassCompiler {
     <T extends Script, M> CompiledScript<T, M> compile(ScriptSource source, ClassLoaderScope targetScope, CompileOperation<M> transformer, Class<T> scriptBaseClass, Action<? super ClassNode> verifier);
+
+    /**
+     * Starts compiling the given script in the background, when supported, so that a later call to {@link #compile} with the same arguments does not have to.
+     */
+    default void compileInBackground(ScriptSource source, ClassLoaderScope targetScope, CompileOperation<?> transformer, Class<? extends Script> scriptBaseClass, Action<? super ClassNode> verifier) {
+    }
 }
@@ -19,6 +19,9 @@
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.resource.local.FileAccessTracker;
@@ -33,9 +36,20 @@
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+/**
+ * Transforms classpath entries into the shared {@code jars} cache.
+ *
+ * <p>The entries of a classpath are transformed concurrently, as instrumenting a large jar takes a while. The cache is locked by the
+ * thread requesting the transformation for as long as any of its entries is being transformed, so concurrent builds wait for each other
+ * rather than transforming the same entries. The result keeps the order of the original classpath.</p>
+ */
 public class DefaultCachedClasspathTransformer implements CachedClasspathTransformer, Closeable {
 
     private final PersistentCache cache;
@@ -43,6 +57,7 @@ public class DefaultCachedClasspathTransformer implements CachedClasspathTransfo
     private final ClasspathWalker classpathWalker;
     private final ClasspathBuilder classpathBuilder;
     private final VirtualFileSystem virtualFileSystem;
+    private final ManagedExecutor executor;
 
     public DefaultCachedClasspathTransformer(
         CacheRepository cacheRepository,
@@ -50,13 +65,15 @@ public DefaultCachedClasspathTransformer(
         FileAccessTimeJournal fileAccessTimeJournal,
         ClasspathWalker classpathWalker,
         ClasspathBuilder classpathBuilder,
-        VirtualFileSystem virtualFileSystem
+        VirtualFileSystem virtualFileSystem,
+        ExecutorFactory executorFactory
     ) {
         this.classpathWalker = classpathWalker;
         this.classpathBuilder = classpathBuilder;
         this.virtualFileSystem = virtualFileSystem;
         this.cache = classpathTransformerCacheFactory.createCache(cacheRepository, fileAccessTimeJournal);
         this.fileAccessTracker = classpathTransformerCacheFactory.createFileAccessTracker(fileAccessTimeJournal);
+        this.executor = executorFactory.create("Classpath transformer", Runtime.getRuntime().availableProcessors());
     }
 
     @Override
@@ -73,25 +90,33 @@ public ClassPath transform(ClassPath classPath, StandardTransform transform, Tra
     public Collection<URL> transform(Collection<URL> urls, StandardTransform transform) {
         ClasspathFileTransformer transformer = fileTransformerFor(transform);
         return cache.useCache(() -> {
-            List<URL> cachedFiles = new ArrayList<>(urls.size());
+            List<File> originalFiles = new ArrayList<>(urls.size());
             for (URL url : urls) {
                 if (url.getProtocol().equals("file")) {
                     try {
-                        cached(new File(url.toURI()), transformer, f -> {
-                            try {
-                                cachedFiles.add(f.toURI().toURL());
-                            } catch (MalformedURLException e) {
-                                throw UncheckedException.throwAsUncheckedException(e);
-                            }
-                        });
+                        originalFiles.add(new File(url.toURI()));
                     } catch (URISyntaxException e) {
                         throw UncheckedException.throwAsUncheckedException(e);
                     }
+                }
+            }
+            Map<File, File> cachedFiles = cached(originalFiles, transformer);
+            List<URL> cachedUrls = new ArrayList<>(urls.size());
+            for (URL url : urls) {
+                if (url.getProtocol().equals("file")) {
+                    try {
+                        File cachedFile = cachedFiles.get(new File(url.toURI()));
+                        if (cachedFile != null) {
+                            cachedUrls.add(cachedFile.toURI().toURL());
+                        }
+                    } catch (URISyntaxException | MalformedURLException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
                 } else {
-                    cachedFiles.add(url);
+                    cachedUrls.add(url);
                 }
             }
-            return cachedFiles;
+            return cachedUrls;
         });
     }
 
@@ -106,11 +131,15 @@ private Transform tranformerFor(StandardTransform transform) {
     private ClassPath transform(ClassPath classPath, ClasspathFileTransformer transformer) {
         return cache.useCache(() -> {
             List<File> originalFiles = classPath.getAsFiles();
-            List<File> cachedFiles = new ArrayList<>(originalFiles.size());
+            Map<File, File> cachedFiles = cached(originalFiles, transformer);
+            List<File> result = new ArrayList<>(originalFiles.size());
             for (File file : originalFiles) {
-                cached(file, transformer, cachedFiles::add);
+                File cachedFile = cachedFiles.get(file);
+                if (cachedFile != null) {
+                    result.add(cachedFile);
+                }
             }
-            return DefaultClassPath.of(cachedFiles);
+            return DefaultClassPath.of(result);
         });
     }
 
@@ -125,15 +154,54 @@ private ClasspathFileTransformer fileTransformerFor(StandardTransform transform)
         }
     }
 
-    private void cached(File original, ClasspathFileTransformer transformer, Consumer<File> dest) {
-        if (shouldUseFromCache(original)) {
-            File result = getCachedJar(transformer, original, cache.getBaseDir());
-            if (result != null) {
-                dest.accept(result);
+    /**
+     * Transforms the given files concurrently, each file only once. Must be called while holding the cache lock.
+     *
+     * @return the cached file for each of the given files, missing files are left out.
+     */
+    private Map<File, File> cached(List<File> originalFiles, ClasspathFileTransformer transformer) {
+        Map<File, Future<File>> pending = new LinkedHashMap<>();
+        for (File original : originalFiles) {
+            if (!pending.containsKey(original)) {
+                pending.put(original, originalFiles.size() == 1 ? CompletableFuture.completedFuture(cached(original, transformer)) : executor.submit(() -> cached(original, transformer)));
+            }
+        }
+        // Wait for all entries, also when one of them fails, so that no entry is written once the cache lock has been released
+        Map<File, File> cachedFiles = new LinkedHashMap<>();
+        Throwable failure = null;
+        for (Map.Entry<File, Future<File>> entry : pending.entrySet()) {
+            try {
+                File cachedFile = entry.getValue().get();
+                if (cachedFile != null) {
+                    cachedFiles.put(entry.getKey(), cachedFile);
+                }
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+        for (Map.Entry<File, File> entry : cachedFiles.entrySet()) {
+            if (!entry.getValue().equals(entry.getKey())) {
+                fileAccessTracker.markAccessed(entry.getValue());
             }
+        }
+        return cachedFiles;
+    }
+
+    @Nullable
+    private File cached(File original, ClasspathFileTransformer transformer) {
+        if (shouldUseFromCache(original)) {
+            return getCachedJar(transformer, original, cache.getBaseDir());
         } else if (original.exists()) {
-            dest.accept(original);
+            return original;
         }
+        return null;
     }
 
     @Nullable
@@ -142,11 +210,7 @@ private File getCachedJar(ClasspathFileTransformer transformer, File original, F
         if (snapshot.getType() == FileType.Missing) {
             return null;
         }
-        File result = transformer.transform(original, snapshot, cacheDir);
-        if (!result.equals(original)) {
-            fileAccessTracker.markAccessed(result);
-        }
-        return result;
+        return transformer.transform(original, snapshot, cacheDir);
     }
 
     private boolean shouldUseFromCache(File original) {
@@ -156,6 +220,6 @@ private boolean shouldUseFromCache(File original) {
 
     @Override
     public void close() {
-        cache.close();
+        CompositeStoppable.stoppable(executor, cache).stop();
     }
 }
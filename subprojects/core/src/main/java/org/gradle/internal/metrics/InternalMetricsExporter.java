@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.metrics;
+
+import org.gradle.StartParameter;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Resets the {@link InternalMetrics} when a build session starts, and writes them to the file given by the
+ * {@value InternalMetrics#EXPORT_PROPERTY} system property when it ends.
+ *
+ * <p>The file is replaced as a whole, so a tool scraping it never sees a partially written file.</p>
+ */
+public class InternalMetricsExporter implements Stoppable {
+    @Nullable
+    private final File exportFile;
+
+    public InternalMetricsExporter(StartParameter startParameter) {
+        String path = startParameter.getSystemPropertiesArgs().get(InternalMetrics.EXPORT_PROPERTY);
+        if (path == null) {
+            path = System.getProperty(InternalMetrics.EXPORT_PROPERTY);
+        }
+        this.exportFile = path == null || path.isEmpty() ? null : new File(path).getAbsoluteFile();
+        InternalMetrics.reset();
+    }
+
+    @Override
+    public void stop() {
+        if (exportFile == null) {
+            return;
+        }
+        try {
+            File dir = exportFile.getParentFile();
+            Files.createDirectories(dir.toPath());
+            File tmp = File.createTempFile(exportFile.getName(), ".tmp", dir);
+            try {
+                try (Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                    InternalMetrics.writeTo(writer);
+                }
+                Files.move(tmp.toPath(), exportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
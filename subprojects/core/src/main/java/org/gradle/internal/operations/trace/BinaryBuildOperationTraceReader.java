@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedDecoder;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Reads the binary build operation log written by {@link BinaryBuildOperationTraceWriter}, one event at a time.
+ *
+ * <p>Can be used to convert a binary log into the JSON log format, with one JSON object per line:</p>
+ *
+ * <pre>
+ * java -cp «gradle-home»/lib/* org.gradle.internal.operations.trace.BinaryBuildOperationTraceReader «path-base»-log.bin [«path-base»-log.txt]
+ * </pre>
+ *
+ * <p>A log which ends with an incomplete event, for example because the build process died, is read up to the last complete event.</p>
+ */
+public class BinaryBuildOperationTraceReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            throw new IllegalArgumentException("Usage: BinaryBuildOperationTraceReader <binary-log> [<json-log>]");
+        }
+        File binaryLog = new File(args[0]);
+        File jsonLog = args.length == 2 ? new File(args[1]) : new File(binaryLog.getPath().replaceFirst("\\.bin$", "") + ".txt");
+        convertToJson(binaryLog, jsonLog);
+    }
+
+    /**
+     * Writes the events of the given binary log to the given file in the JSON log format.
+     */
+    public static void convertToJson(File binaryLog, File jsonLog) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(jsonLog), StandardCharsets.UTF_8));
+        try {
+            read(binaryLog, new Consumer<SerializedOperation>() {
+                @Override
+                public void accept(SerializedOperation operation) {
+                    try {
+                        writer.write(JsonOutput.toJson(operation.toMap()));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            });
+        } finally {
+            writer.close();
+        }
+    }
+
+    static void read(File binaryLog, Consumer<? super SerializedOperation> consumer) throws IOException {
+        JsonSlurper slurper = new JsonSlurper();
+        try (BoundedStringDeduplicatingKryoBackedDecoder decoder = new BoundedStringDeduplicatingKryoBackedDecoder(new FileInputStream(binaryLog))) {
+            if (decoder.readInt() != BinaryBuildOperationTraceWriter.MAGIC) {
+                throw new IOException(binaryLog + " is not a binary build operation log.");
+            }
+            int version = decoder.readSmallInt();
+            if (version != BinaryBuildOperationTraceWriter.VERSION) {
+                throw new IOException("Unsupported binary build operation log version " + version + " in " + binaryLog + ".");
+            }
+            while (true) {
+                SerializedOperation operation;
+                try {
+                    operation = readOperation(decoder, slurper);
+                } catch (EOFException e) {
+                    return;
+                }
+                consumer.accept(operation);
+            }
+        }
+    }
+
+    private static SerializedOperation readOperation(Decoder decoder, JsonSlurper slurper) throws IOException {
+        byte type = decoder.readByte();
+        switch (type) {
+            case BinaryBuildOperationTraceWriter.START:
+                long id = decoder.readSmallLong();
+                Long parentId = decoder.readBoolean() ? decoder.readSmallLong() : null;
+                String displayName = decoder.readString();
+                long startTime = decoder.readSmallLong();
+                String detailsClassName = decoder.readNullableString();
+                return new SerializedOperationStart(id, parentId, displayName, startTime, fromJson(slurper, decoder.readNullableString()), detailsClassName);
+            case BinaryBuildOperationTraceWriter.PROGRESS:
+                long progressId = decoder.readSmallLong();
+                long time = decoder.readSmallLong();
+                String progressDetailsClassName = decoder.readNullableString();
+                return new SerializedOperationProgress(progressId, time, fromJson(slurper, decoder.readNullableString()), progressDetailsClassName);
+            case BinaryBuildOperationTraceWriter.FINISH:
+                long finishId = decoder.readSmallLong();
+                long endTime = decoder.readSmallLong();
+                String resultClassName = decoder.readNullableString();
+                Object result = fromJson(slurper, decoder.readNullableString());
+                return new SerializedOperationFinish(finishId, endTime, result, resultClassName, decoder.readNullableString());
+            default:
+                throw new IOException("Unexpected event type " + type + " in binary build operation log.");
+        }
+    }
+
+    @Nullable
+    private static Object fromJson(JsonSlurper slurper, @Nullable String json) {
+        return json == null ? null : slurper.parseText(json);
+    }
+}
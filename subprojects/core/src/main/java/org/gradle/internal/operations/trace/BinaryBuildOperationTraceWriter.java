@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import groovy.json.JsonOutput;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ThreadFactoryImpl;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedEncoder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Appends build operation events to a binary log from a background thread.
+ *
+ * <p>The log starts with a header, followed by one record per event. Each record starts with its type, followed by the fields of the event.
+ * Identifiers and timestamps are written as variable length integers, and repeated strings such as display names and class names are
+ * written once and referenced afterwards. Details and results are written as JSON text, as they have no fixed structure.</p>
+ *
+ * <p>Details and results are converted to JSON on the thread emitting the event, as they may change afterwards, and only the resulting
+ * text is queued. Threads emitting events only block when the writer falls behind by more than {@value #QUEUE_CAPACITY} events.
+ * The log is flushed whenever the writer has caught up, so it is mostly complete even when the build process dies. Once writing has
+ * failed, the pending and later events are discarded and the failure is rethrown to the emitting threads.</p>
+ *
+ * @see BinaryBuildOperationTraceReader
+ */
+class BinaryBuildOperationTraceWriter {
+    static final int MAGIC = 0x474f5054;
+    static final int VERSION = 1;
+    static final byte START = 1;
+    static final byte PROGRESS = 2;
+    static final byte FINISH = 3;
+
+    private static final int QUEUE_CAPACITY = 16 * 1024;
+    private static final Record END = new Record((byte) 0, 0, null, null, 0, null, null, null);
+
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<Record>(QUEUE_CAPACITY);
+    private final BoundedStringDeduplicatingKryoBackedEncoder encoder;
+    private final Thread thread;
+    private volatile Throwable failure;
+
+    BinaryBuildOperationTraceWriter(File logFile) throws IOException {
+        encoder = new BoundedStringDeduplicatingKryoBackedEncoder(new FileOutputStream(logFile));
+        encoder.writeInt(MAGIC);
+        encoder.writeSmallInt(VERSION);
+        thread = new ThreadFactoryImpl("Build operation trace writer").newThread(new Runnable() {
+            @Override
+            public void run() {
+                writeEvents();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void write(SerializedOperation operation) {
+        rethrowFailure();
+        Record record = toRecord(operation);
+        try {
+            queue.put(record);
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Writes the pending events and closes the log.
+     */
+    void close() {
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        rethrowFailure();
+    }
+
+    private void rethrowFailure() {
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    private static Record toRecord(SerializedOperation operation) {
+        if (operation instanceof SerializedOperationStart) {
+            SerializedOperationStart start = (SerializedOperationStart) operation;
+            return new Record(START, start.id, start.parentId, start.displayName, start.startTime, start.detailsClassName, toJson(start.details), null);
+        } else if (operation instanceof SerializedOperationProgress) {
+            SerializedOperationProgress progress = (SerializedOperationProgress) operation;
+            return new Record(PROGRESS, progress.id, null, null, progress.time, progress.detailsClassName, toJson(progress.details), null);
+        } else {
+            SerializedOperationFinish finish = (SerializedOperationFinish) operation;
+            return new Record(FINISH, finish.id, null, null, finish.endTime, finish.resultClassName, toJson(finish.result), finish.failureMsg);
+        }
+    }
+
+    private void writeEvents() {
+        try {
+            while (true) {
+                Record record = queue.poll();
+                if (record == null) {
+                    encoder.flush();
+                    record = queue.take();
+                }
+                if (record == END) {
+                    break;
+                }
+                encode(record);
+            }
+        } catch (Throwable t) {
+            failure = t;
+            discardEvents();
+        } finally {
+            encoder.close();
+        }
+    }
+
+    /**
+     * Keeps taking the events after a failure, so that the emitting threads and {@link #close()} do not wait for space forever.
+     */
+    private void discardEvents() {
+        try {
+            while (queue.take() != END) {
+                // Discard
+            }
+        } catch (InterruptedException e) {
+            // Give up
+        }
+    }
+
+    private void encode(Record record) throws IOException {
+        Encoder encoder = this.encoder;
+        encoder.writeByte(record.type);
+        encoder.writeSmallLong(record.id);
+        if (record.type == START) {
+            encoder.writeBoolean(record.parentId != null);
+            if (record.parentId != null) {
+                encoder.writeSmallLong(record.parentId);
+            }
+            encoder.writeString(record.displayName);
+        }
+        encoder.writeSmallLong(record.time);
+        encoder.writeNullableString(record.className);
+        encoder.writeNullableString(record.json);
+        if (record.type == FINISH) {
+            encoder.writeNullableString(record.failureMsg);
+        }
+    }
+
+    @Nullable
+    private static String toJson(@Nullable Object value) {
+        return value == null ? null : JsonOutput.toJson(value);
+    }
+
+    /**
+     * An event ready to be written, which holds no reference to the details or result of the operation.
+     */
+    private static class Record {
+        final byte type;
+        final long id;
+        final Long parentId;
+        final String displayName;
+        final long time;
+        final String className;
+        final String json;
+        final String failureMsg;
+
+        Record(byte type, long id, @Nullable Long parentId, @Nullable String displayName, long time, @Nullable String className, @Nullable String json, @Nullable String failureMsg) {
+            this.type = type;
+            this.id = id;
+            this.parentId = parentId;
+            this.displayName = displayName;
+            this.time = time;
+            this.className = className;
+            this.json = json;
+            this.failureMsg = failureMsg;
+        }
+    }
+}
@@ -28,6 +28,7 @@
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationListener;
 import org.gradle.internal.operations.BuildOperationListenerManager;
+import org.gradle.internal.operations.ContextFreeBuildOperationListener;
 import org.gradle.internal.operations.OperationFinishEvent;
 import org.gradle.internal.operations.OperationIdentifier;
 import org.gradle.internal.operations.OperationProgressEvent;
@@ -51,6 +52,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.function.Consumer;
 
 import static org.gradle.internal.Cast.uncheckedCast;
 import static org.gradle.internal.Cast.uncheckedNonnullCast;
@@ -74,6 +76,11 @@
  * The «path-base» param is optional.
  * If invoked as `-Dorg.gradle.internal.operations.trace`, a base value of "operations" will be used.
  *
+ * With `-Dorg.gradle.internal.operations.trace.format=binary`, only «path-base»-log.bin is created instead.
+ * It is a compact, append-only log written by a background thread, and no tree is built in memory,
+ * which makes the trace cheap enough for large builds.
+ * Use {@link BinaryBuildOperationTraceReader} to convert it into the JSON log format.
+ *
  * The “trace” produced here is different to the trace produced by Gradle Profiler.
  * There, the focus is analyzing the performance profile.
  * Here, the focus is debugging/developing the information structure of build operations.
@@ -83,15 +90,17 @@
 public class BuildOperationTrace implements Stoppable {
 
     public static final String SYSPROP = "org.gradle.internal.operations.trace";
+    public static final String FORMAT_SYSPROP = "org.gradle.internal.operations.trace.format";
 
     private static final byte[] NEWLINE = "\n".getBytes();
 
     private final String basePath;
     private final OutputStream logOutputStream;
+    private final BinaryBuildOperationTraceWriter binaryWriter;
 
     private final BuildOperationListenerManager buildOperationListenerManager;
 
-    private final BuildOperationListener listener = new BuildOperationListener() {
+    private final BuildOperationListener listener = new ContextFreeBuildOperationListener() {
         @Override
         public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
             write(new SerializedOperationStart(buildOperation, startEvent));
@@ -112,27 +121,35 @@ public BuildOperationTrace(StartParameter startParameter, BuildOperationListener
         this.buildOperationListenerManager = buildOperationListenerManager;
 
         Map<String, String> sysProps = startParameter.getSystemPropertiesArgs();
-        String basePath = sysProps.get(SYSPROP);
-        if (basePath == null) {
-            basePath = System.getProperty(SYSPROP);
-        }
+        String basePath = systemProperty(sysProps, SYSPROP);
 
         this.basePath = basePath;
         if (this.basePath == null || basePath.equals(Boolean.FALSE.toString())) {
             this.logOutputStream = null;
+            this.binaryWriter = null;
             return;
         }
 
+        boolean binary = "binary".equals(systemProperty(sysProps, FORMAT_SYSPROP));
         try {
-            File logFile = logFile(basePath);
+            File logFile = binary ? binaryLogFile(basePath) : logFile(basePath);
             GFileUtils.mkdirs(logFile.getParentFile());
-            if (logFile.isFile()) {
-                GFileUtils.forceDelete(logFile);
+            // Delete the log of both formats, so that a log left by an earlier build is not read instead of this one
+            for (File staleLogFile : new File[]{logFile(basePath), binaryLogFile(basePath)}) {
+                if (staleLogFile.isFile()) {
+                    GFileUtils.forceDelete(staleLogFile);
+                }
             }
             //noinspection ResultOfMethodCallIgnored
             logFile.createNewFile();
 
-            this.logOutputStream = new BufferedOutputStream(new FileOutputStream(logFile));
+            if (binary) {
+                this.logOutputStream = null;
+                this.binaryWriter = new BinaryBuildOperationTraceWriter(logFile);
+            } else {
+                this.logOutputStream = new BufferedOutputStream(new FileOutputStream(logFile));
+                this.binaryWriter = null;
+            }
         } catch (IOException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
@@ -140,9 +157,17 @@ public BuildOperationTrace(StartParameter startParameter, BuildOperationListener
         buildOperationListenerManager.addListener(listener);
     }
 
+    private static String systemProperty(Map<String, String> sysProps, String name) {
+        String value = sysProps.get(name);
+        return value != null ? value : System.getProperty(name);
+    }
+
     @Override
     public void stop() {
         buildOperationListenerManager.removeListener(listener);
+        if (binaryWriter != null) {
+            binaryWriter.close();
+        }
         if (logOutputStream != null) {
             try {
                 synchronized (logOutputStream) {
@@ -159,6 +184,10 @@ public void stop() {
     }
 
     private void write(SerializedOperation operation) {
+        if (binaryWriter != null) {
+            binaryWriter.write(operation);
+            return;
+        }
         String json = JsonOutput.toJson(operation.toMap());
         try {
             synchronized (logOutputStream) {
@@ -267,79 +296,28 @@ public void remove() {
 
     public static BuildOperationTree read(String basePath) {
         File logFile = logFile(basePath);
-        List<BuildOperationRecord> roots = readLogToTreeRoots(logFile);
+        List<BuildOperationRecord> roots = logFile.isFile() || !binaryLogFile(basePath).isFile()
+            ? readLogToTreeRoots(logFile)
+            : readBinaryLogToTreeRoots(binaryLogFile(basePath));
         return new BuildOperationTree(roots);
     }
 
     private static List<BuildOperationRecord> readLogToTreeRoots(final File logFile) {
         try {
             final JsonSlurper slurper = new JsonSlurper();
-
-            final List<BuildOperationRecord> roots = new ArrayList<>();
-            final Map<Object, PendingOperation> pendings = new HashMap<>();
-            final Map<Object, List<BuildOperationRecord>> childrens = new HashMap<>();
+            final TreeBuilder treeBuilder = new TreeBuilder(logFile);
 
             Files.asCharSource(logFile, Charsets.UTF_8).readLines(new LineProcessor<Void>() {
                 @Override
                 public boolean processLine(@SuppressWarnings("NullableProblems") String line) {
                     Map<String, ?> map = uncheckedNonnullCast(slurper.parseText(line));
                     if (map.containsKey("startTime")) {
-                        SerializedOperationStart serialized = new SerializedOperationStart(map);
-                        pendings.put(serialized.id, new PendingOperation(serialized));
-                        childrens.put(serialized.id, new LinkedList<>());
+                        treeBuilder.accept(new SerializedOperationStart(map));
                     } else if (map.containsKey("time")) {
-                        SerializedOperationProgress serialized = new SerializedOperationProgress(map);
-                        PendingOperation pending = pendings.get(serialized.id);
-                        assert pending != null : "did not find owner of progress event with ID " + serialized.id;
-                        pending.progress.add(serialized);
+                        treeBuilder.accept(new SerializedOperationProgress(map));
                     } else {
-                        SerializedOperationFinish finish = new SerializedOperationFinish(map);
-
-                        PendingOperation pending = pendings.remove(finish.id);
-                        assert pending != null;
-
-                        List<BuildOperationRecord> children = childrens.remove(finish.id);
-                        assert children != null;
-
-                        SerializedOperationStart start = pending.start;
-
-                        Map<String, ?> detailsMap = uncheckedCast(start.details);
-                        Map<String, ?> resultMap = uncheckedCast(finish.result);
-
-                        List<BuildOperationRecord.Progress> progresses = new ArrayList<>();
-                        for (SerializedOperationProgress progress : pending.progress) {
-                            Map<String, ?> progressDetailsMap = uncheckedCast(progress.details);
-                            progresses.add(new BuildOperationRecord.Progress(
-                                progress.time,
-                                progressDetailsMap,
-                                progress.detailsClassName
-                            ));
-                        }
-
-                        BuildOperationRecord record = new BuildOperationRecord(
-                            start.id,
-                            start.parentId,
-                            start.displayName,
-                            start.startTime,
-                            finish.endTime,
-                            detailsMap == null ? null : Collections.unmodifiableMap(detailsMap),
-                            start.detailsClassName,
-                            resultMap == null ? null : Collections.unmodifiableMap(resultMap),
-                            finish.resultClassName,
-                            finish.failureMsg,
-                            progresses,
-                            BuildOperationRecord.ORDERING.immutableSortedCopy(children)
-                        );
-
-                        if (start.parentId == null) {
-                            roots.add(record);
-                        } else {
-                            List<BuildOperationRecord> parentChildren = childrens.get(start.parentId);
-                            assert parentChildren != null : "parentChildren != null '" + line + "' from " + logFile;
-                            parentChildren.add(record);
-                        }
+                        treeBuilder.accept(new SerializedOperationFinish(map));
                     }
-
                     return true;
                 }
 
@@ -349,19 +327,106 @@ public Void getResult() {
                 }
             });
 
-            assert pendings.isEmpty();
+            return treeBuilder.getRoots();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
 
-            return roots;
+    private static List<BuildOperationRecord> readBinaryLogToTreeRoots(File binaryLogFile) {
+        try {
+            TreeBuilder treeBuilder = new TreeBuilder(binaryLogFile);
+            BinaryBuildOperationTraceReader.read(binaryLogFile, treeBuilder);
+            return treeBuilder.getRoots();
         } catch (Exception e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
+    }
 
+    private static class TreeBuilder implements Consumer<SerializedOperation> {
+        private final File logFile;
+        private final List<BuildOperationRecord> roots = new ArrayList<>();
+        private final Map<Object, PendingOperation> pendings = new HashMap<>();
+        private final Map<Object, List<BuildOperationRecord>> childrens = new HashMap<>();
+
+        TreeBuilder(File logFile) {
+            this.logFile = logFile;
+        }
+
+        @Override
+        public void accept(SerializedOperation operation) {
+            if (operation instanceof SerializedOperationStart) {
+                SerializedOperationStart serialized = (SerializedOperationStart) operation;
+                pendings.put(serialized.id, new PendingOperation(serialized));
+                childrens.put(serialized.id, new LinkedList<>());
+            } else if (operation instanceof SerializedOperationProgress) {
+                SerializedOperationProgress serialized = (SerializedOperationProgress) operation;
+                PendingOperation pending = pendings.get(serialized.id);
+                assert pending != null : "did not find owner of progress event with ID " + serialized.id;
+                pending.progress.add(serialized);
+            } else {
+                SerializedOperationFinish finish = (SerializedOperationFinish) operation;
+
+                PendingOperation pending = pendings.remove(finish.id);
+                assert pending != null;
+
+                List<BuildOperationRecord> children = childrens.remove(finish.id);
+                assert children != null;
+
+                SerializedOperationStart start = pending.start;
+
+                Map<String, ?> detailsMap = uncheckedCast(start.details);
+                Map<String, ?> resultMap = uncheckedCast(finish.result);
+
+                List<BuildOperationRecord.Progress> progresses = new ArrayList<>();
+                for (SerializedOperationProgress progress : pending.progress) {
+                    Map<String, ?> progressDetailsMap = uncheckedCast(progress.details);
+                    progresses.add(new BuildOperationRecord.Progress(
+                        progress.time,
+                        progressDetailsMap,
+                        progress.detailsClassName
+                    ));
+                }
+
+                BuildOperationRecord record = new BuildOperationRecord(
+                    start.id,
+                    start.parentId,
+                    start.displayName,
+                    start.startTime,
+                    finish.endTime,
+                    detailsMap == null ? null : Collections.unmodifiableMap(detailsMap),
+                    start.detailsClassName,
+                    resultMap == null ? null : Collections.unmodifiableMap(resultMap),
+                    finish.resultClassName,
+                    finish.failureMsg,
+                    progresses,
+                    BuildOperationRecord.ORDERING.immutableSortedCopy(children)
+                );
+
+                if (start.parentId == null) {
+                    roots.add(record);
+                } else {
+                    List<BuildOperationRecord> parentChildren = childrens.get(start.parentId);
+                    assert parentChildren != null : "parentChildren != null for operation " + start.id + " from " + logFile;
+                    parentChildren.add(record);
+                }
+            }
+        }
+
+        List<BuildOperationRecord> getRoots() {
+            assert pendings.isEmpty();
+            return roots;
+        }
     }
 
     private static File logFile(String basePath) {
         return file(basePath, "-log.txt");
     }
 
+    private static File binaryLogFile(String basePath) {
+        return file(basePath, "-log.bin");
+    }
+
     private static File file(String base, String suffix) {
         return new File((base == null || base.trim().isEmpty() ? "operations" : base) + suffix).getAbsoluteFile();
     }
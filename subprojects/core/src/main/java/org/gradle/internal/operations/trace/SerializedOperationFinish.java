@@ -20,6 +20,7 @@
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.OperationFinishEvent;
 
+import javax.annotation.Nullable;
 import java.util.Map;
 
 import static org.gradle.internal.operations.trace.BuildOperationTrace.toSerializableModel;
@@ -43,6 +44,14 @@ class SerializedOperationFinish implements SerializedOperation {
         this.failureMsg = finishEvent.getFailure() == null ? null : finishEvent.getFailure().toString();
     }
 
+    SerializedOperationFinish(long id, long endTime, @Nullable Object result, @Nullable String resultClassName, @Nullable String failureMsg) {
+        this.id = id;
+        this.endTime = endTime;
+        this.result = result;
+        this.resultClassName = resultClassName;
+        this.failureMsg = failureMsg;
+    }
+
     SerializedOperationFinish(Map<String, ?> map) {
         this.id = ((Integer) map.get("id")).longValue();
         this.endTime = (Long) map.get("endTime");
@@ -20,6 +20,7 @@
 import org.gradle.internal.operations.OperationIdentifier;
 import org.gradle.internal.operations.OperationProgressEvent;
 
+import javax.annotation.Nullable;
 import java.util.Map;
 
 import static org.gradle.internal.operations.trace.BuildOperationTrace.toSerializableModel;
@@ -38,6 +39,13 @@ class SerializedOperationProgress implements SerializedOperation {
         this.detailsClassName = details == null ? null : progressEvent.getDetails().getClass().getName();
     }
 
+    SerializedOperationProgress(long id, long time, @Nullable Object details, @Nullable String detailsClassName) {
+        this.id = id;
+        this.time = time;
+        this.details = details;
+        this.detailsClassName = detailsClassName;
+    }
+
     SerializedOperationProgress(Map<String, ?> map) {
         this.id = ((Integer) map.get("id")).longValue();
         this.time = (Long) map.get("time");
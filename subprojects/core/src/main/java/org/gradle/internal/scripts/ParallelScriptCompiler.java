@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.scripts;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Compiles scripts into temporary directories on a bounded pool of threads, ahead of their evaluation.
+ *
+ * <p>Script cache entries are initialized while holding the lock of the cache factory, which serializes all compilations
+ * going through the script cache. Compiling to a temporary directory instead lets scripts compile concurrently, and only
+ * copying the output into the cache entry requires the lock.</p>
+ *
+ * <p>The compiler is not specific to a DSL. Cache keys only need to be unique among the scripts submitted to the same compiler.</p>
+ */
+public class ParallelScriptCompiler implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelScriptCompiler.class);
+
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final String temporaryDirPrefix;
+    private final Supplier<ManagedExecutor> executorSupplier;
+    private final ConcurrentMap<String, Future<File>> compilations = new ConcurrentHashMap<>();
+    private ManagedExecutor executor;
+
+    public ParallelScriptCompiler(TemporaryFileProvider temporaryFileProvider, String temporaryDirPrefix, Supplier<ManagedExecutor> executorSupplier) {
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.temporaryDirPrefix = temporaryDirPrefix;
+        this.executorSupplier = executorSupplier;
+    }
+
+    /**
+     * Starts the given compilation for the given cache key, unless it was started already.
+     */
+    public void submit(String cacheKey, Action<? super File> compilation) {
+        compilations.computeIfAbsent(cacheKey, key -> getExecutor().submit(() -> {
+            File outputDir = temporaryFileProvider.createTemporaryDirectory(temporaryDirPrefix, "compilation");
+            try {
+                compilation.execute(outputDir);
+            } catch (Throwable e) {
+                GFileUtils.deleteQuietly(outputDir);
+                throw e;
+            }
+            return outputDir;
+        }));
+    }
+
+    /**
+     * Copies the output of the compilation for the given cache key to the given directory, waiting for the compilation to finish when required.
+     *
+     * @return {@code false} when no compilation was started for the key or the compilation failed.
+     */
+    public boolean takeOutputOf(String cacheKey, File cacheDir) {
+        Future<File> compilation = compilations.remove(cacheKey);
+        if (compilation == null) {
+            return false;
+        }
+        File outputDir;
+        try {
+            outputDir = compilation.get();
+        } catch (ExecutionException e) {
+            LOGGER.debug("Compilation of {} in the background failed.", cacheKey, e.getCause());
+            return false;
+        } catch (CancellationException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            GFileUtils.copyDirectory(outputDir, cacheDir);
+        } finally {
+            GFileUtils.deleteQuietly(outputDir);
+        }
+        return true;
+    }
+
+    private synchronized ManagedExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorSupplier.get();
+        }
+        return executor;
+    }
+
+    @Override
+    public void close() {
+        for (Future<File> compilation : compilations.values()) {
+            compilation.cancel(false);
+        }
+        synchronized (this) {
+            if (executor != null) {
+                // Waits for the running compilations, which do not respond to interruption
+                executor.stop();
+            }
+        }
+        for (Future<File> compilation : compilations.values()) {
+            if (!compilation.isCancelled()) {
+                try {
+                    GFileUtils.deleteQuietly(compilation.get());
+                } catch (ExecutionException | InterruptedException e) {
+                    // Nothing to clean up
+                }
+            }
+        }
+        compilations.clear();
+    }
+}
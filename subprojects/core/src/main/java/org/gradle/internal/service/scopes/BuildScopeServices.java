@@ -84,6 +84,7 @@
 import org.gradle.api.provider.ProviderFactory;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.caching.internal.BuildCacheServices;
 import org.gradle.configuration.BuildOperatingFiringProjectsPreparer;
 import org.gradle.configuration.CompileOperationFactory;
@@ -178,6 +179,7 @@
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.DefaultTextFileResourceLoader;
 import org.gradle.internal.resource.TextFileResourceLoader;
+import org.gradle.internal.scripts.ParallelScriptCompiler;
 import org.gradle.internal.scripts.ScriptExecutionListener;
 import org.gradle.internal.service.CachingServiceLocator;
 import org.gradle.internal.service.DefaultServiceRegistry;
@@ -364,14 +366,20 @@ protected FileCacheBackedScriptClassCompiler createFileCacheBackedScriptClassCom
         ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
         DefaultScriptCompilationHandler scriptCompilationHandler,
         CachedClasspathTransformer classpathTransformer,
-        ProgressLoggerFactory progressLoggerFactory
+        ProgressLoggerFactory progressLoggerFactory,
+        CacheScopeMapping cacheScopeMapping,
+        TemporaryFileProvider temporaryFileProvider,
+        ExecutorFactory executorFactory,
+        StartParameter startParameter
     ) {
         return new FileCacheBackedScriptClassCompiler(
             cacheRepository,
             new BuildOperationBackedScriptCompilationHandler(scriptCompilationHandler, buildOperationExecutor),
             progressLoggerFactory,
             classLoaderHierarchyHasher,
-            classpathTransformer);
+            classpathTransformer,
+            cacheScopeMapping,
+            new ParallelScriptCompiler(temporaryFileProvider, "groovy-dsl", () -> executorFactory.create("Groovy script compiler", startParameter.getMaxWorkerCount())));
     }
 
     protected ScriptPluginFactory createScriptPluginFactory(InstantiatorFactory instantiatorFactory, BuildOperationExecutor buildOperationExecutor, UserCodeApplicationContext userCodeApplicationContext) {
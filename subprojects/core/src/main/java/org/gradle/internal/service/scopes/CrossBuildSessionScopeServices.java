@@ -31,6 +31,7 @@
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.internal.logging.sink.OutputEventListenerManager;
+import org.gradle.internal.metrics.InternalMetricsExporter;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationIdFactory;
 import org.gradle.internal.operations.BuildOperationListenerManager;
@@ -69,6 +70,7 @@ public class CrossBuildSessionScopeServices implements Closeable {
     private final BuildOperationNotificationBridge buildOperationNotificationBridge;
     private final LoggingBuildOperationProgressBroadcaster loggingBuildOperationProgressBroadcaster;
     private final BuildOperationListenerManager buildOperationListenerManager;
+    private final InternalMetricsExporter internalMetricsExporter;
 
     private final Services services;
 
@@ -77,6 +79,7 @@ public CrossBuildSessionScopeServices(ServiceRegistry parent, StartParameter sta
 
         this.buildOperationListenerManager = parent.get(BuildOperationListenerManager.class);
 
+        this.internalMetricsExporter = new InternalMetricsExporter(startParameter);
         ListenerManager generalListenerManager = parent.get(ListenerManager.class);
         this.buildOperationTrace = new BuildOperationTrace(startParameter, buildOperationListenerManager);
         this.buildOperationNotificationBridge = new BuildOperationNotificationBridge(buildOperationListenerManager, generalListenerManager);
@@ -130,7 +133,8 @@ public void close() throws IOException {
             buildOperationTrace,
             buildOperationNotificationBridge,
             loggingBuildOperationProgressBroadcaster,
-            services
+            services,
+            internalMetricsExporter
         ).stop();
     }
 
@@ -73,6 +73,7 @@
 import org.gradle.process.internal.health.memory.MemoryManager;
 import org.gradle.process.internal.worker.DefaultWorkerProcessFactory;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
+import org.gradle.process.internal.worker.child.WorkerClassDataSharing;
 import org.gradle.process.internal.worker.child.WorkerProcessClassPathProvider;
 import org.gradle.util.GradleVersion;
 
@@ -152,7 +153,8 @@ CachedClasspathTransformer createCachedClasspathTransformer(
         FileAccessTimeJournal fileAccessTimeJournal,
         VirtualFileSystem virtualFileSystem,
         ClasspathWalker classpathWalker,
-        ClasspathBuilder classpathBuilder
+        ClasspathBuilder classpathBuilder,
+        ExecutorFactory executorFactory
     ) {
         return new DefaultCachedClasspathTransformer(
             cacheRepository,
@@ -160,13 +162,14 @@ CachedClasspathTransformer createCachedClasspathTransformer(
             fileAccessTimeJournal,
             classpathWalker,
             classpathBuilder,
-            virtualFileSystem);
+            virtualFileSystem,
+            executorFactory);
     }
 
     WorkerProcessFactory createWorkerProcessFactory(LoggingManagerInternal loggingManagerInternal, MessagingServer messagingServer, ClassPathRegistry classPathRegistry,
                                                     TemporaryFileProvider temporaryFileProvider, JavaExecHandleFactory execHandleFactory, JvmVersionDetector jvmVersionDetector,
                                                     JavaModuleDetector javaModuleDetector, MemoryManager memoryManager, GradleUserHomeDirProvider gradleUserHomeDirProvider,
-                                                    OutputEventListener outputEventListener) {
+                                                    OutputEventListener outputEventListener, WorkerClassDataSharing workerClassDataSharing) {
         return new DefaultWorkerProcessFactory(
             loggingManagerInternal,
             messagingServer,
@@ -178,10 +181,15 @@ WorkerProcessFactory createWorkerProcessFactory(LoggingManagerInternal loggingMa
             jvmVersionDetector,
             javaModuleDetector,
             outputEventListener,
-            memoryManager
+            memoryManager,
+            workerClassDataSharing
         );
     }
 
+    WorkerClassDataSharing createWorkerClassDataSharing(CacheRepository cacheRepository, FileAccessTimeJournal fileAccessTimeJournal) {
+        return new WorkerClassDataSharing(cacheRepository, fileAccessTimeJournal);
+    }
+
     ClassPathRegistry createClassPathRegistry(ModuleRegistry moduleRegistry, WorkerProcessClassPathProvider workerProcessClassPathProvider) {
         return new DefaultClassPathRegistry(
             new DefaultClassPathProvider(moduleRegistry),
@@ -26,11 +26,13 @@
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.process.ExecResult;
 import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
 import org.gradle.process.internal.JavaExecHandleBuilder;
 import org.gradle.process.internal.JavaExecHandleFactory;
 import org.gradle.process.internal.health.memory.JvmMemoryStatus;
 import org.gradle.process.internal.health.memory.MemoryAmount;
 import org.gradle.process.internal.health.memory.MemoryManager;
+import org.gradle.process.internal.health.memory.MemoryReservation;
 import org.gradle.process.internal.worker.child.ApplicationClassesInSystemClassLoaderWorkerImplementationFactory;
 import org.gradle.process.internal.worker.child.WorkerJvmMemoryInfoProtocol;
 import org.gradle.process.internal.worker.child.WorkerLoggingProtocol;
@@ -228,28 +230,55 @@ public void run() {
         if (javaCommand.getMaxHeapSize() == null) {
             javaCommand.setMaxHeapSize("512m");
         }
+        MemoryRequestingWorkerProcess memoryRequestingWorkerProcess = new MemoryRequestingWorkerProcess(workerProcess, memoryManager, MemoryAmount.parseNotation(javaCommand.getMinHeapSize()), MemoryAmount.parseNotation(javaCommand.getMaxHeapSize()));
+        javaCommand.listener(memoryRequestingWorkerProcess);
         ExecHandle execHandle = javaCommand.build();
 
         workerProcess.setExecHandle(execHandle);
 
-        return new MemoryRequestingWorkerProcess(workerProcess, memoryManager, MemoryAmount.parseNotation(javaCommand.getMinHeapSize()));
+        return memoryRequestingWorkerProcess;
     }
 
-    private static class MemoryRequestingWorkerProcess implements WorkerProcess {
+    private static class MemoryRequestingWorkerProcess implements WorkerProcess, ExecHandleListener {
         private final WorkerProcess delegate;
         private final MemoryManager memoryResourceManager;
         private final long memoryAmount;
+        private final long maxMemoryAmount;
+        private volatile MemoryReservation memoryReservation;
 
-        private MemoryRequestingWorkerProcess(WorkerProcess delegate, MemoryManager memoryResourceManager, long memoryAmount) {
+        private MemoryRequestingWorkerProcess(WorkerProcess delegate, MemoryManager memoryResourceManager, long memoryAmount, long maxMemoryAmount) {
             this.delegate = delegate;
             this.memoryResourceManager = memoryResourceManager;
             this.memoryAmount = memoryAmount;
+            this.maxMemoryAmount = maxMemoryAmount;
         }
 
         @Override
         public WorkerProcess start() {
-            memoryResourceManager.requestFreeMemory(memoryAmount);
-            return delegate.start();
+            memoryReservation = memoryResourceManager.reserveMemory(maxMemoryAmount);
+            try {
+                memoryResourceManager.requestFreeMemory(memoryAmount);
+                return delegate.start();
+            } catch (RuntimeException e) {
+                releaseMemory();
+                throw e;
+            }
+        }
+
+        @Override
+        public void executionStarted(ExecHandle execHandle) {
+        }
+
+        @Override
+        public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+            releaseMemory();
+        }
+
+        private void releaseMemory() {
+            MemoryReservation reservation = memoryReservation;
+            if (reservation != null) {
+                reservation.release();
+            }
         }
 
         @Override
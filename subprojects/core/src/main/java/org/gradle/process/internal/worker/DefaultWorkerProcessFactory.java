@@ -29,7 +29,9 @@
 import org.gradle.process.internal.JavaExecHandleFactory;
 import org.gradle.process.internal.health.memory.MemoryManager;
 import org.gradle.process.internal.worker.child.ApplicationClassesInSystemClassLoaderWorkerImplementationFactory;
+import org.gradle.process.internal.worker.child.WorkerClassDataSharing;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class DefaultWorkerProcessFactory implements WorkerProcessFactory {
@@ -47,13 +49,20 @@ public class DefaultWorkerProcessFactory implements WorkerProcessFactory {
     public DefaultWorkerProcessFactory(LoggingManager loggingManager, MessagingServer server, ClassPathRegistry classPathRegistry, IdGenerator<Long> idGenerator,
                                        File gradleUserHomeDir, TemporaryFileProvider temporaryFileProvider, JavaExecHandleFactory execHandleFactory,
                                        JvmVersionDetector jvmVersionDetector, JavaModuleDetector javaModuleDetector, OutputEventListener outputEventListener, MemoryManager memoryManager) {
+        this(loggingManager, server, classPathRegistry, idGenerator, gradleUserHomeDir, temporaryFileProvider, execHandleFactory, jvmVersionDetector, javaModuleDetector, outputEventListener, memoryManager, null);
+    }
+
+    public DefaultWorkerProcessFactory(LoggingManager loggingManager, MessagingServer server, ClassPathRegistry classPathRegistry, IdGenerator<Long> idGenerator,
+                                       File gradleUserHomeDir, TemporaryFileProvider temporaryFileProvider, JavaExecHandleFactory execHandleFactory,
+                                       JvmVersionDetector jvmVersionDetector, JavaModuleDetector javaModuleDetector, OutputEventListener outputEventListener, MemoryManager memoryManager,
+                                       @Nullable WorkerClassDataSharing classDataSharing) {
         this.loggingManager = loggingManager;
         this.server = server;
         this.idGenerator = idGenerator;
         this.gradleUserHomeDir = gradleUserHomeDir;
         this.execHandleFactory = execHandleFactory;
         this.outputEventListener = outputEventListener;
-        this.workerImplementationFactory = new ApplicationClassesInSystemClassLoaderWorkerImplementationFactory(classPathRegistry, temporaryFileProvider, jvmVersionDetector, javaModuleDetector, gradleUserHomeDir);
+        this.workerImplementationFactory = new ApplicationClassesInSystemClassLoaderWorkerImplementationFactory(classPathRegistry, temporaryFileProvider, jvmVersionDetector, javaModuleDetector, gradleUserHomeDir, classDataSharing);
         this.memoryManager = memoryManager;
     }
 
@@ -36,6 +36,7 @@
 import org.gradle.process.internal.worker.WorkerProcessBuilder;
 import org.gradle.util.GUtil;
 
+import javax.annotation.Nullable;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -75,14 +76,23 @@ public class ApplicationClassesInSystemClassLoaderWorkerImplementationFactory im
     private final JvmVersionDetector jvmVersionDetector;
     private final JavaModuleDetector javaModuleDetector;
     private final File gradleUserHomeDir;
+    @Nullable
+    private final WorkerClassDataSharing classDataSharing;
 
     public ApplicationClassesInSystemClassLoaderWorkerImplementationFactory(ClassPathRegistry classPathRegistry, TemporaryFileProvider temporaryFileProvider,
                                                                             JvmVersionDetector jvmVersionDetector, JavaModuleDetector javaModuleDetector, File gradleUserHomeDir) {
+        this(classPathRegistry, temporaryFileProvider, jvmVersionDetector, javaModuleDetector, gradleUserHomeDir, null);
+    }
+
+    public ApplicationClassesInSystemClassLoaderWorkerImplementationFactory(ClassPathRegistry classPathRegistry, TemporaryFileProvider temporaryFileProvider,
+                                                                            JvmVersionDetector jvmVersionDetector, JavaModuleDetector javaModuleDetector, File gradleUserHomeDir,
+                                                                            @Nullable WorkerClassDataSharing classDataSharing) {
         this.classPathRegistry = classPathRegistry;
         this.temporaryFileProvider = temporaryFileProvider;
         this.jvmVersionDetector = jvmVersionDetector;
         this.javaModuleDetector = javaModuleDetector;
         this.gradleUserHomeDir = gradleUserHomeDir;
+        this.classDataSharing = classDataSharing;
     }
 
     public JavaModuleDetector getJavaModuleDetector() {
@@ -101,12 +111,19 @@ public void prepareJavaCommand(long workerId, String displayName, WorkerProcessB
         execSpec.getMainModule().set("gradle.worker");
         execSpec.getMainClass().set("worker." + GradleWorkerMain.class.getName());
 
-        boolean useOptionsFile = shouldUseOptionsFile(execSpec);
+        JavaVersion executableVersion = jvmVersionDetector.getJavaVersion(execSpec.getExecutable());
+        boolean useOptionsFile = shouldUseOptionsFile(executableVersion);
         if (useOptionsFile) {
             // Use an options file to pass across application classpath
             File optionsFile = temporaryFileProvider.createTemporaryFile("gradle-worker-classpath", "txt");
-            List<String> jvmArgs = writeOptionsFile(execSpec.getModularity().getInferModulePath().get(), workerMainClassPath, implementationModulePath, applicationClasspath, applicationModulePath, optionsFile);
+            boolean runAsModule = execSpec.getModularity().getInferModulePath().get();
+            List<String> jvmArgs = writeOptionsFile(runAsModule, workerMainClassPath, implementationModulePath, applicationClasspath, applicationModulePath, optionsFile);
             execSpec.jvmArgs(jvmArgs);
+            if (classDataSharing != null && WorkerClassDataSharing.isEnabled() && !runAsModule && applicationModulePath.isEmpty()) {
+                List<File> classpath = new ArrayList<>(workerMainClassPath);
+                classpath.addAll(applicationClasspath);
+                classDataSharing.configure(execSpec, executableVersion, classpath);
+            }
         } else {
             // Use a dummy security manager, which hacks the application classpath into the system ClassLoader
             execSpec.classpath(workerMainClassPath);
@@ -172,8 +189,7 @@ public void prepareJavaCommand(long workerId, String displayName, WorkerProcessB
         execSpec.setStandardInput(buffer.getInputStream());
     }
 
-    private boolean shouldUseOptionsFile(JavaExecHandleBuilder execSpec) {
-        JavaVersion executableVersion = jvmVersionDetector.getJavaVersion(execSpec.getExecutable());
+    private boolean shouldUseOptionsFile(JavaVersion executableVersion) {
         return executableVersion != null && executableVersion.isJava9Compatible();
     }
 
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.worker.child;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
+import org.gradle.cache.internal.SingleDepthFilesFinder;
+import org.gradle.internal.file.FileAccessTimeJournal;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.resource.local.FileAccessTracker;
+import org.gradle.internal.resource.local.SingleDepthFileAccessTracker;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup.DEFAULT_MAX_AGE_IN_DAYS_FOR_RECREATABLE_CACHE_ENTRIES;
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Maintains dynamic class data sharing (AppCDS) archives for worker processes, so that forked workers map the classes loaded
+ * by the system ClassLoader from a shared archive instead of loading and verifying them again.
+ *
+ * <p>An archive is kept per Java executable, Java version and worker classpath in a version specific cache of the Gradle user home.
+ * Archives which have not been used for a while are removed by the cleanup of that cache. The first worker started for a given key dumps
+ * the classes it has loaded into a temporary archive when it exits. The archive is published once that worker has finished successfully
+ * and is used by all the workers started afterwards. Workers which start while an archive is being created simply run without one.</p>
+ *
+ * <p>Dynamic archives require Java 13 or later and are only supported for a plain classpath made of jars, so workers using the module path,
+ * class directories or older JVMs are left untouched. When the JVM still refuses to create an archive, this is recorded so that it is not
+ * attempted again for the same key. A JVM which cannot map an archive, for example because of incompatible JVM options, ignores it.</p>
+ *
+ * <p>This is an opt-in feature, enabled with the {@value #ENABLED_PROPERTY} system property in the build process.</p>
+ */
+public class WorkerClassDataSharing implements Closeable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.worker.class-data-sharing";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerClassDataSharing.class);
+    private static final String CACHE_NAME = "worker-cds";
+    private static final String ARCHIVE_FILE_NAME = "worker.jsa";
+    private static final String DUMP_FILE_NAME = "worker.jsa.tmp";
+    private static final String PENDING_FILE_NAME = "worker.jsa.pending";
+    private static final String UNSUPPORTED_FILE_NAME = "worker.jsa.unsupported";
+    private static final long STALE_PENDING_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP = 1;
+
+    private final CacheRepository cacheRepository;
+    private final FileAccessTimeJournal fileAccessTimeJournal;
+    private final Object lock = new Object();
+    private PersistentCache cache;
+    private FileAccessTracker fileAccessTracker;
+
+    public WorkerClassDataSharing(CacheRepository cacheRepository, FileAccessTimeJournal fileAccessTimeJournal) {
+        this.cacheRepository = cacheRepository;
+        this.fileAccessTimeJournal = fileAccessTimeJournal;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Adds the JVM arguments to use or create the archive for the given worker classpath, when possible.
+     */
+    public void configure(JavaExecHandleBuilder execSpec, JavaVersion javaVersion, Collection<File> classpath) {
+        if (!javaVersion.isCompatibleWith(JavaVersion.VERSION_13) || specifiesClassDataSharing(execSpec) || !canBeArchived(classpath)) {
+            return;
+        }
+        final PersistentCache cache = getCache();
+        final File archiveDir = new File(cache.getBaseDir(), archiveKey(execSpec.getExecutable(), javaVersion, classpath));
+        final File archive = new File(archiveDir, ARCHIVE_FILE_NAME);
+        final File dump = new File(archiveDir, DUMP_FILE_NAME);
+        final File pending = new File(archiveDir, PENDING_FILE_NAME);
+        final File unsupported = new File(archiveDir, UNSUPPORTED_FILE_NAME);
+        ArchiveState state = cache.useCache(() -> archiveState(archiveDir, archive, dump, pending, unsupported));
+        fileAccessTracker.markAccessed(archiveDir);
+        switch (state) {
+            case AVAILABLE:
+                LOGGER.debug("Using class data sharing archive {}.", archive);
+                execSpec.jvmArgs("-XX:SharedArchiveFile=" + archive.getAbsolutePath(), "-Xlog:cds*=off");
+                break;
+            case MISSING:
+                LOGGER.debug("Creating class data sharing archive {}.", archive);
+                execSpec.jvmArgs("-XX:ArchiveClassesAtExit=" + dump.getAbsolutePath(), "-Xlog:cds*=off");
+                execSpec.listener(new PublishArchiveOnExit(cache, dump, archive, pending, unsupported));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private PersistentCache getCache() {
+        synchronized (lock) {
+            if (cache == null) {
+                cache = cacheRepository
+                    .cache(CACHE_NAME)
+                    .withDisplayName("worker class data sharing archives")
+                    .withLockOptions(mode(FileLockManager.LockMode.OnDemand))
+                    .withCleanup(new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, DEFAULT_MAX_AGE_IN_DAYS_FOR_RECREATABLE_CACHE_ENTRIES))
+                    .open();
+                fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, cache.getBaseDir(), FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Determines what to do with the archive, and claims its creation when it is missing. Called while holding the cache lock.
+     */
+    private static ArchiveState archiveState(File archiveDir, File archive, File dump, File pending, File unsupported) {
+        if (archive.isFile()) {
+            return ArchiveState.AVAILABLE;
+        }
+        if (unsupported.isFile()) {
+            return ArchiveState.UNSUPPORTED;
+        }
+        if (pending.isFile() && pending.lastModified() >= System.currentTimeMillis() - STALE_PENDING_MILLIS) {
+            // Another worker is creating the archive
+            return ArchiveState.IN_PROGRESS;
+        }
+        try {
+            Files.createDirectories(archiveDir.toPath());
+            // Discard what is left from a worker which never finished
+            Files.deleteIfExists(dump.toPath());
+            Files.write(pending.toPath(), new byte[0]);
+            return ArchiveState.MISSING;
+        } catch (IOException e) {
+            LOGGER.debug("Could not create class data sharing archive in {}.", archiveDir, e);
+            return ArchiveState.UNSUPPORTED;
+        }
+    }
+
+    private static boolean specifiesClassDataSharing(JavaExecHandleBuilder execSpec) {
+        for (String jvmArg : execSpec.getJvmArgs()) {
+            if (jvmArg.startsWith("-Xshare:") || jvmArg.startsWith("-XX:SharedArchiveFile") || jvmArg.startsWith("-XX:ArchiveClassesAtExit")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The JVM only archives classes loaded from jars, and refuses to create or use an archive when the classpath contains a non-empty directory.
+     */
+    private static boolean canBeArchived(Collection<File> classpath) {
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                String[] children = file.list();
+                if (children == null || children.length > 0) {
+                    return false;
+                }
+            } else if (file.isFile() && !file.getName().endsWith(".jar")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String archiveKey(String executable, JavaVersion javaVersion, Collection<File> classpath) {
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(executable);
+        hasher.putString(javaVersion.getMajorVersion());
+        for (File file : classpath) {
+            // The JVM validates the size and modification time of the classpath entries as well, mismatching archives are ignored
+            hasher.putString(file.getAbsolutePath());
+            hasher.putLong(file.length());
+            hasher.putLong(file.lastModified());
+        }
+        return hasher.hash().toString();
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            try {
+                if (cache != null) {
+                    cache.close();
+                }
+            } finally {
+                cache = null;
+                fileAccessTracker = null;
+            }
+        }
+    }
+
+    private enum ArchiveState {
+        AVAILABLE, MISSING, IN_PROGRESS, UNSUPPORTED
+    }
+
+    private static class PublishArchiveOnExit implements ExecHandleListener {
+        private final PersistentCache cache;
+        private final File dump;
+        private final File archive;
+        private final File pending;
+        private final File unsupported;
+
+        PublishArchiveOnExit(PersistentCache cache, File dump, File archive, File pending, File unsupported) {
+            this.cache = cache;
+            this.dump = dump;
+            this.archive = archive;
+            this.pending = pending;
+            this.unsupported = unsupported;
+        }
+
+        @Override
+        public void executionStarted(ExecHandle execHandle) {
+        }
+
+        @Override
+        public void executionFinished(ExecHandle execHandle, final ExecResult execResult) {
+            cache.useCache(() -> publish(execResult.getExitValue() == 0));
+        }
+
+        private void publish(boolean succeeded) {
+            try {
+                if (succeeded && dump.length() > 0) {
+                    Files.move(dump.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } else if (succeeded) {
+                    // The worker finished but the JVM did not create the archive, for example because of an unsupported classpath
+                    LOGGER.debug("Could not create class data sharing archive {}, not trying again.", archive);
+                    Files.write(unsupported.toPath(), new byte[0]);
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Could not publish class data sharing archive {}.", archive, e);
+            } finally {
+                dump.delete();
+                pending.delete();
+            }
+        }
+    }
+}
@@ -93,7 +93,7 @@ public DefaultHtmlReportContext(File outputDirectory) {
             this.outputDirectory = outputDirectory;
         }
 
-        Resource addResource(URL source) {
+        synchronized Resource addResource(URL source) {
             String urlString = source.toString();
             Resource resource = resources.get(urlString);
             if (resource == null) {
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.initialization.loadercache
 
 
+import org.gradle.internal.classloader.ConfigurableClassLoaderHierarchyHasher
 import org.gradle.internal.classloader.DefaultHashingClassLoaderFactory
 import org.gradle.internal.classloader.FilteringClassLoader
 import org.gradle.internal.classpath.ClassPath
@@ -216,4 +217,56 @@ class DefaultClassLoaderCacheTest extends Specification {
         then:
         cache.size() == 0
     }
+
+    def "creates classloader on top of a cached classloader when their classpaths share a prefix"() {
+        def classLoaderFactory = new DefaultHashingClassLoaderFactory(classpathHasher)
+        def layeredCache = new DefaultClassLoaderCache(classLoaderFactory, classpathHasher, true)
+        def root = classLoader(classPath("root"))
+
+        when:
+        def base = layeredCache.get(id1, classPath("c1", "c2"), root, null)
+        def extended = layeredCache.get(id2, classPath("c1", "c2", "c3"), root, null)
+
+        then:
+        extended.parent.is(base)
+        (extended as URLClassLoader).URLs as List == classPath("c3").asURLs
+        layeredCache.size() == 2
+
+        and:
+        def hierarchyHasher = new ConfigurableClassLoaderHierarchyHasher([(root): "root"], classLoaderFactory)
+        def flat = new DefaultClassLoaderCache(classLoaderFactory, classpathHasher, false).get(id1, classPath("c1", "c2", "c3"), root, null)
+        hierarchyHasher.getClassLoaderHash(extended) != null
+        hierarchyHasher.getClassLoaderHash(extended) == hierarchyHasher.getClassLoaderHash(flat)
+        hierarchyHasher.getClassLoaderHash(extended) != hierarchyHasher.getClassLoaderHash(base)
+    }
+
+    def "does not layer classloaders with different parents or without a common prefix"() {
+        def layeredCache = new DefaultClassLoaderCache(new DefaultHashingClassLoaderFactory(classpathHasher), classpathHasher, true)
+        def root1 = classLoader(classPath("root1"))
+        def root2 = classLoader(classPath("root2"))
+
+        expect:
+        layeredCache.get(id1, classPath("c1"), root1, null)
+        layeredCache.get(id2, classPath("c1", "c2"), root2, null).parent.is(root2)
+        layeredCache.get(id2, classPath("c2", "c1"), root1, null).parent.is(root1)
+    }
+
+    def "layer is released with the last classloader using it"() {
+        def layeredCache = new DefaultClassLoaderCache(new DefaultHashingClassLoaderFactory(classpathHasher), classpathHasher, true)
+        def root = classLoader(classPath("root"))
+
+        when:
+        layeredCache.get(id1, classPath("c1"), root, null)
+        layeredCache.get(id2, classPath("c1", "c2"), root, null)
+        layeredCache.remove(id1)
+
+        then:
+        layeredCache.size() == 2
+
+        when:
+        layeredCache.remove(id2)
+
+        then:
+        layeredCache.size() == 0
+    }
 }
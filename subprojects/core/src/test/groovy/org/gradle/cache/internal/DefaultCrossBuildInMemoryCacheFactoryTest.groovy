@@ -147,6 +147,120 @@ class DefaultCrossBuildInMemoryCacheFactoryTest extends ConcurrentSpec {
         0 * transformer._
     }
 
+    def "tracks statistics of each cache"() {
+        def transformer = { new Object() } as Transformer
+
+        given:
+        def cache = factory.newCache()
+        cache.get("a", transformer)
+        cache.get("b", transformer)
+        cache.get("a", transformer)
+        cache.get("c")
+
+        when:
+        def statistics = factory.statistics.first()
+
+        then:
+        statistics.displayName.startsWith(DefaultCrossBuildInMemoryCacheFactoryTest.name)
+        statistics.hits == 1
+        statistics.misses == 3
+        statistics.retainedValues == 2
+        statistics.stronglyRetainedValues == 0
+
+        when:
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+        statistics = factory.statistics.first()
+
+        then:
+        statistics.hits == 0
+        statistics.misses == 1
+        statistics.stronglyRetainedValues == 2
+    }
+
+    def "adaptive retention retains values from all previous sessions"() {
+        def factory = new DefaultCrossBuildInMemoryCacheFactory(listenerManager, true)
+        def transformer = Mock(Transformer)
+
+        when:
+        def cache = factory.newCache()
+        cache.get("a", transformer)
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+        cache.get("b", transformer)
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+        System.gc()
+        cache.get("a", transformer)
+        cache.get("b", transformer)
+
+        then:
+        1 * transformer.transform("a") >> new Object()
+        1 * transformer.transform("b") >> new Object()
+        0 * transformer._
+        factory.statistics.first().stronglyRetainedValues == 2
+    }
+
+    def "adaptive retention stops retaining values not used in the last sessions"() {
+        def factory = new DefaultCrossBuildInMemoryCacheFactory(listenerManager, true)
+
+        given:
+        def cache = factory.newCache()
+        cache.get("a", { new Object() } as Transformer)
+        cache.get("b", { new Object() } as Transformer)
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+
+        when:
+        DefaultCrossBuildInMemoryCacheFactory.MAX_UNUSED_SESSIONS.times {
+            cache.get("b")
+            listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+        }
+
+        then:
+        factory.statistics.first().stronglyRetainedValues == 1
+        factory.statistics.first().retainedValues == 2
+    }
+
+    def "releases values retained by caches whose keys are classes"() {
+        def factory = new DefaultCrossBuildInMemoryCacheFactory(listenerManager, true)
+
+        given:
+        def classCache = factory.newClassCache()
+        classCache.get(String, { new Object() } as Transformer)
+        def cache = factory.newCache()
+        cache.get("a", { new Object() } as Transformer)
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+
+        when:
+        factory.releaseClassLoaderRetainingValues()
+        def statistics = factory.statistics
+
+        then:
+        statistics[0].stronglyRetainedValues == 0
+        statistics[0].releasedValues == 1
+        statistics[1].stronglyRetainedValues == 1
+    }
+
+    def "releases values retained by the caches with the least benefit first"() {
+        def factory = new DefaultCrossBuildInMemoryCacheFactory(listenerManager, true)
+
+        given:
+        def cheap = factory.newCache()
+        5.times { i -> cheap.get(i, { new Object() } as Transformer) }
+        def expensive = factory.newCache()
+        3.times { expensive.get("a", { Thread.sleep(10); new Object() } as Transformer) }
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+
+        when:
+        factory.releaseLowBenefitValues()
+        def statistics = factory.statistics
+
+        then:
+        statistics[0].stronglyRetainedValues == 0
+        statistics[0].releasedValues == 5
+        statistics[0].retainedValues == 5
+        statistics[1].stronglyRetainedValues == 1
+        statistics[1].releasedValues == 0
+    }
+
     def "creates a cache whose keys are classes"() {
         def a = new Object()
         def b = new Object()
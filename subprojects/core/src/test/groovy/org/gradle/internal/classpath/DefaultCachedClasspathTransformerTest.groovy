@@ -24,6 +24,7 @@ import org.gradle.cache.internal.CacheScopeMapping
 import org.gradle.cache.internal.UsedGradleVersions
 import org.gradle.internal.Factory
 import org.gradle.internal.Pair
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.file.FileAccessTimeJournal
 import org.gradle.internal.hash.Hasher
 import org.gradle.test.fixtures.file.TestFile
@@ -66,9 +67,15 @@ class DefaultCachedClasspathTransformerTest extends Specification {
     def classpathWalker = new ClasspathWalker(TestFiles.fileSystem())
     def classpathBuilder = new ClasspathBuilder()
     def virtualFileSystem = TestFiles.virtualFileSystem()
+    def executorFactory = new DefaultExecutorFactory()
 
     @Subject
-    DefaultCachedClasspathTransformer transformer = new DefaultCachedClasspathTransformer(cacheRepository, cacheFactory, fileAccessTimeJournal, classpathWalker, classpathBuilder, virtualFileSystem)
+    DefaultCachedClasspathTransformer transformer = new DefaultCachedClasspathTransformer(cacheRepository, cacheFactory, fileAccessTimeJournal, classpathWalker, classpathBuilder, virtualFileSystem, executorFactory)
+
+    def cleanup() {
+        transformer.close()
+        executorFactory.stop()
+    }
 
     def "skips missing file when transform is none"() {
         given:
@@ -262,6 +269,31 @@ class DefaultCachedClasspathTransformerTest extends Specification {
         0 * _
     }
 
+    def "transforms entries concurrently and keeps the order of the classpath"() {
+        given:
+        def files = (1..20).collect { testDir.file("thing${it}.jar") }
+        files.eachWithIndex { file, i ->
+            if (i % 2 == 0) {
+                jar(file)
+            } else {
+                modifiedJar(file)
+            }
+        }
+        def missing = testDir.file("missing.jar")
+        def classpath = DefaultClassPath.of(files[0..9] + [missing] + files[10..19])
+
+        when:
+        def cachedClasspath = transformer.transform(classpath, BuildLogic)
+
+        then:
+        cachedClasspath.asFiles*.name == files*.name
+        cachedClasspath.asFiles.every { it.file && it.path.startsWith(cachedDir.path) }
+
+        and:
+        20 * fileAccessTimeJournal.setLastAccessTime(_, _)
+        0 * fileAccessTimeJournal._
+    }
+
     @Ignore
     def "reuses non-file URL from origin"() {
         expect: false
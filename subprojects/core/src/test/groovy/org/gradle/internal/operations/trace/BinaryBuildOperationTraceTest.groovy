@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace
+
+import groovy.json.JsonSlurper
+import org.gradle.StartParameter
+import org.gradle.internal.operations.BuildOperationDescriptor
+import org.gradle.internal.operations.DefaultBuildOperationListenerManager
+import org.gradle.internal.operations.OperationFinishEvent
+import org.gradle.internal.operations.OperationIdentifier
+import org.gradle.internal.operations.OperationProgressEvent
+import org.gradle.internal.operations.OperationStartEvent
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class BinaryBuildOperationTraceTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider(getClass())
+
+    def basePath
+
+    def setup() {
+        basePath = temp.file("operations").absolutePath
+    }
+
+    def "reads back the tree of operations written to a binary log"() {
+        given:
+        writeLog()
+
+        when:
+        def tree = BuildOperationTrace.read(basePath)
+
+        then:
+        tree.roots.size() == 1
+        def root = tree.roots[0]
+        root.displayName == "Run build"
+        root.details == [path: ":"]
+        root.result == [outcome: "success"]
+        root.children*.displayName == ["Fingerprint inputs", "Fingerprint inputs"]
+        root.children[0].failure == "broken"
+        root.children[1].progress*.details == [[message: "halfway"]]
+    }
+
+    def "converts binary log to JSON log"() {
+        given:
+        writeLog()
+        def jsonLog = temp.file("converted-log.txt")
+
+        when:
+        BinaryBuildOperationTraceReader.convertToJson(temp.file("operations-log.bin"), jsonLog)
+
+        then:
+        def events = jsonLog.readLines().collect { new JsonSlurper().parseText(it) }
+        events.size() == 7
+        events[0] == [displayName: "Run build", details: [path: ":"], detailsClassName: "Details", id: 1, startTime: 100]
+        events[5] == [id: 3, endTime: 130]
+        events[6] == [id: 1, result: [outcome: "success"], resultClassName: "Result", endTime: 140]
+    }
+
+    def "writes details as they were when the event was emitted"() {
+        given:
+        def details = [path: ":"]
+        def writer = new BinaryBuildOperationTraceWriter(temp.file("operations-log.bin"))
+
+        when:
+        writer.write(new SerializedOperationStart(1, null, "Run build", 100, details, "Details"))
+        details.path = ":changed"
+        writer.write(new SerializedOperationFinish(1, 140, null, null, null))
+        writer.close()
+
+        then:
+        BuildOperationTrace.read(basePath).roots[0].details == [path: ":"]
+    }
+
+    def "ignores incomplete event at the end of the log"() {
+        given:
+        writeLog()
+        def log = temp.file("operations-log.bin")
+        def bytes = log.bytes
+        log.bytes = bytes[0..<(bytes.length - 2)] as byte[]
+        def operations = []
+
+        when:
+        BinaryBuildOperationTraceReader.read(log) { operations << it }
+
+        then:
+        operations.size() == 6
+    }
+
+    def "writes operations notified on the dispatch thread of the listener manager"() {
+        given:
+        def listenerManager = new DefaultBuildOperationListenerManager(true)
+        def startParameter = new StartParameter()
+        startParameter.systemPropertiesArgs = [(BuildOperationTrace.SYSPROP): basePath, (BuildOperationTrace.FORMAT_SYSPROP): "binary"]
+        def trace = new BuildOperationTrace(startParameter, listenerManager)
+        def root = BuildOperationDescriptor.displayName("Run build").details([path: ":"]).build(new OperationIdentifier(1), null)
+        def child = BuildOperationDescriptor.displayName("Fingerprint inputs").build(new OperationIdentifier(2), root.id)
+
+        when:
+        def broadcaster = listenerManager.broadcaster
+        broadcaster.started(root, new OperationStartEvent(100))
+        broadcaster.started(child, new OperationStartEvent(110))
+        broadcaster.progress(child.id, new OperationProgressEvent(115, [message: "halfway"]))
+        broadcaster.finished(child, new OperationFinishEvent(110, 120, null, null))
+        broadcaster.finished(root, new OperationFinishEvent(100, 140, null, [outcome: "success"]))
+        trace.stop()
+        listenerManager.stop()
+
+        then:
+        listenerManager.getMaxListenerLag(TimeUnit.NANOSECONDS) > 0
+        def tree = BuildOperationTrace.read(basePath)
+        tree.roots*.displayName == ["Run build"]
+        tree.roots[0].details == [path: ":"]
+        tree.roots[0].result == [outcome: "success"]
+        tree.roots[0].children*.displayName == ["Fingerprint inputs"]
+        tree.roots[0].children[0].progress*.details == [[message: "halfway"]]
+    }
+
+    def "deletes the JSON log of an earlier build when writing a binary log"() {
+        given:
+        temp.file("operations-log.txt").text = '{"displayName":"Stale build","id":1,"startTime":0}\n{"id":1,"endTime":10}\n'
+        def listenerManager = new DefaultBuildOperationListenerManager()
+        def startParameter = new StartParameter()
+        startParameter.systemPropertiesArgs = [(BuildOperationTrace.SYSPROP): basePath, (BuildOperationTrace.FORMAT_SYSPROP): "binary"]
+        def trace = new BuildOperationTrace(startParameter, listenerManager)
+        def root = BuildOperationDescriptor.displayName("Run build").build(new OperationIdentifier(1), null)
+
+        when:
+        listenerManager.broadcaster.started(root, new OperationStartEvent(100))
+        listenerManager.broadcaster.finished(root, new OperationFinishEvent(100, 140, null, null))
+        trace.stop()
+
+        then:
+        !temp.file("operations-log.txt").exists()
+        BuildOperationTrace.read(basePath).roots*.displayName == ["Run build"]
+    }
+
+    def "reports usage when converting without a binary log"() {
+        when:
+        BinaryBuildOperationTraceReader.main([] as String[])
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Usage: BinaryBuildOperationTraceReader <binary-log> [<json-log>]"
+    }
+
+    private void writeLog() {
+        def writer = new BinaryBuildOperationTraceWriter(temp.file("operations-log.bin"))
+        writer.write(new SerializedOperationStart(1, null, "Run build", 100, [path: ":"], "Details"))
+        writer.write(new SerializedOperationStart(2, 1, "Fingerprint inputs", 110, null, null))
+        writer.write(new SerializedOperationFinish(2, 115, null, null, "broken"))
+        writer.write(new SerializedOperationStart(3, 1, "Fingerprint inputs", 120, null, null))
+        writer.write(new SerializedOperationProgress(3, 125, [message: "halfway"], "Progress"))
+        writer.write(new SerializedOperationFinish(3, 130, null, null, null))
+        writer.write(new SerializedOperationFinish(1, 140, [outcome: "success"], "Result", null))
+        writer.close()
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.scripts
+
+import org.gradle.api.internal.file.DefaultTemporaryFileProvider
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ParallelScriptCompilerTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def executorFactory = new DefaultExecutorFactory()
+    def compiler = new ParallelScriptCompiler(new DefaultTemporaryFileProvider({ tmpDir.createDir("tmp") }), "test-dsl", { executorFactory.create("test", 2) })
+
+    def cleanup() {
+        compiler.close()
+        executorFactory.stop()
+    }
+
+    def "copies output of compilation to cache dir once"() {
+        def cacheDir = tmpDir.createDir("cache")
+
+        when:
+        compiler.submit("key") { File outputDir ->
+            new File(outputDir, "classes").mkdirs()
+            new File(outputDir, "classes/Script.class").text = "compiled"
+        }
+
+        then:
+        compiler.takeOutputOf("key", cacheDir)
+        new File(cacheDir, "classes/Script.class").text == "compiled"
+        !compiler.takeOutputOf("key", tmpDir.createDir("other-cache"))
+    }
+
+    def "waits for running compilation"() {
+        def started = new CountDownLatch(1)
+        def cacheDir = tmpDir.createDir("cache")
+
+        when:
+        compiler.submit("key") { File outputDir ->
+            started.countDown()
+            Thread.sleep(100)
+            new File(outputDir, "Script.class").text = "compiled"
+        }
+        started.await(10, TimeUnit.SECONDS)
+
+        then:
+        compiler.takeOutputOf("key", cacheDir)
+        new File(cacheDir, "Script.class").file
+    }
+
+    def "compiles each key once"() {
+        def compilations = []
+
+        when:
+        compiler.submit("key") { compilations << "first" }
+        compiler.submit("key") { compilations << "second" }
+        compiler.takeOutputOf("key", tmpDir.createDir("cache"))
+
+        then:
+        compilations == ["first"]
+    }
+
+    def "reports failed or unknown compilation as missing output"() {
+        File outputDir = null
+
+        when:
+        compiler.submit("key") { File dir ->
+            outputDir = dir
+            throw new IllegalStateException("broken script")
+        }
+
+        then:
+        !compiler.takeOutputOf("key", tmpDir.createDir("cache"))
+        !outputDir.exists()
+        !compiler.takeOutputOf("unknown", tmpDir.createDir("other-cache"))
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal.worker
+package org.gradle.process.internal.worker
+
+import org.gradle.internal.id.IdGenerator
+import org.gradle.internal.jvm.JavaModuleDetector
+import org.gradle.internal.logging.events.OutputEventListener
+import org.gradle.internal.remote.Address
+import org.gradle.internal.remote.ConnectionAcceptor
+import org.gradle.internal.remote.MessagingServer
+import org.gradle.process.ExecResult
+import org.gradle.process.internal.ExecException
+import org.gradle.process.internal.ExecHandle
+import org.gradle.process.internal.ExecHandleListener
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.JavaExecHandleFactory
+import org.gradle.process.internal.health.memory.MemoryAmount
+import org.gradle.process.internal.health.memory.MemoryManager
+import org.gradle.process.internal.health.memory.MemoryReservation
+import org.gradle.process.internal.worker.child.ApplicationClassesInSystemClassLoaderWorkerImplementationFactory
+import spock.lang.Specification
+
+class DefaultWorkerProcessBuilderTest extends Specification {
+    def execHandle = Mock(ExecHandle)
+    def javaCommand = Mock(JavaExecHandleBuilder)
+    def execHandleFactory = Stub(JavaExecHandleFactory) {
+        newJavaExec() >> javaCommand
+    }
+    def server = Stub(MessagingServer) {
+        accept(_) >> Stub(ConnectionAcceptor) {
+            getAddress() >> Stub(Address)
+        }
+    }
+    def workerImplementationFactory = Stub(ApplicationClassesInSystemClassLoaderWorkerImplementationFactory) {
+        getJavaModuleDetector() >> Stub(JavaModuleDetector)
+    }
+    def memoryManager = Mock(MemoryManager)
+    def reservation = Mock(MemoryReservation)
+    def builder = new DefaultWorkerProcessBuilder(execHandleFactory, server, Stub(IdGenerator) { generateId() >> 1L }, workerImplementationFactory, Stub(OutputEventListener), memoryManager)
+    ExecHandleListener listener
+
+    def setup() {
+        javaCommand.getMaxHeapSize() >> "1g"
+        javaCommand.getMinHeapSize() >> "256m"
+        javaCommand.listener(_) >> { ExecHandleListener listener ->
+            this.listener = listener
+            javaCommand
+        }
+        javaCommand.build() >> execHandle
+    }
+
+    def "reserves the maximum heap of the worker before starting it and releases the reservation when the process finishes"() {
+        def workerProcess = builder.build()
+
+        when:
+        workerProcess.start()
+
+        then:
+        1 * memoryManager.reserveMemory(MemoryAmount.of("1g").bytes) >> reservation
+        1 * memoryManager.requestFreeMemory(MemoryAmount.of("256m").bytes)
+        1 * execHandle.start()
+
+        then:
+        // The worker never connected
+        1 * reservation.release()
+        thrown(ExecException)
+
+        when:
+        listener.executionFinished(execHandle, Stub(ExecResult))
+
+        then:
+        listener.is(workerProcess)
+        1 * reservation.release()
+    }
+
+    def "does not reserve memory until the worker is started"() {
+        when:
+        builder.build()
+
+        then:
+        listener != null
+        0 * memoryManager._
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.worker.child
+
+import org.gradle.api.JavaVersion
+import org.gradle.cache.internal.DefaultCacheRepository
+import org.gradle.cache.internal.DefaultCacheScopeMapping
+import org.gradle.internal.file.FileAccessTimeJournal
+import org.gradle.process.ExecResult
+import org.gradle.process.internal.ExecHandle
+import org.gradle.process.internal.ExecHandleListener
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.InMemoryCacheFactory
+import org.gradle.util.GradleVersion
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@UsesNativeServices
+class WorkerClassDataSharingTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def cacheRepository = new DefaultCacheRepository(new DefaultCacheScopeMapping(tmpDir.file("user-home"), tmpDir.file("build-dir"), GradleVersion.current()), new InMemoryCacheFactory())
+    def classDataSharing = new WorkerClassDataSharing(cacheRepository, Stub(FileAccessTimeJournal))
+    List<File> classpath
+
+    def setup() {
+        classpath = [tmpDir.file("worker.jar").createFile(), tmpDir.file("empty").createDir()]
+    }
+
+    def "creates archive with the first worker and uses it for the workers started afterwards"() {
+        def first = capturingExecSpec()
+        def second = capturingExecSpec()
+        def third = capturingExecSpec()
+
+        when:
+        classDataSharing.configure(first.execSpec, JavaVersion.VERSION_14, classpath)
+        classDataSharing.configure(second.execSpec, JavaVersion.VERSION_14, classpath)
+
+        then:
+        def dump = first.fileArg("-XX:ArchiveClassesAtExit=")
+        dump != null
+        first.listener != null
+        second.jvmArgs.empty
+
+        when:
+        dump.text = "archive"
+        first.listener.executionFinished(Stub(ExecHandle), exitValue(0))
+        classDataSharing.configure(third.execSpec, JavaVersion.VERSION_14, classpath)
+
+        then:
+        def archive = third.fileArg("-XX:SharedArchiveFile=")
+        archive.text == "archive"
+        archive.parentFile == dump.parentFile
+        !dump.exists()
+        third.listener == null
+    }
+
+    def "does not try again when the JVM did not create the archive"() {
+        def first = capturingExecSpec()
+        def second = capturingExecSpec()
+
+        when:
+        classDataSharing.configure(first.execSpec, JavaVersion.VERSION_14, classpath)
+        first.listener.executionFinished(Stub(ExecHandle), exitValue(0))
+        classDataSharing.configure(second.execSpec, JavaVersion.VERSION_14, classpath)
+
+        then:
+        first.fileArg("-XX:ArchiveClassesAtExit=") != null
+        second.jvmArgs.empty
+    }
+
+    def "creates archive with another worker when the first worker failed"() {
+        def first = capturingExecSpec()
+        def second = capturingExecSpec()
+
+        when:
+        classDataSharing.configure(first.execSpec, JavaVersion.VERSION_14, classpath)
+        first.fileArg("-XX:ArchiveClassesAtExit=").text = "partial"
+        first.listener.executionFinished(Stub(ExecHandle), exitValue(1))
+        classDataSharing.configure(second.execSpec, JavaVersion.VERSION_14, classpath)
+
+        then:
+        second.fileArg("-XX:ArchiveClassesAtExit=") != null
+        second.fileArg("-XX:SharedArchiveFile=") == null
+    }
+
+    def "does not use archive when classpath contains class directories"() {
+        def execSpec = capturingExecSpec()
+        tmpDir.file("classes/Foo.class").createFile()
+
+        when:
+        classDataSharing.configure(execSpec.execSpec, JavaVersion.VERSION_14, classpath + [tmpDir.file("classes")])
+
+        then:
+        execSpec.jvmArgs.empty
+        execSpec.listener == null
+    }
+
+    def "does not use archive on JVMs without dynamic archives"() {
+        def execSpec = capturingExecSpec()
+
+        when:
+        classDataSharing.configure(execSpec.execSpec, JavaVersion.VERSION_11, classpath)
+
+        then:
+        execSpec.jvmArgs.empty
+        execSpec.listener == null
+    }
+
+    private ExecResult exitValue(int value) {
+        return Stub(ExecResult) {
+            getExitValue() >> value
+        }
+    }
+
+    private CapturingExecSpec capturingExecSpec() {
+        def capturing = new CapturingExecSpec()
+        capturing.execSpec = Mock(JavaExecHandleBuilder) {
+            getExecutable() >> "/jdk/bin/java"
+            getJvmArgs() >> []
+            jvmArgs(*_) >> { arguments ->
+                capturing.jvmArgs.addAll(arguments.flatten()*.toString())
+                null
+            }
+            listener(_) >> { arguments ->
+                capturing.listener = arguments[0]
+                null
+            }
+        }
+        return capturing
+    }
+
+    private static class CapturingExecSpec {
+        final List<String> jvmArgs = []
+        JavaExecHandleBuilder execSpec
+        ExecHandleListener listener
+
+        File fileArg(String prefix) {
+            def arg = jvmArgs.find { it.startsWith(prefix) }
+            return arg == null ? null : new File(arg.substring(prefix.length()))
+        }
+    }
+}
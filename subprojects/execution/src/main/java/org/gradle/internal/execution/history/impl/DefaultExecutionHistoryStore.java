@@ -27,6 +27,8 @@
 import org.gradle.internal.execution.history.ExecutionHistoryStore;
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.metrics.DurationHistogram;
+import org.gradle.internal.metrics.InternalMetrics;
 import org.gradle.internal.snapshot.ValueSnapshot;
 import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
 
@@ -36,6 +38,8 @@
 import static com.google.common.collect.Maps.transformValues;
 
 public class DefaultExecutionHistoryStore implements ExecutionHistoryStore {
+    private static final DurationHistogram LOAD_TIME = InternalMetrics.durationHistogram("gradle_execution_history_load_duration_seconds", "Time spent reading the execution history of units of work.");
+    private static final DurationHistogram STORE_TIME = InternalMetrics.durationHistogram("gradle_execution_history_store_duration_seconds", "Time spent writing the execution history of units of work.");
 
     private final PersistentIndexedCache<String, AfterPreviousExecutionState> store;
 
@@ -52,7 +56,10 @@ public DefaultExecutionHistoryStore(ExecutionHistoryCacheAccess executionHistory
 
     @Override
     public Optional<AfterPreviousExecutionState> load(String key) {
-        return Optional.ofNullable(store.get(key));
+        long start = System.nanoTime();
+        AfterPreviousExecutionState state = store.get(key);
+        LOAD_TIME.recordSince(start);
+        return Optional.ofNullable(state);
     }
 
     @Override
@@ -66,6 +73,7 @@ public void store(
         ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties,
         boolean successful
     ) {
+        long start = System.nanoTime();
         store.put(key, new DefaultAfterPreviousExecutionState(
             originMetadata,
             implementation,
@@ -75,6 +83,7 @@ public void store(
             prepareForSerialization(outputFileProperties),
             successful
         ));
+        STORE_TIME.recordSince(start);
     }
 
     @Override
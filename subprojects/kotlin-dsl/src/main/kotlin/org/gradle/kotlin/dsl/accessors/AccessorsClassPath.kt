@@ -23,6 +23,7 @@ import org.gradle.cache.internal.CacheKeyBuilder.CacheKeySpec
 
 import org.gradle.internal.classanalysis.AsmConstants.ASM_LEVEL
 
+import org.gradle.internal.classloader.ClasspathHasher
 import org.gradle.internal.classpath.ClassPath
 import org.gradle.internal.classpath.DefaultClassPath
 
@@ -72,12 +73,23 @@ fun buildAccessorsClassPathFor(project: Project, classPath: ClassPath) =
         // TODO:accessors make cache key computation more efficient
         cachedAccessorsClassPathFor(project, cacheKeyFor(projectSchema, classPath)) { srcDir, binDir ->
             withAsynchronousIO(project) {
-                buildAccessorsFor(
-                    projectSchema,
-                    classPath,
-                    srcDir = srcDir,
-                    binDir = binDir
-                )
+                if (IncrementalAccessors.isEnabled) {
+                    buildAccessorsIncrementallyFor(
+                        projectSchema,
+                        classPath,
+                        project.serviceOf<ClasspathHasher>().hash(classPath),
+                        srcDir = srcDir,
+                        binDir = binDir,
+                        incrementalAccessors = incrementalAccessors
+                    )
+                } else {
+                    buildAccessorsFor(
+                        projectSchema,
+                        classPath,
+                        srcDir = srcDir,
+                        binDir = binDir
+                    )
+                }
             }
         }
     }
@@ -167,6 +179,35 @@ fun IO.buildAccessorsFor(
 }
 
 
+/**
+ * Builds the accessors for the given schema reusing, via [incrementalAccessors], what was looked up in
+ * the classpath with the given hash and emitted for the same accessors before.
+ */
+internal
+fun IO.buildAccessorsIncrementallyFor(
+    projectSchema: TypedProjectSchema,
+    classPath: ClassPath,
+    classPathHash: HashCode,
+    srcDir: File,
+    binDir: File?,
+    incrementalAccessors: IncrementalAccessors
+) {
+    val availableSchema = availableProjectSchemaFor(
+        projectSchema,
+        classPath,
+        incrementalAccessors.typeAccessibilityInfoFor(classPathHash)
+    )
+    emitAccessorsFor(
+        availableSchema,
+        srcDir,
+        binDir,
+        OutputPackage(kotlinDslPackageName),
+        AccessorFormats.default,
+        incrementalAccessors
+    )
+}
+
+
 typealias AccessorFormat = (String) -> String
 
 
@@ -208,8 +249,12 @@ fun defaultPackageTypesIn(typeStrings: List<String>): List<String> =
 
 
 internal
-fun availableProjectSchemaFor(projectSchema: TypedProjectSchema, classPath: ClassPath) =
-    TypeAccessibilityProvider(classPath).use { accessibilityProvider ->
+fun availableProjectSchemaFor(
+    projectSchema: TypedProjectSchema,
+    classPath: ClassPath,
+    typeAccessibilityInfoPerClass: MutableMap<String, TypeAccessibilityInfo> = hashMapOf()
+) =
+    TypeAccessibilityProvider(classPath, typeAccessibilityInfoPerClass).use { accessibilityProvider ->
         projectSchema.map(accessibilityProvider::accessibilityForType)
     }
 
@@ -237,7 +282,7 @@ sealed class InaccessibilityReason {
 }
 
 
-private
+internal
 data class TypeAccessibilityInfo(
     val inaccessibilityReasons: List<InaccessibilityReason>,
     val hasTypeParameter: Boolean = false
@@ -245,13 +290,17 @@ data class TypeAccessibilityInfo(
 
 
 internal
-class TypeAccessibilityProvider(classPath: ClassPath) : Closeable {
-
-    private
-    val classBytesRepository = ClassBytesRepository(classPath)
+class TypeAccessibilityProvider(
+    classPath: ClassPath,
+    private val typeAccessibilityInfoPerClass: MutableMap<String, TypeAccessibilityInfo> = mutableMapOf()
+) : Closeable {
 
+    /**
+     * Only opened when a class is missing from [typeAccessibilityInfoPerClass], which can be shared
+     * between providers for the same classpath.
+     */
     private
-    val typeAccessibilityInfoPerClass = mutableMapOf<String, TypeAccessibilityInfo>()
+    val classBytesRepository = lazy { ClassBytesRepository(classPath) }
 
     fun accessibilityForType(type: SchemaType): TypeAccessibility =
     // TODO:accessors cache per SchemaType
@@ -283,7 +332,7 @@ class TypeAccessibilityProvider(classPath: ClassPath) : Closeable {
 
     private
     fun loadAccessibilityInfoFor(className: String): TypeAccessibilityInfo {
-        val classBytes = classBytesRepository.classBytesFor(className)
+        val classBytes = classBytesRepository.value.classBytesFor(className)
             ?: return TypeAccessibilityInfo(listOf(nonAvailable(className)))
         val classReader = ClassReader(classBytes)
         val access = classReader.access
@@ -318,7 +367,9 @@ class TypeAccessibilityProvider(classPath: ClassPath) : Closeable {
         }
 
     override fun close() {
-        classBytesRepository.close()
+        if (classBytesRepository.isInitialized()) {
+            classBytesRepository.value.close()
+        }
     }
 }
 
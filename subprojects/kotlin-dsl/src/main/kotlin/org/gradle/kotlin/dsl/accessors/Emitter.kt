@@ -39,7 +39,8 @@ fun IO.emitAccessorsFor(
     srcDir: File,
     binDir: File?,
     outputPackage: OutputPackage,
-    format: AccessorFormat
+    format: AccessorFormat,
+    incrementalAccessors: IncrementalAccessors? = null
 ): List<InternalName> {
 
     makeAccessorOutputDirs(srcDir, binDir, outputPackage.path)
@@ -51,7 +52,8 @@ fun IO.emitAccessorsFor(
                 srcDir,
                 binDir,
                 outputPackage,
-                format
+                format,
+                incrementalAccessors
             )
         }.toList()
 
@@ -91,33 +93,29 @@ fun IO.emitClassFor(
     srcDir: File,
     binDir: File?,
     outputPackage: OutputPackage,
-    format: AccessorFormat
+    format: AccessorFormat,
+    incrementalAccessors: IncrementalAccessors?
 ): InternalName {
 
-    val (simpleClassName, fragments) = fragmentsFor(accessor)
-    val className = InternalName("${outputPackage.path}/$simpleClassName")
-    val sourceCode = mutableListOf<String>()
-
-    fun collectSourceFragment(source: String) {
-        sourceCode.add(format(source))
-    }
+    val withBytecode = binDir != null
+    val emittedAccessor =
+        incrementalAccessors
+            ?.emittedAccessorFor(emittedAccessorKeyFor(accessor, outputPackage, withBytecode)) {
+                emittedAccessorFor(accessor, outputPackage, withBytecode)
+            }
+            ?: emittedAccessorFor(accessor, outputPackage, withBytecode)
 
+    val className = emittedAccessor.className
     if (binDir != null) {
-        writeAccessorsBytecodeTo(
-            binDir,
-            className,
-            fragments,
-            ::collectSourceFragment
+        writeFile(
+            binDir.resolve("$className.class"),
+            emittedAccessor.classBytes!!
         )
-    } else {
-        for ((source, _, _, _) in fragments) {
-            collectSourceFragment(source)
-        }
     }
 
     writeAccessorsTo(
         sourceFileFor(className, srcDir),
-        sourceCode,
+        emittedAccessor.sourceCode.map(format),
         importsRequiredBy(accessor),
         outputPackage.name
     )
@@ -126,18 +124,50 @@ fun IO.emitClassFor(
 }
 
 
+private
+fun emittedAccessorFor(
+    accessor: Accessor,
+    outputPackage: OutputPackage,
+    withBytecode: Boolean
+): EmittedAccessor {
+
+    val (simpleClassName, fragments) = fragmentsFor(accessor)
+    val className = InternalName("${outputPackage.path}/$simpleClassName")
+    val sourceCode = mutableListOf<String>()
+
+    fun collectSourceFragment(source: String) {
+        sourceCode.add(source)
+    }
+
+    val classBytes =
+        if (withBytecode) {
+            accessorsBytecodeFor(
+                className,
+                fragments,
+                ::collectSourceFragment
+            )
+        } else {
+            for ((source, _, _, _) in fragments) {
+                collectSourceFragment(source)
+            }
+            null
+        }
+
+    return EmittedAccessor(className, sourceCode, classBytes)
+}
+
+
 private
 fun sourceFileFor(className: InternalName, srcDir: File) =
     srcDir.resolve("${className.value.removeSuffix("Kt")}.kt")
 
 
 private
-fun IO.writeAccessorsBytecodeTo(
-    binDir: File,
+fun accessorsBytecodeFor(
     className: InternalName,
     fragments: Sequence<AccessorFragment>,
     collectSourceFragment: (String) -> Unit
-) {
+): ByteArray {
 
     val metadataWriter = beginFileFacadeClassHeader()
     val classWriter = beginPublicClass(className)
@@ -149,9 +179,7 @@ fun IO.writeAccessorsBytecodeTo(
     }
 
     val classHeader = metadataWriter.closeHeader()
-    val classBytes = classWriter.endKotlinClass(classHeader)
-    val classFile = binDir.resolve("$className.class")
-    writeFile(classFile, classBytes)
+    return classWriter.endKotlinClass(classHeader)
 }
 
 
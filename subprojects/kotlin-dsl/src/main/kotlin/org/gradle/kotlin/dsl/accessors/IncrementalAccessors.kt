@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.kotlin.dsl.accessors
+
+import org.gradle.api.reflect.TypeOf
+
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hasher
+import org.gradle.internal.hash.Hashing
+
+import org.gradle.kotlin.dsl.support.bytecode.InternalName
+
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+
+
+/**
+ * Keeps what was emitted for each accessor, and the accessibility of the types accessors refer to,
+ * across the generation of accessors in this process.
+ *
+ * A change to the schema of a project invalidates its whole accessors cache entry. With this cache,
+ * only the accessors for new or changed schema entries are emitted again when the entry is rebuilt,
+ * and the compilation classpath is only opened to look up types it hasn't seen before.
+ *
+ * Emitted accessors are addressed by the hash of their content, see [emittedAccessorKeyFor]. Type accessibility
+ * is addressed by the hash of the classpath the types were looked up in. Neither keeps a reference to the types
+ * accessors refer to, as these are loaded by the class loaders of build scripts and plugins, which must not
+ * outlive the build.
+ *
+ * This is an opt-in feature, enabled with the [INCREMENTAL_ACCESSORS_PROPERTY] system property.
+ */
+internal
+class IncrementalAccessors(
+    maxEmittedAccessors: Int,
+    maxClassPaths: Int
+) {
+
+    companion object {
+
+        const val INCREMENTAL_ACCESSORS_PROPERTY = "org.gradle.kotlin.dsl.accessors.incremental"
+
+        val isEnabled: Boolean
+            get() = java.lang.Boolean.getBoolean(INCREMENTAL_ACCESSORS_PROPERTY)
+    }
+
+    private
+    val emittedAccessors = lruMapOf<HashCode, EmittedAccessor>(maxEmittedAccessors)
+
+    private
+    val typeAccessibilityPerClassPath = lruMapOf<HashCode, MutableMap<String, TypeAccessibilityInfo>>(maxClassPaths)
+
+    val emittedAccessorCount: Int
+        get() = emittedAccessors.size
+
+    /**
+     * Returns what was emitted for the given key before, or emits and remembers it.
+     */
+    fun emittedAccessorFor(key: HashCode, emit: () -> EmittedAccessor): EmittedAccessor =
+        emittedAccessors[key] ?: emit().also {
+            emittedAccessors[key] = it
+        }
+
+    /**
+     * The accessibility of the classes looked up in the classpath with the given hash so far.
+     */
+    fun typeAccessibilityInfoFor(classPathHash: HashCode): MutableMap<String, TypeAccessibilityInfo> =
+        synchronized(typeAccessibilityPerClassPath) {
+            typeAccessibilityPerClassPath.getOrPut(classPathHash) {
+                ConcurrentHashMap()
+            }
+        }
+}
+
+
+/**
+ * The key of what is emitted for the given accessor in the given package.
+ *
+ * Types are identified by their JVM names, which the emitted bytecode refers to, as well as by the Kotlin type
+ * strings the accessor renders to, which are ambiguous for nested classes.
+ */
+internal
+fun emittedAccessorKeyFor(accessor: Accessor, outputPackage: OutputPackage, withBytecode: Boolean): HashCode =
+    Hashing.newHasher().run {
+        putString(accessor.toString())
+        when (accessor) {
+            is Accessor.ForConfiguration -> Unit
+            is Accessor.ForExtension -> putTypesOf(accessor.spec)
+            is Accessor.ForConvention -> putTypesOf(accessor.spec)
+            is Accessor.ForContainerElement -> putTypesOf(accessor.spec)
+            is Accessor.ForTask -> putTypesOf(accessor.spec)
+        }
+        putString(outputPackage.name)
+        putBoolean(withBytecode)
+        hash()
+    }
+
+
+private
+fun Hasher.putTypesOf(spec: TypedAccessorSpec) {
+    putType(spec.receiver.type.value)
+    putType(
+        when (val type = spec.type) {
+            is TypeAccessibility.Accessible -> type.type.value
+            is TypeAccessibility.Inaccessible -> type.type.value
+        }
+    )
+}
+
+
+private
+fun Hasher.putType(type: TypeOf<*>) {
+    type.run {
+        when {
+            isArray -> {
+                putString("[")
+                putType(componentType!!)
+            }
+            isParameterized -> {
+                putString(parameterizedTypeDefinition.concreteClass.name)
+                putInt(actualTypeArguments.size)
+                actualTypeArguments.forEach { putType(it) }
+            }
+            isWildcard -> {
+                val bound = upperBound ?: lowerBound
+                if (bound == null) putNull() else putType(bound)
+            }
+            else -> putString(concreteClass.name)
+        }
+    }
+}
+
+
+internal
+class EmittedAccessor(
+    val className: InternalName,
+    /**
+     * The source fragments, before they are formatted.
+     */
+    val sourceCode: List<String>,
+    val classBytes: ByteArray?
+)
+
+
+/**
+ * The accessors cache shared by all projects in this process.
+ */
+internal
+val incrementalAccessors = IncrementalAccessors(
+    maxEmittedAccessors = 10_000,
+    maxClassPaths = 16
+)
+
+
+private
+fun <K, V> lruMapOf(maxSize: Int): MutableMap<K, V> =
+    Collections.synchronizedMap(
+        object : LinkedHashMap<K, V>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<K, V>?) = size > maxSize
+        }
+    )
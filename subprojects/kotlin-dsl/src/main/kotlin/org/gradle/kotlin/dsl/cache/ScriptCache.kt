@@ -51,10 +51,16 @@ class ScriptCache(
         scriptTarget: Any? = null,
         displayName: String = "",
         initializer: (File) -> Unit
-    ): File {
-        val cacheKey = cacheKeyFor(cacheKeySpec)
+    ): File =
+        cacheDirFor(cacheKeyFor(cacheKeySpec), scriptTarget, displayName, initializer)
 
-        return scriptCacheRepository.cache(cacheKey)
+    fun cacheDirFor(
+        cacheKey: String,
+        scriptTarget: Any? = null,
+        displayName: String = "",
+        initializer: (File) -> Unit
+    ): File =
+        scriptCacheRepository.cache(cacheKey)
             .withProperties(cacheProperties)
             .withInitializer {
                 initializeCacheDir(
@@ -68,7 +74,14 @@ class ScriptCache(
                 close()
                 cacheDirOf(baseDir)
             }
-    }
+
+    /**
+     * Whether the cache entry for the given key was most likely initialized already.
+     */
+    fun isCached(cacheKey: String): Boolean =
+        scriptCacheRepository.exists(cacheKey)
+
+    fun cacheKeyFor(spec: CacheKeySpec): String = cacheKeyBuilder.build(spec)
 
     private
     val cacheProperties = mapOf("version" to "15")
@@ -76,9 +89,6 @@ class ScriptCache(
     private
     fun cacheDirOf(baseDir: File) = File(baseDir, "cache")
 
-    private
-    fun cacheKeyFor(spec: CacheKeySpec): String = cacheKeyBuilder.build(spec)
-
     private
     fun initializeCacheDir(
         cacheDir: File,
@@ -85,6 +85,18 @@ class Interpreter(val host: Host) {
             initializer: (File) -> Unit
         ): File
 
+        /**
+         * Starts the given compilation of the cache entry for the given key in the background, unless
+         * the entry already exists, so that a later [cachedDirFor] call for the same key can use its output.
+         */
+        fun compileInBackground(
+            scriptHost: KotlinScriptHost<*>,
+            templateId: String,
+            sourceHash: HashCode,
+            parentClassLoader: ClassLoader,
+            compilation: (File) -> Unit
+        ) = Unit
+
         fun startCompilerOperation(
             description: String
         ): AutoCloseable
@@ -200,6 +212,76 @@ class Interpreter(val host: Host) {
         programHost.eval(specializedProgram.programFor, scriptHost)
     }
 
+    /**
+     * Compiles the stage 1 program of the given top-level [Project] script in the background, so that
+     * [eval] finds it in the cache.
+     *
+     * Must only be called once the parent of [targetScope] is locked, as the program is compiled against
+     * its classpath. A failed compilation is ignored, the script is compiled again and the failure reported
+     * when the script is evaluated.
+     */
+    fun compileInBackground(
+        target: Project,
+        scriptSource: ScriptSource,
+        sourceHash: HashCode,
+        scriptHandler: ScriptHandler,
+        targetScope: ClassLoaderScope,
+        baseScope: ClassLoaderScope
+    ) {
+
+        val programKind =
+            ProgramKind.TopLevel
+
+        val programTarget =
+            ProgramTarget.Project
+
+        val templateId =
+            templateIdFor(programTarget, programKind, "stage1")
+
+        val parentClassLoader =
+            baseScope.exportClassLoader
+
+        if (host.cachedClassFor(ProgramId(templateId, sourceHash, parentClassLoader)) != null) {
+            return
+        }
+
+        val scriptHost =
+            scriptHostFor(programTarget, target, scriptSource, scriptHandler, targetScope, baseScope)
+
+        // Everything that might need the build state is computed here rather than by the compilation
+        val sourceText =
+            scriptSource.resource!!.text
+
+        val compilationClassPath =
+            host.compilationClassPathOf(targetScope.parent)
+
+        val pluginAccessorsClassPath =
+            host.pluginAccessorsFor(scriptHost)
+
+        host.compileInBackground(
+            scriptHost,
+            templateId,
+            sourceHash,
+            parentClassLoader
+        ) { cachedDir ->
+
+            logCompilationOf(templateId, scriptSource)
+
+            compileStage1ProgramTo(
+                cachedDir,
+                scriptSource,
+                sourceText,
+                sourceHash,
+                programKind,
+                programTarget,
+                compilationClassPath,
+                pluginAccessorsClassPath,
+                // The build operation that started the compilation might have completed already
+                compileBuildOperationRunner = { _, _, action -> action() }
+            )
+        }
+    }
+
     private
     fun programTargetFor(target: Any): ProgramTarget =
         when (target) {
@@ -263,36 +345,17 @@ class Interpreter(val host: Host) {
 
                 startCompilerOperationFor(scriptSource, templateId).use {
 
-                    val outputDir =
-                        stage1SubDirOf(cachedDir).apply { mkdir() }
-
-                    val sourceText =
-                        scriptSource.resource!!.text
-
-                    val programSource =
-                        ProgramSource(scriptPath, sourceText)
-
-                    val program =
-                        ProgramParser.parse(programSource, programKind, programTarget)
-
-                    val residualProgram = program.map(
-                        PartialEvaluator(programKind, programTarget)::reduce
+                    compileStage1ProgramTo(
+                        cachedDir,
+                        scriptSource,
+                        scriptSource.resource!!.text,
+                        sourceHash,
+                        programKind,
+                        programTarget,
+                        host.compilationClassPathOf(targetScope.parent),
+                        pluginAccessorsClassPath,
+                        host::runCompileBuildOperation
                     )
-
-                    scriptSource.withLocationAwareExceptionHandling {
-                        ResidualProgramCompiler(
-                            outputDir = outputDir,
-                            classPath = host.compilationClassPathOf(targetScope.parent),
-                            originalSourceHash = sourceHash,
-                            programKind = programKind,
-                            programTarget = programTarget,
-                            implicitImports = host.implicitImports,
-                            logger = interpreterLogger,
-                            compileBuildOperationRunner = host::runCompileBuildOperation,
-                            pluginAccessorsClassPath = pluginAccessorsClassPath ?: ClassPath.EMPTY,
-                            packageName = residualProgram.packageName
-                        ).compile(residualProgram.document)
-                    }
                 }
             }
 
@@ -309,6 +372,48 @@ class Interpreter(val host: Host) {
         )
     }
 
+    private
+    fun compileStage1ProgramTo(
+        cachedDir: File,
+        scriptSource: ScriptSource,
+        sourceText: String,
+        sourceHash: HashCode,
+        programKind: ProgramKind,
+        programTarget: ProgramTarget,
+        compilationClassPath: ClassPath,
+        pluginAccessorsClassPath: ClassPath?,
+        compileBuildOperationRunner: CompileBuildOperationRunner
+    ) {
+
+        val outputDir =
+            stage1SubDirOf(cachedDir).apply { mkdir() }
+
+        val programSource =
+            ProgramSource(scriptSource.fileName!!, sourceText)
+
+        val program =
+            ProgramParser.parse(programSource, programKind, programTarget)
+
+        val residualProgram = program.map(
+            PartialEvaluator(programKind, programTarget)::reduce
+        )
+
+        scriptSource.withLocationAwareExceptionHandling {
+            ResidualProgramCompiler(
+                outputDir = outputDir,
+                classPath = compilationClassPath,
+                originalSourceHash = sourceHash,
+                programKind = programKind,
+                programTarget = programTarget,
+                implicitImports = host.implicitImports,
+                logger = interpreterLogger,
+                compileBuildOperationRunner = compileBuildOperationRunner,
+                pluginAccessorsClassPath = pluginAccessorsClassPath ?: ClassPath.EMPTY,
+                packageName = residualProgram.packageName
+            ).compile(residualProgram.document)
+        }
+    }
+
     private
     fun stage1SubDirOf(cachedDir: File) =
         cachedDir.resolve("stage-1")
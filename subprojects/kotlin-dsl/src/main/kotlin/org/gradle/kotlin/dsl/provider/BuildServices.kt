@@ -16,9 +16,12 @@
 
 package org.gradle.kotlin.dsl.provider
 
+import org.gradle.StartParameter
+
 import org.gradle.api.internal.ClassPathRegistry
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyFactory
 import org.gradle.api.internal.classpath.ModuleRegistry
+import org.gradle.api.internal.file.TemporaryFileProvider
 
 import org.gradle.cache.internal.GeneratedGradleJarCache
 
@@ -28,9 +31,11 @@ import org.gradle.initialization.ClassLoaderScopeRegistry
 
 import org.gradle.internal.classloader.ClasspathHasher
 import org.gradle.internal.classpath.CachedClasspathTransformer
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.event.ListenerManager
 import org.gradle.internal.logging.progress.ProgressLoggerFactory
 import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.scripts.ParallelScriptCompiler
 import org.gradle.internal.scripts.ScriptExecutionListener
 
 import org.gradle.kotlin.dsl.cache.ScriptCache
@@ -74,6 +79,17 @@ object BuildServices {
     fun createClassPathModeExceptionCollector() =
         ClassPathModeExceptionCollector()
 
+    @Suppress("unused")
+    fun createParallelScriptCompiler(
+        temporaryFileProvider: TemporaryFileProvider,
+        executorFactory: ExecutorFactory,
+        startParameter: StartParameter
+    ) =
+
+        ParallelScriptCompiler(temporaryFileProvider, "kotlin-dsl") {
+            executorFactory.create("Kotlin DSL script compiler", startParameter.maxWorkerCount)
+        }
+
     @Suppress("unused")
     fun createKotlinScriptEvaluator(
         classPathProvider: KotlinScriptClassPathProvider,
@@ -90,7 +106,8 @@ object BuildServices {
         progressLoggerFactory: ProgressLoggerFactory,
         buildOperationExecutor: BuildOperationExecutor,
         cachedClasspathTransformer: CachedClasspathTransformer,
-        listenerManager: ListenerManager
+        listenerManager: ListenerManager,
+        parallelScriptCompiler: ParallelScriptCompiler
     ): KotlinScriptEvaluator =
 
         StandardKotlinScriptEvaluator(
@@ -108,7 +125,8 @@ object BuildServices {
             progressLoggerFactory,
             buildOperationExecutor,
             cachedClasspathTransformer,
-            listenerManager.getBroadcaster(ScriptExecutionListener::class.java)
+            listenerManager.getBroadcaster(ScriptExecutionListener::class.java),
+            parallelScriptCompiler
         )
 
     private
@@ -21,6 +21,7 @@ import org.gradle.api.initialization.dsl.ScriptHandler
 import org.gradle.api.internal.initialization.ClassLoaderScope
 import org.gradle.api.internal.initialization.ScriptHandlerInternal
 import org.gradle.api.internal.plugins.PluginAwareInternal
+import org.gradle.api.internal.project.ProjectInternal
 
 import org.gradle.cache.CacheOpenException
 import org.gradle.cache.internal.CacheKeyBuilder
@@ -44,6 +45,7 @@ import org.gradle.internal.operations.CallableBuildOperation
 
 import org.gradle.internal.scripts.CompileScriptBuildOperationType.Details
 import org.gradle.internal.scripts.CompileScriptBuildOperationType.Result
+import org.gradle.internal.scripts.ParallelScriptCompiler
 import org.gradle.internal.scripts.ScriptExecutionListener
 
 import org.gradle.kotlin.dsl.accessors.pluginSpecBuildersClassPath
@@ -86,6 +88,18 @@ internal
 const val scriptCacheKeyPrefix = "gradle-kotlin-dsl"
 
 
+/**
+ * Enables the compilation of the build scripts of child projects ahead of their evaluation, see [ParallelScriptCompiler].
+ */
+internal
+const val parallelCompilationProperty = "org.gradle.kotlin.dsl.compilation.parallel"
+
+
+private
+val isParallelCompilationEnabled: Boolean
+    get() = java.lang.Boolean.getBoolean(parallelCompilationProperty)
+
+
 internal
 class StandardKotlinScriptEvaluator(
     private val classPathProvider: KotlinScriptClassPathProvider,
@@ -102,7 +116,8 @@ class StandardKotlinScriptEvaluator(
     private val progressLoggerFactory: ProgressLoggerFactory,
     private val buildOperationExecutor: BuildOperationExecutor,
     private val cachedClasspathTransformer: CachedClasspathTransformer,
-    private val scriptExecutionListener: ScriptExecutionListener
+    private val scriptExecutionListener: ScriptExecutionListener,
+    private val parallelScriptCompiler: ParallelScriptCompiler
 ) : KotlinScriptEvaluator {
 
     override fun evaluate(
@@ -199,6 +214,35 @@ class StandardKotlinScriptEvaluator(
                 scriptHost.scriptHandler as ScriptHandlerInternal,
                 scriptHost.target as PluginAwareInternal,
                 scriptHost.targetScope)
+
+            if (isParallelCompilationEnabled) {
+                (scriptHost.target as? ProjectInternal)?.let(::compileChildProjectScriptsInBackground)
+            }
+        }
+
+        /**
+         * Compiles the stage 1 programs of the build scripts of the child projects of the given project,
+         * now that the classpath they are compiled against is known.
+         */
+        private
+        fun compileChildProjectScriptsInBackground(project: ProjectInternal) {
+            if (!project.classLoaderScope.isLocked) {
+                return
+            }
+            for (child in project.childProjects.values) {
+                child as ProjectInternal
+                val scriptSource = child.buildScriptSource
+                if (child.state.isUnconfigured && scriptSource.fileName.endsWith(".gradle.kts") && scriptSource.resource.exists) {
+                    interpreter.compileInBackground(
+                        child,
+                        scriptSource,
+                        scriptSourceHasher.hash(scriptSource),
+                        child.buildscript,
+                        child.classLoaderScope,
+                        child.baseClassLoaderScope
+                    )
+                }
+            }
         }
 
         override fun applyBasePluginsTo(project: Project) {
@@ -246,23 +290,41 @@ class StandardKotlinScriptEvaluator(
                 accessorsClassPath?.let { baseCacheKey + it }
                     ?: baseCacheKey
 
-            cacheDirFor(scriptHost, effectiveCacheKey, initializer)
+            cacheDirFor(scriptHost, scriptCache.cacheKeyFor(effectiveCacheKey), initializer)
         } catch (e: CacheOpenException) {
             throw e.cause as? ScriptCompilationException ?: e
         }
 
+        override fun compileInBackground(
+            scriptHost: KotlinScriptHost<*>,
+            templateId: String,
+            sourceHash: HashCode,
+            parentClassLoader: ClassLoader,
+            compilation: (File) -> Unit
+        ) {
+            val cacheKey =
+                scriptCache.cacheKeyFor(cacheKeySpecPrefix + templateId + sourceHash + parentClassLoader)
+
+            if (!scriptCache.isCached(cacheKey)) {
+                parallelScriptCompiler.submit(cacheKey) { outputDir -> compilation(outputDir) }
+            }
+        }
+
         private
         fun cacheDirFor(
             scriptHost: KotlinScriptHost<*>,
-            cacheKeySpec: CacheKeyBuilder.CacheKeySpec,
+            cacheKey: String,
             initializer: (File) -> Unit
         ): File =
             scriptCache.cacheDirFor(
-                cacheKeySpec,
+                cacheKey,
                 scriptTarget = scriptHost.target,
-                displayName = scriptHost.scriptSource.displayName,
-                initializer = initializer
-            )
+                displayName = scriptHost.scriptSource.displayName
+            ) { cacheDir ->
+                if (!parallelScriptCompiler.takeOutputOf(cacheKey, cacheDir)) {
+                    initializer(cacheDir)
+                }
+            }
 
         private
         val cacheKeySpecPrefix =
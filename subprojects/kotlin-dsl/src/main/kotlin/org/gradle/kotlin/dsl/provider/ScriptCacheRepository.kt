@@ -34,6 +34,12 @@ class ScriptCacheRepository(
     fun cache(key: String): CacheBuilder =
         cacheRepository.cache(key)
 
+    /**
+     * Whether the cache for the given key has been created, without opening it.
+     */
+    fun exists(key: String): Boolean =
+        File(cacheRootFor(key), "cache.properties").isFile
+
     override fun getAdditiveCacheRoots(): List<File> =
         listOf(
             cacheRootFor(scriptCacheKeyPrefix),
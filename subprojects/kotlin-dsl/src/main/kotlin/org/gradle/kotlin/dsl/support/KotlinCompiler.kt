@@ -16,6 +16,7 @@
 
 package org.gradle.kotlin.dsl.support
 
+import org.gradle.internal.Factory
 import org.gradle.internal.SystemProperties
 import org.gradle.internal.io.NullOutputStream
 
@@ -155,37 +156,63 @@ fun compileKotlinScriptModuleTo(
     classPath: Iterable<File>,
     messageCollector: LoggingMessageCollector
 ) {
-    // Don't keep the Kotlin compiler environment alive as it might hold onto stale data.
-    // See https://youtrack.jetbrains.com/issue/KT-35394
-    SystemProperties.getInstance().withSystemProperty(
-        KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY,
-        "false"
-    ) {
-        withRootDisposable {
-
-            withCompilationExceptionHandler(messageCollector) {
-
-                val configuration = compilerConfigurationFor(messageCollector).apply {
-                    put(RETAIN_OUTPUT_IN_MEMORY, false)
-                    put(OUTPUT_DIRECTORY, outputDirectory)
-                    setModuleName(moduleName)
-                    addScriptingCompilerComponents()
-                    addScriptDefinition(scriptDef)
-                    scriptFiles.forEach { addKotlinSourceRoot(it) }
-                    classPath.forEach { addJvmClasspathRoot(it) }
-                }
-                val environment = kotlinCoreEnvironmentFor(configuration).apply {
-                    HasImplicitReceiverCompilerPlugin.apply(project)
-                }
+    val keepEnvironmentAlive = KotlinCompilerSession.isEnabled
+    if (keepEnvironmentAlive) {
+        kotlinCompilerSession.start(classPath)
+    }
+    val rootDisposable = newDisposable()
+    try {
+        withCompilationExceptionHandler(messageCollector) {
 
-                compileBunchOfSources(environment)
-                    || throw ScriptCompilationException(messageCollector.errors)
+            val configuration = compilerConfigurationFor(messageCollector).apply {
+                put(RETAIN_OUTPUT_IN_MEMORY, false)
+                put(OUTPUT_DIRECTORY, outputDirectory)
+                setModuleName(moduleName)
+                addScriptingCompilerComponents()
+                addScriptDefinition(scriptDef)
+                scriptFiles.forEach { addKotlinSourceRoot(it) }
+                classPath.forEach { addJvmClasspathRoot(it) }
+            }
+            val environment = withCompilerEnvironmentKeepAlive(keepEnvironmentAlive) {
+                rootDisposable.kotlinCoreEnvironmentFor(configuration)
+            }.apply {
+                HasImplicitReceiverCompilerPlugin.apply(project)
+            }
+
+            compileBunchOfSources(environment)
+                || throw ScriptCompilationException(messageCollector.errors)
+        }
+    } finally {
+        try {
+            withCompilerEnvironmentKeepAlive(keepEnvironmentAlive) {
+                dispose(rootDisposable)
+            }
+        } finally {
+            if (keepEnvironmentAlive) {
+                kotlinCompilerSession.finish()
             }
         }
     }
 }
 
 
+/**
+ * Don't keep the Kotlin compiler environment alive as it might hold onto stale data,
+ * unless a [KotlinCompilerSession] takes care of it.
+ * See https://youtrack.jetbrains.com/issue/KT-35394
+ *
+ * The property is only overridden while a compiler environment is created or disposed, as the
+ * compiler reads it then, so that scripts can still be compiled concurrently.
+ */
+private
+fun <T> withCompilerEnvironmentKeepAlive(keepAlive: Boolean, action: () -> T): T =
+    SystemProperties.getInstance().withSystemProperty(
+        KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY,
+        keepAlive.toString(),
+        Factory { action() }
+    )
+
+
 private
 object HasImplicitReceiverCompilerPlugin {
 
@@ -283,26 +310,93 @@ inline fun <T> ignoringOutputOf(action: () -> T): T =
 
 
 private
-inline fun <T> redirectingOutputTo(noinline outputStream: () -> OutputStream, action: () -> T): T =
-    redirecting(System.err, System::setErr, outputStream()) {
-        redirecting(System.out, System::setOut, outputStream()) {
-            action()
-        }
+inline fun <T> redirectingOutputTo(noinline outputStream: () -> OutputStream, action: () -> T): T {
+    val output = outputStream()
+    CompilerOutputRedirection.start(output)
+    try {
+        return action()
+    } finally {
+        CompilerOutputRedirection.stop()
+        output.flush()
     }
+}
 
 
+/**
+ * Sends what the compiler writes to the standard streams to the output of its compilation.
+ *
+ * The standard streams are global, so while scripts are compiled they are replaced by streams which send
+ * the output of each compiling thread to the output of its own compilation, and the output of all the other
+ * threads, such as build scripts running concurrently, to the original streams unchanged.
+ * The original streams are restored once no script is being compiled.
+ */
 private
-inline fun <T> redirecting(
-    stream: PrintStream,
-    set: (PrintStream) -> Unit,
-    to: OutputStream,
-    action: () -> T
-): T = try {
-    set(PrintStream(to, true))
-    action()
-} finally {
-    set(stream)
-    to.flush()
+object CompilerOutputRedirection {
+
+    private
+    val compilationOutput = ThreadLocal<OutputStream>()
+
+    private
+    var compilations = 0
+
+    private
+    var redirection: Redirection? = null
+
+    fun start(output: OutputStream) {
+        compilationOutput.set(output)
+        synchronized(this) {
+            if (compilations++ == 0) {
+                redirection = Redirection(System.out, System.err).apply {
+                    System.setOut(out)
+                    System.setErr(err)
+                }
+            }
+        }
+    }
+
+    fun stop() {
+        compilationOutput.remove()
+        synchronized(this) {
+            if (--compilations == 0) {
+                redirection!!.restore()
+                redirection = null
+            }
+        }
+    }
+
+    private
+    class Redirection(val originalOut: PrintStream, val originalErr: PrintStream) {
+
+        val out = PrintStream(ThreadRoutingOutputStream(originalOut), true)
+
+        val err = PrintStream(ThreadRoutingOutputStream(originalErr), true)
+
+        fun restore() {
+            out.flush()
+            err.flush()
+            // Leave the streams alone when somebody else replaced them in the meantime
+            if (System.out === out) {
+                System.setOut(originalOut)
+            }
+            if (System.err === err) {
+                System.setErr(originalErr)
+            }
+        }
+    }
+
+    private
+    class ThreadRoutingOutputStream(val original: OutputStream) : OutputStream() {
+
+        private
+        val target: OutputStream
+            get() = compilationOutput.get() ?: original
+
+        override fun write(b: Int) = target.write(b)
+
+        override fun write(b: ByteArray, off: Int, len: Int) = target.write(b, off, len)
+
+        override fun flush() = target.flush()
+    }
 }
 
 
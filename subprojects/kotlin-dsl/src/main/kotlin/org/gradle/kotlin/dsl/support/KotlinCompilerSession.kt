@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.kotlin.dsl.support
+
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+
+import java.io.File
+import java.util.concurrent.locks.ReentrantLock
+
+import kotlin.concurrent.withLock
+
+
+/**
+ * Keeps the application environment of the Kotlin compiler alive between script compilations, so that the
+ * jars of the compilation classpath are only opened and indexed once per daemon rather than once per script.
+ *
+ * The environment caches the jars it has seen by path, which is why it isn't kept alive by default (see
+ * https://youtrack.jetbrains.com/issue/KT-35394). The session remembers the size and modification time of
+ * every jar compiled against, and disposes the environment before the next compilation when one of them
+ * has changed. It also disposes the environment when the jars seen since it was created exceed the given
+ * budget, as the memory used by the environment grows with the size of the classpath.
+ *
+ * This is an opt-in feature, enabled with the [SESSION_PROPERTY] system property.
+ */
+internal
+class KotlinCompilerSession(
+    private val maxClassPathBytes: Long,
+    private val disposeEnvironment: () -> Unit
+) {
+
+    companion object {
+
+        const val SESSION_PROPERTY = "org.gradle.kotlin.dsl.compilation.session"
+
+        val isEnabled: Boolean
+            get() = java.lang.Boolean.getBoolean(SESSION_PROPERTY)
+    }
+
+    private
+    val lock = ReentrantLock()
+
+    private
+    val noCompilations = lock.newCondition()
+
+    private
+    val jars = hashMapOf<File, JarSnapshot>()
+
+    private
+    var classPathBytes = 0L
+
+    private
+    var compilations = 0
+
+    private
+    var disposalPending = false
+
+    /**
+     * Marks the start of a compilation against the given classpath, disposing the environment first when it
+     * is out of date or over budget.
+     *
+     * Blocks while other compilations use an environment that has to be disposed.
+     * Each call must be followed by a call to [finish].
+     */
+    fun start(classPath: Iterable<File>) {
+        lock.withLock {
+            while (compilations > 0) {
+                if (!disposalPending && isUpToDateFor(classPath)) {
+                    break
+                }
+                // Hold back further compilations until the environment has been disposed
+                disposalPending = true
+                noCompilations.await()
+            }
+            if (disposalPending || !isUpToDateFor(classPath)) {
+                disposeEnvironment()
+                jars.clear()
+                classPathBytes = 0
+                disposalPending = false
+            }
+            for (file in classPath) {
+                if (file.isFile && file !in jars) {
+                    val snapshot = JarSnapshot.of(file)
+                    jars[file] = snapshot
+                    classPathBytes += snapshot.length
+                }
+            }
+            compilations++
+        }
+    }
+
+    fun finish() {
+        lock.withLock {
+            compilations--
+            if (compilations == 0) {
+                noCompilations.signalAll()
+            }
+        }
+    }
+
+    private
+    fun isUpToDateFor(classPath: Iterable<File>): Boolean {
+        var newBytes = 0L
+        for (file in classPath) {
+            if (!file.isFile) {
+                continue
+            }
+            val snapshot = jars[file]
+            when {
+                snapshot == null -> newBytes += file.length()
+                snapshot != JarSnapshot.of(file) -> return false
+            }
+        }
+        // A classpath larger than the budget on its own is still kept until it changes
+        return jars.isEmpty() || newBytes == 0L || classPathBytes + newBytes <= maxClassPathBytes
+    }
+
+    private
+    data class JarSnapshot(val length: Long, val lastModified: Long) {
+        companion object {
+            fun of(file: File) = JarSnapshot(file.length(), file.lastModified())
+        }
+    }
+}
+
+
+/**
+ * The session shared by all script compilations in this process, allowed to keep a classpath of up to
+ * a quarter of the maximum heap size open.
+ */
+internal
+val kotlinCompilerSession = KotlinCompilerSession(Runtime.getRuntime().maxMemory() / 4) {
+    KotlinCoreEnvironment.disposeApplicationEnvironment()
+}
@@ -0,0 +1,138 @@
+package org.gradle.kotlin.dsl.accessors
+
+import org.gradle.api.Project
+import org.gradle.api.reflect.TypeOf
+
+import org.gradle.internal.classpath.ClassPath
+import org.gradle.internal.hash.HashCode
+
+import org.gradle.kotlin.dsl.concurrent.withSynchronousIO
+
+import org.hamcrest.CoreMatchers.equalTo
+import org.hamcrest.MatcherAssert.assertThat
+
+import org.junit.Test
+
+import java.io.File
+import java.net.URLClassLoader
+
+
+class IncrementalAccessorsTest : TestWithClassPath() {
+
+    private
+    val incrementalAccessors = IncrementalAccessors(maxEmittedAccessors = 100, maxClassPaths = 1)
+
+    @Test
+    fun `emits only the accessors of new schema entries`() {
+
+        buildIncrementallyFor(schemaWithConfigurations("api"), ClassPath.EMPTY, newFolder("first"))
+        assertThat(incrementalAccessors.emittedAccessorCount, equalTo(2))
+
+        buildIncrementallyFor(schemaWithConfigurations("api", "implementation"), ClassPath.EMPTY, newFolder("second"))
+        assertThat(incrementalAccessors.emittedAccessorCount, equalTo(4))
+    }
+
+    @Test
+    fun `emits the same accessors as a full build`() {
+
+        val schema = schemaWithConfigurations("api", "implementation")
+        val incrementalDir = newFolder("incremental")
+        buildIncrementallyFor(schemaWithConfigurations("api"), ClassPath.EMPTY, newFolder("previous"))
+        buildIncrementallyFor(schema, ClassPath.EMPTY, incrementalDir)
+
+        val fullDir = newFolder("full")
+        withSynchronousIO {
+            buildAccessorsFor(
+                schema,
+                ClassPath.EMPTY,
+                srcDir = fullDir.resolve("src"),
+                binDir = fullDir.resolve("bin")
+            )
+        }
+
+        assertThat(
+            contentsOf(incrementalDir),
+            equalTo(contentsOf(fullDir))
+        )
+    }
+
+    @Test
+    fun `reuses the accessors emitted for types loaded by another class loader`() {
+
+        val classPath = classPathWithPublicType("org.acme.Extension")
+
+        fun schemaWithExtensionLoadedBy(classLoader: ClassLoader) =
+            TypedProjectSchema(
+                extensions = listOf(
+                    ProjectSchemaEntry(
+                        SchemaType.of<Project>(),
+                        "acme",
+                        SchemaType(TypeOf.typeOf(classLoader.loadClass("org.acme.Extension")))
+                    )
+                ),
+                conventions = listOf(),
+                tasks = listOf(),
+                containerElements = listOf(),
+                configurations = listOf()
+            )
+
+        URLClassLoader(classPath.asURLArray, null).use { classLoader ->
+            buildIncrementallyFor(schemaWithExtensionLoadedBy(classLoader), classPath, newFolder("first"))
+        }
+        val emittedAccessorCount = incrementalAccessors.emittedAccessorCount
+
+        URLClassLoader(classPath.asURLArray, null).use { classLoader ->
+            buildIncrementallyFor(schemaWithExtensionLoadedBy(classLoader), classPath, newFolder("second"))
+        }
+        assertThat(incrementalAccessors.emittedAccessorCount, equalTo(emittedAccessorCount))
+    }
+
+    @Test
+    fun `only looks up types missing from the shared accessibility info`() {
+
+        val type = SchemaType.of<PublicComponentType>()
+        val typeAccessibilityInfo = incrementalAccessors.typeAccessibilityInfoFor(HashCode.fromInt(42))
+
+        TypeAccessibilityProvider(jarClassPathWith(PublicComponentType::class), typeAccessibilityInfo).use {
+            it.accessibilityForType(type)
+        }
+
+        // The type is missing from this classpath, so it would be reported as not available if looked up
+        TypeAccessibilityProvider(jarClassPathWith("empty.jar"), typeAccessibilityInfo).use {
+            assertThat(
+                it.accessibilityForType(type),
+                equalTo(accessible(type))
+            )
+        }
+    }
+
+    private
+    fun buildIncrementallyFor(schema: TypedProjectSchema, classPath: ClassPath, outputDir: File) {
+        withSynchronousIO {
+            buildAccessorsIncrementallyFor(
+                schema,
+                classPath,
+                HashCode.fromInt(42),
+                srcDir = outputDir.resolve("src"),
+                binDir = outputDir.resolve("bin"),
+                incrementalAccessors = incrementalAccessors
+            )
+        }
+    }
+
+    private
+    fun schemaWithConfigurations(vararg names: String) =
+        TypedProjectSchema(
+            extensions = listOf(),
+            conventions = listOf(),
+            tasks = listOf(),
+            containerElements = listOf(),
+            configurations = names.map { ConfigurationEntry(it) }
+        )
+
+    private
+    fun contentsOf(dir: File): Map<String, List<Byte>> =
+        dir.walkTopDown().filter { it.isFile }.associate {
+            it.relativeTo(dir).path to it.readBytes().toList()
+        }
+}
@@ -0,0 +1,103 @@
+package org.gradle.kotlin.dsl.support
+
+import org.gradle.kotlin.dsl.fixtures.TestWithTempFiles
+
+import org.hamcrest.CoreMatchers.equalTo
+import org.hamcrest.MatcherAssert.assertThat
+
+import org.junit.Test
+
+import java.io.File
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+
+class KotlinCompilerSessionTest : TestWithTempFiles() {
+
+    private
+    var disposals = 0
+
+    @Test
+    fun `keeps environment while classpath is unchanged`() {
+
+        val session = newSession(maxClassPathBytes = 1000)
+        val classPath = listOf(jar("a.jar", 10), jar("b.jar", 10), newFolder("classes"))
+
+        session.compile(classPath)
+        session.compile(classPath)
+        session.compile(classPath.take(1))
+
+        assertThat(disposals, equalTo(0))
+    }
+
+    @Test
+    fun `disposes environment when a jar has changed`() {
+
+        val session = newSession(maxClassPathBytes = 1000)
+        val jar = jar("a.jar", 10)
+
+        session.compile(listOf(jar))
+        jar.appendText("changed")
+        session.compile(listOf(jar))
+        session.compile(listOf(jar))
+
+        assertThat(disposals, equalTo(1))
+    }
+
+    @Test
+    fun `disposes environment when classpath exceeds budget`() {
+
+        val session = newSession(maxClassPathBytes = 100)
+        val first = jar("a.jar", 60)
+        val second = jar("b.jar", 60)
+
+        session.compile(listOf(first))
+        session.compile(listOf(second))
+        assertThat(disposals, equalTo(1))
+
+        // A single classpath larger than the budget is still compiled against
+        session.compile(listOf(first, second))
+        session.compile(listOf(first, second))
+        assertThat(disposals, equalTo(2))
+    }
+
+    @Test
+    fun `waits for running compilations before disposing environment`() {
+
+        val session = newSession(maxClassPathBytes = 1000)
+        val jar = jar("a.jar", 10)
+
+        session.start(listOf(jar))
+        jar.appendText("changed")
+
+        val started = CountDownLatch(1)
+        val compilation = thread {
+            session.start(listOf(jar))
+            started.countDown()
+            session.finish()
+        }
+
+        assertThat(started.await(100, TimeUnit.MILLISECONDS), equalTo(false))
+        assertThat(disposals, equalTo(0))
+
+        session.finish()
+        compilation.join(10_000)
+        assertThat(started.count, equalTo(0L))
+        assertThat(disposals, equalTo(1))
+    }
+
+    private
+    fun newSession(maxClassPathBytes: Long) =
+        KotlinCompilerSession(maxClassPathBytes) { disposals++ }
+
+    private
+    fun KotlinCompilerSession.compile(classPath: List<File>) {
+        start(classPath)
+        finish()
+    }
+
+    private
+    fun jar(name: String, size: Int): File =
+        newFile(name).apply { writeBytes(ByteArray(size)) }
+}
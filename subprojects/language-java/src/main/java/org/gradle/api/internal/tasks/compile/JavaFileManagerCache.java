@@ -0,0 +1,226 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.collect.ImmutableList;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps javac file managers alive between compilations in the same process, so that the classpath archives they have opened
+ * and indexed do not have to be read again by the next compilation with the same classpath.
+ *
+ * <p>A file manager is only reused for a compilation with the same compiler, encoding and options, and only when none of the classpath
+ * entries has changed since it was created. While a compilation is running it owns its file manager exclusively, so concurrent
+ * compilations never share one. The cache is bounded by the total size of the classpaths it keeps open and drops file managers
+ * which have not been used for a while.</p>
+ *
+ * <p>This is an opt-in feature, enabled with the {@value #ENABLED_PROPERTY} system property in the process running the compiler
+ * (the build daemon for in-process compilation, the compiler daemon otherwise).</p>
+ */
+public class JavaFileManagerCache {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.java.compile.reuse-file-manager";
+    public static final String MAX_SIZE_PROPERTY = "org.gradle.internal.java.compile.reuse-file-manager.max-size-mb";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JavaFileManagerCache.class);
+    private static final long IDLE_TIMEOUT_MINUTES = 10;
+    private static final JavaFileManagerCache INSTANCE = new JavaFileManagerCache(maxSizeInKilobytes());
+
+    // Held while changing the leased or idle file managers, so that the ZIP cache is never cleaned up while a file manager is handed over
+    private final Object lock = new Object();
+    private final Cache<Key, Lease> idleFileManagers;
+    private int leasedFileManagers;
+
+    @VisibleForTesting
+    JavaFileManagerCache(long maxSizeInKilobytes) {
+        this.idleFileManagers = CacheBuilder.newBuilder()
+            .maximumWeight(maxSizeInKilobytes)
+            .weigher((Key key, Lease lease) -> key.weight)
+            .expireAfterAccess(IDLE_TIMEOUT_MINUTES, TimeUnit.MINUTES)
+            .removalListener(notification -> {
+                // Explicit removal means the file manager has been handed out for a compilation
+                if (notification.getCause() != RemovalCause.EXPLICIT) {
+                    LOGGER.debug("Discarding javac file manager for {}.", notification.getKey());
+                    notification.getValue().discard();
+                    cleanupZipCacheWhenUnused();
+                }
+            })
+            .build();
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    public static JavaFileManagerCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a file manager for exclusive use by a single compilation. Closing the returned lease makes the file manager available to later compilations.
+     */
+    public Lease acquire(JavaCompiler compiler, @Nullable Charset charset, List<String> options, List<File> classpath) {
+        Key key = new Key(compiler.getClass(), charset, options, classpath);
+        Lease idle;
+        synchronized (lock) {
+            leasedFileManagers++;
+            idle = idleFileManagers.asMap().remove(key);
+        }
+        if (idle != null) {
+            LOGGER.debug("Reusing javac file manager for {}.", key);
+            return idle;
+        }
+        return new Lease(key, compiler.getStandardFileManager(null, null, charset));
+    }
+
+    @VisibleForTesting
+    long size() {
+        synchronized (lock) {
+            idleFileManagers.cleanUp();
+            return idleFileManagers.size();
+        }
+    }
+
+    private void release(Lease lease) {
+        boolean flushed;
+        try {
+            lease.fileManager.flush();
+            flushed = true;
+        } catch (IOException e) {
+            flushed = false;
+        }
+        synchronized (lock) {
+            leasedFileManagers--;
+            if (!flushed) {
+                lease.discard();
+                cleanupZipCacheWhenUnused();
+            } else if (idleFileManagers.asMap().putIfAbsent(lease.key, lease) != null) {
+                // Another compilation with the same key finished first
+                lease.discard();
+            }
+        }
+    }
+
+    /**
+     * The file managers of compilations share the ZIP cache of javac on JDK 8, so it can only be cleared once none of them is in use or kept.
+     */
+    private void cleanupZipCacheWhenUnused() {
+        synchronized (lock) {
+            if (leasedFileManagers == 0 && idleFileManagers.asMap().isEmpty()) {
+                ResourceCleaningCompilationTask.cleanupZipCache();
+            }
+        }
+    }
+
+    public class Lease implements Closeable {
+        private final Key key;
+        private final StandardJavaFileManager fileManager;
+
+        private Lease(Key key, StandardJavaFileManager fileManager) {
+            this.key = key;
+            this.fileManager = fileManager;
+        }
+
+        public StandardJavaFileManager getFileManager() {
+            return fileManager;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private void discard() {
+            CompositeStoppable.stoppable(fileManager).stop();
+        }
+    }
+
+    private static long maxSizeInKilobytes() {
+        long defaultSizeInMegabytes = Runtime.getRuntime().maxMemory() / 4 / 1024 / 1024;
+        return Long.getLong(MAX_SIZE_PROPERTY, defaultSizeInMegabytes) * 1024;
+    }
+
+    /**
+     * Identifies the compiler, the options and the state of the classpath. The weight approximates the memory held by an open file manager
+     * with the total size of the classpath archives.
+     */
+    private static class Key {
+        private final Class<?> compilerType;
+        private final Charset charset;
+        private final List<String> options;
+        private final List<String> classpathState;
+        private final int weight;
+        private final int hashCode;
+
+        Key(Class<?> compilerType, @Nullable Charset charset, List<String> options, List<File> classpath) {
+            this.compilerType = compilerType;
+            this.charset = charset;
+            this.options = ImmutableList.copyOf(options);
+            ImmutableList.Builder<String> classpathState = ImmutableList.builder();
+            long totalSize = 0;
+            for (File entry : classpath) {
+                long length = entry.isFile() ? entry.length() : 0;
+                classpathState.add(entry.getAbsolutePath() + ":" + length + ":" + entry.lastModified());
+                totalSize += length;
+            }
+            this.classpathState = classpathState.build();
+            this.weight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, totalSize / 1024));
+            this.hashCode = Objects.hash(compilerType, charset, this.options, this.classpathState);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return compilerType.equals(key.compilerType)
+                && Objects.equals(charset, key.charset)
+                && options.equals(key.options)
+                && classpathState.equals(key.classpathState);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "classpath with " + classpathState.size() + " entries";
+        }
+    }
+}
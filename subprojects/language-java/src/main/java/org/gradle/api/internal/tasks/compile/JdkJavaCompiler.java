@@ -30,6 +30,7 @@
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
+import java.io.Closeable;
 import java.io.File;
 import java.io.Serializable;
 import java.nio.charset.Charset;
@@ -64,7 +65,16 @@ private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, Jdk
         JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
         MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
         Charset charset = compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null;
-        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, charset);
+        StandardJavaFileManager standardFileManager;
+        Closeable fileManagerResource;
+        if (JavaFileManagerCache.isEnabled()) {
+            JavaFileManagerCache.Lease lease = JavaFileManagerCache.getInstance().acquire(compiler, charset, options, spec.getCompileClasspath());
+            standardFileManager = lease.getFileManager();
+            fileManagerResource = lease;
+        } else {
+            standardFileManager = compiler.getStandardFileManager(null, null, charset);
+            fileManagerResource = null;
+        }
         Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(spec.getSourceFiles());
         boolean hasEmptySourcepaths = JavaVersion.current().isJava9Compatible() && emptySourcepathIn(options);
         JavaFileManager fileManager = GradleStandardJavaFileManager.wrap(standardFileManager, DefaultClassPath.of(spec.getAnnotationProcessorPath()), hasEmptySourcepaths);
@@ -75,7 +85,11 @@ private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, Jdk
         }
         Set<AnnotationProcessorDeclaration> annotationProcessors = spec.getEffectiveAnnotationProcessors();
         task = new AnnotationProcessingCompileTask(task, annotationProcessors, spec.getAnnotationProcessorPath(), result.getAnnotationProcessingResult());
-        task = new ResourceCleaningCompilationTask(task, fileManager);
+        if (fileManagerResource != null) {
+            task = new ResourceCleaningCompilationTask(task, fileManagerResource, false);
+        } else {
+            task = new ResourceCleaningCompilationTask(task, fileManager, true);
+        }
         return task;
     }
 
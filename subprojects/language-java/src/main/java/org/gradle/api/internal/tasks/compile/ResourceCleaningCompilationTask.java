@@ -27,14 +27,19 @@
 
 /**
  * Cleans up resources (e.g. file handles) after compilation has finished.
+ *
+ * <p>The shared ZIP cache is left alone when the file manager is kept for later compilations by {@link JavaFileManagerCache},
+ * as it still relies on it. The cache clears the ZIP cache itself once it no longer holds any file manager.</p>
  */
 class ResourceCleaningCompilationTask implements JavaCompiler.CompilationTask {
     private final JavaCompiler.CompilationTask delegate;
     private final Closeable fileManager;
+    private final boolean cleanupZipCache;
 
-    ResourceCleaningCompilationTask(JavaCompiler.CompilationTask delegate, Closeable fileManager) {
+    ResourceCleaningCompilationTask(JavaCompiler.CompilationTask delegate, Closeable fileManager, boolean cleanupZipCache) {
         this.delegate = delegate;
         this.fileManager = fileManager;
+        this.cleanupZipCache = cleanupZipCache;
     }
 
     @Override
@@ -57,7 +62,9 @@ public Boolean call() {
             return delegate.call();
         } finally {
             CompositeStoppable.stoppable(fileManager).stop();
-            cleanupZipCache();
+            if (cleanupZipCache) {
+                cleanupZipCache();
+            }
         }
     }
 
@@ -68,7 +75,7 @@ public Boolean call() {
      * method does not take arguments, so the cache can't be turned off.
      * So instead we clean it ourselves using reflection.
      */
-    private void cleanupZipCache() {
+    static void cleanupZipCache() {
         try {
             Class<?> zipFileIndexCache = Class.forName("com.sun.tools.javac.file.ZipFileIndexCache");
             Object instance = zipFileIndexCache.getMethod("getSharedInstance").invoke(null);
@@ -15,9 +15,15 @@
  */
 package org.gradle.api.internal.tasks.compile.incremental.classpath;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.FileOperations;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis;
@@ -26,28 +32,50 @@
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.StreamHasher;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 
 import static org.gradle.internal.FileUtils.hasExtension;
 
 public class DefaultClasspathEntrySnapshotter {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultClasspathEntrySnapshotter.class);
+    private static final int CLASSES_PER_BATCH = 500;
 
     private final FileHasher fileHasher;
     private final StreamHasher hasher;
     private final ClassDependenciesAnalyzer analyzer;
     private final FileOperations fileOperations;
+    @Nullable
+    private final BuildOperationExecutor buildOperationExecutor;
 
     public DefaultClasspathEntrySnapshotter(FileHasher fileHasher, StreamHasher streamHasher, ClassDependenciesAnalyzer analyzer, FileOperations fileOperations) {
+        this(fileHasher, streamHasher, analyzer, fileOperations, null);
+    }
+
+    /**
+     * When a build operation executor is given, the classes of large entries are analyzed concurrently in batches.
+     * The analysis results are still merged in the order the classes were visited, so the snapshot does not depend on scheduling.
+     */
+    public DefaultClasspathEntrySnapshotter(FileHasher fileHasher, StreamHasher streamHasher, ClassDependenciesAnalyzer analyzer, FileOperations fileOperations, @Nullable BuildOperationExecutor buildOperationExecutor) {
         this.fileHasher = fileHasher;
         this.hasher = streamHasher;
         this.analyzer = analyzer;
         this.fileOperations = fileOperations;
+        this.buildOperationExecutor = buildOperationExecutor;
     }
 
     public ClasspathEntrySnapshot createSnapshot(HashCode hash, File classpathEntry) {
@@ -55,7 +83,9 @@ public ClasspathEntrySnapshot createSnapshot(HashCode hash, File classpathEntry)
         final ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator();
 
         try {
-            visit(classpathEntry, hashes, accumulator);
+            for (ClassFile classFile : analyze(classpathEntry)) {
+                classFile.addTo(accumulator, hashes);
+            }
         } catch (Exception e) {
             accumulator.fullRebuildNeeded(classpathEntry + " could not be analyzed for incremental compilation. See the debug log for more details");
             if (LOGGER.isDebugEnabled()) {
@@ -66,22 +96,44 @@ public ClasspathEntrySnapshot createSnapshot(HashCode hash, File classpathEntry)
         return new ClasspathEntrySnapshot(new ClasspathEntrySnapshotData(hash, hashes, accumulator.getAnalysis()));
     }
 
-    private void visit(File classpathEntry, Map<String, HashCode> hashes, ClassDependentsAccumulator accumulator) {
+    private List<ClassFile> analyze(final File classpathEntry) {
+        final List<ClassFile> classFiles = Lists.newArrayList();
+        if (buildOperationExecutor == null) {
+            visit(classpathEntry, classFiles, null);
+            return classFiles;
+        }
+        buildOperationExecutor.runAll((BuildOperationQueue<AnalyzeClasses> queue) -> {
+            List<ClassFile> remaining = visit(classpathEntry, classFiles, batch -> queue.add(new AnalyzeClasses(classpathEntry, batch)));
+            // Not worth a separate operation, analyze on this thread while the queued batches run
+            for (ClassFile classFile : remaining) {
+                classFile.analyze();
+            }
+        });
+        return classFiles;
+    }
+
+    private List<ClassFile> visit(File classpathEntry, List<ClassFile> classFiles, @Nullable Action<List<ClassFile>> batchAction) {
         if (hasExtension(classpathEntry, ".jar")) {
-            fileOperations.zipTree(classpathEntry).visit(new JarEntryVisitor(accumulator, hashes));
+            EntryVisitor visitor = new JarEntryVisitor(classFiles, batchAction);
+            fileOperations.zipTree(classpathEntry).visit(visitor);
+            return visitor.currentBatch;
         }
         if (classpathEntry.isDirectory()) {
-            fileOperations.fileTree(classpathEntry).visit(new DirectoryEntryVisitor(accumulator, hashes));
+            EntryVisitor visitor = new DirectoryEntryVisitor(classFiles, batchAction);
+            fileOperations.fileTree(classpathEntry).visit(visitor);
+            return visitor.currentBatch;
         }
+        return Lists.newArrayList();
     }
 
     private abstract class EntryVisitor implements FileVisitor {
-        private final ClassDependentsAccumulator accumulator;
-        private final Map<String, HashCode> hashes;
+        private final List<ClassFile> classFiles;
+        private final Action<List<ClassFile>> batchAction;
+        private List<ClassFile> currentBatch = Lists.newArrayList();
 
-        public EntryVisitor(ClassDependentsAccumulator accumulator, Map<String, HashCode> hashes) {
-            this.accumulator = accumulator;
-            this.hashes = hashes;
+        public EntryVisitor(List<ClassFile> classFiles, @Nullable Action<List<ClassFile>> batchAction) {
+            this.classFiles = classFiles;
+            this.batchAction = batchAction;
         }
 
         @Override
@@ -94,31 +146,39 @@ public void visitFile(FileVisitDetails fileDetails) {
                 return;
             }
 
-            HashCode classFileHash = getHashCode(fileDetails);
+            if (batchAction == null) {
+                ClassFile classFile = new ClassFile(fileDetails, getHashCode(fileDetails));
+                classFiles.add(classFile);
+                classFile.analyze();
+                return;
+            }
 
-            try {
-                ClassAnalysis analysis = analyzer.getClassAnalysis(classFileHash, fileDetails);
-                accumulator.addClass(analysis);
-                hashes.put(analysis.getClassName(), classFileHash);
-            } catch (Exception e) {
-                accumulator.fullRebuildNeeded(fileDetails.getName() + " could not be analyzed for incremental compilation. See the debug log for more details");
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Could not analyze " + fileDetails.getName() + " for incremental compilation", e);
-                }
+            FileTreeElement detached = detach(fileDetails);
+            ClassFile classFile = new ClassFile(detached, getHashCode(detached));
+            classFiles.add(classFile);
+            currentBatch.add(classFile);
+            if (currentBatch.size() == CLASSES_PER_BATCH) {
+                batchAction.execute(currentBatch);
+                currentBatch = Lists.newArrayList();
             }
         }
 
-        protected abstract HashCode getHashCode(FileVisitDetails fileDetails);
+        protected abstract HashCode getHashCode(FileTreeElement fileDetails);
+
+        /**
+         * Returns an element whose content can still be read once the visit has finished.
+         */
+        protected abstract FileTreeElement detach(FileVisitDetails fileDetails);
     }
 
     private class JarEntryVisitor extends EntryVisitor {
 
-        public JarEntryVisitor(ClassDependentsAccumulator accumulator, Map<String, HashCode> hashes) {
-            super(accumulator, hashes);
+        public JarEntryVisitor(List<ClassFile> classFiles, @Nullable Action<List<ClassFile>> batchAction) {
+            super(classFiles, batchAction);
         }
 
         @Override
-        protected HashCode getHashCode(FileVisitDetails fileDetails) {
+        protected HashCode getHashCode(FileTreeElement fileDetails) {
             InputStream inputStream = fileDetails.open();
             try {
                 return hasher.hash(inputStream);
@@ -126,18 +186,170 @@ protected HashCode getHashCode(FileVisitDetails fileDetails) {
                 IoActions.closeQuietly(inputStream);
             }
         }
+
+        @Override
+        protected FileTreeElement detach(FileVisitDetails fileDetails) {
+            InputStream inputStream = fileDetails.open();
+            try {
+                return new BufferedClassFile(fileDetails, ByteStreams.toByteArray(inputStream));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                IoActions.closeQuietly(inputStream);
+            }
+        }
     }
 
     private class DirectoryEntryVisitor extends EntryVisitor {
 
-        public DirectoryEntryVisitor(ClassDependentsAccumulator accumulator, Map<String, HashCode> hashes) {
-            super(accumulator, hashes);
+        public DirectoryEntryVisitor(List<ClassFile> classFiles, @Nullable Action<List<ClassFile>> batchAction) {
+            super(classFiles, batchAction);
         }
 
         @Override
-        protected HashCode getHashCode(FileVisitDetails fileDetails) {
+        protected HashCode getHashCode(FileTreeElement fileDetails) {
             return fileHasher.hash(fileDetails.getFile(), fileDetails.getSize(), fileDetails.getLastModified());
         }
+
+        @Override
+        protected FileTreeElement detach(FileVisitDetails fileDetails) {
+            return fileDetails;
+        }
+    }
+
+    private class ClassFile {
+        private final String name;
+        private final HashCode hash;
+        // Released once analyzed, as it holds the content of a class read from a jar
+        private FileTreeElement details;
+        private ClassAnalysis analysis;
+        private Exception failure;
+
+        private ClassFile(FileTreeElement details, HashCode hash) {
+            this.name = details.getName();
+            this.details = details;
+            this.hash = hash;
+        }
+
+        void analyze() {
+            try {
+                analysis = analyzer.getClassAnalysis(hash, details);
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                details = null;
+            }
+        }
+
+        void addTo(ClassDependentsAccumulator accumulator, Map<String, HashCode> hashes) {
+            if (failure == null) {
+                accumulator.addClass(analysis);
+                hashes.put(analysis.getClassName(), hash);
+            } else {
+                accumulator.fullRebuildNeeded(name + " could not be analyzed for incremental compilation. See the debug log for more details");
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Could not analyze " + name + " for incremental compilation", failure);
+                }
+            }
+        }
+    }
+
+    private class AnalyzeClasses implements RunnableBuildOperation {
+        private final File classpathEntry;
+        private final List<ClassFile> classFiles;
+
+        private AnalyzeClasses(File classpathEntry, List<ClassFile> classFiles) {
+            this.classpathEntry = classpathEntry;
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            for (ClassFile classFile : classFiles) {
+                classFile.analyze();
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Analyze " + classFiles.size() + " classes of " + classpathEntry + " for incremental compilation");
+        }
     }
 
+    /**
+     * A class file from a jar, with its content read into memory so that it can be analyzed after the jar has been closed.
+     */
+    private static class BufferedClassFile implements FileTreeElement {
+        private final FileVisitDetails details;
+        private final byte[] content;
+
+        private BufferedClassFile(FileVisitDetails details, byte[] content) {
+            this.details = details;
+            this.content = content;
+        }
+
+        @Override
+        public File getFile() {
+            return details.getFile();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public long getLastModified() {
+            return details.getLastModified();
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void copyTo(OutputStream output) {
+            try {
+                output.write(content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean copyTo(File target) {
+            return details.copyTo(target);
+        }
+
+        @Override
+        public String getName() {
+            return details.getName();
+        }
+
+        @Override
+        public String getPath() {
+            return details.getPath();
+        }
+
+        @Override
+        public RelativePath getRelativePath() {
+            return details.getRelativePath();
+        }
+
+        @Override
+        public int getMode() {
+            return details.getMode();
+        }
+
+        @Override
+        public String toString() {
+            return details.toString();
+        }
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Subject
+
+import javax.tools.JavaCompiler
+import javax.tools.StandardJavaFileManager
+
+class JavaFileManagerCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider(getClass())
+
+    def compiler = Mock(JavaCompiler)
+    @Subject
+    def cache = new JavaFileManagerCache(1024 * 1024)
+
+    def "reuses file manager once released"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        def jar = temp.file("lib.jar") << "content"
+
+        when:
+        def first = cache.acquire(compiler, null, ["-g"], [jar])
+        first.close()
+        def second = cache.acquire(compiler, null, ["-g"], [jar])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        1 * fileManager.flush()
+        0 * fileManager.close()
+        second.fileManager.is(fileManager)
+        cache.size() == 0
+    }
+
+    def "does not share file manager between concurrent compilations"() {
+        def firstFileManager = Mock(StandardJavaFileManager)
+        def secondFileManager = Mock(StandardJavaFileManager)
+        def jar = temp.file("lib.jar") << "content"
+
+        when:
+        def first = cache.acquire(compiler, null, [], [jar])
+        def second = cache.acquire(compiler, null, [], [jar])
+
+        then:
+        2 * compiler.getStandardFileManager(null, null, null) >>> [firstFileManager, secondFileManager]
+        first.fileManager.is(firstFileManager)
+        second.fileManager.is(secondFileManager)
+
+        when:
+        first.close()
+        second.close()
+
+        then:
+        0 * firstFileManager.close()
+        1 * secondFileManager.close()
+        cache.size() == 1
+    }
+
+    def "does not reuse file manager when classpath or options change"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        def jar = temp.file("lib.jar") << "content"
+
+        when:
+        cache.acquire(compiler, null, [], [jar]).close()
+        cache.acquire(compiler, null, ["-g"], [jar])
+
+        then:
+        2 * compiler.getStandardFileManager(null, null, null) >> fileManager
+
+        when:
+        jar << "more content"
+        cache.acquire(compiler, null, [], [jar])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+    }
+
+    def "closes file managers evicted because of their size"() {
+        def smallCache = new JavaFileManagerCache(1)
+        def fileManager = Mock(StandardJavaFileManager)
+        def jar = temp.file("lib.jar") << ("x" * 4096)
+
+        when:
+        smallCache.acquire(compiler, null, [], [jar]).close()
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        1 * fileManager.close()
+        smallCache.size() == 0
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.classpath
 
+import it.unimi.dsi.fastutil.ints.IntSets
 import org.gradle.api.file.ConfigurableFileTree
 import org.gradle.api.file.FileVisitor
 import org.gradle.api.internal.file.DefaultFileVisitDetails
@@ -25,6 +26,7 @@ import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis
 import org.gradle.internal.hash.FileHasher
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.hash.StreamHasher
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
 import org.junit.Rule
@@ -85,4 +87,31 @@ class DefaultClasspathEntrySnapshotterTest extends Specification {
         snapshot.hashes == ["Foo": f1Hash, "com.Foo2": f2Hash]
         snapshot.classAnalysis
     }
+
+    def "analyzes classes of large entries in batches"() {
+        def buildOperationExecutor = new TestBuildOperationExecutor()
+        def parallelSnapshotter = new DefaultClasspathEntrySnapshotter(fileHasher, streamHasher, classDependenciesAnalyzer, fileOperations, buildOperationExecutor)
+        def entry = temp.file("foo")
+        def classFiles = (0..<1200).collect { temp.createFile("foo/Foo${it}.class") }
+        def fileTree = Mock(ConfigurableFileTree)
+
+        when:
+        def snapshot = parallelSnapshotter.createSnapshot(HashCode.fromInt(123), entry)
+
+        then:
+        1 * fileOperations.fileTree(entry) >> fileTree
+        1 * fileTree.visit(_) >> { FileVisitor visitor ->
+            classFiles.each { visitor.visitFile(new DefaultFileVisitDetails(it, null, null)) }
+        }
+        1200 * fileHasher.hash(_, _, _) >> { File file, long length, long lastModified -> HashCode.fromInt(file.name.hashCode()) }
+        1200 * classDependenciesAnalyzer.getClassAnalysis(_, _) >> { HashCode hash, details ->
+            new ClassAnalysis(details.name - ".class", [] as Set, [] as Set, false, IntSets.EMPTY_SET)
+        }
+
+        and:
+        buildOperationExecutor.operations*.displayName.findAll { it.startsWith("Analyze") }.size() == 2
+        snapshot.hashes.size() == 1200
+        snapshot.hashes["Foo1199"] == HashCode.fromInt("Foo1199.class".hashCode())
+        snapshot.classes.size() == 1200
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.logging.sink;
+
+import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.logging.events.LogEvent;
+import org.gradle.internal.time.Time;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+
+/**
+ * Measures how many log events per second many threads can send to a plain console, with events rendered on the producing threads
+ * or handed over to the rendering thread.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(32)
+@State(Scope.Benchmark)
+public class OutputEventRendererBenchmark {
+    @Param({"false", "true"})
+    boolean async;
+
+    private OutputEventRenderer renderer;
+
+    @Setup
+    public void setup() {
+        renderer = new OutputEventRenderer(Time.clock(), async);
+        renderer.addPlainConsole(new DiscardingOutputStream(), new DiscardingOutputStream());
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        renderer.flush();
+    }
+
+    @Benchmark
+    public void log() {
+        renderer.onOutput(new LogEvent(System.currentTimeMillis(), "category", LogLevel.LIFECYCLE, "Some log message of a typical length", null));
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
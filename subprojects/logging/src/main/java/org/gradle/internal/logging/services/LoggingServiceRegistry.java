@@ -114,6 +114,16 @@ public static LoggingServiceRegistry newNestedLogging() {
         return new NestedLogging();
     }
 
+    @Override
+    public void close() {
+        try {
+            // Render any output still queued while the destinations are open
+            renderer.stop();
+        } finally {
+            super.close();
+        }
+    }
+
     protected CommandLineConverter<LoggingConfiguration> createCommandLineConverter() {
         return new LoggingCommandLineConverter();
     }
@@ -21,6 +21,9 @@
 import org.gradle.api.logging.StandardOutputListener;
 import org.gradle.api.logging.configuration.ConsoleOutput;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.ThreadFactoryImpl;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.logging.config.LoggingRouter;
 import org.gradle.internal.logging.console.BuildLogLevelFilterRenderer;
@@ -54,14 +57,25 @@
 
 import javax.annotation.Nullable;
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A {@link OutputEventListener} implementation which renders output events to various
  * destinations. This implementation is thread-safe.
+ *
+ * <p>When the {@value #ASYNC_PROPERTY} system property is set, log and progress events are handed over to a single rendering thread
+ * through a bounded lock-free queue instead of being rendered on the thread producing them. A producer which finds the queue full renders
+ * the queued events itself, which slows down producers when the destinations cannot keep up. Flush, end and log level change events,
+ * as well as changes to the destinations, render all previously queued events before taking effect. Stopping the renderer renders the queued
+ * events and joins the rendering thread, after which events are rendered on the thread producing them.</p>
  */
 @ThreadSafe
-public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
+public class OutputEventRenderer implements OutputEventListener, LoggingRouter, Stoppable {
+    public static final String ASYNC_PROPERTY = "org.gradle.internal.logging.async";
+    private static final int QUEUE_CAPACITY = 8192;
+
     private final Object lock = new Object();
     private final AtomicReference<LogLevel> logLevel = new AtomicReference<LogLevel>(LogLevel.LIFECYCLE);
     private final Clock clock;
@@ -78,8 +92,20 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
     private ListenerBroadcast<StandardOutputListener> userStdoutListeners;
     private ListenerBroadcast<StandardOutputListener> userStderrListeners;
 
+    // Null when events are rendered on the producing thread
+    private final OutputEventRingBuffer queue;
+    private final AtomicBoolean renderingThreadStarted = new AtomicBoolean();
+    private final AtomicBoolean renderingThreadWaiting = new AtomicBoolean();
+    private volatile Thread renderingThread;
+    private volatile boolean stopped;
+
     public OutputEventRenderer(final Clock clock) {
+        this(clock, Boolean.getBoolean(ASYNC_PROPERTY));
+    }
+
+    public OutputEventRenderer(final Clock clock, boolean async) {
         this.clock = clock;
+        this.queue = async ? new OutputEventRingBuffer(QUEUE_CAPACITY) : null;
     }
 
     @Override
@@ -111,11 +137,13 @@ public void restore(Snapshot state) {
     }
 
     private void addChain(OutputEventListener listener) {
+        renderQueuedEvents();
         listener.onOutput(new LogLevelChangeEvent(logLevel.get()));
         formatters.add(listener);
     }
 
     private void removeChain(OutputEventListener listener) {
+        renderQueuedEvents();
         formatters.remove(listener);
         listener.onOutput(new EndOutputEvent());
     }
@@ -426,12 +454,99 @@ public void onOutput(OutputEvent event) {
                 return;
             }
             this.logLevel.set(newLogLevel);
+        } else if (queue != null && !stopped && !(event instanceof FlushOutputEvent) && !(event instanceof EndOutputEvent)) {
+            enqueue(event);
+            return;
         }
         synchronized (lock) {
+            renderQueuedEvents();
             transformer.onOutput(event);
         }
     }
 
+    private void enqueue(OutputEvent event) {
+        while (!queue.offer(event)) {
+            // The rendering thread is falling behind, help it out
+            synchronized (lock) {
+                renderQueuedEvents();
+            }
+        }
+        if (stopped) {
+            // Stopped while queueing the event, which may have been queued after the queue was last rendered
+            synchronized (lock) {
+                renderQueuedEvents();
+            }
+        } else if (renderingThread == null) {
+            startRenderingThread();
+        } else if (renderingThreadWaiting.get() && renderingThreadWaiting.compareAndSet(true, false)) {
+            LockSupport.unpark(renderingThread);
+        }
+    }
+
+    /**
+     * Renders the queued events. Must be called while holding the lock, which makes the caller the only consumer of the queue.
+     */
+    private void renderQueuedEvents() {
+        if (queue == null) {
+            return;
+        }
+        OutputEvent event = queue.poll();
+        while (event != null) {
+            transformer.onOutput(event);
+            event = queue.poll();
+        }
+    }
+
+    private void startRenderingThread() {
+        if (!renderingThreadStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new ThreadFactoryImpl("Output event renderer").newThread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    if (queue.isEmpty()) {
+                        if (stopped) {
+                            return;
+                        }
+                        renderingThreadWaiting.set(true);
+                        if (queue.isEmpty() && !stopped) {
+                            LockSupport.park(this);
+                        }
+                        renderingThreadWaiting.set(false);
+                        continue;
+                    }
+                    synchronized (lock) {
+                        renderQueuedEvents();
+                    }
+                }
+            }
+        });
+        thread.setDaemon(true);
+        renderingThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Renders the queued events and stops the rendering thread, if any.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        Thread thread = renderingThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        synchronized (lock) {
+            renderQueuedEvents();
+        }
+    }
+
     private boolean isProgressEvent(OutputEvent event) {
         return event instanceof ProgressStartEvent || event instanceof ProgressEvent || event instanceof ProgressCompleteEvent;
     }
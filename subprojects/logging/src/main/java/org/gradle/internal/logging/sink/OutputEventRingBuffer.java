@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.logging.sink;
+
+import org.gradle.internal.logging.events.OutputEvent;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded queue of output events which can be offered to by many threads without locking and is polled by a single consumer at a time.
+ *
+ * <p>Each slot carries a sequence number which tells producers and the consumer whose turn it is to use the slot, so a producer only has to
+ * claim a position with a single compare-and-set.</p>
+ */
+class OutputEventRingBuffer {
+    private final int mask;
+    private final AtomicReferenceArray<OutputEvent> events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    OutputEventRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.events = new AtomicReferenceArray<OutputEvent>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the given event to the queue, unless the queue is full.
+     *
+     * @return true when the event was added.
+     */
+    boolean offer(OutputEvent event) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events.lazySet(index, event);
+                    // Publish with a full barrier, so that the consumer either sees the event or is seen waiting for it
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (available < 0) {
+                // The consumer has not taken the event from the previous lap yet
+                return false;
+            }
+            // Another producer claimed the position, retry
+        }
+    }
+
+    /**
+     * Removes the oldest event from the queue. Must not be called concurrently.
+     *
+     * @return the event, or null when there is no event that has been completely published.
+     */
+    @Nullable
+    OutputEvent poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        OutputEvent event = events.get(index);
+        events.lazySet(index, null);
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return event;
+    }
+
+    boolean isEmpty() {
+        long position = head;
+        return sequences.get((int) position & mask) != position + 1;
+    }
+}
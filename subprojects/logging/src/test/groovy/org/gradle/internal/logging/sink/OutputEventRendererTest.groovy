@@ -472,6 +472,56 @@ class OutputEventRendererTest extends OutputSpecification {
         outputs.stdOut == ''
         outputs.stdErr == ''
     }
+
+    def "renders events queued by concurrent producers in order when flushed"() {
+        def asyncRenderer = new OutputEventRenderer(Time.clock(), true)
+        def received = Collections.synchronizedList([])
+        asyncRenderer.addOutputEventListener({ event ->
+            if (event instanceof LogEvent) {
+                received << event.message
+            }
+        } as OutputEventListener)
+
+        when:
+        def threads = (0..<8).collect { thread ->
+            Thread.start {
+                10000.times { asyncRenderer.onOutput(event("${thread}:${it}", LogLevel.LIFECYCLE)) }
+            }
+        }
+        threads*.join()
+        asyncRenderer.flush()
+
+        then:
+        received.size() == 80000
+        (0..<8).every { thread -> received.findAll { it.startsWith("${thread}:") } == (0..<10000).collect { "${thread}:${it}" } }
+    }
+
+    def "renders events queued before stop and stops the rendering thread"() {
+        def asyncRenderer = new OutputEventRenderer(Time.clock(), true)
+        def received = Collections.synchronizedList([])
+        Thread renderedOn = null
+        asyncRenderer.addOutputEventListener({ event ->
+            if (event instanceof LogEvent) {
+                renderedOn = Thread.currentThread()
+                received << event.message
+            }
+        } as OutputEventListener)
+        1000.times { asyncRenderer.onOutput(event("queued:${it}", LogLevel.LIFECYCLE)) }
+
+        when:
+        asyncRenderer.stop()
+
+        then:
+        received == (0..<1000).collect { "queued:${it}" }
+        !asyncRenderer.renderingThread.alive
+
+        when:
+        asyncRenderer.onOutput(event("after stop", LogLevel.LIFECYCLE))
+
+        then:
+        received.last() == "after stop"
+        renderedOn == Thread.currentThread()
+    }
 }
 
 class TestListener implements StandardOutputListener {
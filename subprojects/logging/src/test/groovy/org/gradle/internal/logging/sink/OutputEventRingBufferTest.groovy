@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.logging.sink
+
+import org.gradle.internal.logging.events.OutputEvent
+import spock.lang.Specification
+
+class OutputEventRingBufferTest extends Specification {
+    def queue = new OutputEventRingBuffer(4)
+
+    def "polls events in the order they were offered"() {
+        def events = (1..3).collect { Stub(OutputEvent) }
+
+        when:
+        events.each { assert queue.offer(it) }
+
+        then:
+        queue.poll().is(events[0])
+        queue.poll().is(events[1])
+        queue.poll().is(events[2])
+        queue.poll() == null
+        queue.isEmpty()
+    }
+
+    def "rejects events when full until events are polled"() {
+        def events = (1..5).collect { Stub(OutputEvent) }
+
+        expect:
+        events.take(4).every { queue.offer(it) }
+        !queue.offer(events[4])
+
+        queue.poll().is(events[0])
+        queue.offer(events[4])
+        (1..4).collect { queue.poll() } == events.drop(1)
+        queue.isEmpty()
+    }
+
+    def "requires a capacity which is a power of two"() {
+        when:
+        new OutputEventRingBuffer(6)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import org.gradle.internal.remote.internal.KryoBackedMessageSerializer;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Measures how many messages per second can be sent over a loopback socket connection, for messages dispatched in batches the
+ * way the message hub does it.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class SocketConnectionBenchmark {
+    private static final int MESSAGES_PER_BATCH = 100;
+
+    @Param({"false", "true"})
+    boolean sharedSelectors;
+
+    @Param({"64", "8192"})
+    int messageSize;
+
+    private ServerSocketChannel server;
+    private SocketConnection<String> sender;
+    private SocketConnection<String> receiver;
+    private Thread receiverThread;
+    private String message;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty(SharedSelectorLoop.ENABLED_PROPERTY, String.valueOf(sharedSelectors));
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress());
+        sender = connection(client);
+        receiver = connection(server.accept());
+        receiverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (receiver.receive() != null) {
+                    // Keep draining
+                }
+            }
+        });
+        receiverThread.start();
+
+        StringBuilder builder = new StringBuilder(messageSize);
+        for (int i = 0; i < messageSize; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        message = builder.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        sender.stop();
+        receiverThread.join();
+        receiver.stop();
+        server.close();
+        System.clearProperty(SharedSelectorLoop.ENABLED_PROPERTY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_PER_BATCH)
+    public void dispatchBatch() {
+        for (int i = 0; i < MESSAGES_PER_BATCH; i++) {
+            sender.dispatch(message);
+        }
+        sender.flush();
+    }
+
+    private static SocketConnection<String> connection(SocketChannel channel) {
+        return new SocketConnection<String>(channel, new KryoBackedMessageSerializer(), Serializers.stateful(BaseSerializerFactory.STRING_SERIALIZER));
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal;
+
+/**
+ * A {@link RemoteConnection} which can notify when a message can be received, so that no thread has to wait for messages from a quiet peer.
+ */
+public interface EventDrivenConnection<T> extends RemoteConnection<T> {
+    /**
+     * Whether this connection can notify when a message can be received. When it cannot, a thread has to wait in {@link #receive()} as for any other connection.
+     */
+    boolean isEventDriven();
+
+    /**
+     * Whether input has already been read from the peer, so that {@link #receive()} can make progress without waiting for the peer.
+     */
+    boolean hasBufferedInput();
+
+    /**
+     * Runs the given action on an I/O thread once input can be read from the peer, or the connection has been closed.
+     */
+    void whenReadable(Runnable action);
+
+    /**
+     * Runs the given action on an I/O thread.
+     */
+    void execute(Runnable action);
+}
@@ -18,20 +18,23 @@
 
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.FlushableEncoder;
-import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
-import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedEncoder;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 
+/**
+ * Encodes the messages of a connection using Kryo. Short strings are sent only once per connection and referred to by index afterwards.
+ */
 public class KryoBackedMessageSerializer implements MessageSerializer {
     @Override
     public Decoder newDecoder(InputStream inputStream) {
-        return new KryoBackedDecoder(inputStream);
+        return new BoundedStringDeduplicatingKryoBackedDecoder(inputStream);
     }
 
     @Override
     public FlushableEncoder newEncoder(OutputStream outputStream) {
-        return new KryoBackedEncoder(outputStream);
+        return new BoundedStringDeduplicatingKryoBackedEncoder(outputStream);
     }
 }
@@ -18,12 +18,14 @@
 
 import org.gradle.api.Action;
 import org.gradle.internal.Cast;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.AsyncStoppable;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.dispatch.BoundedDispatch;
 import org.gradle.internal.dispatch.Dispatch;
 import org.gradle.internal.remote.internal.Connection;
+import org.gradle.internal.remote.internal.EventDrivenConnection;
 import org.gradle.internal.remote.internal.RecoverableMessageIOException;
 import org.gradle.internal.remote.internal.RemoteConnection;
 import org.gradle.internal.remote.internal.hub.protocol.*;
@@ -31,6 +33,7 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -51,6 +54,8 @@ private enum State {Running, Stopping, Stopped}
     private final String displayName;
     private final Action<? super Throwable> errorHandler;
     private final Lock lock = new ReentrantLock();
+    private final Condition eventDrivenTasksChanged = lock.newCondition();
+    private int eventDrivenTasks;
     private State state = State.Running;
     private final IncomingQueue incomingQueue = new IncomingQueue(lock);
     private final OutgoingQueue outgoingQueue = new OutgoingQueue(incomingQueue, lock);
@@ -139,6 +144,9 @@ public void addHandler(String channelName, Object handler) {
     /**
      * Adds a connection to some other message hub. Outgoing messages are forwarded to this connection, and incoming messages are received from it.
      *
+     * <p>An {@link EventDrivenConnection} is only serviced by a thread while it has messages to send or to receive. Any other connection
+     * has a thread waiting for messages to send and another waiting for messages to receive.</p>
+     *
      * <p>Does not cleanup connections on stop or disconnect. It is the caller's responsibility to manage the connection lifecycle.</p>
      */
     public void addConnection(RemoteConnection<InterHubMessage> connection) {
@@ -146,8 +154,15 @@ public void addConnection(RemoteConnection<InterHubMessage> connection) {
         try {
             assertRunning("add connection");
             ConnectionState connectionState = connections.add(connection);
-            workers.execute(new ConnectionDispatch(connectionState));
-            workers.execute(new ConnectionReceive(connectionState));
+            if (connection instanceof EventDrivenConnection && ((EventDrivenConnection<?>) connection).isEventDriven()) {
+                EventDrivenConnection<InterHubMessage> eventDrivenConnection = Cast.uncheckedNonnullCast(connection);
+                eventDrivenTasks += 2;
+                eventDrivenConnection.execute(new EventDrivenConnectionDispatch(connectionState, eventDrivenConnection));
+                eventDrivenConnection.whenReadable(new EventDrivenConnectionReceive(connectionState, eventDrivenConnection));
+            } else {
+                workers.execute(new ConnectionDispatch(connectionState));
+                workers.execute(new ConnectionReceive(connectionState));
+            }
         } finally {
             lock.unlock();
         }
@@ -209,7 +224,7 @@ public void requestStop() {
      *
      * <li>All dispatches to handlers have completed.</li>
      *
-     * <li>All internal threads have completed.</li>
+     * <li>All internal threads have completed, and no I/O thread is sending or receiving messages for an {@link EventDrivenConnection}.</li>
      *
      * </ul>
      */
@@ -219,6 +234,11 @@ public void stop() {
             lock.lock();
             try {
                 requestStop();
+                while (eventDrivenTasks > 0) {
+                    eventDrivenTasksChanged.await();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
             } finally {
                 lock.unlock();
             }
@@ -291,6 +311,60 @@ public void run() {
         }
     }
 
+    /**
+     * Receives the messages which can be received without waiting for the peer, then asks the connection to run it again once more input is available.
+     */
+    private class EventDrivenConnectionReceive implements Runnable {
+        private final EventDrivenConnection<InterHubMessage> connection;
+        private final ConnectionState connectionState;
+
+        EventDrivenConnectionReceive(ConnectionState connectionState, EventDrivenConnection<InterHubMessage> connection) {
+            this.connection = connection;
+            this.connectionState = connectionState;
+        }
+
+        @Override
+        public void run() {
+            boolean finished = true;
+            try {
+                try {
+                    do {
+                        InterHubMessage message;
+                        try {
+                            message = connection.receive();
+                        } catch (RecoverableMessageIOException e) {
+                            addToIncoming(new StreamFailureMessage(e));
+                            continue;
+                        }
+                        if (message == null || message instanceof EndOfStream) {
+                            return;
+                        }
+                        addToIncoming(message);
+                    } while (connection.hasBufferedInput());
+                    connection.whenReadable(this);
+                    finished = false;
+                } finally {
+                    if (finished) {
+                        lock.lock();
+                        try {
+                            connectionState.receiveFinished();
+                            eventDrivenTaskFinished();
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                errorHandler.execute(e);
+            }
+        }
+    }
+
+    private void eventDrivenTaskFinished() {
+        eventDrivenTasks--;
+        eventDrivenTasksChanged.signalAll();
+    }
+
     private void addToIncoming(InterHubMessage message) {
         lock.lock();
         try {
@@ -351,6 +425,73 @@ public void run() {
         }
     }
 
+    /**
+     * Sends the queued messages, then asks the queue to run it again on an I/O thread of the connection once more messages are queued.
+     */
+    private class EventDrivenConnectionDispatch implements Runnable {
+        private final EventDrivenConnection<InterHubMessage> connection;
+        private final EndPointQueue queue;
+        private final ConnectionState connectionState;
+        private final Runnable scheduleDispatch = new Runnable() {
+            @Override
+            public void run() {
+                connection.execute(EventDrivenConnectionDispatch.this);
+            }
+        };
+
+        private EventDrivenConnectionDispatch(ConnectionState connectionState, EventDrivenConnection<InterHubMessage> connection) {
+            this.connection = connection;
+            this.queue = connectionState.getDispatchQueue();
+            this.connectionState = connectionState;
+        }
+
+        @Override
+        public void run() {
+            boolean finished = true;
+            try {
+                List<InterHubMessage> messages = new ArrayList<InterHubMessage>();
+                try {
+                    while (true) {
+                        lock.lock();
+                        try {
+                            if (!queue.takeOrNotify(messages, scheduleDispatch)) {
+                                finished = false;
+                                return;
+                            }
+                        } finally {
+                            lock.unlock();
+                        }
+                        for (InterHubMessage message : messages) {
+                            try {
+                                connection.dispatch(message);
+                            } catch (RecoverableMessageIOException e) {
+                                addToIncoming(new StreamFailureMessage(e));
+                            }
+                            if (message instanceof EndOfStream) {
+                                connection.flush();
+                                return;
+                            }
+                        }
+                        connection.flush();
+                        messages.clear();
+                    }
+                } finally {
+                    if (finished) {
+                        lock.lock();
+                        try {
+                            connectionState.dispatchFinished();
+                            eventDrivenTaskFinished();
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                errorHandler.execute(t);
+            }
+        }
+    }
+
     private class ChannelDispatch<T> implements Dispatch<T> {
         private final Class<T> type;
         private final ChannelIdentifier channelIdentifier;
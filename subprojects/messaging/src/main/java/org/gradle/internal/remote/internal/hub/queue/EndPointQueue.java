@@ -29,6 +29,7 @@ public class EndPointQueue implements Dispatch<InterHubMessage> {
     private final List<InterHubMessage> queue = new ArrayList<InterHubMessage>();
     private final MultiEndPointQueue owner;
     private final Condition condition;
+    private Runnable whenAvailable;
 
     public EndPointQueue(MultiEndPointQueue owner, Condition condition) {
         this.owner = owner;
@@ -39,6 +40,11 @@ public EndPointQueue(MultiEndPointQueue owner, Condition condition) {
     public void dispatch(InterHubMessage message) {
         queue.add(message);
         condition.signalAll();
+        if (whenAvailable != null) {
+            Runnable action = whenAvailable;
+            whenAvailable = null;
+            action.run();
+        }
     }
 
     public void take(Collection<InterHubMessage> drainTo) {
@@ -56,6 +62,25 @@ public void take(Collection<InterHubMessage> drainTo) {
         queue.clear();
     }
 
+    /**
+     * Drains the queued messages without waiting. When there are none, the given action is run once a message has been queued.
+     * The action runs while holding the lock of the queue, so it should only hand the work off to another thread.
+     *
+     * @return false when there were no messages.
+     */
+    public boolean takeOrNotify(Collection<InterHubMessage> drainTo, Runnable whenAvailable) {
+        if (queue.isEmpty()) {
+            owner.empty(this);
+            if (queue.isEmpty()) {
+                this.whenAvailable = whenAvailable;
+                return false;
+            }
+        }
+        drainTo.addAll(queue);
+        queue.clear();
+        return true;
+    }
+
     public void stop() {
         owner.stopped(this);
     }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Blocks the calling thread until a non-blocking socket channel can be read from or written to.
+ */
+interface ChannelReadiness extends Closeable {
+    /**
+     * Blocks until the channel is readable.
+     *
+     * @return false when this object has been closed while or before waiting.
+     */
+    boolean awaitReadable() throws IOException;
+
+    /**
+     * Blocks until the channel is writable.
+     *
+     * @return false when this object has been closed while or before waiting.
+     */
+    boolean awaitWritable() throws IOException;
+
+    /**
+     * Wakes up any waiting threads. Does not close the channel.
+     */
+    @Override
+    void close() throws IOException;
+}
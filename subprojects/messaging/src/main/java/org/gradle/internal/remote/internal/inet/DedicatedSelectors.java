@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import org.gradle.internal.concurrent.CompositeStoppable;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Waits for a channel using selectors owned by the connection, one for reading and one, created on demand, for writing.
+ */
+class DedicatedSelectors implements ChannelReadiness {
+    private final SocketChannel socket;
+    private final Selector readSelector;
+    private Selector writeSelector;
+    private boolean closed;
+
+    DedicatedSelectors(SocketChannel socket) throws IOException {
+        this.socket = socket;
+        readSelector = Selector.open();
+        socket.register(readSelector, SelectionKey.OP_READ);
+    }
+
+    @Override
+    public boolean awaitReadable() throws IOException {
+        try {
+            readSelector.select();
+        } catch (ClosedSelectorException e) {
+            return false;
+        }
+        return readSelector.isOpen();
+    }
+
+    @Override
+    public boolean awaitWritable() throws IOException {
+        Selector selector;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (writeSelector == null) {
+                writeSelector = Selector.open();
+            }
+            selector = writeSelector;
+        }
+        try {
+            SelectionKey key = socket.register(selector, SelectionKey.OP_WRITE);
+            // block until ready for write operations
+            selector.select();
+            // cancel OP_WRITE selection
+            key.cancel();
+            // complete cancelling key
+            selector.selectNow();
+        } catch (ClosedSelectorException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        Selector selector;
+        synchronized (this) {
+            closed = true;
+            selector = writeSelector;
+        }
+        CompositeStoppable.stoppable(readSelector, selector).stop();
+    }
+}
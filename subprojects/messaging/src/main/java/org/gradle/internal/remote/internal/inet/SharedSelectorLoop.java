@@ -0,0 +1,422 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.ThreadFactoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Multiplexes the readiness notifications of many socket connections over a small number of selector threads, instead of
+ * opening selectors for each connection.
+ *
+ * <p>The threads of a connection can either block on this loop when the channel is not ready, or ask to be notified once it is readable.
+ * Notifications run on a pool of I/O threads shared by all connections, so that a connection with no input does not need a thread.
+ * Interest in an operation is registered on demand and dropped again once it has been signalled, so that an idle connection
+ * does not cost the loop anything.</p>
+ *
+ * <p>The loop shared by the connections of a process stops its threads once the last channel registered with it is closed, and is replaced
+ * by a new loop when another channel is registered.</p>
+ *
+ * <p>This is an opt-in feature, enabled with the {@value #ENABLED_PROPERTY} system property.</p>
+ */
+public class SharedSelectorLoop implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.remote.shared-selectors";
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedSelectorLoop.class);
+    private static SharedSelectorLoop instance;
+
+    private final SelectorThread[] threads;
+    private final ExecutorService ioExecutor;
+    private final AtomicInteger nextThread = new AtomicInteger();
+    private final List<Registration> registrations = new ArrayList<Registration>();
+    private final boolean stopWhenIdle;
+    private boolean stopped;
+
+    SharedSelectorLoop(int threadCount) {
+        this(threadCount, false);
+    }
+
+    private SharedSelectorLoop(int threadCount, boolean stopWhenIdle) {
+        this.stopWhenIdle = stopWhenIdle;
+        ThreadFactory selectorThreadFactory = daemonThreads(new ThreadFactoryImpl("Socket selector"));
+        threads = new SelectorThread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new SelectorThread(openSelector());
+            selectorThreadFactory.newThread(threads[i]).start();
+        }
+        ioExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), daemonThreads(new ThreadFactoryImpl("Socket connection I/O")));
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Starts tracking the given channel with the loop shared by the connections of this process, starting the loop when required.
+     */
+    static synchronized Registration registerWithSharedLoop(SocketChannel channel) {
+        if (instance == null || instance.isStopped()) {
+            instance = new SharedSelectorLoop(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 4)), true);
+        }
+        return instance.register(channel);
+    }
+
+    /**
+     * Starts tracking the given channel, which must be in non-blocking mode. Closing the returned object stops tracking the channel.
+     */
+    synchronized Registration register(SocketChannel channel) {
+        if (stopped) {
+            throw new IllegalStateException("Cannot register a channel, as the socket selector loop has been stopped.");
+        }
+        SelectorThread thread = threads[Math.abs(nextThread.getAndIncrement() % threads.length)];
+        Registration registration = new Registration(this, thread, channel);
+        registrations.add(registration);
+        return registration;
+    }
+
+    private synchronized boolean isStopped() {
+        return stopped;
+    }
+
+    private void released(Registration registration) {
+        boolean idle;
+        synchronized (this) {
+            registrations.remove(registration);
+            idle = registrations.isEmpty();
+        }
+        if (idle && stopWhenIdle) {
+            synchronized (SharedSelectorLoop.class) {
+                synchronized (this) {
+                    // Another channel may have been registered in the meantime
+                    if (!registrations.isEmpty()) {
+                        return;
+                    }
+                    if (instance == this) {
+                        instance = null;
+                    }
+                }
+            }
+            stop();
+        }
+    }
+
+    /**
+     * Wakes up any thread waiting for a channel registered with this loop, and stops the selector and I/O threads.
+     */
+    @Override
+    public void stop() {
+        List<Registration> remaining;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            remaining = new ArrayList<Registration>(registrations);
+            registrations.clear();
+        }
+        for (Registration registration : remaining) {
+            registration.cancel();
+        }
+        for (SelectorThread thread : threads) {
+            thread.stop();
+        }
+        ioExecutor.shutdown();
+    }
+
+    private static ThreadFactory daemonThreads(final ThreadFactory threadFactory) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = threadFactory.newThread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static Selector openSelector() {
+        try {
+            return Selector.open();
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static class SelectorThread implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> pendingChanges = new ConcurrentLinkedQueue<Runnable>();
+        private volatile boolean stopped;
+
+        SelectorThread(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * Selection keys are only ever changed by the selector thread, as changing them while it is selecting can block.
+         */
+        void submit(Runnable change) {
+            if (stopped) {
+                // The selector is closed along with its keys
+                return;
+            }
+            pendingChanges.add(change);
+            selector.wakeup();
+        }
+
+        void stop() {
+            stopped = true;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    select();
+                }
+            } finally {
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Could not close socket selector.", e);
+                }
+            }
+        }
+
+        private void select() {
+            try {
+                selector.select();
+                Runnable change;
+                while ((change = pendingChanges.poll()) != null) {
+                    change.run();
+                }
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    Registration registration = (Registration) key.attachment();
+                    try {
+                        int readyOps = key.readyOps();
+                        key.interestOps(key.interestOps() & ~readyOps);
+                        registration.signal(readyOps);
+                    } catch (CancelledKeyException e) {
+                        // The channel has been closed, wake up anything still waiting for it
+                        registration.cancel();
+                    }
+                }
+            } catch (Throwable t) {
+                LOGGER.error("Unexpected failure in socket selector loop.", t);
+            }
+        }
+    }
+
+    /**
+     * The readiness of a channel registered with the loop.
+     */
+    static class Registration implements ChannelReadiness {
+        private final SharedSelectorLoop loop;
+        private final SelectorThread thread;
+        private final SocketChannel channel;
+        private final Lock lock = new ReentrantLock();
+        private final Condition stateChanged = lock.newCondition();
+        private SelectionKey key;
+        private int requestedOps;
+        private int readyOps;
+        private Runnable whenReadable;
+        private boolean closed;
+
+        Registration(SharedSelectorLoop loop, SelectorThread thread, SocketChannel channel) {
+            this.loop = loop;
+            this.thread = thread;
+            this.channel = channel;
+        }
+
+        @Override
+        public boolean awaitReadable() throws IOException {
+            return await(SelectionKey.OP_READ);
+        }
+
+        @Override
+        public boolean awaitWritable() throws IOException {
+            return await(SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Runs the given action on an I/O thread of the loop once the channel is readable or this registration has been closed.
+         * Only one action can be waiting at a time.
+         */
+        void whenReadable(Runnable action) {
+            lock.lock();
+            try {
+                if (!closed && (readyOps & SelectionKey.OP_READ) == 0) {
+                    whenReadable = action;
+                    requestInterest(SelectionKey.OP_READ);
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            execute(action);
+        }
+
+        /**
+         * Runs the given action on an I/O thread of the loop, or on the calling thread once the loop has been stopped.
+         * Must not be called while holding the lock of this registration.
+         */
+        void execute(Runnable action) {
+            try {
+                loop.ioExecutor.execute(action);
+            } catch (RejectedExecutionException e) {
+                // The loop has been stopped
+                action.run();
+            }
+        }
+
+        private boolean await(int op) throws IOException {
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        return false;
+                    }
+                    if ((readyOps & op) != 0) {
+                        readyOps &= ~op;
+                        return true;
+                    }
+                    requestInterest(op);
+                    stateChanged.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void requestInterest(final int op) {
+            if ((requestedOps & op) == 0) {
+                requestedOps |= op;
+                thread.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        addInterest(op);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Called on the selector thread.
+         */
+        private void addInterest(int op) {
+            try {
+                if (key == null) {
+                    key = channel.register(thread.selector, op, this);
+                } else {
+                    key.interestOps(key.interestOps() | op);
+                }
+            } catch (Exception e) {
+                // The channel or the key has been closed
+                cancel();
+            }
+        }
+
+        /**
+         * Called on the selector thread.
+         */
+        private void signal(int ops) {
+            Runnable action = null;
+            lock.lock();
+            try {
+                readyOps |= ops;
+                requestedOps &= ~ops;
+                if ((ops & SelectionKey.OP_READ) != 0) {
+                    // Leave the channel marked as readable, so that the action does not wait for another notification before reading
+                    action = whenReadable;
+                    whenReadable = null;
+                }
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (action != null) {
+                execute(action);
+            }
+        }
+
+        /**
+         * Wakes up anything waiting for the channel, without giving up the registration.
+         */
+        private void cancel() {
+            Runnable action;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                action = whenReadable;
+                whenReadable = null;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (action != null) {
+                execute(action);
+            }
+            thread.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (key != null) {
+                        key.cancel();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            cancel();
+            loop.released(this);
+        }
+    }
+}
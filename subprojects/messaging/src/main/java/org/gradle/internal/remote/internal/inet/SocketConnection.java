@@ -20,35 +20,42 @@
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.io.BufferCaster;
+import org.gradle.internal.remote.internal.EventDrivenConnection;
 import org.gradle.internal.remote.internal.RecoverableMessageIOException;
+import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.FlushableEncoder;
 import org.gradle.internal.serialize.ObjectReader;
 import org.gradle.internal.serialize.ObjectWriter;
 import org.gradle.internal.serialize.StatefulSerializer;
 import org.gradle.internal.remote.internal.MessageIOException;
 import org.gradle.internal.remote.internal.MessageSerializer;
-import org.gradle.internal.remote.internal.RemoteConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.nio.channels.ClosedSelectorException;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
+import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class SocketConnection<T> implements RemoteConnection<T> {
+public class SocketConnection<T> implements EventDrivenConnection<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(SocketConnection.class);
     private final SocketChannel socket;
     private final SocketInetAddress localAddress;
     private final SocketInetAddress remoteAddress;
     private final ObjectWriter<T> objectWriter;
     private final ObjectReader<T> objectReader;
-    private final InputStream instr;
-    private final OutputStream outstr;
+    private final ChannelReadiness readiness;
+    @Nullable
+    private final SharedSelectorLoop.Registration sharedLoopRegistration;
+    private final SocketInputStream instr;
+    private final SocketOutputStream outstr;
     private final FlushableEncoder encoder;
+    private final Decoder decoder;
+    private final AtomicLong messagesReceived = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
 
     public SocketConnection(SocketChannel socket, MessageSerializer streamSerializer, StatefulSerializer<T> messageSerializer) {
         this.socket = socket;
@@ -56,8 +63,15 @@ public SocketConnection(SocketChannel socket, MessageSerializer streamSerializer
             // NOTE: we use non-blocking IO as there is no reliable way when using blocking IO to shutdown reads while
             // keeping writes active. For example, Socket.shutdownInput() does not work on Windows.
             socket.configureBlocking(false);
-            outstr = new SocketOutputStream(socket);
-            instr = new SocketInputStream(socket);
+            if (SharedSelectorLoop.isEnabled()) {
+                sharedLoopRegistration = SharedSelectorLoop.registerWithSharedLoop(socket);
+                readiness = sharedLoopRegistration;
+            } else {
+                sharedLoopRegistration = null;
+                readiness = new DedicatedSelectors(socket);
+            }
+            outstr = new SocketOutputStream(socket, readiness);
+            instr = new SocketInputStream(socket, readiness);
         } catch (IOException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
@@ -65,7 +79,8 @@ public SocketConnection(SocketChannel socket, MessageSerializer streamSerializer
         localAddress = new SocketInetAddress(localSocketAddress.getAddress(), localSocketAddress.getPort());
         InetSocketAddress remoteSocketAddress = (InetSocketAddress) socket.socket().getRemoteSocketAddress();
         remoteAddress = new SocketInetAddress(remoteSocketAddress.getAddress(), remoteSocketAddress.getPort());
-        objectReader = messageSerializer.newReader(streamSerializer.newDecoder(instr));
+        decoder = streamSerializer.newDecoder(instr);
+        objectReader = messageSerializer.newReader(decoder);
         encoder = streamSerializer.newEncoder(outstr);
         objectWriter = messageSerializer.newWriter(encoder);
     }
@@ -78,7 +93,9 @@ public String toString() {
     @Override
     public T receive() throws MessageIOException {
         try {
-            return objectReader.read();
+            T message = objectReader.read();
+            messagesReceived.incrementAndGet();
+            return message;
         } catch (EOFException e) {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Discarding EOFException: {}", e.toString());
@@ -95,6 +112,41 @@ public T receive() throws MessageIOException {
         }
     }
 
+    @Override
+    public boolean isEventDriven() {
+        return sharedLoopRegistration != null;
+    }
+
+    @Override
+    public boolean hasBufferedInput() {
+        try {
+            return instr.buffer.hasRemaining() || decoder.getInputStream().available() > 0;
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    @Override
+    public void whenReadable(Runnable action) {
+        if (hasBufferedInput()) {
+            execute(action);
+        } else {
+            eventDrivenRegistration().whenReadable(action);
+        }
+    }
+
+    @Override
+    public void execute(Runnable action) {
+        eventDrivenRegistration().execute(action);
+    }
+
+    private SharedSelectorLoop.Registration eventDrivenRegistration() {
+        if (sharedLoopRegistration == null) {
+            throw new UnsupportedOperationException(String.format("%s is not event driven.", this));
+        }
+        return sharedLoopRegistration;
+    }
+
     private static boolean isEndOfStream(Exception e) {
         if (e instanceof EOFException) {
             return true;
@@ -120,6 +172,7 @@ private static boolean isEndOfStream(Exception e) {
     public void dispatch(T message) throws MessageIOException {
         try {
             objectWriter.write(message);
+            messagesSent.incrementAndGet();
         } catch (ObjectStreamException e) {
             throw new RecoverableMessageIOException(String.format("Could not write message %s to '%s'.", message, remoteAddress), e);
         } catch (ClassNotFoundException e) {
@@ -148,19 +201,47 @@ public void stop() {
             public void close() throws IOException {
                 flush();
             }
-        }, instr, outstr, socket).stop();
+        }, readiness, socket).stop();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Stopped {}. Sent {} messages ({} bytes in {} writes), received {} messages ({} bytes in {} reads).",
+                this, messagesSent.get(), outstr.bytes.get(), outstr.writes.get(), messagesReceived.get(), instr.bytes.get(), instr.reads.get());
+        }
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    public long getBytesWritten() {
+        return outstr.bytes.get();
+    }
+
+    /**
+     * The number of writes to the socket. A much lower number than the number of messages sent means that messages are being batched.
+     */
+    public long getSocketWrites() {
+        return outstr.writes.get();
+    }
+
+    public long getBytesRead() {
+        return instr.bytes.get();
     }
 
     private static class SocketInputStream extends InputStream {
-        private final Selector selector;
+        private final ChannelReadiness readiness;
         private final ByteBuffer buffer;
         private final SocketChannel socket;
         private final byte[] readBuffer = new byte[1];
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong reads = new AtomicLong();
 
-        public SocketInputStream(SocketChannel socket) throws IOException {
+        public SocketInputStream(SocketChannel socket, ChannelReadiness readiness) {
             this.socket = socket;
-            selector = Selector.open();
-            socket.register(selector, SelectionKey.OP_READ);
+            this.readiness = readiness;
             buffer = ByteBuffer.allocateDirect(4096);
             BufferCaster.cast(buffer).limit(0);
         }
@@ -181,12 +262,7 @@ public int read(byte[] dest, int offset, int max) throws IOException {
             }
 
             if (buffer.remaining() == 0) {
-                try {
-                    selector.select();
-                } catch (ClosedSelectorException e) {
-                    return -1;
-                }
-                if (!selector.isOpen()) {
+                if (!readiness.awaitReadable()) {
                     return -1;
                 }
 
@@ -207,29 +283,31 @@ public int read(byte[] dest, int offset, int max) throws IOException {
                 if (nread < 0) {
                     return -1;
                 }
+                reads.incrementAndGet();
+                bytes.addAndGet(nread);
             }
 
             int count = Math.min(buffer.remaining(), max);
             buffer.get(dest, offset, count);
             return count;
         }
-
-        @Override
-        public void close() throws IOException {
-            selector.close();
-        }
     }
 
     private static class SocketOutputStream extends OutputStream {
         private static final int RETRIES_WHEN_BUFFER_FULL = 2;
-        private Selector selector;
+        private final ChannelReadiness readiness;
         private final SocketChannel socket;
         private final ByteBuffer buffer;
+        private final ByteBuffer[] gatheringBuffers = new ByteBuffer[2];
         private final byte[] writeBuffer = new byte[1];
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong writes = new AtomicLong();
 
-        public SocketOutputStream(SocketChannel socket) throws IOException {
+        public SocketOutputStream(SocketChannel socket, ChannelReadiness readiness) {
             this.socket = socket;
+            this.readiness = readiness;
             buffer = ByteBuffer.allocateDirect(32 * 1024);
+            gatheringBuffers[0] = buffer;
         }
 
         @Override
@@ -240,19 +318,13 @@ public void write(int b) throws IOException {
 
         @Override
         public void write(byte[] src, int offset, int max) throws IOException {
-            int remaining = max;
-            int currentPos = offset;
-            while (remaining > 0) {
-                int count = Math.min(remaining, buffer.remaining());
-                if (count > 0) {
-                    buffer.put(src, currentPos, count);
-                    remaining -= count;
-                    currentPos += count;
-                }
-                while (buffer.remaining() == 0) {
-                    writeBufferToChannel();
-                }
+            if (max > buffer.remaining()) {
+                // Send what has been buffered so far along with the new content in one gathering write, instead of copying
+                // the content through the buffer one chunk at a time
+                writeWithBufferToChannel(ByteBuffer.wrap(src, offset, max));
+                return;
             }
+            buffer.put(src, offset, max);
         }
 
         @Override
@@ -272,6 +344,28 @@ private void writeBufferToChannel() throws IOException {
             buffer.compact();
         }
 
+        private void writeWithBufferToChannel(ByteBuffer content) throws IOException {
+            BufferCaster.cast(buffer).flip();
+            gatheringBuffers[1] = content;
+            try {
+                while (content.hasRemaining()) {
+                    long count = socket.write(gatheringBuffers);
+                    if (count < 0) {
+                        throw new EOFException();
+                    }
+                    if (count == 0) {
+                        waitForWriteBufferToDrain();
+                    } else {
+                        writes.incrementAndGet();
+                        bytes.addAndGet(count);
+                    }
+                }
+            } finally {
+                gatheringBuffers[1] = null;
+                buffer.compact();
+            }
+        }
+
         private int writeWithNonBlockingRetry() throws IOException {
             int count = 0;
             int retryCount = 0;
@@ -284,27 +378,17 @@ private int writeWithNonBlockingRetry() throws IOException {
                     Thread.yield();
                 }
             }
+            if (count > 0) {
+                writes.incrementAndGet();
+                bytes.addAndGet(count);
+            }
             return count;
         }
 
         private void waitForWriteBufferToDrain() throws IOException {
-            if (selector == null) {
-                selector = Selector.open();
-            }
-            SelectionKey key = socket.register(selector, SelectionKey.OP_WRITE);
             // block until ready for write operations
-            selector.select();
-            // cancel OP_WRITE selection
-            key.cancel();
-            // complete cancelling key
-            selector.selectNow();
-        }
-
-        @Override
-        public void close() throws IOException {
-            if (selector != null) {
-                selector.close();
-                selector = null;
+            if (!readiness.awaitWritable()) {
+                throw new AsynchronousCloseException();
             }
         }
     }
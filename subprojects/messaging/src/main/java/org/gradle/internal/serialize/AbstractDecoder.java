@@ -103,6 +103,13 @@ public void skipChunked() throws EOFException, IOException {
 
     protected abstract long maybeSkip(long count) throws IOException;
 
+    /**
+     * Returns the number of bytes which can be read without blocking.
+     */
+    protected int available() throws IOException {
+        return 0;
+    }
+
     private class DecoderStream extends InputStream {
         byte[] buffer = new byte[1];
 
@@ -111,6 +118,11 @@ public long skip(long n) throws IOException {
             return maybeSkip(n);
         }
 
+        @Override
+        public int available() throws IOException {
+            return AbstractDecoder.this.available();
+        }
+
         @Override
         public int read() throws IOException {
             int read = maybeReadBytes(buffer, 0, 1);
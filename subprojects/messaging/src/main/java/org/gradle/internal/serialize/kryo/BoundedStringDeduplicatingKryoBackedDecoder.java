@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.serialize.kryo;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedEncoder.FIRST_REFERENCE;
+import static org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedEncoder.LITERAL;
+import static org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedEncoder.NEW_ENTRY;
+import static org.gradle.internal.serialize.kryo.BoundedStringDeduplicatingKryoBackedEncoder.NULL;
+
+/**
+ * Reads strings written by {@link BoundedStringDeduplicatingKryoBackedEncoder}. The strings referred to more than once are only decoded once.
+ */
+public class BoundedStringDeduplicatingKryoBackedDecoder extends KryoBackedDecoder {
+    private final List<String> strings = new ArrayList<String>();
+
+    public BoundedStringDeduplicatingKryoBackedDecoder(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    public BoundedStringDeduplicatingKryoBackedDecoder(InputStream inputStream, int bufferSize) {
+        super(inputStream, bufferSize);
+    }
+
+    @Override
+    public String readString() throws EOFException {
+        return readNullableString();
+    }
+
+    @Override
+    public String readNullableString() throws EOFException {
+        int code = readSmallInt();
+        switch (code) {
+            case NULL:
+                return null;
+            case LITERAL:
+                return super.readNullableString();
+            case NEW_ENTRY:
+                int slot = readSmallInt();
+                String value = super.readNullableString();
+                if (slot == strings.size()) {
+                    strings.add(value);
+                } else if (slot < strings.size()) {
+                    strings.set(slot, value);
+                } else {
+                    throw new IllegalStateException(String.format("Unexpected string slot %d found.", slot));
+                }
+                return value;
+            default:
+                int index = code - FIRST_REFERENCE;
+                if (index >= strings.size()) {
+                    throw new IllegalStateException(String.format("Unexpected string reference %d found.", index));
+                }
+                return strings.get(index);
+        }
+    }
+}
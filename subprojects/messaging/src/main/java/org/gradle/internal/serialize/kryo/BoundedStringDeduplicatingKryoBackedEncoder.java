@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.serialize.kryo;
+
+import javax.annotation.Nullable;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An encoder for long-lived streams that writes each short string only once and refers back to it afterwards, so that
+ * repeated values such as class names, test names and logger categories are sent as a small integer.
+ *
+ * <p>Unlike {@link StringDeduplicatingKryoBackedEncoder}, long strings are never remembered, and only the most recently used strings
+ * are remembered. A string which is not written again, such as a line of output, is soon replaced by the strings which keep repeating,
+ * so arbitrary content can be written without growing the table.</p>
+ *
+ * <p>Must be read using {@link BoundedStringDeduplicatingKryoBackedDecoder} with the same limits.</p>
+ */
+public class BoundedStringDeduplicatingKryoBackedEncoder extends KryoBackedEncoder {
+    static final int NULL = 0;
+    static final int LITERAL = 1;
+    static final int NEW_ENTRY = 2;
+    static final int FIRST_REFERENCE = 3;
+    public static final int DEFAULT_MAX_STRING_LENGTH = 256;
+    public static final int DEFAULT_MAX_ENTRIES = 4 * 1024;
+
+    private final int maxStringLength;
+    private final int maxEntries;
+    private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>(16, 0.75f, true);
+
+    public BoundedStringDeduplicatingKryoBackedEncoder(OutputStream outputStream) {
+        this(outputStream, 4096, DEFAULT_MAX_STRING_LENGTH, DEFAULT_MAX_ENTRIES);
+    }
+
+    public BoundedStringDeduplicatingKryoBackedEncoder(OutputStream outputStream, int bufferSize, int maxStringLength, int maxEntries) {
+        super(outputStream, bufferSize);
+        this.maxStringLength = maxStringLength;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void writeString(CharSequence value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Cannot encode a null string.");
+        }
+        writeNullableString(value);
+    }
+
+    @Override
+    public void writeNullableString(@Nullable CharSequence value) {
+        if (value == null) {
+            writeSmallInt(NULL);
+            return;
+        }
+        if (value.length() > maxStringLength) {
+            writeSmallInt(LITERAL);
+            super.writeString(value);
+            return;
+        }
+        String key = value.toString();
+        Integer index = strings.get(key);
+        if (index != null) {
+            writeSmallInt(FIRST_REFERENCE + index);
+            return;
+        }
+        int slot;
+        if (strings.size() < maxEntries) {
+            slot = strings.size();
+        } else {
+            // Reuse the slot of the least recently used string
+            Iterator<Integer> leastRecentlyUsed = strings.values().iterator();
+            slot = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+        }
+        strings.put(key, slot);
+        writeSmallInt(NEW_ENTRY);
+        writeSmallInt(slot);
+        super.writeString(key);
+    }
+}
@@ -69,6 +69,11 @@ protected long maybeSkip(long count) throws IOException {
         }
     }
 
+    @Override
+    protected int available() {
+        return input.limit() - input.position();
+    }
+
     private RuntimeException maybeEndOfStream(KryoException e) throws EOFException {
         if (e.getMessage().equals("Buffer underflow.")) {
             throw (EOFException) (new EOFException().initCause(e));
@@ -19,6 +19,7 @@ package org.gradle.internal.remote.internal.hub
 import org.gradle.api.Action
 import org.gradle.internal.dispatch.BoundedDispatch
 import org.gradle.internal.dispatch.Dispatch
+import org.gradle.internal.remote.internal.EventDrivenConnection
 import org.gradle.internal.remote.internal.RemoteConnection
 import org.gradle.internal.remote.internal.TestConnection
 import org.gradle.internal.remote.internal.hub.protocol.ChannelIdentifier
@@ -30,6 +31,8 @@ import spock.lang.Timeout
 
 import java.util.concurrent.BlockingQueue
 import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 import java.util.concurrent.LinkedBlockingQueue
 
 @Timeout(60)
@@ -638,6 +641,36 @@ class MessageHubTest extends ConcurrentSpec {
         0 * _._
     }
 
+    def "services event driven connection only while it has messages"() {
+        Dispatch<String> handler = Mock()
+        def connection = new EventDrivenTestConnection()
+
+        given:
+        hub.addHandler("channel", handler)
+        hub.addConnection(connection)
+
+        when:
+        connection.queueIncoming(new ChannelMessage(new ChannelIdentifier("channel"), "incoming"))
+        hub.getOutgoing("channel", String).dispatch("outgoing")
+        thread.blockUntil.handled
+        connection.stop()
+        hub.stop()
+
+        then:
+        1 * handler.dispatch("incoming") >> {
+            instant.handled
+        }
+        0 * _._
+
+        and:
+        connection.sent.findAll { it instanceof ChannelMessage }*.payload == ["outgoing"]
+        connection.sent.last() instanceof EndOfStream
+        connection.idle
+
+        cleanup:
+        connection.executor.shutdown()
+    }
+
     def "cannot dispatch outgoing messages after stop requested"() {
         given:
         def dispatcher = hub.getOutgoing("channel", String)
@@ -719,4 +752,73 @@ class MessageHubTest extends ConcurrentSpec {
             incoming.put(new EndOfStream())
         }
     }
+
+    private static class EventDrivenTestConnection implements EventDrivenConnection<InterHubMessage> {
+        final ExecutorService executor = Executors.newCachedThreadPool()
+        final List<InterHubMessage> sent = new CopyOnWriteArrayList<>()
+        private final Queue<InterHubMessage> incoming = new LinkedList<>()
+        private Runnable whenReadable
+
+        @Override
+        boolean isEventDriven() {
+            return true
+        }
+
+        @Override
+        synchronized boolean hasBufferedInput() {
+            return !incoming.isEmpty()
+        }
+
+        @Override
+        void whenReadable(Runnable action) {
+            synchronized (this) {
+                if (incoming.isEmpty()) {
+                    whenReadable = action
+                    return
+                }
+            }
+            execute(action)
+        }
+
+        synchronized boolean isIdle() {
+            return whenReadable == null && incoming.isEmpty()
+        }
+
+        @Override
+        void execute(Runnable action) {
+            executor.execute(action)
+        }
+
+        void queueIncoming(InterHubMessage message) {
+            Runnable action
+            synchronized (this) {
+                incoming.add(message)
+                action = whenReadable
+                whenReadable = null
+            }
+            if (action != null) {
+                execute(action)
+            }
+        }
+
+        @Override
+        synchronized InterHubMessage receive() {
+            assert !incoming.isEmpty()
+            return incoming.remove()
+        }
+
+        @Override
+        void dispatch(InterHubMessage message) {
+            sent.add(message)
+        }
+
+        @Override
+        void flush() {
+        }
+
+        @Override
+        void stop() {
+            queueIncoming(new EndOfStream())
+        }
+    }
 }
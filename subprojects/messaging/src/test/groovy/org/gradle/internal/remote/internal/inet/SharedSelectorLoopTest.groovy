@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet
+
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import spock.lang.Timeout
+
+import java.nio.ByteBuffer
+import java.nio.channels.ServerSocketChannel
+import java.nio.channels.SocketChannel
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@Timeout(60)
+class SharedSelectorLoopTest extends ConcurrentSpec {
+    def loop = new SharedSelectorLoop(2)
+    ServerSocketChannel server
+    SocketChannel client
+    SocketChannel accepted
+
+    def setup() {
+        server = ServerSocketChannel.open()
+        server.socket().bind(new InetSocketAddress(InetAddress.loopbackAddress, 0))
+        client = SocketChannel.open(server.socket().localSocketAddress)
+        accepted = server.accept()
+        accepted.configureBlocking(false)
+    }
+
+    def cleanup() {
+        loop.stop()
+        [client, accepted, server]*.close()
+    }
+
+    def "blocks until channel is readable"() {
+        def readiness = loop.register(accepted)
+
+        when:
+        async {
+            start {
+                assert readiness.awaitReadable()
+                instant.readable
+            }
+            instant.written
+            client.write(ByteBuffer.wrap([1, 2, 3] as byte[]))
+        }
+
+        then:
+        instant.readable > instant.written
+        accepted.read(ByteBuffer.allocate(3)) == 3
+
+        cleanup:
+        readiness?.close()
+    }
+
+    def "channel is writable when send buffer has space"() {
+        def readiness = loop.register(accepted)
+
+        expect:
+        readiness.awaitWritable()
+
+        cleanup:
+        readiness?.close()
+    }
+
+    def "close wakes up waiting threads"() {
+        def readiness = loop.register(accepted)
+
+        when:
+        async {
+            start {
+                assert !readiness.awaitReadable()
+                instant.woken
+            }
+            instant.closed
+            readiness.close()
+        }
+
+        then:
+        instant.woken > instant.closed
+
+        and:
+        !readiness.awaitWritable()
+    }
+
+    def "notifies on I/O thread when channel is readable"() {
+        def readiness = loop.register(accepted)
+        def notified = new CountDownLatch(1)
+        Thread notifiedOn = null
+
+        when:
+        readiness.whenReadable {
+            notifiedOn = Thread.currentThread()
+            notified.countDown()
+        }
+
+        then:
+        notified.count == 1
+
+        when:
+        client.write(ByteBuffer.wrap([1, 2, 3] as byte[]))
+
+        then:
+        notified.await(10, TimeUnit.SECONDS)
+        notifiedOn.name.startsWith("Socket connection I/O")
+        // The notified action can read without waiting for another notification
+        readiness.awaitReadable()
+        accepted.read(ByteBuffer.allocate(3)) == 3
+
+        cleanup:
+        readiness?.close()
+    }
+
+    def "stop wakes up waiting threads and notifies waiting actions"() {
+        def readiness = loop.register(accepted)
+        def notified = new CountDownLatch(1)
+
+        when:
+        readiness.whenReadable { notified.countDown() }
+        async {
+            start {
+                assert !readiness.awaitReadable()
+                instant.woken
+            }
+            instant.stopped
+            loop.stop()
+        }
+
+        then:
+        instant.woken > instant.stopped
+        notified.await(10, TimeUnit.SECONDS)
+
+        when:
+        loop.register(accepted)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "runs actions on the calling thread once stopped"() {
+        def readiness = loop.register(accepted)
+        Thread notifiedOn = null
+        Thread executedOn = null
+
+        given:
+        loop.stop()
+
+        when:
+        readiness.whenReadable { notifiedOn = Thread.currentThread() }
+        readiness.execute { executedOn = Thread.currentThread() }
+
+        then:
+        notifiedOn == Thread.currentThread()
+        executedOn == Thread.currentThread()
+
+        when:
+        readiness.close()
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "shared loop stops once its last channel has been closed"() {
+        when:
+        def first = SharedSelectorLoop.registerWithSharedLoop(accepted)
+        def second = SharedSelectorLoop.registerWithSharedLoop(client.configureBlocking(false) as SocketChannel)
+
+        then:
+        first.loop.is(second.loop)
+
+        when:
+        first.close()
+
+        then:
+        !first.loop.isStopped()
+
+        when:
+        second.close()
+
+        then:
+        first.loop.isStopped()
+
+        when:
+        def third = SharedSelectorLoop.registerWithSharedLoop(accepted)
+
+        then:
+        !third.loop.is(first.loop)
+
+        cleanup:
+        third?.close()
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.serialize.kryo
+
+import org.gradle.internal.serialize.AbstractCodecTest
+import org.gradle.internal.serialize.Decoder
+import org.gradle.internal.serialize.Encoder
+
+class BoundedStringDeduplicatingKryoBackedCodecTest extends AbstractCodecTest {
+    @Override
+    void encodeTo(OutputStream outputStream, Closure<Encoder> closure) {
+        def encoder = new BoundedStringDeduplicatingKryoBackedEncoder(outputStream, 10, 5, 2)
+        closure.call(encoder)
+        encoder.flush()
+    }
+
+    @Override
+    void decodeFrom(InputStream inputStream, Closure<Decoder> closure) {
+        def decoder = new BoundedStringDeduplicatingKryoBackedDecoder(inputStream, 10)
+        closure.call(decoder)
+    }
+
+    def "writes repeated short strings only once"() {
+        when:
+        def once = encode { Encoder encoder ->
+            encoder.writeString("abc")
+        }
+        def repeated = encode { Encoder encoder ->
+            10.times { encoder.writeString("abc") }
+        }
+
+        then:
+        repeated.length == once.length + 9
+
+        and:
+        decode(repeated) { Decoder decoder ->
+            10.times { assert decoder.readString() == "abc" }
+        }
+    }
+
+    def "replaces least recently used string once the limit is reached"() {
+        when:
+        def bytes = encode { Encoder encoder ->
+            ["a", "b", "a", "c", "a", "b"].each {
+                encoder.writeString(it)
+            }
+        }
+        def withoutEviction = encode { Encoder encoder ->
+            ["a", "b", "a", "b", "a", "b"].each {
+                encoder.writeString(it)
+            }
+        }
+
+        then:
+        // "c" replaces "b", which then has to be written again in full, while "a" is still referred to
+        bytes.length == withoutEviction.length + 6
+
+        and:
+        decode(bytes) { Decoder decoder ->
+            assert (1..6).collect { decoder.readString() } == ["a", "b", "a", "c", "a", "b"]
+        }
+    }
+
+    def "does not remember long strings or more strings than the limit"() {
+        when:
+        def bytes = encode { Encoder encoder ->
+            ["a", "long string", "b", "c", "a", "b", "c", "long string", null, "c"].each {
+                encoder.writeNullableString(it)
+            }
+        }
+
+        then:
+        decode(bytes) { Decoder decoder ->
+            assert (1..10).collect { decoder.readNullableString() } == ["a", "long string", "b", "c", "a", "b", "c", "long string", null, "c"]
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.api.Transformer;
+import org.gradle.cache.CacheAccess;
+import org.gradle.cache.FileLock;
+import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures how long it takes to persist the updates made by many tasks completing at the same time, with and without group commit.
+ *
+ * <p>Each task writes its execution history under its own key, and the hashes of its input files, some of which are shared with other tasks.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class CacheAccessWorkerBenchmark {
+    private static final int FILES_PER_TASK = 10;
+    private static final int SHARED_FILES = 50;
+
+    @Param({"false", "true"})
+    boolean groupCommit;
+
+    @Param({"500"})
+    int tasks;
+
+    private File tmpDir;
+    private BTreePersistentIndexedCache<String, String> executionHistory;
+    private BTreePersistentIndexedCache<String, String> fileHashes;
+    private AsyncCacheAccessDecoratedCache<String, String> executionHistoryCache;
+    private AsyncCacheAccessDecoratedCache<String, String> fileHashesCache;
+    private CacheAccessWorker worker;
+    private Thread workerThread;
+    private ExecutorService taskThreads;
+    private int storm;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        tmpDir = Files.createTempDirectory("cache-access-worker").toFile();
+        executionHistory = new BTreePersistentIndexedCache<String, String>(new File(tmpDir, "executionHistory.bin"), BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER);
+        fileHashes = new BTreePersistentIndexedCache<String, String>(new File(tmpDir, "fileHashes.bin"), BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER);
+        worker = new CacheAccessWorker("benchmark", new UnlockedCacheAccess(), groupCommit);
+        executionHistoryCache = new AsyncCacheAccessDecoratedCache<String, String>(worker, new BTreeCache(executionHistory));
+        fileHashesCache = new AsyncCacheAccessDecoratedCache<String, String>(worker, new BTreeCache(fileHashes));
+        workerThread = new Thread(worker);
+        workerThread.start();
+        taskThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        worker.stop();
+        workerThread.join();
+        taskThreads.shutdown();
+        executionHistory.close();
+        fileHashes.close();
+        for (File file : tmpDir.listFiles()) {
+            file.delete();
+        }
+        tmpDir.delete();
+    }
+
+    @Benchmark
+    public void completeTasks() throws InterruptedException {
+        final int currentStorm = storm++;
+        final CountDownLatch completed = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            final int task = i;
+            taskThreads.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        executionHistoryCache.putLater(":task" + task, "history-" + currentStorm, NOOP);
+                        for (int j = 0; j < FILES_PER_TASK; j++) {
+                            int file = j % 2 == 0 ? (task + j) % SHARED_FILES : SHARED_FILES + task * FILES_PER_TASK + j;
+                            fileHashesCache.putLater("file" + file, "hash-" + currentStorm, NOOP);
+                        }
+                    } finally {
+                        completed.countDown();
+                    }
+                }
+            });
+        }
+        completed.await();
+        worker.flush();
+    }
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private static class UnlockedCacheAccess implements CacheAccess {
+        @Override
+        public <T> T useCache(Factory<? extends T> action) {
+            return action.create();
+        }
+
+        @Override
+        public void useCache(Runnable action) {
+            action.run();
+        }
+
+        @Override
+        public <T> T withFileLock(Factory<? extends T> action) {
+            return action.create();
+        }
+
+        @Override
+        public void withFileLock(Runnable action) {
+            action.run();
+        }
+    }
+
+    private static class BTreeCache implements MultiProcessSafePersistentIndexedCache<String, String> {
+        private final BTreePersistentIndexedCache<String, String> delegate;
+
+        BTreeCache(BTreePersistentIndexedCache<String, String> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String get(String key) {
+            return delegate.get(key);
+        }
+
+        @Override
+        public String get(String key, Transformer<? extends String, ? super String> producer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void put(String key, String value) {
+            delegate.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            delegate.remove(key);
+        }
+
+        @Override
+        public void afterLockAcquire(FileLock.State currentCacheState) {
+        }
+
+        @Override
+        public void finishWork() {
+        }
+
+        @Override
+        public void beforeLockRelease(FileLock.State currentCacheState) {
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.Action;
+import org.gradle.api.Transformer;
+import org.gradle.cache.FileLock;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.FileLockReleasedSignal;
+import org.gradle.cache.LockOptions;
+import org.gradle.cache.LockTimeoutException;
+import org.gradle.cache.internal.locklistener.FileLockContentionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Measures how long it takes to read entries held in memory from an on demand cache which another process has asked for, with and without shared reads.
+ *
+ * <p>{@link #readEntries()} reads while the lock is kept, which is the usual case. {@link #readEntriesAfterContention()} asks for the lock before each batch of reads,
+ * so that it is released and acquired again, which shows what each batch would cost if the lock was released as soon as it is not used.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class SharedReadsBenchmark {
+    private static final int ENTRIES = 100;
+    private static final FileLockReleasedSignal NO_OP_SIGNAL = new FileLockReleasedSignal() {
+        @Override
+        public void trigger() {
+        }
+    };
+
+    @Param({"false", "true"})
+    boolean sharedReads;
+
+    private File tmpDir;
+    private LockOnDemandCrossProcessCacheAccess cacheAccess;
+    private CrossProcessSynchronizingCache<String, String> cache;
+    private volatile Action<FileLockReleasedSignal> whenContended;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        tmpDir = Files.createTempDirectory("shared-reads").toFile();
+        final DefaultFileLockManager fileLockManager = new DefaultFileLockManager(new ProcessMetaDataProvider() {
+            @Override
+            public String getProcessIdentifier() {
+                return "benchmark";
+            }
+
+            @Override
+            public String getProcessDisplayName() {
+                return "benchmark";
+            }
+        }, new NoOpFileLockContentionHandler());
+        FileLockManager lockManager = new FileLockManager() {
+            @Override
+            public FileLock lock(File target, LockOptions options, String targetDisplayName) throws LockTimeoutException {
+                return fileLockManager.lock(target, options, targetDisplayName);
+            }
+
+            @Override
+            public FileLock lock(File target, LockOptions options, String targetDisplayName, String operationDisplayName) throws LockTimeoutException {
+                return fileLockManager.lock(target, options, targetDisplayName, operationDisplayName);
+            }
+
+            @Override
+            public FileLock lock(File target, LockOptions options, String targetDisplayName, String operationDisplayName, Action<FileLockReleasedSignal> whenContended) throws LockTimeoutException {
+                SharedReadsBenchmark.this.whenContended = whenContended;
+                return fileLockManager.lock(target, options, targetDisplayName, operationDisplayName, whenContended);
+            }
+        };
+        cacheAccess = new LockOnDemandCrossProcessCacheAccess("benchmark", new File(tmpDir, "cache"), mode(FileLockManager.LockMode.Exclusive), lockManager, new ReentrantLock(), new NoOpInitializationAction(), new NoOpAction(), new NoOpAction(), sharedReads);
+        InMemoryDecoratedCache<String, String> inMemoryCache = new InMemoryDecoratedCache<String, String>(new MapCache(), CacheBuilder.newBuilder().build(), "benchmark", new AtomicReference<FileLock.State>());
+        cache = new CrossProcessSynchronizingCache<String, String>(inMemoryCache, cacheAccess);
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        // Another process asks for the lock, which enables shared reads
+        whenContended.execute(NO_OP_SIGNAL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cacheAccess.close();
+        for (File file : tmpDir.listFiles()) {
+            file.delete();
+        }
+        tmpDir.delete();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int readEntries() {
+        return readAll();
+    }
+
+    @Benchmark
+    public int readEntriesAfterContention() {
+        whenContended.execute(NO_OP_SIGNAL);
+        return readAll();
+    }
+
+    private int readAll() {
+        int length = 0;
+        for (int i = 0; i < ENTRIES; i++) {
+            length += cache.get("key" + i).length();
+        }
+        return length;
+    }
+
+    private static class MapCache implements MultiProcessSafeAsyncPersistentIndexedCache<String, String> {
+        private final ConcurrentMap<String, String> entries = new ConcurrentHashMap<String, String>();
+
+        @Override
+        public String get(String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public String get(String key, Transformer<? extends String, ? super String> producer, Runnable completion) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putLater(String key, String value, Runnable completion) {
+            entries.put(key, value);
+            completion.run();
+        }
+
+        @Override
+        public void removeLater(String key, Runnable completion) {
+            entries.remove(key);
+            completion.run();
+        }
+
+        @Override
+        public void afterLockAcquire(FileLock.State currentCacheState) {
+        }
+
+        @Override
+        public void finishWork() {
+        }
+
+        @Override
+        public void beforeLockRelease(FileLock.State currentCacheState) {
+        }
+    }
+
+    private static class NoOpInitializationAction implements CacheInitializationAction {
+        @Override
+        public boolean requiresInitialization(FileLock fileLock) {
+            return false;
+        }
+
+        @Override
+        public void initialize(FileLock fileLock) {
+        }
+    }
+
+    private static class NoOpAction implements Action<FileLock> {
+        @Override
+        public void execute(FileLock fileLock) {
+        }
+    }
+
+    private static class NoOpFileLockContentionHandler implements FileLockContentionHandler {
+        @Override
+        public void start(long lockId, Action<FileLockReleasedSignal> whenContended) {
+        }
+
+        @Override
+        public void stop(long lockId) {
+        }
+
+        @Override
+        public int reservePort() {
+            return -1;
+        }
+
+        @Override
+        public boolean maybePingOwner(int port, long lockId, String displayName, long timeElapsed, FileLockReleasedSignal signal) {
+            return false;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 import org.gradle.api.Describable;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
 
@@ -37,4 +38,12 @@ public interface CleanableStore extends Describable {
      */
     Collection<File> getReservedCacheFiles();
 
+    /**
+     * Returns the progress of the incremental cleanup this store is being cleaned with, or {@code null} when the store is to be cleaned completely.
+     */
+    @Nullable
+    default IncrementalCleanup getIncrementalCleanup() {
+        return null;
+    }
+
 }
@@ -24,6 +24,16 @@ public interface CrossProcessCacheAccess {
      */
     <T> T withFileLock(Factory<T> factory);
 
+    /**
+     * Runs the given action while this process is holding a shared or exclusive file lock on the cache. The action must only read from the cache,
+     * and must not wait for other actions using the cache or acquire an exclusive lock. Multiple threads may run concurrently.
+     *
+     * <p>Holds an exclusive lock by default.</p>
+     */
+    default <T> T withReadLock(Factory<T> factory) {
+        return withFileLock(factory);
+    }
+
     /**
      * Acquires an exclusive file lock on the cache. The caller is responsible for running the resulting action to release the lock.
      * The lock may be released by any thread.
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache;
+
+import javax.annotation.Nullable;
+import java.io.File;
+
+/**
+ * The progress of a cleanup which is split into passes limited in time, each pass resuming where the previous one stopped.
+ *
+ * <p>Cleanup actions visit the entries of each directory in the order of their relative paths, so that a pass can resume after the last entry visited by the previous pass.</p>
+ */
+public interface IncrementalCleanup {
+    /**
+     * Whether the time allotted to the current pass has been used up.
+     */
+    boolean isOutOfTime();
+
+    /**
+     * Whether the given directory has been cleaned completely since the cleanup started.
+     */
+    boolean isCompleted(File dir);
+
+    /**
+     * Returns the path of the last entry of the given directory visited by a previous pass, relative to the directory and separated by {@code /}, or {@code null} when the cleanup of the directory has not started yet.
+     */
+    @Nullable
+    String getResumePoint(File dir);
+
+    /**
+     * Records that the current pass stopped cleaning the given directory after the given entry.
+     *
+     * @param relativePath the path of the last entry visited, relative to the directory, or {@code null} when no entry has been visited yet.
+     */
+    void stoppedAt(File dir, @Nullable String relativePath);
+
+    /**
+     * Records that the given directory has been cleaned completely.
+     */
+    void completed(File dir);
+
+    /**
+     * Returns the progress of one of several actions cleaning the same directories, which is kept apart from the progress of the other actions.
+     *
+     * @param index the position of the action among the actions cleaning the store.
+     */
+    IncrementalCleanup forAction(int index);
+}
@@ -20,10 +20,15 @@
 import org.gradle.cache.CleanableStore;
 import org.gradle.cache.CleanupAction;
 import org.gradle.cache.CleanupProgressMonitor;
+import org.gradle.cache.IncrementalCleanup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public abstract class AbstractCacheCleanup implements CleanupAction {
 
@@ -37,21 +42,56 @@ public AbstractCacheCleanup(FilesFinder eligibleFilesFinder) {
 
     @Override
     public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+        IncrementalCleanup incrementalCleanup = cleanableStore.getIncrementalCleanup();
+        if (incrementalCleanup != null) {
+            cleanIncrementally(cleanableStore, incrementalCleanup, progressMonitor);
+            return;
+        }
         int filesDeleted = 0;
         for (File file : findEligibleFiles(cleanableStore)) {
-            if (shouldDelete(file)) {
-                progressMonitor.incrementDeleted();
-                if (FileUtils.deleteQuietly(file)) {
-                    handleDeletion(file);
-                    filesDeleted += 1 + deleteEmptyParentDirectories(cleanableStore.getBaseDir(), file.getParentFile());
-                }
-            } else {
-                progressMonitor.incrementSkipped();
+            filesDeleted += clean(cleanableStore, file, progressMonitor);
+        }
+        LOGGER.debug("{} cleanup deleted {} files/directories.", cleanableStore.getDisplayName(), filesDeleted);
+    }
+
+    private void cleanIncrementally(CleanableStore cleanableStore, IncrementalCleanup incrementalCleanup, CleanupProgressMonitor progressMonitor) {
+        File baseDir = cleanableStore.getBaseDir();
+        if (incrementalCleanup.isCompleted(baseDir)) {
+            return;
+        }
+        String resumePoint = incrementalCleanup.getResumePoint(baseDir);
+        FileFilter filter = new NonReservedFileFilter(cleanableStore.getReservedCacheFiles());
+        if (resumePoint != null) {
+            filter = new ResumePointFileFilter(baseDir, resumePoint, filter);
+        }
+        String lastVisited = resumePoint;
+        int filesDeleted = 0;
+        for (File file : eligibleFilesFinder.find(baseDir, filter)) {
+            if (incrementalCleanup.isOutOfTime()) {
+                incrementalCleanup.stoppedAt(baseDir, lastVisited);
+                LOGGER.debug("{} cleanup deleted {} files/directories and stopped after {}.", cleanableStore.getDisplayName(), filesDeleted, lastVisited);
+                return;
             }
+            filesDeleted += clean(cleanableStore, file, progressMonitor);
+            lastVisited = relativePath(baseDir, file);
         }
+        incrementalCleanup.completed(baseDir);
         LOGGER.debug("{} cleanup deleted {} files/directories.", cleanableStore.getDisplayName(), filesDeleted);
     }
 
+    private int clean(CleanableStore cleanableStore, File file, CleanupProgressMonitor progressMonitor) {
+        if (shouldDelete(file)) {
+            progressMonitor.incrementDeleted();
+            if (FileUtils.deleteQuietly(file)) {
+                handleDeletion(file);
+                return 1 + deleteEmptyParentDirectories(cleanableStore.getBaseDir(), file.getParentFile());
+            }
+        } else {
+            progressMonitor.incrementSkipped();
+        }
+        return 0;
+    }
+
     protected int deleteEmptyParentDirectories(File baseDir, File dir) {
         if (dir.equals(baseDir)) {
             return 0;
@@ -72,4 +112,57 @@ private Iterable<File> findEligibleFiles(CleanableStore cleanableStore) {
         return eligibleFilesFinder.find(cleanableStore.getBaseDir(), new NonReservedFileFilter(cleanableStore.getReservedCacheFiles()));
     }
 
+    private static String relativePath(File baseDir, File file) {
+        List<String> names = namesRelativeTo(baseDir, file);
+        StringBuilder builder = new StringBuilder();
+        for (String name : names) {
+            if (builder.length() > 0) {
+                builder.append('/');
+            }
+            builder.append(name);
+        }
+        return builder.toString();
+    }
+
+    private static List<String> namesRelativeTo(File baseDir, File file) {
+        List<String> names = new ArrayList<String>();
+        for (File current = file; current != null && !current.equals(baseDir); current = current.getParentFile()) {
+            names.add(current.getName());
+        }
+        Collections.reverse(names);
+        return names;
+    }
+
+    /**
+     * Accepts the files which come after the resume point when the files of each directory are visited by name, and the directories containing the resume point.
+     */
+    private static class ResumePointFileFilter implements FileFilter {
+        private final File baseDir;
+        private final String[] resumePoint;
+        private final FileFilter delegate;
+
+        ResumePointFileFilter(File baseDir, String resumePoint, FileFilter delegate) {
+            this.baseDir = baseDir;
+            this.resumePoint = resumePoint.split("/");
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean accept(File file) {
+            return isAfterResumePoint(namesRelativeTo(baseDir, file)) && delegate.accept(file);
+        }
+
+        private boolean isAfterResumePoint(List<String> names) {
+            int commonLength = Math.min(names.size(), resumePoint.length);
+            for (int i = 0; i < commonLength; i++) {
+                int comparison = names.get(i).compareTo(resumePoint[i]);
+                if (comparison != 0) {
+                    return comparison > 0;
+                }
+            }
+            // Accept the directories containing the resume point, but not the resume point itself
+            return names.size() < resumePoint.length;
+        }
+    }
+
 }
@@ -57,14 +57,10 @@ public V get(K key, Transformer<? extends V, ? super K> producer, Runnable compl
     @Override
     public void putLater(final K key, final V value, final Runnable completion) {
         try {
-            asyncCacheAccess.enqueue(new Runnable() {
+            asyncCacheAccess.enqueue(new CacheWrite(key, completion) {
                 @Override
-                public void run() {
-                    try {
-                        persistentCache.put(key, value);
-                    } finally {
-                        completion.run();
-                    }
+                protected void write() {
+                    persistentCache.put(key, value);
                 }
             });
         } catch (RuntimeException e) {
@@ -76,14 +72,10 @@ public void run() {
     @Override
     public void removeLater(final K key, final Runnable completion) {
         try {
-            asyncCacheAccess.enqueue(new Runnable() {
+            asyncCacheAccess.enqueue(new CacheWrite(key, completion) {
                 @Override
-                public void run() {
-                    try {
-                        persistentCache.remove(key);
-                    } finally {
-                        completion.run();
-                    }
+                protected void write() {
+                    persistentCache.remove(key);
                 }
             });
         } catch (RuntimeException e) {
@@ -106,4 +98,40 @@ public void finishWork() {
     public void beforeLockRelease(FileLock.State currentCacheState) {
         persistentCache.beforeLockRelease(currentCacheState);
     }
+
+    private abstract class CacheWrite implements CacheAccessWorker.CoalescableWrite {
+        private final K key;
+        private final Runnable completion;
+
+        CacheWrite(K key, Runnable completion) {
+            this.key = key;
+            this.completion = completion;
+        }
+
+        protected abstract void write();
+
+        @Override
+        public void run() {
+            try {
+                write();
+            } finally {
+                completion.run();
+            }
+        }
+
+        @Override
+        public Object getCache() {
+            return persistentCache;
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public void discard() {
+            completion.run();
+        }
+    }
 }
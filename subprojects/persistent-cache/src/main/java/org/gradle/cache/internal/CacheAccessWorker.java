@@ -26,7 +26,9 @@
 import org.gradle.internal.time.Time;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -35,12 +37,23 @@
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs the operations queued for a cache on a single thread, in batches executed while holding the cache lock.
+ *
+ * <p>In group commit mode, enabled with the {@value #GROUP_COMMIT_PROPERTY} system property, the {@link CoalescableWrite}s of a batch are
+ * collected per cache rather than applied one at a time. A write is replaced by a later write to the same key of the same cache, and the
+ * collected writes are applied cache by cache once the batch ends or before any other operation of the batch runs.</p>
+ */
 class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
+    public static final String GROUP_COMMIT_PROPERTY = "org.gradle.cache.internal.group-commit";
+
     private final BlockingQueue<Runnable> workQueue;
     private final String displayName;
     private final CacheAccess cacheAccess;
     private final long batchWindowMillis;
     private final long maximumLockingTimeMillis;
+    private final boolean groupCommit;
+    private final PendingWrites pendingWrites = new PendingWrites();
     private boolean closed;
     private boolean workerCompleted;
     private boolean stopSeen;
@@ -48,8 +61,13 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     private final ExecutorPolicy.CatchAndRecordFailures failureHandler = new ExecutorPolicy.CatchAndRecordFailures();
 
     CacheAccessWorker(String displayName, CacheAccess cacheAccess) {
+        this(displayName, cacheAccess, Boolean.getBoolean(GROUP_COMMIT_PROPERTY));
+    }
+
+    CacheAccessWorker(String displayName, CacheAccess cacheAccess, boolean groupCommit) {
         this.displayName = displayName;
         this.cacheAccess = cacheAccess;
+        this.groupCommit = groupCommit;
         this.batchWindowMillis = 200;
         this.maximumLockingTimeMillis = 5000;
         HeapProportionalCacheSizer heapProportionalCacheSizer = new HeapProportionalCacheSizer();
@@ -177,12 +195,12 @@ private void flushOperations(final Runnable updateOperation) {
                 public void run() {
                     CountdownTimer timer = Time.startCountdownTimer(maximumLockingTimeMillis, TimeUnit.MILLISECONDS);
                     if (updateOperation != null) {
-                        failureHandler.onExecute(updateOperation);
+                        execute(updateOperation);
                     }
                     Runnable otherOperation;
                     try {
                         while ((otherOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
-                            failureHandler.onExecute(otherOperation);
+                            execute(otherOperation);
                             final Class<? extends Runnable> runnableClass = otherOperation.getClass();
                             if (runnableClass == FlushOperationsCommand.class) {
                                 flushOperations.add((FlushOperationsCommand) otherOperation);
@@ -198,6 +216,8 @@ public void run() {
                         }
                     } catch (InterruptedException e) {
                         throw UncheckedException.throwAsUncheckedException(e);
+                    } finally {
+                        pendingWrites.apply();
                     }
                 }
             });
@@ -208,6 +228,16 @@ public void run() {
         }
     }
 
+    private void execute(Runnable operation) {
+        if (groupCommit && operation instanceof CoalescableWrite) {
+            pendingWrites.add((CoalescableWrite) operation);
+        } else {
+            // Apply the writes queued before this operation first, so that it can see them
+            pendingWrites.apply();
+            failureHandler.onExecute(operation);
+        }
+    }
+
     @Override
     public synchronized void stop() {
         if (!closed && !workerCompleted) {
@@ -232,4 +262,62 @@ public void run() {
             // do nothing
         }
     }
+
+    /**
+     * A write to a single key of a cache, which group commit can replace with a later write to the same key.
+     */
+    interface CoalescableWrite extends Runnable {
+        /**
+         * The cache this write applies to.
+         */
+        Object getCache();
+
+        Object getKey();
+
+        /**
+         * Called instead of {@link #run()} when this write has been replaced by a later write to the same key.
+         */
+        void discard();
+    }
+
+    private class PendingWrites {
+        private final Map<Object, Map<Object, CoalescableWrite>> writesPerCache = new LinkedHashMap<Object, Map<Object, CoalescableWrite>>();
+
+        void add(CoalescableWrite write) {
+            Map<Object, CoalescableWrite> writes = writesPerCache.get(write.getCache());
+            if (writes == null) {
+                writes = new LinkedHashMap<Object, CoalescableWrite>();
+                writesPerCache.put(write.getCache(), writes);
+            }
+            CoalescableWrite replaced = writes.put(write.getKey(), write);
+            if (replaced != null) {
+                failureHandler.onExecute(new DiscardWrite(replaced));
+            }
+        }
+
+        void apply() {
+            if (writesPerCache.isEmpty()) {
+                return;
+            }
+            for (Map<Object, CoalescableWrite> writes : writesPerCache.values()) {
+                for (CoalescableWrite write : writes.values()) {
+                    failureHandler.onExecute(write);
+                }
+            }
+            writesPerCache.clear();
+        }
+    }
+
+    private static class DiscardWrite implements Runnable {
+        private final CoalescableWrite write;
+
+        DiscardWrite(CoalescableWrite write) {
+            this.write = write;
+        }
+
+        @Override
+        public void run() {
+            write.discard();
+        }
+    }
 }
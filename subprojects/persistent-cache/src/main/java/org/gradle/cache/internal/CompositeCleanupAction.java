@@ -20,7 +20,9 @@
 import org.gradle.cache.CleanableStore;
 import org.gradle.cache.CleanupAction;
 import org.gradle.cache.CleanupProgressMonitor;
+import org.gradle.cache.IncrementalCleanup;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -41,8 +43,15 @@ private CompositeCleanupAction(List<CleanupAction> cleanups) {
 
     @Override
     public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
-        for (CleanupAction action : cleanups) {
-            action.clean(cleanableStore, progressMonitor);
+        IncrementalCleanup incrementalCleanup = cleanableStore.getIncrementalCleanup();
+        for (int i = 0; i < cleanups.size(); i++) {
+            CleanupAction action = cleanups.get(i);
+            if (incrementalCleanup != null) {
+                // Several actions may clean the same directories, so keep the progress of each action apart
+                action.clean(new CleanableStoreForAction(cleanableStore, incrementalCleanup.forAction(i)), progressMonitor);
+            } else {
+                action.clean(cleanableStore, progressMonitor);
+            }
         }
     }
 
@@ -84,6 +93,37 @@ public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progress
         }
     }
 
+    private static class CleanableStoreForAction implements CleanableStore {
+
+        private final CleanableStore delegate;
+        private final IncrementalCleanup incrementalCleanup;
+
+        CleanableStoreForAction(CleanableStore delegate, IncrementalCleanup incrementalCleanup) {
+            this.delegate = delegate;
+            this.incrementalCleanup = incrementalCleanup;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return delegate.getDisplayName();
+        }
+
+        @Override
+        public File getBaseDir() {
+            return delegate.getBaseDir();
+        }
+
+        @Override
+        public Collection<File> getReservedCacheFiles() {
+            return delegate.getReservedCacheFiles();
+        }
+
+        @Override
+        public IncrementalCleanup getIncrementalCleanup() {
+            return incrementalCleanup;
+        }
+    }
+
     private static class CleanableSubDir implements CleanableStore {
 
         private final CleanableStore delegate;
@@ -110,5 +150,11 @@ public File getBaseDir() {
         public Collection<File> getReservedCacheFiles() {
             return delegate.getReservedCacheFiles();
         }
+
+        @Nullable
+        @Override
+        public IncrementalCleanup getIncrementalCleanup() {
+            return delegate.getIncrementalCleanup();
+        }
     }
 }
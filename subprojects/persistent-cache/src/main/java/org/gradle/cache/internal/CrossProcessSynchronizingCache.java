@@ -20,6 +20,7 @@
 import org.gradle.cache.CrossProcessCacheAccess;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
+import org.gradle.internal.Cast;
 import org.gradle.internal.Factory;
 
 import javax.annotation.Nullable;
@@ -28,6 +29,7 @@
  * Applies cross-process file locking to a backing cache, to ensure that any in-memory and on file state is kept in sync while this process is read from or writing to the cache.
  */
 public class CrossProcessSynchronizingCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
+    private static final Object NOT_IN_MEMORY = new Object();
     private final CrossProcessCacheAccess cacheAccess;
     private final MultiProcessSafeAsyncPersistentIndexedCache<K, V> target;
 
@@ -44,6 +46,17 @@ public String toString() {
     @Nullable
     @Override
     public V get(final K key) {
+        final V notInMemory = Cast.uncheckedCast(NOT_IN_MEMORY);
+        // Reading the backing store goes through the cache worker, which needs an exclusive lock, so don't wait for it while holding a read lock
+        V value = cacheAccess.withReadLock(new Factory<V>() {
+            @Override
+            public V create() {
+                return target.getIfInMemory(key, notInMemory);
+            }
+        });
+        if (value != notInMemory) {
+            return value;
+        }
         return cacheAccess.withFileLock(new Factory<V>() {
             @Override
             public V create() {
@@ -106,7 +106,8 @@ public DefaultCacheAccess(String cacheDisplayName, File lockTarget, LockOptions
                 fileAccess = new UnitOfWorkFileAccess();
                 break;
             case OnDemand:
-                crossProcessCacheAccess = new LockOnDemandCrossProcessCacheAccess(cacheDisplayName, lockTarget, lockOptions.withMode(Exclusive), lockManager, stateLock, initializationAction, onFileLockAcquireAction, onFileLockReleaseAction);
+                crossProcessCacheAccess = new LockOnDemandCrossProcessCacheAccess(cacheDisplayName, lockTarget, lockOptions.withMode(Exclusive), lockManager, stateLock, initializationAction, onFileLockAcquireAction, onFileLockReleaseAction,
+                    Boolean.getBoolean(LockOnDemandCrossProcessCacheAccess.SHARED_READS_PROPERTY));
                 fileAccess = new UnitOfWorkFileAccess();
                 break;
             case None:
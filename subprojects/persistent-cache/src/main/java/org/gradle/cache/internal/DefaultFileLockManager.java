@@ -40,6 +40,8 @@
 import org.gradle.internal.id.RandomLongIdGenerator;
 import org.gradle.internal.io.ExponentialBackoff;
 import org.gradle.internal.io.IOQuery;
+import org.gradle.internal.metrics.DurationHistogram;
+import org.gradle.internal.metrics.InternalMetrics;
 import org.gradle.util.GFileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +63,7 @@
 public class DefaultFileLockManager implements FileLockManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileLockManager.class);
     public static final int DEFAULT_LOCK_TIMEOUT = 60000;
+    private static final DurationHistogram LOCK_WAIT_TIME = InternalMetrics.durationHistogram("gradle_file_lock_wait_duration_seconds", "Time spent waiting to acquire cross-process file locks, including the time other processes took to release them.");
 
     private final Set<File> lockedFiles = new CopyOnWriteArraySet<File>();
     private final ProcessMetaDataProvider metaDataProvider;
@@ -132,6 +135,7 @@ private class DefaultFileLock extends AbstractFileAccess implements FileLock {
         private LockState lockState;
         private int port;
         private final long lockId;
+        private LockInfo previousSharedOwner;
 
         public DefaultFileLock(File target, LockOptions options, String displayName, String operationDisplayName, int port, Action<FileLockReleasedSignal> whenContended) throws Throwable {
             this.port = port;
@@ -160,7 +164,7 @@ public DefaultFileLock(File target, LockOptions options, String displayName, Str
                 if (whenContended != null) {
                     fileLockContentionHandler.start(lockId, whenContended);
                 }
-                lockState = lock(options.getMode());
+                lockState = lock(options.getMode(), whenContended != null);
             } catch (Throwable t) {
                 // Also releases any locks
                 lockFileAccess.close();
@@ -278,6 +282,19 @@ public void stop() {
                     }
                 }
             });
+            stoppable.add(new Stoppable() {
+                @Override
+                public void stop() {
+                    if (previousSharedOwner != null && previousSharedOwner.port != -1) {
+                        LOGGER.debug("Asking the previous holder of the shared lock on {} to release it (lockId: {}, port: {}).", displayName, previousSharedOwner.lockId, previousSharedOwner.port);
+                        try {
+                            fileLockContentionHandler.maybePingOwner(previousSharedOwner.port, previousSharedOwner.lockId, displayName, Long.MAX_VALUE, null);
+                        } catch (Exception e) {
+                            LOGGER.debug("Unable to ask the previous holder of the shared lock on {} to release it.", displayName, e);
+                        }
+                    }
+                }
+            });
             stoppable.add(new Stoppable() {
                 @Override
                 public void stop() {
@@ -294,11 +311,13 @@ public LockMode getMode() {
             return mode;
         }
 
-        private LockState lock(LockMode lockMode) throws Throwable {
+        private LockState lock(LockMode lockMode, boolean contendable) throws Throwable {
             LOGGER.debug("Waiting to acquire {} lock on {}.", lockMode.toString().toLowerCase(), displayName);
 
             // Lock the state region, with the requested mode
+            long startNanos = System.nanoTime();
             java.nio.channels.FileLock stateRegionLock = lockStateRegion(lockMode);
+            LOCK_WAIT_TIME.recordSince(startNanos);
             if (stateRegionLock == null) {
                 LockInfo lockInfo = readInformationRegion(newExponentialBackoff(shortTimeoutMs));
                 throw new LockTimeoutException(displayName, lockInfo.pid, metaDataProvider.getProcessIdentifier(), lockInfo.operation, operationDisplayName, lockFile);
@@ -326,6 +345,12 @@ private LockState lock(LockMode lockMode) throws Throwable {
                 } else {
                     // Just read the state region
                     lockState = lockFileAccess.readLockState();
+
+                    if (contendable) {
+                        // Write our details to the information region as well, so that a process which needs an exclusive lock asks this process to release it.
+                        // The process which wrote its details before is asked in turn once this process releases the lock, so that it does not hold on to it
+                        previousSharedOwner = advertiseSharedLock();
+                    }
                 }
                 LOGGER.debug("Lock acquired on {}.", displayName);
                 lock = stateRegionLock;
@@ -336,6 +361,20 @@ private LockState lock(LockMode lockMode) throws Throwable {
             }
         }
 
+        private LockInfo advertiseSharedLock() throws IOException, InterruptedException {
+            java.nio.channels.FileLock informationRegionLock = lockInformationRegion(LockMode.Exclusive, newExponentialBackoff(shortTimeoutMs));
+            if (informationRegionLock == null) {
+                throw new IllegalStateException(String.format("Unable to lock the information region for %s", displayName));
+            }
+            try {
+                LockInfo previousOwner = lockFileAccess.readLockInfo();
+                lockFileAccess.writeLockInfo(port, lockId, metaDataProvider.getProcessIdentifier(), operationDisplayName);
+                return previousOwner;
+            } finally {
+                informationRegionLock.release();
+            }
+        }
+
         private LockInfo readInformationRegion(ExponentialBackoff<AwaitableFileLockReleasedSignal> backoff) throws IOException, InterruptedException {
             // Can't acquire lock, get details of owner to include in the error message
             LockInfo out = new LockInfo();
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.IncrementalCleanup;
+import org.gradle.internal.time.CountdownTimer;
+import org.gradle.util.GFileUtils;
+import org.gradle.util.GUtil;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Keeps the progress of an incremental cleanup of a store in a properties file, so that the next pass can resume where the current one stopped.
+ *
+ * <p>The progress is kept per directory, and per action when several actions clean the store.</p>
+ */
+public class DefaultIncrementalCleanup implements IncrementalCleanup {
+    private static final String RESUME_POINT_PREFIX = "resumeAfter.";
+    private static final String COMPLETED_PREFIX = "completed.";
+
+    private final Pass pass;
+    private final String actionPrefix;
+
+    public DefaultIncrementalCleanup(File baseDir, File progressFile, CountdownTimer timer) {
+        this(new Pass(baseDir, progressFile, timer), "");
+    }
+
+    private DefaultIncrementalCleanup(Pass pass, String actionPrefix) {
+        this.pass = pass;
+        this.actionPrefix = actionPrefix;
+    }
+
+    @Override
+    public boolean isOutOfTime() {
+        return pass.timer.hasExpired();
+    }
+
+    @Override
+    public boolean isCompleted(File dir) {
+        return pass.progress.containsKey(COMPLETED_PREFIX + keyOf(dir));
+    }
+
+    @Nullable
+    @Override
+    public String getResumePoint(File dir) {
+        return pass.progress.getProperty(RESUME_POINT_PREFIX + keyOf(dir));
+    }
+
+    @Override
+    public void stoppedAt(File dir, @Nullable String relativePath) {
+        pass.stopped = true;
+        if (relativePath != null) {
+            pass.progress.setProperty(RESUME_POINT_PREFIX + keyOf(dir), relativePath);
+        }
+    }
+
+    @Override
+    public void completed(File dir) {
+        String key = keyOf(dir);
+        pass.progress.remove(RESUME_POINT_PREFIX + key);
+        pass.progress.setProperty(COMPLETED_PREFIX + key, "true");
+    }
+
+    @Override
+    public IncrementalCleanup forAction(int index) {
+        return new DefaultIncrementalCleanup(pass, actionPrefix + index + ":");
+    }
+
+    /**
+     * Persists the progress when the cleanup was stopped before it completed, or discards it otherwise.
+     *
+     * @return whether the cleanup has completed.
+     */
+    public boolean finishPass() {
+        if (pass.stopped) {
+            GUtil.saveProperties(pass.progress, pass.progressFile);
+            return false;
+        }
+        GFileUtils.deleteQuietly(pass.progressFile);
+        return true;
+    }
+
+    private String keyOf(File dir) {
+        String relativePath = pass.baseDir.toPath().relativize(dir.toPath()).toString().replace(File.separatorChar, '/');
+        return actionPrefix + (relativePath.isEmpty() ? "." : relativePath);
+    }
+
+    /**
+     * The state of the current pass, shared by the progress of all actions.
+     */
+    private static class Pass {
+        private final File baseDir;
+        private final File progressFile;
+        private final CountdownTimer timer;
+        private final Properties progress;
+        private boolean stopped;
+
+        Pass(File baseDir, File progressFile, CountdownTimer timer) {
+            this.baseDir = baseDir;
+            this.progressFile = progressFile;
+            this.timer = timer;
+            this.progress = progressFile.isFile() ? GUtil.loadProperties(progressFile) : new Properties();
+        }
+    }
+}
@@ -17,9 +17,11 @@
 
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheOpenException;
+import org.gradle.cache.CleanableStore;
 import org.gradle.cache.CleanupAction;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.IncrementalCleanup;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
@@ -34,6 +36,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
@@ -45,6 +48,12 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
 
     public static final int CLEANUP_INTERVAL_IN_HOURS = 24;
 
+    /**
+     * When set, limits each cleanup of a cache to the given number of milliseconds. A cleanup that runs out of time resumes where it stopped the next time the cache is closed,
+     * and the cache is considered cleaned up once the cleanup has visited all its entries.
+     */
+    public static final String INCREMENTAL_CLEANUP_BUDGET_PROPERTY = "org.gradle.cache.cleanup.incremental.budget-millis";
+
     private final File dir;
     private final CacheBuilder.LockTarget lockTarget;
     private final LockOptions lockOptions;
@@ -54,6 +63,7 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
     private final String displayName;
     protected final File propertiesFile;
     private final File gcFile;
+    private final File gcProgressFile;
     private final ProgressLoggerFactory progressLoggerFactory;
     private CacheCoordinator cacheAccess;
 
@@ -66,6 +76,7 @@ public DefaultPersistentDirectoryStore(File dir, String displayName, CacheBuilde
         this.executorFactory = executorFactory;
         this.propertiesFile = new File(dir, "cache.properties");
         this.gcFile = new File(dir, "gc.properties");
+        this.gcProgressFile = new File(dir, "gc-progress.properties");
         this.progressLoggerFactory = progressLoggerFactory;
         this.displayName = displayName != null ? (displayName + " (" + dir + ")") : ("cache directory " + dir.getName() + " (" + dir + ")");
     }
@@ -135,7 +146,7 @@ public File getBaseDir() {
 
     @Override
     public Collection<File> getReservedCacheFiles() {
-        return Arrays.asList(propertiesFile, gcFile, determineLockTargetFile(getLockTarget()));
+        return Arrays.asList(propertiesFile, gcFile, gcProgressFile, determineLockTargetFile(getLockTarget()));
     }
 
     // TODO: Duplicated in DefaultFileLockManager
@@ -196,6 +207,10 @@ private class Cleanup implements CacheCleanupAction {
         @Override
         public boolean requiresCleanup() {
             if (cleanupAction != null) {
+                if (gcProgressFile.exists()) {
+                    LOGGER.debug("{} has an unfinished incremental cleanup", DefaultPersistentDirectoryStore.this);
+                    return true;
+                }
                 if (!gcFile.exists()) {
                     GFileUtils.touch(gcFile);
                 } else {
@@ -215,8 +230,19 @@ public void cleanup() {
                 ProgressLogger progressLogger = progressLoggerFactory.newOperation(CacheCleanupAction.class).start(description, description);
                 Timer timer = Time.startTimer();
                 try {
-                    cleanupAction.clean(DefaultPersistentDirectoryStore.this, new DefaultCleanupProgressMonitor(progressLogger));
-                    GFileUtils.touch(gcFile);
+                    long budgetMillis = Long.getLong(INCREMENTAL_CLEANUP_BUDGET_PROPERTY, 0);
+                    if (budgetMillis > 0) {
+                        DefaultIncrementalCleanup incrementalCleanup = new DefaultIncrementalCleanup(dir, gcProgressFile, Time.startCountdownTimer(budgetMillis));
+                        cleanupAction.clean(new IncrementallyCleanedStore(incrementalCleanup), new DefaultCleanupProgressMonitor(progressLogger));
+                        if (incrementalCleanup.finishPass()) {
+                            GFileUtils.touch(gcFile);
+                        }
+                    } else {
+                        cleanupAction.clean(DefaultPersistentDirectoryStore.this, new DefaultCleanupProgressMonitor(progressLogger));
+                        GFileUtils.touch(gcFile);
+                        // Discard the progress of an earlier incremental cleanup
+                        GFileUtils.deleteQuietly(gcProgressFile);
+                    }
                 } finally {
                     LOGGER.info("{} cleaned up in {}.", DefaultPersistentDirectoryStore.this, timer.getElapsed());
                     progressLogger.completed();
@@ -225,4 +251,32 @@ public void cleanup() {
         }
     }
 
+    private class IncrementallyCleanedStore implements CleanableStore {
+        private final IncrementalCleanup incrementalCleanup;
+
+        IncrementallyCleanedStore(IncrementalCleanup incrementalCleanup) {
+            this.incrementalCleanup = incrementalCleanup;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return DefaultPersistentDirectoryStore.this.getDisplayName();
+        }
+
+        @Override
+        public File getBaseDir() {
+            return dir;
+        }
+
+        @Override
+        public Collection<File> getReservedCacheFiles() {
+            return DefaultPersistentDirectoryStore.this.getReservedCacheFiles();
+        }
+
+        @Nullable
+        @Override
+        public IncrementalCleanup getIncrementalCleanup() {
+            return incrementalCleanup;
+        }
+    }
 }
@@ -71,6 +71,18 @@ public Object call() throws Exception {
         }
     }
 
+    @Override
+    public V getIfInMemory(K key, V notInMemory) {
+        Object value = inMemoryCache.getIfPresent(key);
+        if (value == null) {
+            return notInMemory;
+        } else if (value == NULL) {
+            return null;
+        } else {
+            return Cast.uncheckedCast(value);
+        }
+    }
+
     @Override
     public V get(final K key, final Transformer<? extends V, ? super K> producer, final Runnable completion) {
         final AtomicReference<Runnable> completionRef = new AtomicReference<Runnable>(completion);
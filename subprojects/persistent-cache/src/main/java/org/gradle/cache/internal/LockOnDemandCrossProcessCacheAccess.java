@@ -28,8 +28,22 @@
 
 import java.io.File;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import static org.gradle.cache.FileLockManager.LockMode.Exclusive;
+import static org.gradle.cache.FileLockManager.LockMode.Shared;
+
+/**
+ * Acquires an exclusive file lock when the cache is first used, and keeps it until another process asks for it.
+ *
+ * <p>With shared reads, enabled with the {@value #SHARED_READS_PROPERTY} system property, actions run with {@link #withReadLock(Factory)} acquire a shared lock instead
+ * once another process has asked for the lock, so that processes which only read from the cache do not take the lock away from each other.
+ * A shared lock is also kept until another process asks for it. When an exclusive lock is required while this process holds a shared lock, the actions
+ * reading from the cache are allowed to finish, then the shared lock is released and an exclusive lock is acquired in its place.</p>
+ */
 class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAccess {
+    public static final String SHARED_READS_PROPERTY = "org.gradle.cache.internal.shared-reads";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(LockOnDemandCrossProcessCacheAccess.class);
     private final String cacheDisplayName;
     private final File lockTarget;
@@ -40,8 +54,12 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
     private final Action<FileLock> onClose;
     private final Runnable unlocker;
     private final Action<FileLockReleasedSignal> whenContended;
+    private final boolean sharedReads;
+    private final ReentrantReadWriteLock readers = new ReentrantReadWriteLock();
     private int lockCount;
     private FileLock fileLock;
+    private FileLockManager.LockMode fileLockMode;
+    private boolean contended;
     private CacheInitializationAction initAction;
     private FileLockReleasedSignal lockReleaseSignal;
 
@@ -53,6 +71,13 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
      * @param onClose Action to run when the lock is closed. Action is called while holding state lock
      */
     public LockOnDemandCrossProcessCacheAccess(String cacheDisplayName, File lockTarget, LockOptions lockOptions, FileLockManager lockManager, Lock stateLock, CacheInitializationAction initAction, Action<FileLock> onOpen, Action<FileLock> onClose) {
+        this(cacheDisplayName, lockTarget, lockOptions, lockManager, stateLock, initAction, onOpen, onClose, false);
+    }
+
+    /**
+     * @param sharedReads Whether to acquire a shared lock for actions that only read from the cache, once another process has asked for the lock.
+     */
+    public LockOnDemandCrossProcessCacheAccess(String cacheDisplayName, File lockTarget, LockOptions lockOptions, FileLockManager lockManager, Lock stateLock, CacheInitializationAction initAction, Action<FileLock> onOpen, Action<FileLock> onClose, boolean sharedReads) {
         this.cacheDisplayName = cacheDisplayName;
         this.lockTarget = lockTarget;
         this.lockOptions = lockOptions;
@@ -61,6 +86,7 @@ public LockOnDemandCrossProcessCacheAccess(String cacheDisplayName, File lockTar
         this.initAction = initAction;
         this.onOpen = onOpen;
         this.onClose = onClose;
+        this.sharedReads = sharedReads;
         unlocker = new UnlockAction();
         whenContended = new ContendedAction();
     }
@@ -74,8 +100,9 @@ public void open() {
     public void close() {
         stateLock.lock();
         try {
-            if (lockCount != 0) {
-                throw new IllegalStateException(String.format("Cannot close cache access for %s as it is currently in use for %s operations.", cacheDisplayName, lockCount));
+            int operations = lockCount + readers.getReadLockCount();
+            if (operations != 0) {
+                throw new IllegalStateException(String.format("Cannot close cache access for %s as it is currently in use for %s operations.", cacheDisplayName, operations));
             }
             releaseLockIfHeld();
         } finally {
@@ -93,32 +120,51 @@ public <T> T withFileLock(Factory<T> factory) {
         }
     }
 
+    @Override
+    public <T> T withReadLock(Factory<T> factory) {
+        if (!sharedReads) {
+            return withFileLock(factory);
+        }
+        if (readers.getReadHoldCount() > 0) {
+            // Already reading, and so holding the lock
+            return factory.create();
+        }
+        stateLock.lock();
+        try {
+            if (fileLock == null) {
+                acquireLock(contended ? Shared : Exclusive);
+            }
+            // Does not block, as the readers are only ever write locked while holding the state lock
+            readers.readLock().lock();
+        } finally {
+            stateLock.unlock();
+        }
+        try {
+            return factory.create();
+        } finally {
+            readers.readLock().unlock();
+            stateLock.lock();
+            try {
+                if (lockReleaseSignal != null) {
+                    releaseLockIfUnused();
+                }
+            } finally {
+                stateLock.unlock();
+            }
+        }
+    }
+
     private void incrementLockCount() {
         stateLock.lock();
         try {
+            if (fileLock != null && fileLockMode == Shared) {
+                upgradeLock();
+            }
             if (fileLock == null) {
                 if (lockCount != 0) {
                     throw new IllegalStateException("Mismatched lock count.");
                 }
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Acquiring file lock for {}", cacheDisplayName);
-                }
-                fileLock = lockManager.lock(lockTarget, lockOptions, cacheDisplayName, "", whenContended);
-                try {
-                    if (initAction.requiresInitialization(fileLock)) {
-                        fileLock.writeFile(new Runnable() {
-                            @Override
-                            public void run() {
-                                initAction.initialize(fileLock);
-                            }
-                        });
-                    }
-                    onOpen.execute(fileLock);
-                } catch (Exception e) {
-                    fileLock.close();
-                    fileLock = null;
-                    throw UncheckedException.throwAsUncheckedException(e);
-                }
+                acquireLock(Exclusive);
             }
             lockCount++;
         } finally {
@@ -126,6 +172,61 @@ public void run() {
         }
     }
 
+    /**
+     * Releases the shared lock, so that an exclusive lock can be acquired in its place. Must be called while holding the state lock.
+     */
+    private void upgradeLock() {
+        if (readers.getReadHoldCount() > 0) {
+            throw new IllegalStateException(String.format("Cannot acquire an exclusive lock on %s while reading from it.", cacheDisplayName));
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Upgrading shared file lock for {}", cacheDisplayName);
+        }
+        // Wait for the actions reading from the cache to finish, so that none of them keeps reading once another process can write to the cache.
+        // The state lock is kept meanwhile, so no other action can start reading or take the lock. The caches are notified when the lock is released
+        // and acquired again, so that they discard what they read from the cache when another process has written to it in between.
+        readers.writeLock().lock();
+        try {
+            releaseLockIfHeld();
+        } finally {
+            readers.writeLock().unlock();
+        }
+    }
+
+    private void acquireLock(FileLockManager.LockMode mode) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Acquiring {} file lock for {}", mode.toString().toLowerCase(), cacheDisplayName);
+        }
+        fileLock = lockManager.lock(lockTarget, lockOptions.withMode(mode), cacheDisplayName, "", whenContended);
+        fileLockMode = mode;
+        try {
+            if (initAction.requiresInitialization(fileLock)) {
+                if (mode == Shared) {
+                    // Initialization requires an exclusive lock
+                    fileLock.close();
+                    fileLock = null;
+                    fileLock = lockManager.lock(lockTarget, lockOptions, cacheDisplayName, "", whenContended);
+                    fileLockMode = Exclusive;
+                }
+                if (mode == Exclusive || initAction.requiresInitialization(fileLock)) {
+                    fileLock.writeFile(new Runnable() {
+                        @Override
+                        public void run() {
+                            initAction.initialize(fileLock);
+                        }
+                    });
+                }
+            }
+            onOpen.execute(fileLock);
+        } catch (Exception e) {
+            if (fileLock != null) {
+                fileLock.close();
+                fileLock = null;
+            }
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
     private void decrementLockCount() {
         stateLock.lock();
         try {
@@ -134,19 +235,36 @@ private void decrementLockCount() {
             }
             lockCount--;
             if (lockCount == 0 && lockReleaseSignal != null) {
-                releaseLockIfHeld();
+                releaseLockIfUnused();
             } // otherwise, keep lock open
         } finally {
             stateLock.unlock();
         }
     }
 
+    /**
+     * Releases the lock when no action is using it. Must be called while holding the state lock.
+     *
+     * @return true if the lock has been released.
+     */
+    private boolean releaseLockIfUnused() {
+        if (lockCount != 0 || !readers.writeLock().tryLock()) {
+            return false;
+        }
+        try {
+            releaseLockIfHeld();
+            return true;
+        } finally {
+            readers.writeLock().unlock();
+        }
+    }
+
     private void releaseLockIfHeld() {
         if (fileLock == null) {
             return;
         }
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Releasing file lock for {}", cacheDisplayName);
+            LOGGER.debug("Releasing {} file lock for {}", fileLockMode.toString().toLowerCase(), cacheDisplayName);
         }
         try {
             onClose.execute(fileLock);
@@ -174,9 +292,9 @@ private class ContendedAction implements Action<FileLockReleasedSignal> {
         public void execute(FileLockReleasedSignal signal) {
             stateLock.lock();
             try {
-                if (lockCount == 0) {
+                contended = true;
+                if (releaseLockIfUnused()) {
                     LOGGER.debug("Lock on {} requested by another process - releasing lock.", cacheDisplayName);
-                    releaseLockIfHeld();
                     signal.trigger();
                 } else {
                     // Lock is in use - mark as contended
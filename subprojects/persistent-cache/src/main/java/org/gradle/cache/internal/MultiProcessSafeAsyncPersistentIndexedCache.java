@@ -30,6 +30,16 @@
     @Nullable
     V get(K key);
 
+    /**
+     * Fetches the given entry when this can be done without reading the backing store, for example when the entry is held in memory. Does not block.
+     *
+     * @param notInMemory the value to return when the entry has to be read from the backing store.
+     */
+    @Nullable
+    default V getIfInMemory(K key, @Nullable V notInMemory) {
+        return notInMemory;
+    }
+
     /**
      * Fetches the given entry, producing if necessary, blocking until the result is available. This method may or may not block until any updates have completed and will invoke the given completion action when the operation is complete.
      */
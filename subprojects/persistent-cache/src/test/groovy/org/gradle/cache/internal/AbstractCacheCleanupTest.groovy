@@ -19,6 +19,8 @@ package org.gradle.cache.internal
 import org.gradle.api.specs.Spec
 import org.gradle.cache.CleanableStore
 import org.gradle.cache.CleanupProgressMonitor
+import org.gradle.cache.IncrementalCleanup
+import org.gradle.internal.time.CountdownTimer
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -110,6 +112,60 @@ class AbstractCacheCleanupTest extends Specification {
         deletedFiles == [file, parent]
     }
 
+    def "resumes incremental cleanup after the last visited file"() {
+        given:
+        def cacheEntries = ["a", "b", "c", "d"].collect { cacheDir.createDir(it).createFile("entry") }
+        def progressFile = temporaryFolder.file("gc-progress.properties")
+        def timer = Mock(CountdownTimer)
+        def finder = new SingleDepthFilesFinder(2)
+
+        when:
+        def firstPass = new DefaultIncrementalCleanup(cacheDir, progressFile, timer)
+        cleanupAction(finder, { true }).clean(incrementallyCleanedStore(firstPass), progressMonitor)
+
+        then:
+        _ * timer.hasExpired() >>> [false, false, true]
+        !firstPass.finishPass()
+        progressFile.assertIsFile()
+        deletedFiles == [cacheEntries[0], cacheEntries[0].parentFile, cacheEntries[1], cacheEntries[1].parentFile]
+        cacheEntries[2].assertExists()
+        cacheEntries[3].assertExists()
+
+        when:
+        deletedFiles.clear()
+        def secondPass = new DefaultIncrementalCleanup(cacheDir, progressFile, timer)
+        cleanupAction(finder, { true }).clean(incrementallyCleanedStore(secondPass), progressMonitor)
+
+        then:
+        _ * timer.hasExpired() >> false
+        secondPass.finishPass()
+        progressFile.assertDoesNotExist()
+        deletedFiles == [cacheEntries[2], cacheEntries[2].parentFile, cacheEntries[3], cacheEntries[3].parentFile]
+    }
+
+    def "does not clean directory again once incremental cleanup has completed it"() {
+        given:
+        def cacheEntry = cacheDir.createFile("entry")
+        def incrementalCleanup = Mock(IncrementalCleanup)
+
+        when:
+        cleanupAction(finder([cacheEntry]), { true }).clean(incrementallyCleanedStore(incrementalCleanup), progressMonitor)
+
+        then:
+        1 * incrementalCleanup.isCompleted(cacheDir) >> true
+        0 * incrementalCleanup._
+        0 * progressMonitor._
+        cacheEntry.assertExists()
+    }
+
+    CleanableStore incrementallyCleanedStore(IncrementalCleanup incrementalCleanup) {
+        Stub(CleanableStore) {
+            getBaseDir() >> cacheDir
+            getReservedCacheFiles() >> []
+            getIncrementalCleanup() >> incrementalCleanup
+        }
+    }
+
     FilesFinder finder(files) {
         Stub(FilesFinder) {
             find(_, _) >> { baseDir, filter ->
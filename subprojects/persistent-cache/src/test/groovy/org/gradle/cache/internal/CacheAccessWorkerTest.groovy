@@ -198,4 +198,64 @@ class CacheAccessWorkerTest extends ConcurrentSpec {
         def e = thrown(RuntimeException)
         e == failure
     }
+
+    def "group commit applies only the last write to each key of a cache"() {
+        given:
+        def groupCommitWorker = new CacheAccessWorker("<cache>", cacheAccess, true)
+        def writes = []
+        def discarded = []
+        def write = { cache, key, value ->
+            new TestWrite(cache: cache, key: key, action: { writes << "$cache:$key=$value".toString() }, onDiscard: { discarded << "$cache:$key=$value".toString() })
+        }
+        groupCommitWorker.enqueue(write("a", 1, "first"))
+        groupCommitWorker.enqueue(write("b", 1, "first"))
+        groupCommitWorker.enqueue(write("a", 2, "first"))
+        groupCommitWorker.enqueue(write("a", 1, "second"))
+
+        when:
+        start(groupCommitWorker)
+        groupCommitWorker.flush()
+
+        then:
+        writes == ["a:1=second", "a:2=first", "b:1=first"]
+        discarded == ["a:1=first"]
+
+        cleanup:
+        groupCommitWorker?.stop()
+    }
+
+    def "group commit applies pending writes before other operations"() {
+        given:
+        def groupCommitWorker = new CacheAccessWorker("<cache>", cacheAccess, true)
+        def counter = 0
+        start(groupCommitWorker)
+
+        when:
+        groupCommitWorker.enqueue(new TestWrite(cache: "a", key: 1, action: { counter++ }))
+        groupCommitWorker.enqueue(new TestWrite(cache: "a", key: 2, action: { counter++ }))
+        def result = groupCommitWorker.read { counter }
+
+        then:
+        result == 2
+
+        cleanup:
+        groupCommitWorker?.stop()
+    }
+
+    static class TestWrite implements CacheAccessWorker.CoalescableWrite {
+        Object cache
+        Object key
+        Runnable action
+        Runnable onDiscard = {}
+
+        @Override
+        void run() {
+            action.run()
+        }
+
+        @Override
+        void discard() {
+            onDiscard.run()
+        }
+    }
 }
@@ -19,6 +19,8 @@ package org.gradle.cache.internal
 import org.gradle.cache.CleanableStore
 import org.gradle.cache.CleanupAction
 import org.gradle.cache.CleanupProgressMonitor
+import org.gradle.cache.IncrementalCleanup
+import org.gradle.internal.time.CountdownTimer
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -53,4 +55,60 @@ class CompositeCleanupActionTest extends Specification {
             assert store.getBaseDir() == subDir
         }
     }
+
+    def "keeps the incremental cleanup progress of each action cleaning the same directory apart"() {
+        given:
+        def cacheDir = temporaryFolder.createDir("cache-dir")
+        ["a", "b", "c", "d"].each { cacheDir.createFile(it) }
+        def progressFile = temporaryFolder.file("gc-progress.properties")
+        def timer = Mock(CountdownTimer)
+        def firstVisited = []
+        def secondVisited = []
+        def cleanupAction = CompositeCleanupAction.builder()
+            .add(visitingCleanupAction(firstVisited), visitingCleanupAction(secondVisited))
+            .build()
+
+        when:
+        def firstPass = new DefaultIncrementalCleanup(cacheDir, progressFile, timer)
+        cleanupAction.clean(incrementallyCleanedStore(cacheDir, firstPass), progressMonitor)
+
+        then:
+        _ * timer.hasExpired() >>> [false, false, true]
+        !firstPass.finishPass()
+        firstVisited == ["a", "b"]
+        secondVisited == []
+
+        when:
+        firstVisited.clear()
+        def secondPass = new DefaultIncrementalCleanup(cacheDir, progressFile, timer)
+        cleanupAction.clean(incrementallyCleanedStore(cacheDir, secondPass), progressMonitor)
+
+        then:
+        _ * timer.hasExpired() >> false
+        secondPass.finishPass()
+        firstVisited == ["c", "d"]
+        secondVisited == ["a", "b", "c", "d"]
+    }
+
+    CleanableStore incrementallyCleanedStore(File baseDir, IncrementalCleanup incrementalCleanup) {
+        Stub(CleanableStore) {
+            getBaseDir() >> baseDir
+            getReservedCacheFiles() >> []
+            getIncrementalCleanup() >> incrementalCleanup
+        }
+    }
+
+    CleanupAction visitingCleanupAction(List<String> visited) {
+        new AbstractCacheCleanup(new SingleDepthFilesFinder(1)) {
+            @Override
+            protected boolean shouldDelete(File file) {
+                visited << file.name
+                return false
+            }
+
+            @Override
+            protected void handleDeletion(File file) {
+            }
+        }
+    }
 }
@@ -71,6 +71,41 @@ class DefaultFileLockManagerContentionTest extends ConcurrentSpec {
         lockMode << [Exclusive, Shared]
     }
 
+    def "lock manager is notified while holding a shared lock when another lock manager in same process requires an exclusive lock"() {
+        given:
+        def file = tmpDir.file("lock-file.bin")
+        def action = Mock(Action)
+
+        def lock = createLock(Shared, file, manager, action)
+
+        when:
+        def lock2 = createLock(Exclusive, file, manager2)
+
+        then:
+        lock2
+        1 * action.execute(_) >> { FileLockReleasedSignal signal ->
+            lock.close()
+            signal.trigger()
+        }
+    }
+
+    def "asks the process which held a shared lock before to release it when releasing a shared lock"() {
+        given:
+        FileLockContentionHandler contentionHandler3 = Mock(FileLockContentionHandler)
+        FileLockManager manager3 = new DefaultFileLockManager(Stub(ProcessMetaDataProvider), 2000, contentionHandler3, new LongIdGenerator())
+
+        def file = tmpDir.file("lock-file.bin")
+        createLock(Shared, file, manager, Stub(Action)).close()
+        int port1 = contentionHandler.communicator.socket.localPort
+        def lock = createLock(Shared, file, manager3, Stub(Action))
+
+        when:
+        lock.close()
+
+        then:
+        1 * contentionHandler3.maybePingOwner(port1, _, _, _, _)
+    }
+
     @Unroll
     def "cannot acquire lock with mode #lockMode while another lock manager in same process is holding shared lock"() {
         given:
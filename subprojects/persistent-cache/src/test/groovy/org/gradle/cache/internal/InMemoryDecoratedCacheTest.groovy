@@ -45,6 +45,23 @@ class InMemoryDecoratedCacheTest extends ConcurrentSpec {
         0 * _
     }
 
+    def "looks up value in memory without reading backing cache"() {
+        given:
+        cache.putLater("key", "value", Stub(Runnable))
+        cache.removeLater("removed", Stub(Runnable))
+
+        when:
+        def present = cache.getIfInMemory("key", "unknown")
+        def removed = cache.getIfInMemory("removed", "unknown")
+        def missing = cache.getIfInMemory("missing", "unknown")
+
+        then:
+        present == "value"
+        removed == null
+        missing == "unknown"
+        0 * target.get(_)
+    }
+
     def "does not produce value when present in backing cache and marks completed"() {
         def producer = Mock(Transformer)
         def completion = Mock(Runnable)
@@ -799,4 +799,178 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         1 * lock.close()
         0 * _
     }
+
+    def "acquires exclusive lock for reads until another process asks for the lock"() {
+        def cacheAccess = new LockOnDemandCrossProcessCacheAccess("<cache>", file, LockOptionsBuilder.mode(FileLockManager.LockMode.Exclusive), lockManager, new ReentrantLock(), Stub(CacheInitializationAction), Stub(Action), Stub(Action), true)
+        def exclusiveLock = Mock(FileLock)
+        def sharedLock = Mock(FileLock)
+        def signal = Mock(FileLockReleasedSignal)
+        def contendedAction
+
+        when:
+        def result = cacheAccess.withReadLock { "result" }
+
+        then:
+        result == "result"
+        1 * lockManager.lock(file, { it.mode == FileLockManager.LockMode.Exclusive }, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Action<FileLockReleasedSignal> whenContended -> contendedAction = whenContended
+                return exclusiveLock
+        }
+        0 * _
+
+        when:
+        contendedAction.execute(signal)
+
+        then:
+        1 * exclusiveLock.close()
+        1 * signal.trigger()
+        0 * _
+
+        when:
+        result = cacheAccess.withReadLock { "result" }
+        cacheAccess.withReadLock { "result" }
+
+        then:
+        result == "result"
+        1 * lockManager.lock(file, { it.mode == FileLockManager.LockMode.Shared }, _, _, _) >> sharedLock
+        0 * _
+    }
+
+    def "releases shared lock when another process asks for the lock"() {
+        def cacheAccess = new LockOnDemandCrossProcessCacheAccess("<cache>", file, LockOptionsBuilder.mode(FileLockManager.LockMode.Exclusive), lockManager, new ReentrantLock(), Stub(CacheInitializationAction), Stub(Action), Stub(Action), true)
+        def exclusiveLock = Mock(FileLock)
+        def sharedLock = Mock(FileLock)
+        def signal = Mock(FileLockReleasedSignal)
+        def contendedAction
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Action<FileLockReleasedSignal> whenContended -> contendedAction = whenContended
+                return exclusiveLock
+        }
+        cacheAccess.withFileLock { }
+        contendedAction.execute(Stub(FileLockReleasedSignal))
+        1 * lockManager.lock(file, { it.mode == FileLockManager.LockMode.Shared }, _, _, _) >> sharedLock
+
+        when:
+        cacheAccess.withReadLock {
+            contendedAction.execute(signal)
+        }
+
+        then:
+        1 * sharedLock.close()
+
+        then:
+        1 * signal.trigger()
+        0 * _
+    }
+
+    def "upgrades shared lock when exclusive lock is required"() {
+        def onOpen = Mock(Action)
+        def onClose = Mock(Action)
+        def cacheAccess = new LockOnDemandCrossProcessCacheAccess("<cache>", file, LockOptionsBuilder.mode(FileLockManager.LockMode.Exclusive), lockManager, new ReentrantLock(), Stub(CacheInitializationAction), onOpen, onClose, true)
+        def firstLock = Mock(FileLock)
+        def sharedLock = Mock(FileLock)
+        def exclusiveLock = Mock(FileLock)
+        def contendedAction
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Action<FileLockReleasedSignal> whenContended -> contendedAction = whenContended
+                return firstLock
+        }
+        cacheAccess.withFileLock { }
+        contendedAction.execute(Stub(FileLockReleasedSignal))
+
+        when:
+        cacheAccess.withReadLock { }
+
+        then:
+        1 * lockManager.lock(file, { it.mode == FileLockManager.LockMode.Shared }, _, _, _) >> sharedLock
+        1 * onOpen.execute(sharedLock)
+        0 * _
+
+        when:
+        cacheAccess.withFileLock { }
+        cacheAccess.withReadLock { }
+
+        then:
+        1 * onClose.execute(sharedLock)
+        1 * sharedLock.close()
+
+        then:
+        1 * lockManager.lock(file, { it.mode == FileLockManager.LockMode.Exclusive }, _, _, _) >> exclusiveLock
+        1 * onOpen.execute(exclusiveLock)
+        0 * _
+    }
+
+    def "waits for reads to finish before upgrading shared lock"() {
+        def cacheAccess = new LockOnDemandCrossProcessCacheAccess("<cache>", file, LockOptionsBuilder.mode(FileLockManager.LockMode.Exclusive), lockManager, new ReentrantLock(), Stub(CacheInitializationAction), Stub(Action), Stub(Action), true)
+        def firstLock = Mock(FileLock)
+        def sharedLock = Mock(FileLock)
+        def exclusiveLock = Mock(FileLock)
+        def contendedAction
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Action<FileLockReleasedSignal> whenContended -> contendedAction = whenContended
+                return firstLock
+        }
+        cacheAccess.withFileLock { }
+        contendedAction.execute(Stub(FileLockReleasedSignal))
+        1 * lockManager.lock(file, { it.mode == FileLockManager.LockMode.Shared }, _, _, _) >> sharedLock
+        1 * lockManager.lock(file, { it.mode == FileLockManager.LockMode.Exclusive }, _, _, _) >> exclusiveLock
+
+        when:
+        async {
+            start {
+                cacheAccess.withReadLock {
+                    instant.reading
+                    thread.block()
+                    instant.read
+                }
+            }
+            start {
+                thread.blockUntil.reading
+                cacheAccess.withFileLock {
+                    instant.writing
+                }
+            }
+        }
+
+        then:
+        1 * sharedLock.close() >> {
+            instant.released
+        }
+
+        and:
+        instant.released > instant.read
+        instant.writing > instant.released
+    }
+
+    def "cannot acquire exclusive lock while reading with shared lock"() {
+        def cacheAccess = new LockOnDemandCrossProcessCacheAccess("<cache>", file, LockOptionsBuilder.mode(FileLockManager.LockMode.Exclusive), lockManager, new ReentrantLock(), Stub(CacheInitializationAction), Stub(Action), Stub(Action), true)
+        def firstLock = Mock(FileLock)
+        def sharedLock = Mock(FileLock)
+        def contendedAction
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Action<FileLockReleasedSignal> whenContended -> contendedAction = whenContended
+                return firstLock
+        }
+        cacheAccess.withFileLock { }
+        contendedAction.execute(Stub(FileLockReleasedSignal))
+        1 * lockManager.lock(file, { it.mode == FileLockManager.LockMode.Shared }, _, _, _) >> sharedLock
+
+        when:
+        cacheAccess.withReadLock {
+            cacheAccess.withFileLock { }
+        }
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == 'Cannot acquire an exclusive lock on <cache> while reading from it.'
+        0 * sharedLock.close()
+    }
 }
@@ -18,6 +18,7 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.ManagedScheduledExecutor;
@@ -28,12 +29,27 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Asks memory holders to release memory when the free system memory runs low.
+ *
+ * <p>When admission control is enabled with the {@value #ADMISSION_CONTROL_PROPERTY} system property, also keeps track of the memory reserved
+ * by the worker processes started by this process. A new process is only started once its reservation, together with the reservations of
+ * the running processes, the maximum heap of this process and the minimum free memory threshold fits into the physical memory of the system.
+ * This keeps many parallel test forks and worker daemons from oversubscribing the system, at the cost of starting some of them later.
+ * A process is always started when no other process holds a reservation, even when it needs more memory than available. As the running
+ * processes may never stop, for example the other test forks of the same task or busy worker daemons, a process is also started with a
+ * warning once it has waited for {@value #MAX_RESERVATION_WAIT_SECONDS} seconds. While waiting, idle processes are asked to stop regularly.</p>
+ */
 public class DefaultMemoryManager implements MemoryManager, Stoppable {
+    public static final String ADMISSION_CONTROL_PROPERTY = "org.gradle.internal.memory.admission-control";
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultMemoryManager.class);
     public static final int STATUS_INTERVAL_SECONDS = 5;
     private static final double DEFAULT_MIN_FREE_MEMORY_PERCENTAGE = 0.1D; // 10%
     private static final long MIN_THRESHOLD_BYTES = 384 * 1024 * 1024; // 384M
+    private static final int MAX_RESERVATION_WAIT_SECONDS = 30;
+    private static final long RESERVATION_RETRY_MILLIS = 1000;
 
     private final double minFreeMemoryPercentage;
     private final OsMemoryInfo osMemoryInfo;
@@ -48,13 +64,28 @@ public class DefaultMemoryManager implements MemoryManager, Stoppable {
     private final List<MemoryHolder> holders = new ArrayList<MemoryHolder>();
     private OsMemoryStatus currentOsMemoryStatus;
     private final OsMemoryStatusListener osMemoryStatusListener;
+    private final boolean admissionControl;
+    private final long maxReservationWaitMillis;
+    private final Object reservationLock = new Object();
+    private long reservableMemory = -1;
+    private long reservedMemory;
 
     public DefaultMemoryManager(OsMemoryInfo osMemoryInfo, JvmMemoryInfo jvmMemoryInfo, ListenerManager listenerManager, ExecutorFactory executorFactory) {
-        this(osMemoryInfo, jvmMemoryInfo, listenerManager, executorFactory, DEFAULT_MIN_FREE_MEMORY_PERCENTAGE, true);
+        this(osMemoryInfo, jvmMemoryInfo, listenerManager, executorFactory, DEFAULT_MIN_FREE_MEMORY_PERCENTAGE, true, Boolean.getBoolean(ADMISSION_CONTROL_PROPERTY));
     }
 
     @VisibleForTesting
     DefaultMemoryManager(OsMemoryInfo osMemoryInfo, JvmMemoryInfo jvmMemoryInfo, ListenerManager listenerManager, ExecutorFactory executorFactory, double minFreeMemoryPercentage, boolean autoFree) {
+        this(osMemoryInfo, jvmMemoryInfo, listenerManager, executorFactory, minFreeMemoryPercentage, autoFree, false);
+    }
+
+    @VisibleForTesting
+    DefaultMemoryManager(OsMemoryInfo osMemoryInfo, JvmMemoryInfo jvmMemoryInfo, ListenerManager listenerManager, ExecutorFactory executorFactory, double minFreeMemoryPercentage, boolean autoFree, boolean admissionControl) {
+        this(osMemoryInfo, jvmMemoryInfo, listenerManager, executorFactory, minFreeMemoryPercentage, autoFree, admissionControl, TimeUnit.SECONDS.toMillis(MAX_RESERVATION_WAIT_SECONDS));
+    }
+
+    @VisibleForTesting
+    DefaultMemoryManager(OsMemoryInfo osMemoryInfo, JvmMemoryInfo jvmMemoryInfo, ListenerManager listenerManager, ExecutorFactory executorFactory, double minFreeMemoryPercentage, boolean autoFree, boolean admissionControl, long maxReservationWaitMillis) {
         Preconditions.checkArgument(minFreeMemoryPercentage >= 0, "Free memory percentage must be >= 0");
         Preconditions.checkArgument(minFreeMemoryPercentage <= 1, "Free memory percentage must be <= 1");
         this.minFreeMemoryPercentage = minFreeMemoryPercentage;
@@ -66,6 +97,8 @@ public DefaultMemoryManager(OsMemoryInfo osMemoryInfo, JvmMemoryInfo jvmMemoryIn
         this.osBroadcast = listenerManager.getBroadcaster(OsMemoryStatusListener.class);
         this.osMemoryStatusSupported = supportsOsMemoryStatus();
         this.osMemoryStatusListener = new OsMemoryListener(autoFree);
+        this.admissionControl = admissionControl && osMemoryStatusSupported;
+        this.maxReservationWaitMillis = maxReservationWaitMillis;
         start();
     }
 
@@ -116,10 +149,7 @@ private long doRequestFreeMemory(long requestedFreeMemory, long freeMemory) {
         long toReleaseMemory = requestedFreeMemory;
         if (freeMemory < requestedFreeMemory) {
             LOGGER.debug("{} memory requested, {} free", requestedFreeMemory, freeMemory);
-            List<MemoryHolder> memoryHolders;
-            synchronized (holdersLock) {
-                memoryHolders = new ArrayList<MemoryHolder>(holders);
-            }
+            List<MemoryHolder> memoryHolders = getMemoryHolders();
             for (MemoryHolder holder : memoryHolders) {
                 long released = holder.attemptToRelease(toReleaseMemory);
                 toReleaseMemory -= released;
@@ -134,10 +164,124 @@ private long doRequestFreeMemory(long requestedFreeMemory, long freeMemory) {
         return freeMemory;
     }
 
+    private List<MemoryHolder> getMemoryHolders() {
+        synchronized (holdersLock) {
+            return new ArrayList<MemoryHolder>(holders);
+        }
+    }
+
+    private long releaseFromHolders(long memoryAmountBytes) {
+        List<MemoryHolder> memoryHolders = getMemoryHolders();
+        long released = 0;
+        for (MemoryHolder holder : memoryHolders) {
+            released += holder.attemptToRelease(memoryAmountBytes - released);
+            if (released >= memoryAmountBytes) {
+                break;
+            }
+        }
+        return released;
+    }
+
+    @Override
+    public MemoryReservation reserveMemory(long memoryAmountBytes) {
+        if (!admissionControl) {
+            return NoMemoryReservation.INSTANCE;
+        }
+        long amount = memoryAmountBytes > 0 ? memoryAmountBytes : 0;
+        long deadline = System.currentTimeMillis() + maxReservationWaitMillis;
+        boolean waiting = false;
+        while (true) {
+            long shortfall;
+            synchronized (reservationLock) {
+                shortfall = tryReserve(amount);
+                if (shortfall == 0) {
+                    return new DefaultMemoryReservation(amount);
+                }
+            }
+            // Stop idle processes first. Do not hold the lock while doing so, as the stopped processes release their own reservations
+            LOGGER.debug("{} memory requested, {} more than available for new processes", amount, shortfall);
+            releaseFromHolders(shortfall);
+            synchronized (reservationLock) {
+                shortfall = tryReserve(amount);
+                if (shortfall == 0) {
+                    return new DefaultMemoryReservation(amount);
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    LOGGER.warn("Starting a new process which needs {} of memory, although {} of the {} available for new processes is reserved by running processes which did not stop within {} seconds.",
+                        amount, reservedMemory, reservableMemory, TimeUnit.MILLISECONDS.toSeconds(maxReservationWaitMillis));
+                    reservedMemory += amount;
+                    return new DefaultMemoryReservation(amount);
+                }
+                if (!waiting) {
+                    LOGGER.info("Waiting for running processes to stop before reserving {} of memory for a new process, {} of {} already reserved.", amount, reservedMemory, reservableMemory);
+                    waiting = true;
+                }
+                try {
+                    reservationLock.wait(Math.min(remaining, RESERVATION_RETRY_MILLIS));
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserves the given amount when possible.
+     *
+     * @return 0 when reserved, otherwise the amount of memory missing.
+     */
+    private long tryReserve(long amount) {
+        if (reservableMemory < 0) {
+            long totalPhysicalMemory = osMemoryInfo.getOsSnapshot().getTotalPhysicalMemory();
+            reservableMemory = Math.max(0, totalPhysicalMemory - getMemoryThresholdInBytes(totalPhysicalMemory) - jvmMemoryInfo.getJvmSnapshot().getMaxMemory());
+        }
+        long shortfall = reservedMemory + amount - reservableMemory;
+        if (reservedMemory > 0 && shortfall > 0) {
+            return shortfall;
+        }
+        reservedMemory += amount;
+        return 0;
+    }
+
+    private class DefaultMemoryReservation implements MemoryReservation {
+        private final long amount;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        DefaultMemoryReservation(long amount) {
+            this.amount = amount;
+        }
+
+        @Override
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                synchronized (reservationLock) {
+                    reservedMemory -= amount;
+                    reservationLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private static class NoMemoryReservation implements MemoryReservation {
+        static final MemoryReservation INSTANCE = new NoMemoryReservation();
+
+        @Override
+        public void release() {
+        }
+    }
+
     private long getMemoryThresholdInBytes(long totalPhysicalMemory) {
         return Math.max(MIN_THRESHOLD_BYTES, (long) (totalPhysicalMemory * minFreeMemoryPercentage));
     }
 
+    /**
+     * Returns the amount of physical memory that the memory manager keeps free by default on a machine with the given amount of physical memory.
+     */
+    public static long getDefaultMemoryThresholdInBytes(long totalPhysicalMemory) {
+        return Math.max(MIN_THRESHOLD_BYTES, (long) (totalPhysicalMemory * DEFAULT_MIN_FREE_MEMORY_PERCENTAGE));
+    }
+
     private class MemoryCheck implements Runnable {
         @Override
         public void run() {
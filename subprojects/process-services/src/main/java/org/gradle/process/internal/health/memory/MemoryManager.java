@@ -49,4 +49,15 @@ public interface MemoryManager {
      * @param memoryAmountBytes The requested amount of memory in bytes. If negative, {@literal 0} is assumed.
      */
     void requestFreeMemory(long memoryAmountBytes);
+
+    /**
+     * Reserve an amount of system memory for a new process, usually its maximum heap size.
+     *
+     * When admission control is enabled, blocks until the memory reserved by all running processes together fits into the
+     * physical memory of the system, asking the registered memory holders to release memory first. Otherwise, returns immediately.
+     *
+     * @param memoryAmountBytes The amount of memory to reserve in bytes. If negative, {@literal 0} is assumed.
+     * @return The reservation, to release once the process has stopped.
+     */
+    MemoryReservation reserveMemory(long memoryAmountBytes);
 }
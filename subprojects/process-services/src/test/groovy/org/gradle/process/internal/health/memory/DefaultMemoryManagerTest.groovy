@@ -213,6 +213,112 @@ class DefaultMemoryManagerTest extends ConcurrentSpec {
         memoryManager.stop()
     }
 
+    def newAdmissionControllingMemoryManager(long maxReservationWaitMillis = 60000) {
+        def jvmMemoryInfo = Stub(JvmMemoryInfo) {
+            getJvmSnapshot() >> new JvmMemoryStatusSnapshot(MemoryAmount.of('1g').bytes, 0)
+        }
+        // 8g total - 2g threshold - 1g for this process leaves 5g for new processes
+        return new DefaultMemoryManager(osMemoryInfo, jvmMemoryInfo, Mock(ListenerManager), Stub(ExecutorFactory), 0.25, false, true, maxReservationWaitMillis)
+    }
+
+    def "reserves memory for new processes when it fits into physical memory"() {
+        given:
+        def memoryManager = newAdmissionControllingMemoryManager()
+        def holder = Mock(MemoryHolder)
+        memoryManager.addMemoryHolder(holder)
+
+        when:
+        memoryManager.reserveMemory(MemoryAmount.of('2g').bytes)
+        memoryManager.reserveMemory(MemoryAmount.of('3g').bytes)
+
+        then:
+        0 * holder.attemptToRelease(_)
+
+        cleanup:
+        memoryManager.stop()
+    }
+
+    def "waits for running processes to stop when a new process does not fit into physical memory"() {
+        given:
+        def memoryManager = newAdmissionControllingMemoryManager()
+        def holder = Mock(MemoryHolder)
+        memoryManager.addMemoryHolder(holder)
+        def first = memoryManager.reserveMemory(MemoryAmount.of('3g').bytes)
+
+        when:
+        async {
+            start {
+                memoryManager.reserveMemory(MemoryAmount.of('3g').bytes)
+                instant.reserved
+            }
+            thread.block()
+            instant.released
+            first.release()
+        }
+
+        then:
+        (1.._) * holder.attemptToRelease(MemoryAmount.of('1g').bytes) >> 0
+        instant.reserved > instant.released
+
+        cleanup:
+        memoryManager.stop()
+    }
+
+    def "does not wait when memory holders release enough memory"() {
+        given:
+        def memoryManager = newAdmissionControllingMemoryManager()
+        def idle = memoryManager.reserveMemory(MemoryAmount.of('3g').bytes)
+        def holder = Mock(MemoryHolder)
+        memoryManager.addMemoryHolder(holder)
+
+        when:
+        memoryManager.reserveMemory(MemoryAmount.of('3g').bytes)
+
+        then:
+        1 * holder.attemptToRelease(MemoryAmount.of('1g').bytes) >> {
+            idle.release()
+            MemoryAmount.of('3g').bytes
+        }
+
+        cleanup:
+        memoryManager.stop()
+    }
+
+    def "reserves memory anyway when running processes do not stop in time"() {
+        given:
+        def memoryManager = newAdmissionControllingMemoryManager(100)
+        def holder = Mock(MemoryHolder)
+        memoryManager.addMemoryHolder(holder)
+        memoryManager.reserveMemory(MemoryAmount.of('3g').bytes)
+
+        when:
+        def reservation = memoryManager.reserveMemory(MemoryAmount.of('3g').bytes)
+
+        then:
+        reservation != null
+        (1.._) * holder.attemptToRelease(MemoryAmount.of('1g').bytes) >> 0
+
+        cleanup:
+        memoryManager.stop()
+    }
+
+    def "reserves memory for a process larger than physical memory when no other process holds a reservation"() {
+        given:
+        def memoryManager = newAdmissionControllingMemoryManager()
+
+        when:
+        def reservation = memoryManager.reserveMemory(MemoryAmount.of('16g').bytes)
+        reservation.release()
+        reservation.release()
+        memoryManager.reserveMemory(MemoryAmount.of('5g').bytes)
+
+        then:
+        noExceptionThrown()
+
+        cleanup:
+        memoryManager.stop()
+    }
+
     private static class TestOsMemoryInfo implements OsMemoryInfo {
         long totalMemory = -1
         long freeMemory = -1
@@ -29,25 +29,39 @@
 import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
+import org.gradle.internal.xml.SimpleXmlWriter;
 import org.gradle.util.GFileUtils;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.io.IOException;
 
+/**
+ * Generates the JUnit XML results from the binary test results, either as one file per test class, generated in parallel, or,
+ * when the {@value #SINGLE_FILE_PROPERTY} system property is set, as a single {@code testsuites} file streamed class by class.
+ */
 public class Binary2JUnitXmlReportGenerator {
+    public static final String SINGLE_FILE_PROPERTY = "org.gradle.internal.test.junitxml.single-file";
+    public static final String SINGLE_FILE_NAME = "TESTS-TestSuites.xml";
 
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
     private JUnitXmlResultWriter xmlWriter;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final boolean singleFile;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
     public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BuildOperationExecutor buildOperationExecutor, String hostName) {
+        this(testResultsDir, testResultsProvider, outputAssociation, buildOperationExecutor, hostName, Boolean.getBoolean(SINGLE_FILE_PROPERTY));
+    }
+
+    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BuildOperationExecutor buildOperationExecutor, String hostName, boolean singleFile) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
         this.xmlWriter = new JUnitXmlResultWriter(hostName, testResultsProvider, outputAssociation);
         this.buildOperationExecutor = buildOperationExecutor;
+        this.singleFile = singleFile;
     }
 
     public void generate() {
@@ -74,6 +88,16 @@ public BuildOperationDescriptor.Builder description() {
             }
         });
 
+        if (singleFile) {
+            buildOperationExecutor.run(new JUnitXmlSingleFileGenerator(new File(testResultsDir, SINGLE_FILE_NAME)));
+        } else {
+            generatePerClassFiles();
+        }
+
+        LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
+    }
+
+    private void generatePerClassFiles() {
         buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
             @Override
             public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
@@ -86,14 +110,52 @@ public void execute(final TestClassResult result) {
                 });
             }
         });
-
-        LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
     }
 
     private String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
 
+    private class JUnitXmlSingleFileGenerator implements RunnableBuildOperation {
+        private final File reportFile;
+
+        JUnitXmlSingleFileGenerator(File reportFile) {
+            this.reportFile = reportFile;
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Generate junit XML test report into ".concat(reportFile.getName()));
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            FileOutputStream output = null;
+            try {
+                output = new FileOutputStream(reportFile);
+                final SimpleXmlWriter writer = new SimpleXmlWriter(output, "  ");
+                writer.startElement("testsuites");
+                // Each class is written out as soon as it is visited, so the whole report is never held in memory
+                testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                    @Override
+                    public void execute(TestClassResult result) {
+                        try {
+                            xmlWriter.writeTestSuite(writer, result);
+                        } catch (IOException e) {
+                            throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), reportFile), e);
+                        }
+                    }
+                });
+                writer.endElement();
+                output.close();
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not write XML test results to file %s.", reportFile), e);
+            } finally {
+                IoActions.closeQuietly(output);
+            }
+        }
+    }
+
     private static class JUnitXmlReportFileGenerator implements RunnableBuildOperation {
         private final TestClassResult result;
         private final File reportFile;
@@ -41,39 +41,46 @@ public JUnitXmlResultWriter(String hostName, TestResultsProvider testResultsProv
      * @param output The destination, unbuffered
      */
     public void write(TestClassResult result, OutputStream output) {
-        String className = result.getClassName();
-        long classId = result.getId();
-
         try {
             SimpleXmlWriter writer = new SimpleXmlWriter(output, "  ");
-            writer.startElement("testsuite")
-                    .attribute("name", className)
-                    .attribute("tests", String.valueOf(result.getTestsCount()))
-                    .attribute("skipped", String.valueOf(result.getSkippedCount()))
-                    .attribute("failures", String.valueOf(result.getFailuresCount()))
-                    .attribute("errors", "0")
-                    .attribute("timestamp", DateUtils.format(result.getStartTime(), DateUtils.ISO8601_DATETIME_PATTERN))
-                    .attribute("hostname", hostName)
-                    .attribute("time", String.valueOf(result.getDuration() / 1000.0));
-
-            writer.startElement("properties");
-            writer.endElement();
-
-            writeTests(writer, result.getResults(), className, classId);
-
-            writer.startElement("system-out");
-            writeOutputs(writer, classId, outputAssociation.equals(TestOutputAssociation.WITH_SUITE), TestOutputEvent.Destination.StdOut);
-            writer.endElement();
-            writer.startElement("system-err");
-            writeOutputs(writer, classId, outputAssociation.equals(TestOutputAssociation.WITH_SUITE), TestOutputEvent.Destination.StdErr);
-            writer.endElement();
-
-            writer.endElement();
+            writeTestSuite(writer, result);
         } catch (IOException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
     }
 
+    /**
+     * Writes the results of the given class as a {@code testsuite} element to the given writer, which may already contain other elements.
+     */
+    public void writeTestSuite(SimpleXmlWriter writer, TestClassResult result) throws IOException {
+        String className = result.getClassName();
+        long classId = result.getId();
+
+        writer.startElement("testsuite")
+                .attribute("name", className)
+                .attribute("tests", String.valueOf(result.getTestsCount()))
+                .attribute("skipped", String.valueOf(result.getSkippedCount()))
+                .attribute("failures", String.valueOf(result.getFailuresCount()))
+                .attribute("errors", "0")
+                .attribute("timestamp", DateUtils.format(result.getStartTime(), DateUtils.ISO8601_DATETIME_PATTERN))
+                .attribute("hostname", hostName)
+                .attribute("time", String.valueOf(result.getDuration() / 1000.0));
+
+        writer.startElement("properties");
+        writer.endElement();
+
+        writeTests(writer, result.getResults(), className, classId);
+
+        writer.startElement("system-out");
+        writeOutputs(writer, classId, outputAssociation.equals(TestOutputAssociation.WITH_SUITE), TestOutputEvent.Destination.StdOut);
+        writer.endElement();
+        writer.startElement("system-err");
+        writeOutputs(writer, classId, outputAssociation.equals(TestOutputAssociation.WITH_SUITE), TestOutputEvent.Destination.StdErr);
+        writer.endElement();
+
+        writer.endElement();
+    }
+
     private void writeOutputs(SimpleXmlWriter writer, long classId, boolean allClassOutput, TestOutputEvent.Destination destination) throws IOException {
         writer.startCDATA();
         if (allClassOutput) {
@@ -27,7 +27,12 @@
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -220,6 +225,11 @@ Index build() {
     public class Reader implements Closeable {
         private final Index index;
         private final RandomAccessFile dataFile;
+        private final CharsetDecoder messageDecoder = messageStorageCharset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer messageBytes = ByteBuffer.allocate(8192);
+        private final CharBuffer messageChars = CharBuffer.allocate(8192);
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -362,17 +372,7 @@ private void doRead(long classId, long testId, boolean allClassOutput, TestOutpu
                     }
 
                     if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        decoder.readBytes(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
-                        }
-
-                        writer.write(message);
+                        writeMessage(decoder, readLength, writer);
                     } else {
                         decoder.skipBytes(readLength);
                     }
@@ -381,6 +381,38 @@ private void doRead(long classId, long testId, boolean allClassOutput, TestOutpu
                 throw new UncheckedIOException(e1);
             }
         }
+
+        /**
+         * Decodes the message straight into the writer, through buffers reused for all messages read by this reader.
+         */
+        private void writeMessage(KryoBackedDecoder decoder, int length, java.io.Writer writer) throws IOException {
+            messageDecoder.reset();
+            messageBytes.clear();
+            int remaining = length;
+            while (remaining > 0) {
+                int count = Math.min(remaining, messageBytes.remaining());
+                decoder.readBytes(messageBytes.array(), messageBytes.position(), count);
+                messageBytes.position(messageBytes.position() + count);
+                remaining -= count;
+                messageBytes.flip();
+                CoderResult result;
+                do {
+                    result = messageDecoder.decode(messageBytes, messageChars, remaining == 0);
+                    writeChars(writer);
+                } while (result.isOverflow());
+                // Keep the bytes of a character split across chunks
+                messageBytes.compact();
+            }
+            while (messageDecoder.flush(messageChars).isOverflow()) {
+                writeChars(writer);
+            }
+            writeChars(writer);
+        }
+
+        private void writeChars(java.io.Writer writer) throws IOException {
+            writer.write(messageChars.array(), 0, messageChars.position());
+            messageChars.clear();
+        }
     }
 
     // IMPORTANT: return must be closed when done with.
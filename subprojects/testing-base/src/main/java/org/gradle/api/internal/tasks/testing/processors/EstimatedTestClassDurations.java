@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Estimates how long test classes take to execute, based on the durations recorded by a previous execution.
+ * Classes without a recorded duration are assumed to take the average duration of the known classes.
+ */
+public class EstimatedTestClassDurations {
+    private static final EstimatedTestClassDurations NONE = new EstimatedTestClassDurations(Collections.<String, Long>emptyMap());
+
+    private final Map<String, Long> durations;
+    private final long averageDuration;
+
+    private EstimatedTestClassDurations(Map<String, Long> durations) {
+        this.durations = ImmutableMap.copyOf(durations);
+        long total = 0;
+        for (Long duration : durations.values()) {
+            total += duration;
+        }
+        this.averageDuration = durations.isEmpty() ? 0 : total / durations.size();
+    }
+
+    public static EstimatedTestClassDurations none() {
+        return NONE;
+    }
+
+    public static EstimatedTestClassDurations of(Map<String, Long> previousDurations) {
+        return previousDurations.isEmpty() ? NONE : new EstimatedTestClassDurations(previousDurations);
+    }
+
+    /**
+     * Returns true when there is no recorded duration to base the estimates on.
+     */
+    public boolean isEmpty() {
+        return durations.isEmpty();
+    }
+
+    public long estimate(String testClassName) {
+        Long duration = durations.get(testClassName);
+        return duration != null ? duration : averageDuration;
+    }
+}
@@ -44,13 +44,17 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
     final WorkerLeaseService workerLeaseService = new TestWorkerLeaseService()
 
     def generatorWithMaxThreads(int numThreads) {
+        Binary2JUnitXmlReportGenerator reportGenerator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, resultsProvider, TestOutputAssociation.WITH_SUITE, executorWithMaxThreads(numThreads), "localhost", false)
+        reportGenerator.xmlWriter = Mock(JUnitXmlResultWriter)
+        return reportGenerator
+    }
+
+    def executorWithMaxThreads(int numThreads) {
         ParallelismConfigurationManager parallelExecutionManager = new ParallelismConfigurationManagerFixture(false, numThreads)
         buildOperationExecutor = new DefaultBuildOperationExecutor(
             Mock(BuildOperationListener), Mock(Clock), new NoOpProgressLoggerFactory(),
             new DefaultBuildOperationQueueFactory(workerLeaseService), new DefaultExecutorFactory(), parallelExecutionManager, new DefaultBuildOperationIdFactory())
-        Binary2JUnitXmlReportGenerator reportGenerator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, resultsProvider, TestOutputAssociation.WITH_SUITE, buildOperationExecutor, "localhost")
-        reportGenerator.xmlWriter = Mock(JUnitXmlResultWriter)
-        return reportGenerator
+        return buildOperationExecutor
     }
 
     @Unroll
@@ -101,4 +105,30 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         ex.causes[0].message.startsWith('Could not write XML test results for FooTest')
         ex.causes[0].cause.message == "Boo!"
     }
+
+    def "writes results of all classes into a single file"() {
+        generator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, resultsProvider, TestOutputAssociation.WITH_SUITE, executorWithMaxThreads(4), "localhost", true)
+        def oldResults = temp.file("TEST-OldTest.xml").createFile()
+
+        def fooTest = new TestClassResult(1, 'FooTest', 100)
+            .add(new TestMethodResult(1, "foo"))
+        def barTest = new TestClassResult(2, 'BarTest', 100)
+            .add(new TestMethodResult(2, "bar"))
+
+        resultsProvider.visitClasses(_) >> { Action action ->
+            action.execute(fooTest)
+            action.execute(barTest)
+        }
+
+        when:
+        generator.generate()
+
+        then:
+        !oldResults.exists()
+        temp.testDirectory.list() as List == [Binary2JUnitXmlReportGenerator.SINGLE_FILE_NAME]
+        def testSuites = new XmlSlurper().parse(temp.file(Binary2JUnitXmlReportGenerator.SINGLE_FILE_NAME))
+        testSuites.name() == "testsuites"
+        testSuites.testsuite.collect { it.@name.text() } == ["FooTest", "BarTest"]
+        testSuites.testsuite.testcase.collect { it.@name.text() } == ["foo", "bar"]
+    }
 }
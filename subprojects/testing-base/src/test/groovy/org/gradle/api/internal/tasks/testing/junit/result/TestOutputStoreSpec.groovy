@@ -102,6 +102,24 @@ class TestOutputStoreSpec extends WorkspaceTest {
         new DefaultTestOutputEvent(destination, msg)
     }
 
+    def "reads messages larger than the read buffer with multi-byte characters"() {
+        def message = "\u00e9\u4e2d\ud83d\ude00x" * 5000
+
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdOut, "[out-1]"))
+        writer.onOutput(1, 1, output(StdOut, message))
+        writer.onOutput(1, 1, output(StdOut, "[out-2]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == "[out-1]" + message + "[out-2]"
+
+        cleanup:
+        reader.close()
+    }
+
     def "writes nothing for unknown test class"() {
         when:
         def writer = output.writer()
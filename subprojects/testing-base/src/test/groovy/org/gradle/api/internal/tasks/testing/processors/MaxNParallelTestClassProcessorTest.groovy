@@ -168,6 +168,48 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.processTestClass(test)
     }
 
+    def assignsTestClassesToLeastBusyProcessorWhenDurationsAreKnown() {
+        def durationAwareProcessor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, EstimatedTestClassDurations.of([Slow: 100L, Fast: 10L, Other: 20L]))
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        durationAwareProcessor.startProcessing(resultProcessor)
+
+        when:
+        durationAwareProcessor.processTestClass(testClass('Slow'))
+        durationAwareProcessor.processTestClass(testClass('Fast'))
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * factory.create() >> processor2
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor1.processTestClass({ it.testClassName == 'Slow' })
+        1 * asyncProcessor2.processTestClass({ it.testClassName == 'Fast' })
+
+        when:
+        durationAwareProcessor.processTestClass(testClass('Other'))
+        durationAwareProcessor.processTestClass(testClass('Unknown'))
+
+        then:
+        2 * asyncProcessor2.processTestClass(_)
+        0 * asyncProcessor1.processTestClass(_)
+    }
+
+    private TestClassRunInfo testClass(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
+    }
+
     def "stopNow propagates to factory created processors"() {
         TestClassRunInfo test = Mock()
         TestClassProcessor processor1 = Mock()
@@ -27,9 +27,11 @@
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
+import org.gradle.api.internal.tasks.testing.processors.EstimatedTestClassDurations;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.PatternMatchTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.RunLongestFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RunPreviousFailedFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
@@ -99,10 +101,14 @@ public TestClassProcessor create() {
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testExecutionSpec.getForkEvery());
             }
         };
+        int maxParallelForks = getMaxParallelForks(testExecutionSpec);
+        // Balancing by duration only makes a difference when there is more than one fork
+        EstimatedTestClassDurations durations = maxParallelForks > 1 ? EstimatedTestClassDurations.of(testExecutionSpec.getPreviousTestClassDurations()) : EstimatedTestClassDurations.none();
         processor =
             new PatternMatchTestClassProcessor(testFilter,
-                new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
-                    new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory)));
+                new RunLongestFirstTestClassProcessor(durations,
+                    new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
+                        new MaxNParallelTestClassProcessor(maxParallelForks, reforkingProcessorFactory, actorFactory, durations))));
 
         final FileTree testClassFiles = testExecutionSpec.getCandidateClassFiles();
 
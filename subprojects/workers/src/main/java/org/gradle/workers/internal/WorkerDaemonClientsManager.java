@@ -17,6 +17,7 @@
 package org.gradle.workers.internal;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.SettableFuture;
 import org.gradle.api.Action;
 import org.gradle.api.Transformer;
 import org.gradle.api.logging.LogLevel;
@@ -24,6 +25,9 @@
 import org.gradle.api.logging.Logging;
 import org.gradle.initialization.SessionLifecycleListener;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.exceptions.DefaultMultiCauseException;
@@ -31,24 +35,40 @@
 import org.gradle.internal.logging.events.LogLevelChangeEvent;
 import org.gradle.internal.logging.events.OutputEvent;
 import org.gradle.internal.logging.events.OutputEventListener;
+import org.gradle.process.internal.health.memory.DefaultMemoryManager;
+import org.gradle.process.internal.health.memory.MaximumHeapHelper;
+import org.gradle.process.internal.health.memory.MemoryAmount;
 import org.gradle.process.internal.health.memory.MemoryManager;
 import org.gradle.process.internal.health.memory.OsMemoryInfo;
+import org.gradle.process.internal.health.memory.OsMemoryStatus;
 import org.gradle.process.internal.worker.WorkerProcess;
 import org.gradle.util.CollectionUtils;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import static java.util.Comparator.*;
 
+/**
+ * Keeps track of the worker daemons, handing out idle daemons when they are compatible with the requested fork options.
+ *
+ * <p>When the {@value #PREWARM_PROPERTY} system property is set, the manager also remembers how many compatible daemons were busy at the same time
+ * in the previous build session. The first time daemons with the same fork options are requested in a later session, it starts that many daemons
+ * in the background, as long as the machine has enough free memory for them, so that the tasks which follow do not have to wait for a daemon to start.</p>
+ */
 public class WorkerDaemonClientsManager implements Stoppable {
+    public static final String PREWARM_PROPERTY = "org.gradle.internal.workers.prewarm";
 
     private static final Logger LOGGER = Logging.getLogger(WorkerDaemonClientsManager.class);
 
     private final Object lock = new Object();
     private final List<WorkerDaemonClient> allClients = new ArrayList<WorkerDaemonClient>();
     private final List<WorkerDaemonClient> idleClients = new ArrayList<WorkerDaemonClient>();
+    private final List<Demand> demands = new ArrayList<Demand>();
+    private final List<PrewarmingClient> prewarmingClients = new ArrayList<PrewarmingClient>();
     private final Action<WorkerProcess> workerProcessCleanupAction = new WorkerProcessCleanupAction();
 
     private final WorkerDaemonStarter workerDaemonStarter;
@@ -59,9 +79,18 @@ public class WorkerDaemonClientsManager implements Stoppable {
     private final OutputEventListener logLevelChangeEventListener;
     private final WorkerDaemonExpiration workerDaemonExpiration;
     private final MemoryManager memoryManager;
+    private final ExecutorFactory executorFactory;
+    private ManagedExecutor prewarmExecutor;
     private volatile LogLevel currentLogLevel;
 
     public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, ListenerManager listenerManager, LoggingManagerInternal loggingManager, MemoryManager memoryManager, OsMemoryInfo memoryInfo) {
+        this(workerDaemonStarter, listenerManager, loggingManager, memoryManager, memoryInfo, null);
+    }
+
+    /**
+     * @param executorFactory Used to start daemons in the background, or null when daemons should never be started ahead of time.
+     */
+    public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, ListenerManager listenerManager, LoggingManagerInternal loggingManager, MemoryManager memoryManager, OsMemoryInfo memoryInfo, @Nullable ExecutorFactory executorFactory) {
         this.workerDaemonStarter = workerDaemonStarter;
         this.listenerManager = listenerManager;
         this.loggingManager = loggingManager;
@@ -72,6 +101,7 @@ public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, Liste
         loggingManager.addOutputEventListener(logLevelChangeEventListener);
         this.currentLogLevel = loggingManager.getLevel();
         this.memoryManager = memoryManager;
+        this.executorFactory = Boolean.getBoolean(PREWARM_PROPERTY) ? executorFactory : null;
         this.workerDaemonExpiration = new WorkerDaemonExpiration(this, getTotalPhysicalMemory());
         memoryManager.addMemoryHolder(workerDaemonExpiration);
     }
@@ -82,26 +112,67 @@ public WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
     }
 
     WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerDaemonClient> clients) {
+        WorkerDaemonClient client;
+        Demand toPrewarm = null;
         synchronized (lock) {
-            Iterator<WorkerDaemonClient> it = clients.iterator();
-            while (it.hasNext()) {
-                WorkerDaemonClient candidate = it.next();
-                if (candidate.isCompatibleWith(forkOptions)) {
-                    it.remove();
-                    if (candidate.getLogLevel() != currentLogLevel) {
-                        // TODO: Send a message to workers to change their log level rather than stopping
-                        LOGGER.info("Log level has changed, stopping idle worker daemon with out-of-date log level.");
-                        candidate.stop();
-                    } else {
-                        return candidate;
-                    }
+            client = takeIdleClient(forkOptions, clients);
+            if (client != null) {
+                toPrewarm = reserved(forkOptions);
+            }
+        }
+        if (toPrewarm != null) {
+            prewarm(toPrewarm, false);
+        }
+        return client;
+    }
+
+    private WorkerDaemonClient takeIdleClient(DaemonForkOptions forkOptions, List<WorkerDaemonClient> clients) {
+        Iterator<WorkerDaemonClient> it = clients.iterator();
+        while (it.hasNext()) {
+            WorkerDaemonClient candidate = it.next();
+            if (candidate.isCompatibleWith(forkOptions)) {
+                it.remove();
+                if (candidate.getLogLevel() != currentLogLevel) {
+                    // TODO: Send a message to workers to change their log level rather than stopping
+                    LOGGER.info("Log level has changed, stopping idle worker daemon with out-of-date log level.");
+                    candidate.stop();
+                } else {
+                    return candidate;
                 }
             }
-            return null;
         }
+        return null;
     }
 
     public WorkerDaemonClient reserveNewClient(DaemonForkOptions forkOptions) {
+        PrewarmingClient prewarming = null;
+        WorkerDaemonClient idle = null;
+        Demand toPrewarm;
+        synchronized (lock) {
+            if (executorFactory != null) {
+                // A daemon started ahead of time may have become idle since the caller last looked, or may still be starting
+                idle = takeIdleClient(forkOptions, idleClients);
+                if (idle == null) {
+                    prewarming = claimPrewarmingClient(forkOptions);
+                }
+            }
+            toPrewarm = reserved(forkOptions);
+        }
+        if (toPrewarm != null) {
+            prewarm(toPrewarm, idle == null);
+        }
+        if (idle != null) {
+            return idle;
+        }
+        if (prewarming != null) {
+            try {
+                return prewarming.client.get();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                LOGGER.info("Could not start worker daemon ahead of time, starting a new one.", e.getCause());
+            }
+        }
         //allow the daemon to be started concurrently
         WorkerDaemonClient client = workerDaemonStarter.startDaemon(forkOptions, workerProcessCleanupAction);
         synchronized (lock) {
@@ -112,14 +183,156 @@ public WorkerDaemonClient reserveNewClient(DaemonForkOptions forkOptions) {
 
     public void release(WorkerDaemonClient client) {
         synchronized (lock) {
+            if (executorFactory != null) {
+                Demand demand = findDemand(client.getForkOptions());
+                if (demand != null && demand.busy > 0) {
+                    demand.busy--;
+                }
+            }
             if (!client.isFailed()) {
                 idleClients.add(client);
             }
         }
     }
 
+    /**
+     * Records the demand for daemons with the given fork options, when daemons are started ahead of time.
+     *
+     * @return the demand to start daemons for, if this is the first time daemons with these options are requested in this session.
+     */
+    @Nullable
+    private Demand reserved(DaemonForkOptions forkOptions) {
+        if (executorFactory == null) {
+            return null;
+        }
+        Demand demand = findDemand(forkOptions);
+        if (demand == null) {
+            demand = new Demand(forkOptions);
+            demands.add(demand);
+        }
+        demand.busy++;
+        demand.peak = Math.max(demand.peak, demand.busy);
+        if (demand.prewarmed) {
+            return null;
+        }
+        demand.prewarmed = true;
+        // The reserved daemon covers the demand when only one daemon was busy at a time
+        return demand.previousPeak > 1 ? demand : null;
+    }
+
+    @Nullable
+    private Demand findDemand(DaemonForkOptions forkOptions) {
+        for (Demand demand : demands) {
+            if (demand.forkOptions.isCompatibleWith(forkOptions) && forkOptions.isCompatibleWith(demand.forkOptions)) {
+                return demand;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts as many daemons as were busy at the same time in the previous session, minus those already available.
+     *
+     * @param reservedDaemonStarting whether the reserved daemon is not yet known to this manager, because it is still starting.
+     */
+    private void prewarm(Demand demand, boolean reservedDaemonStarting) {
+        // Querying the OS is slow, so do it before taking the lock
+        OsMemoryStatus memoryStatus;
+        try {
+            memoryStatus = memoryInfo.getOsSnapshot();
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+        synchronized (lock) {
+            prewarm(demand, reservedDaemonStarting, memoryStatus);
+        }
+    }
+
+    private void prewarm(Demand demand, boolean reservedDaemonStarting, OsMemoryStatus memoryStatus) {
+        int available = reservedDaemonStarting ? 1 : 0;
+        for (WorkerDaemonClient client : allClients) {
+            if (client.isCompatibleWith(demand.forkOptions)) {
+                available++;
+            }
+        }
+        for (PrewarmingClient prewarming : prewarmingClients) {
+            if (prewarming.forkOptions.isCompatibleWith(demand.forkOptions)) {
+                available++;
+            }
+        }
+        int missing = demand.previousPeak - available;
+        if (missing <= 0) {
+            return;
+        }
+        int affordable = countAffordableDaemons(demand.forkOptions, missing, memoryStatus);
+        if (affordable < missing) {
+            LOGGER.debug("Not enough free memory to start {} worker daemon(s) ahead of time, starting {}.", missing, affordable);
+        }
+        if (affordable > 0 && prewarmExecutor == null) {
+            prewarmExecutor = executorFactory.create("Worker daemon pre-warming");
+        }
+        for (int i = 0; i < affordable; i++) {
+            PrewarmingClient prewarming = new PrewarmingClient(demand.forkOptions);
+            prewarmingClients.add(prewarming);
+            prewarmExecutor.execute(() -> startPrewarmingClient(prewarming));
+        }
+    }
+
+    private static int countAffordableDaemons(DaemonForkOptions forkOptions, int count, OsMemoryStatus memoryStatus) {
+        long maxHeapSize = MemoryAmount.parseNotation(forkOptions.getJavaForkOptions().getMaxHeapSize());
+        if (maxHeapSize == -1) {
+            maxHeapSize = new MaximumHeapHelper().getDefaultMaximumHeapSize(memoryStatus.getTotalPhysicalMemory());
+        }
+        long minFreeMemory = DefaultMemoryManager.getDefaultMemoryThresholdInBytes(memoryStatus.getTotalPhysicalMemory());
+        long spareMemory = memoryStatus.getFreePhysicalMemory() - minFreeMemory;
+        if (spareMemory <= 0 || maxHeapSize <= 0) {
+            return 0;
+        }
+        return (int) Math.min(count, spareMemory / maxHeapSize);
+    }
+
+    private void startPrewarmingClient(PrewarmingClient prewarming) {
+        WorkerDaemonClient client;
+        try {
+            client = workerDaemonStarter.startDaemon(prewarming.forkOptions, workerProcessCleanupAction);
+        } catch (Throwable t) {
+            synchronized (lock) {
+                prewarmingClients.remove(prewarming);
+            }
+            prewarming.client.setException(t);
+            return;
+        }
+        synchronized (lock) {
+            allClients.add(client);
+            if (prewarmingClients.remove(prewarming)) {
+                // Nobody is waiting for this daemon
+                idleClients.add(client);
+            }
+        }
+        prewarming.client.set(client);
+    }
+
+    @Nullable
+    private PrewarmingClient claimPrewarmingClient(DaemonForkOptions forkOptions) {
+        Iterator<PrewarmingClient> iterator = prewarmingClients.iterator();
+        while (iterator.hasNext()) {
+            PrewarmingClient candidate = iterator.next();
+            if (candidate.forkOptions.isCompatibleWith(forkOptions)) {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void stop() {
+        ManagedExecutor executor;
+        synchronized (lock) {
+            executor = prewarmExecutor;
+        }
+        // Wait for daemons being started ahead of time, so that they are stopped below
+        CompositeStoppable.stoppable(executor).stop();
         synchronized (lock) {
             stopWorkers(allClients);
             allClients.clear();
@@ -187,6 +400,11 @@ public void afterStart() { }
         @Override
         public void beforeComplete() {
             synchronized (lock) {
+                if (executorFactory != null) {
+                    for (Demand demand : demands) {
+                        demand.sessionFinished();
+                    }
+                }
                 List<WorkerDaemonClient> sessionScopedClients = CollectionUtils.filter(allClients, client -> client.getKeepAliveMode() == KeepAliveMode.SESSION);
                 stopWorkers(sessionScopedClients);
             }
@@ -218,4 +436,34 @@ public void execute(WorkerProcess workerProcess) {
             }
         }
     }
+
+    /**
+     * The number of daemons with equivalent fork options that have been busy at the same time.
+     */
+    private static class Demand {
+        private final DaemonForkOptions forkOptions;
+        private int busy;
+        private int peak;
+        private int previousPeak;
+        private boolean prewarmed;
+
+        Demand(DaemonForkOptions forkOptions) {
+            this.forkOptions = forkOptions;
+        }
+
+        void sessionFinished() {
+            previousPeak = peak;
+            peak = busy;
+            prewarmed = false;
+        }
+    }
+
+    private static class PrewarmingClient {
+        private final DaemonForkOptions forkOptions;
+        private final SettableFuture<WorkerDaemonClient> client = SettableFuture.create();
+
+        PrewarmingClient(DaemonForkOptions forkOptions) {
+            this.forkOptions = forkOptions;
+        }
+    }
 }
@@ -19,15 +19,20 @@ package org.gradle.workers.internal
 import org.gradle.api.Transformer
 import org.gradle.api.logging.LogLevel
 import org.gradle.initialization.SessionLifecycleListener
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
 import org.gradle.internal.event.DefaultListenerManager
 import org.gradle.internal.event.ListenerManager
 import org.gradle.internal.exceptions.DefaultMultiCauseException
 import org.gradle.internal.logging.LoggingManagerInternal
 import org.gradle.internal.logging.events.LogLevelChangeEvent
 import org.gradle.internal.logging.events.OutputEventListener
+import org.gradle.process.JavaForkOptions
 import org.gradle.process.internal.ExecException
 import org.gradle.process.internal.health.memory.MBeanOsMemoryInfo
 import org.gradle.process.internal.health.memory.MemoryManager
+import org.gradle.process.internal.health.memory.OsMemoryInfo
+import org.gradle.process.internal.health.memory.OsMemoryStatusSnapshot
 import org.gradle.util.ConcurrentSpecification
 import spock.lang.Subject
 
@@ -302,4 +307,118 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         then:
         1 * memoryManager.removeMemoryHolder(_) >> { args -> assert args[0] == workerDaemonExpiration }
     }
+
+    def "starts as many daemons ahead of time as were busy at the same time in the previous session"() {
+        System.setProperty(WorkerDaemonClientsManager.PREWARM_PROPERTY, "true")
+        listenerManager = new DefaultListenerManager()
+        def executorFactory = Stub(ExecutorFactory) {
+            create(_) >> Stub(ManagedExecutor) {
+                execute(_) >> { Runnable runnable -> runnable.run() }
+            }
+        }
+        def memoryInfo = Stub(OsMemoryInfo) {
+            getOsSnapshot() >> new OsMemoryStatusSnapshot(16L * 1024 * 1024 * 1024, 8L * 1024 * 1024 * 1024)
+        }
+        def forkOptions = Stub(DaemonForkOptions) {
+            isCompatibleWith(_) >> true
+            getJavaForkOptions() >> Stub(JavaForkOptions) {
+                getMaxHeapSize() >> "512m"
+            }
+        }
+        def clients = (1..6).collect {
+            Stub(WorkerDaemonClient) {
+                isCompatibleWith(_) >> true
+                getForkOptions() >> forkOptions
+                getKeepAliveMode() >> KeepAliveMode.SESSION
+            }
+        }
+        def starter = Mock(WorkerDaemonStarter)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, memoryInfo, executorFactory)
+
+        when:
+        def busy = (1..3).collect { manager.reserveNewClient(forkOptions) }
+        busy.each { manager.release(it) }
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+
+        then:
+        3 * starter.startDaemon(forkOptions, _) >>> clients[0..2]
+
+        when:
+        def client = manager.reserveNewClient(forkOptions)
+
+        then:
+        3 * starter.startDaemon(forkOptions, _) >>> clients[3..5]
+        client == clients[5]
+        manager.reserveIdleClient(forkOptions) == clients[3]
+        manager.reserveIdleClient(forkOptions) == clients[4]
+        manager.reserveIdleClient(forkOptions) == null
+
+        cleanup:
+        System.clearProperty(WorkerDaemonClientsManager.PREWARM_PROPERTY)
+    }
+
+    def "does not start daemons ahead of time when there is not enough free memory"() {
+        System.setProperty(WorkerDaemonClientsManager.PREWARM_PROPERTY, "true")
+        listenerManager = new DefaultListenerManager()
+        def executorFactory = Mock(ExecutorFactory)
+        def memoryInfo = Stub(OsMemoryInfo) {
+            getOsSnapshot() >> new OsMemoryStatusSnapshot(16L * 1024 * 1024 * 1024, 1L * 1024 * 1024 * 1024)
+        }
+        def forkOptions = Stub(DaemonForkOptions) {
+            isCompatibleWith(_) >> true
+            getJavaForkOptions() >> Stub(JavaForkOptions) {
+                getMaxHeapSize() >> "512m"
+            }
+        }
+        def client = Stub(WorkerDaemonClient) {
+            isCompatibleWith(_) >> true
+            getForkOptions() >> forkOptions
+            getKeepAliveMode() >> KeepAliveMode.SESSION
+        }
+        def starter = Stub(WorkerDaemonStarter) {
+            startDaemon(_, _) >> client
+        }
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, memoryInfo, executorFactory)
+
+        when:
+        3.times { manager.reserveNewClient(forkOptions) }
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+        manager.reserveNewClient(forkOptions)
+
+        then:
+        0 * executorFactory._
+
+        cleanup:
+        System.clearProperty(WorkerDaemonClientsManager.PREWARM_PROPERTY)
+    }
+
+    def "does not track demand or query free memory when daemons are not started ahead of time"() {
+        listenerManager = new DefaultListenerManager()
+        def executorFactory = Mock(ExecutorFactory)
+        def memoryInfo = Mock(OsMemoryInfo) {
+            getOsSnapshot() >> new OsMemoryStatusSnapshot(16L * 1024 * 1024 * 1024, 8L * 1024 * 1024 * 1024)
+        }
+        def forkOptions = Stub(DaemonForkOptions) {
+            isCompatibleWith(_) >> true
+        }
+        def client = Stub(WorkerDaemonClient) {
+            isCompatibleWith(_) >> true
+            getForkOptions() >> forkOptions
+            getKeepAliveMode() >> KeepAliveMode.SESSION
+        }
+        def starter = Stub(WorkerDaemonStarter) {
+            startDaemon(_, _) >> client
+        }
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, memoryInfo, executorFactory)
+
+        when:
+        3.times { manager.reserveNewClient(forkOptions) }
+        listenerManager.getBroadcaster(SessionLifecycleListener).beforeComplete()
+        manager.reserveNewClient(forkOptions)
+
+        then:
+        0 * memoryInfo._
+        0 * executorFactory._
+        manager.demands.empty
+    }
 }